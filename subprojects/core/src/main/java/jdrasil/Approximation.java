@@ -24,6 +24,7 @@ import jdrasil.algorithms.lowerbounds.MinorMinWidthLowerbound;
 import jdrasil.algorithms.preprocessing.GraphReducer;
 import jdrasil.graph.Graph;
 import jdrasil.graph.GraphFactory;
+import jdrasil.graph.GraphWriter;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.utilities.JdrasilProperties;
 import jdrasil.utilities.logging.JdrasilLogger;
@@ -58,38 +59,10 @@ public class Approximation {
 
 			/* Compute a explicit decomposition */
             long tstart = System.nanoTime();
-            TreeDecomposition<Integer> decomposition = null;
-
-            /* use reduction rules to reduce the graph */
-            GraphReducer<Integer> reducer = new GraphReducer<Integer>(input);
-            Graph<Integer> H = reducer.getProcessedGraph();
-            if (H.getCopyOfVertices().size() == 0) {
-                decomposition = reducer.getTreeDecomposition();
-            } else {
-                int lb = new MinorMinWidthLowerbound<>(H).call();
-                if (lb < 4) lb = 4; // we know this from preprocessing
-
-                // use the separator based decomposer, i.e., split the graph using safe seperators and decompose the atoms
-                GraphSplitter<Integer> splitter = new GraphSplitter<Integer>(H, atom -> {
-                    TreeDecomposition<Integer> td;
-                    try { // use ExactDecomposer to handle atoms
-                        td = new RobertsonSeymourDecomposer<>(atom).call();
-                    } catch (Exception e) { // something went wrong, provide trivial decomposition
-                        td = new TreeDecomposition<>(atom);
-                        td.createBag(atom.getCopyOfVertices());
-                    }
-                    return td;
-                }, lb);
-                splitter.setTargetConnectivity(GraphSplitter.Connectivity.ATOM);
-
-                // glue to final decomposition
-                reducer.addbackTreeDecomposition(splitter.call());
-                decomposition = reducer.getTreeDecomposition();
-            }
+            TreeDecomposition<Integer> decomposition = decompose(input);
 
             long tend = System.nanoTime();
-            System.out.print(decomposition);
-            System.out.println();
+            GraphWriter.writeTreeDecomposition(decomposition);
 
             LOG.info("");
             LOG.info("Tree-Width: " + decomposition.getWidth());
@@ -107,4 +80,44 @@ public class Approximation {
 
     }
 
+    /**
+     * Computes a tree decomposition of width at most 4k+4 of the given graph without any output. This is the computation performed by
+     * the main method and can be used to decompose many graphs within one program run.
+     * @param input the graph to be decomposed
+     * @return a tree decomposition of width at most 4k+4
+     * @throws Exception if the computation fails
+     */
+    public static TreeDecomposition<Integer> decompose(Graph<Integer> input) throws Exception {
+        TreeDecomposition<Integer> decomposition = null;
+
+        /* use reduction rules to reduce the graph */
+        GraphReducer<Integer> reducer = new GraphReducer<Integer>(input);
+        Graph<Integer> H = reducer.getProcessedGraph();
+        if (H.getCopyOfVertices().size() == 0) {
+            decomposition = reducer.getTreeDecomposition();
+        } else {
+            int lb = new MinorMinWidthLowerbound<>(H).call();
+            if (lb < 4) lb = 4; // we know this from preprocessing
+
+            // use the separator based decomposer, i.e., split the graph using safe seperators and decompose the atoms
+            GraphSplitter<Integer> splitter = new GraphSplitter<Integer>(H, atom -> {
+                TreeDecomposition<Integer> td;
+                try { // use ExactDecomposer to handle atoms
+                    td = new RobertsonSeymourDecomposer<>(atom).call();
+                } catch (Exception e) { // something went wrong, provide trivial decomposition
+                    td = new TreeDecomposition<>(atom);
+                    td.createBag(atom.getCopyOfVertices());
+                }
+                return td;
+            }, lb);
+            splitter.setTargetConnectivity(GraphSplitter.Connectivity.ATOM);
+
+            // glue to final decomposition
+            reducer.addbackTreeDecomposition(splitter.call());
+            decomposition = reducer.getTreeDecomposition();
+        }
+
+        return decomposition;
+    }
+
 }
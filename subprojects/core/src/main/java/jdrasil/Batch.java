@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2016-2017, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package jdrasil;
+
+import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
+import jdrasil.graph.GraphWriter;
+import jdrasil.graph.TreeDecomposition;
+import jdrasil.utilities.JdrasilProperties;
+import jdrasil.utilities.RandomNumberGenerator;
+import jdrasil.utilities.logging.JdrasilLogger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Jdrasil is a program to compute a small tree-decomposition of a given graph.
+ * It is developed at the Universitaet zu Luebeck in context of the PACE challenge (www.pacechallenge.wordpress.com).
+ *
+ * <p>
+ * This class provides an entry point to the program for decomposing many graphs within a single program run, such that
+ * the start of the JVM and the warm-up of the JIT compiler are only paid once. The graphs are given as arguments
+ * (.gr or .dgf files, directories containing such files, or text files listing one graph file per line) or, if no
+ * graph is given, as concatenated .gr stream on standard input in which every p-line starts a new graph.
+ * </p>
+ *
+ * <p>
+ * The graphs are decomposed concurrently by a bounded pool of workers, and for every graph a .td file is written.
+ * The parameter -m selects the mode (exact, heuristic, or approximation; default is exact), -w the number of workers
+ * (default is the number of available processors), and -o the directory for the .td files (by default they are written
+ * next to the input files, or to the working directory for graphs from standard input). The .td file of a graph is named
+ * after its file without extension; if two graphs would be written to the same file (e.g., a/x.gr and b/x.gr with -o),
+ * the later one gets a numbered name (x-2.td) and a warning is logged. A time limit given by -t applies to every graph
+ * separately and starts when a worker picks the graph up.
+ * </p>
+ *
+ * @author Max Bannach
+ */
+public class Batch {
+
+    /** Jdrasils Logger */
+    private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
+
+    /** The decomposition that is computed for each graph. */
+    enum Mode {
+        exact, heuristic, approximation;
+
+        /**
+         * Decompose a single graph with this mode.
+         * @param input
+         * @return
+         * @throws Exception
+         */
+        TreeDecomposition<Integer> decompose(Graph<Integer> input) throws Exception {
+            switch (this) {
+                case heuristic:
+                    return Heuristic.decompose(input);
+                case approximation:
+                    return Approximation.decompose(input);
+                default:
+                    return Exact.decompose(input);
+            }
+        }
+    }
+
+    /** Stack size of the workers, some algorithms (e.g., the search for cut vertices) are deeply recursive. */
+    private static final long WORKER_STACK_SIZE = 1L << 30;
+
+    /** The selected mode. */
+    private final Mode mode;
+
+    /** The directory for the .td files, or null if they should be written next to the input. */
+    private final File outputDirectory;
+
+    /** The .td files assigned to submitted graphs, such that no graph overwrites the decomposition of another one. */
+    private final Set<File> outputFiles;
+
+    /** The workers, tasks are run by the submitting thread if all workers are busy and the queue is full. */
+    private final ThreadPoolExecutor workers;
+
+    /** Number of graphs that were decomposed, and number of graphs that failed. */
+    private final AtomicInteger solved, failed;
+
+    /**
+     * Entry point to Jdrasil in batch mode.
+     * @param args
+     */
+    public static void main(String[] args) {
+
+        // parsing arguments
+        JdrasilProperties.parseArguments(args);
+
+        // if Jdrasil is used as standalone, use dimacs logging
+        JdrasilLogger.setToDimacsLogging();
+
+        Batch batch;
+        try {
+            Mode mode = JdrasilProperties.containsKey("m") ? Mode.valueOf(JdrasilProperties.getProperty("m")) : Mode.exact;
+            int numberOfWorkers = JdrasilProperties.containsKey("w")
+                    ? Integer.parseInt(JdrasilProperties.getProperty("w"))
+                    : Runtime.getRuntime().availableProcessors();
+            File outputDirectory = JdrasilProperties.containsKey("o") ? new File(JdrasilProperties.getProperty("o")) : null;
+            if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+                throw new IOException("Could not create the output directory " + outputDirectory);
+            }
+            batch = new Batch(mode, Math.max(1, numberOfWorkers), outputDirectory);
+        } catch (Exception e) {
+            System.out.println("c Error parsing the arguments: " + e.getMessage());
+            System.exit(-1);
+            return;
+        }
+
+        long tstart = System.nanoTime();
+        try {
+            List<File> files = graphFiles(args);
+            if (files.isEmpty()) {
+                int[] index = new int[1];
+                GraphFactory.graphsFromStdin(graph -> batch.submit("graph" + (++index[0]), graph, null));
+            } else {
+                for (File file : files) batch.submit(file.getName().replaceFirst("\\.[^.]*$", ""), null, file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("c Could not read the graph files.");
+        }
+        batch.shutdown();
+        long tend = System.nanoTime();
+
+        LOG.info("");
+        LOG.info("Decomposed " + batch.solved.get() + " graphs, " + batch.failed.get() + " failed");
+        LOG.info("Used " + (tend-tstart)/1000000000 + " seconds");
+        LOG.info("");
+        System.exit(batch.failed.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Initialize the batch with the given mode and a pool of workers. The queue of the pool is bounded, such that
+     * a stream of graphs is not read ahead much further than it is decomposed.
+     * @param mode
+     * @param numberOfWorkers
+     * @param outputDirectory
+     */
+    private Batch(Mode mode, int numberOfWorkers, File outputDirectory) {
+        this.mode = mode;
+        this.outputDirectory = outputDirectory;
+        this.workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2*numberOfWorkers), workerFactory("jdrasil-worker"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.solved = new AtomicInteger();
+        this.failed = new AtomicInteger();
+        this.outputFiles = new HashSet<>();
+    }
+
+    /**
+     * Creates the threads of a worker pool with a stack size that suffices for large graphs, as the default stack size of
+     * threads is much smaller than the one of the main thread.
+     * @param name of the threads
+     * @return a thread factory
+     */
+    static ThreadFactory workerFactory(String name) {
+        return r -> new Thread(null, r, name, WORKER_STACK_SIZE);
+    }
+
+    /**
+     * Collect the graph files given as arguments: arguments that are not parameters (or values of parameters) are
+     * either directories, graph files (.gr or .dgf), or lists of graph files.
+     * @param args the arguments of the program
+     * @return the graph files in the order of the arguments, files of a directory are sorted by name
+     * @throws IOException if a list of files could not be read
+     */
+    private static List<File> graphFiles(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.charAt(0) == '-') {
+                if (a.length() == 2) i++; // skip the value of the parameter
+                continue;
+            }
+            File file = new File(a);
+            if (file.isDirectory()) {
+                File[] content = file.listFiles((dir, name) -> isGraphFile(name));
+                if (content == null) throw new IOException("Could not list the directory " + file);
+                Arrays.sort(content);
+                files.addAll(Arrays.asList(content));
+            } else if (isGraphFile(a)) {
+                files.add(file);
+            } else { // a list of files, relative paths are resolved against the location of the list
+                try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty()) continue;
+                        File listed = new File(line);
+                        files.add(listed.isAbsolute() ? listed : new File(file.getAbsoluteFile().getParentFile(), line));
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean isGraphFile(String name) {
+        return name.endsWith(".gr") || name.endsWith(".dgf");
+    }
+
+    /**
+     * Submit a graph to the workers. Either the graph itself is given, or the file from which the worker will read it.
+     * @param name of the instance, used for the .td file
+     * @param graph the graph, or null if it should be read from the file
+     * @param file the file containing the graph, or null
+     */
+    private void submit(String name, Graph<Integer> graph, File file) {
+        RandomNumberGenerator.Dice dice = RandomNumberGenerator.split(); // split here, such that seeded runs are reproducible
+        File output = outputFile(name, file);
+        workers.execute(() -> {
+            RandomNumberGenerator.Dice previous = RandomNumberGenerator.setDice(dice);
+            long timeLimit = JdrasilProperties.getTimeLimit(); // the time limit starts when the graph is picked up
+            Long previousDeadline = JdrasilProperties.setDeadline(timeLimit > 0 ? System.nanoTime() + timeLimit : null);
+            try {
+                Graph<Integer> input = graph != null ? graph : GraphFactory.graphFromGr(file);
+                TreeDecomposition<Integer> decomposition = mode.decompose(input);
+                try (OutputStream out = new FileOutputStream(output)) {
+                    GraphWriter.writeTreeDecomposition(decomposition, out);
+                }
+                solved.incrementAndGet();
+                LOG.info(name + ": tree-width " + decomposition.getWidth());
+            } catch (Exception | StackOverflowError e) {
+                failed.incrementAndGet();
+                LOG.warning(name + ": " + e);
+            } finally {
+                RandomNumberGenerator.setDice(previous);
+                JdrasilProperties.setDeadline(previousDeadline);
+            }
+        });
+    }
+
+    /**
+     * Assign the .td file to a submitted graph. The file is named after the instance, if this file is already assigned
+     * to another graph, a number is appended to the name.
+     * @param name of the instance
+     * @param file the file containing the graph, or null
+     * @return the .td file, which is not assigned to any other graph
+     */
+    private File outputFile(String name, File file) {
+        File directory = outputDirectory != null ? outputDirectory : file != null ? file.getAbsoluteFile().getParentFile() : new File(".");
+        File output = new File(directory, name + ".td").getAbsoluteFile().toPath().normalize().toFile();
+        for (int i = 2; !outputFiles.add(output); i++) {
+            output = new File(output.getParentFile(), name + "-" + i + ".td");
+        }
+        if (!output.getName().equals(name + ".td")) {
+            LOG.warning(name + ": " + name + ".td is already used by another graph, writing " + output.getName());
+        }
+        return output;
+    }
+
+    /**
+     * Wait until all submitted graphs are decomposed.
+     */
+    private void shutdown() {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) ;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
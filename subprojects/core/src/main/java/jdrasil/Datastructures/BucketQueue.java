@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.Datastructures;
+
+import java.util.Arrays;
+
+import jdrasil.utilities.RandomNumberGenerator;
+
+/**
+ * A bucket priority queue over int ids with small non-negative int keys, as they occur for degrees
+ * and fill-in values. Every key below the limit has its own bucket, which is an unordered int array; larger keys
+ * share a single overflow bucket. Inserting, removing and changing the key of an id costs O(1), as does drawing
+ * a uniformly random id of the minimum key (amortized over the search for the next non-empty bucket).
+ *
+ * @author Max Bannach
+ */
+public class BucketQueue {
+
+	/** The buckets, bucket[limit] is the overflow bucket for all keys >= limit. Buckets are allocated lazily. */
+	private int[][] buckets;
+
+	/** Number of ids in each bucket. */
+	private int[] bucketSize;
+
+	/** The key of each id. */
+	private int[] key;
+
+	/** Position of each id within its bucket, or -1 if the id is not in the queue. */
+	private int[] position;
+
+	/** Keys at or above this value are stored in the overflow bucket. */
+	private final int limit;
+
+	/** All buckets below this key are empty. */
+	private int min;
+
+	/** Number of ids in the queue. */
+	private int size;
+
+	/**
+	 * Creates an empty queue for ids in [0, capacity). Ids beyond the capacity can be inserted later on,
+	 * the queue grows as needed.
+	 * @param capacity
+	 * @param limit keys below this value get their own bucket
+	 */
+	public BucketQueue(int capacity, int limit) {
+		this.limit = Math.max(1, limit);
+		this.buckets = new int[this.limit+1][];
+		this.bucketSize = new int[this.limit+1];
+		this.key = new int[Math.max(1, capacity)];
+		this.position = new int[Math.max(1, capacity)];
+		Arrays.fill(position, -1);
+		this.min = this.limit+1;
+		this.size = 0;
+	}
+
+	/**
+	 * Inserts the id with the given key, or changes the key if the id is already in the queue.
+	 * @param id
+	 * @param k a non-negative key
+	 */
+	public void update(int id, int k) {
+		if (k < 0) throw new RuntimeException("BucketQueue only supports non-negative keys, got " + k);
+		if (id >= position.length) grow(id+1);
+		if (position[id] >= 0) {
+			if (key[id] == k) return;
+			if (Math.min(key[id], limit) == Math.min(k, limit)) { key[id] = k; return; }
+			remove(id);
+		}
+		key[id] = k;
+		int b = Math.min(k, limit);
+		if (buckets[b] == null) {
+			buckets[b] = new int[4];
+		} else if (bucketSize[b] == buckets[b].length) {
+			buckets[b] = Arrays.copyOf(buckets[b], 2*buckets[b].length);
+		}
+		position[id] = bucketSize[b];
+		buckets[b][bucketSize[b]++] = id;
+		if (b < min) min = b;
+		size++;
+	}
+
+	/**
+	 * Removes the id from the queue, does nothing if it is not in the queue.
+	 * @param id
+	 */
+	public void remove(int id) {
+		if (!contains(id)) return;
+		int b = Math.min(key[id], limit);
+		int p = position[id];
+		int last = buckets[b][--bucketSize[b]];
+		buckets[b][p] = last;
+		position[last] = p;
+		position[id] = -1;
+		size--;
+	}
+
+	/**
+	 * Removes all ids from the queue.
+	 */
+	public void clear() {
+		for (int b = 0; b <= limit; b++) {
+			for (int i = 0; i < bucketSize[b]; i++) position[buckets[b][i]] = -1;
+			bucketSize[b] = 0;
+		}
+		min = limit+1;
+		size = 0;
+	}
+
+	/**
+	 * @param id
+	 * @return true if the id is in the queue
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < position.length && position[id] >= 0;
+	}
+
+	/**
+	 * @param id
+	 * @return the key of an id in the queue
+	 */
+	public int getKey(int id) {
+		return key[id];
+	}
+
+	/**
+	 * @return the number of ids in the queue
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the minimum key in the queue, or -1 if the queue is empty
+	 */
+	public int getMinKey() {
+		while (min < limit && bucketSize[min] == 0) min++;
+		if (min < limit) return min;
+		return getMinKey(limit);
+	}
+
+	/**
+	 * Returns the smallest key that is at least the given value.
+	 * @param from
+	 * @return the smallest key >= from, or -1 if there is no such key
+	 */
+	public int getMinKey(int from) {
+		if (from <= 0) from = 0;
+		if (from < limit && from <= min) return getMinKey();
+		for (int b = from; b < limit; b++) if (bucketSize[b] > 0) return b;
+		int best = -1;
+		for (int i = 0; i < bucketSize[limit]; i++) {
+			int k = key[buckets[limit][i]];
+			if (k >= from && (best < 0 || k < best)) best = k;
+		}
+		return best;
+	}
+
+	/**
+	 * @return an arbitrary id with minimum key, or -1 if the queue is empty
+	 */
+	public int getMin() {
+		int k = getMinKey();
+		if (k < 0) return -1;
+		if (k < limit) return buckets[k][0];
+		for (int i = 0; i < bucketSize[limit]; i++) if (key[buckets[limit][i]] == k) return buckets[limit][i];
+		return -1;
+	}
+
+	/**
+	 * @return a uniformly random id with minimum key, or -1 if the queue is empty
+	 */
+	public int getMinRandom() {
+		return getRandom(getMinKey());
+	}
+
+	/**
+	 * Draws a uniformly random id with the given key. This costs O(1) for keys below the limit and
+	 * a scan of the overflow bucket otherwise.
+	 * @param k
+	 * @return a random id with key k, or -1 if there is no such id
+	 */
+	public int getRandom(int k) {
+		if (k < 0) return -1;
+		if (k < limit) {
+			if (bucketSize[k] == 0) return -1;
+			return buckets[k][RandomNumberGenerator.nextInt(bucketSize[k])];
+		}
+		int count = 0;
+		for (int i = 0; i < bucketSize[limit]; i++) if (key[buckets[limit][i]] == k) count++;
+		if (count == 0) return -1;
+		int r = RandomNumberGenerator.nextInt(count);
+		for (int i = 0; i < bucketSize[limit]; i++) {
+			if (key[buckets[limit][i]] == k && r-- == 0) return buckets[limit][i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Grow the id arrays to the given capacity.
+	 * @param capacity
+	 */
+	private void grow(int capacity) {
+		int newCapacity = Math.max(capacity, 2*position.length);
+		int oldCapacity = position.length;
+		key = Arrays.copyOf(key, newCapacity);
+		position = Arrays.copyOf(position, newCapacity);
+		Arrays.fill(position, oldCapacity, newCapacity, -1);
+	}
+}
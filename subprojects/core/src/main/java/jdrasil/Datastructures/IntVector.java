@@ -45,6 +45,12 @@ public class IntVector {
 		size--;
 	}
 	
+	public void truncate(int newSize){
+		if(newSize < 0 || newSize > size)
+			throw new RuntimeException("Cannot truncate IntVector of size " + size + " to " + newSize);
+		size = newSize;
+	}
+	
 	public int size(){
 		return size;
 	}
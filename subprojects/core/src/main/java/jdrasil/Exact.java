@@ -22,8 +22,10 @@ import jdrasil.algorithms.GraphSplitter;
 import jdrasil.algorithms.exact.CatchAndGlue;
 import jdrasil.algorithms.lowerbounds.MinorMinWidthLowerbound;
 import jdrasil.algorithms.preprocessing.GraphReducer;
+import jdrasil.graph.DecompositionCache;
 import jdrasil.graph.Graph;
 import jdrasil.graph.GraphFactory;
+import jdrasil.graph.GraphWriter;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.utilities.JdrasilProperties;
 import jdrasil.utilities.logging.JdrasilLogger;
@@ -48,6 +50,9 @@ public class Exact {
     /** Jdrasils Logger */
     private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
 
+    /** Atoms with fewer vertices are solved faster than they are looked up in the cache. */
+    private final static int MIN_CACHED_ATOM = 16;
+
     /**
      * Entry point to Jdrasil in exact mode. The program, started with this method, will read a graph from standard
      * input and compute an exact tree decomposition.
@@ -67,38 +72,10 @@ public class Exact {
 
 			/* Compute a explicit decomposition */
             long tstart = System.nanoTime();
-            TreeDecomposition<Integer> decomposition = null;
-
-            /* use reduction rules to reduce the graph */
-            GraphReducer<Integer> reducer = new GraphReducer<Integer>(input);
-            Graph<Integer> H = reducer.getProcessedGraph();
-            if (H.getNumVertices() == 0) {
-                decomposition = reducer.getTreeDecomposition();
-            } else {
-                int lb = new MinorMinWidthLowerbound<>(H).call();
-                if (lb < 4) lb = 4; // we know this from preprocessing
-
-                // use the separator based decomposer, i.e., split the graph using safe seperators and decompose the atoms
-                GraphSplitter<Integer> splitter = new GraphSplitter<Integer>(H, atom -> {
-                    CatchAndGlue<Integer> catchAndGlue = new CatchAndGlue<>(atom);
-//                    catchAndGlue.setMode(CatchAndGlue.Mode.improveUpperbound);
-                    try {
-                        return catchAndGlue.call();
-                    } catch (Exception e) {
-                        LOG.warning(e.getMessage());
-                        return null;
-                    }
-                }, lb);
-                splitter.setTargetConnectivity(GraphSplitter.Connectivity.ATOM);
-
-                // glue to final decomposition
-                reducer.addbackTreeDecomposition(splitter.call());
-                decomposition = reducer.getTreeDecomposition();
-            }
+            TreeDecomposition<Integer> decomposition = decompose(input);
 
             long tend = System.nanoTime();
-            System.out.print(decomposition);
-            System.out.println();
+            GraphWriter.writeTreeDecomposition(decomposition);
 
             LOG.info("");
             LOG.info("Tree-Width: " + decomposition.getWidth());
@@ -115,4 +92,53 @@ public class Exact {
         }
     }
 
+    /**
+     * Computes an exact tree decomposition of the given graph without any output. This is the computation performed by
+     * the main method and can be used to decompose many graphs within one program run.
+     * @param input the graph to be decomposed
+     * @return an exact tree decomposition
+     * @throws Exception if the computation fails
+     */
+    public static TreeDecomposition<Integer> decompose(Graph<Integer> input) throws Exception {
+        TreeDecomposition<Integer> decomposition = null;
+
+        /* use reduction rules to reduce the graph */
+        GraphReducer<Integer> reducer = new GraphReducer<Integer>(input);
+        Graph<Integer> H = reducer.getProcessedGraph();
+        if (H.getNumVertices() == 0) {
+            decomposition = reducer.getTreeDecomposition();
+        } else {
+            int lb = new MinorMinWidthLowerbound<>(H).call();
+            if (lb < 4) lb = 4; // we know this from preprocessing
+
+            // use the separator based decomposer, i.e., split the graph using safe seperators and decompose the atoms
+            // atoms that were already solved (maybe in another run) are taken from the cache, if there is one
+            DecompositionCache cache = DecompositionCache.getGlobalCache();
+            GraphSplitter<Integer> splitter = new GraphSplitter<Integer>(H, atom -> {
+                boolean useCache = cache != null && atom.getNumVertices() >= MIN_CACHED_ATOM;
+                if (useCache) {
+                    TreeDecomposition<Integer> cached = cache.getOptimalDecomposition(atom);
+                    if (cached != null) return cached;
+                }
+                CatchAndGlue<Integer> catchAndGlue = new CatchAndGlue<>(atom);
+//                    catchAndGlue.setMode(CatchAndGlue.Mode.improveUpperbound);
+                try {
+                    TreeDecomposition<Integer> td = catchAndGlue.call();
+                    if (useCache) cache.put(atom, td, td.getWidth());
+                    return td;
+                } catch (Exception e) {
+                    LOG.warning(e.getMessage());
+                    return null;
+                }
+            }, lb);
+            splitter.setTargetConnectivity(GraphSplitter.Connectivity.ATOM);
+
+            // glue to final decomposition
+            reducer.addbackTreeDecomposition(splitter.call());
+            decomposition = reducer.getTreeDecomposition();
+        }
+
+        return decomposition;
+    }
+
 }
@@ -21,17 +21,24 @@ package jdrasil;
 import jdrasil.algorithms.preprocessing.GraphReducer;
 import jdrasil.algorithms.upperbounds.LocalSearchDecomposer;
 import jdrasil.algorithms.upperbounds.PaceGreedyDegreeDecomposer;
+import jdrasil.algorithms.upperbounds.SharedSolution;
 import jdrasil.algorithms.upperbounds.StochasticGreedyPermutationDecomposer;
 import jdrasil.graph.Bag;
 import jdrasil.graph.Graph;
 import jdrasil.graph.GraphFactory;
+import jdrasil.graph.GraphWriter;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.utilities.JdrasilProperties;
+import jdrasil.utilities.RandomNumberGenerator;
 import jdrasil.utilities.logging.JdrasilLogger;
 import sun.misc.Signal;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
@@ -47,6 +54,17 @@ import java.util.logging.Logger;
  *     Unless the parameter -instant is given, the program will run until it explicitly receives a SIGTERM kill.
  * </p>
  *
+ * <p>
+ *     If the parameter -parallel is given, the heuristics run as portfolio on all cores (or on as many workers as
+ *     given by -w). Every worker runs the heuristics with its own random numbers, and all workers share the best
+ *     found decomposition and prune their search with its width.
+ * </p>
+ *
+ * <p>
+ *     Every improved decomposition is published, already transformed to a decomposition of the input graph, as soon
+ *     as it is found. If the program receives a SIGTERM or SIGINT, the published decomposition is printed immediately.
+ * </p>
+ *
  * @author Max Bannach
  * @author Sebastian Berndt
  * @author Thorsten Ehlers
@@ -60,19 +78,13 @@ public class Heuristic implements sun.misc.SignalHandler {
     private long tstart, tend;
 
     /** The graph to be decomposed. */
-    private Graph<Integer> input;
-
-    /** The decomposition in construction. */
-    private TreeDecomposition<Integer> decomposition;
+    private volatile Graph<Integer> input;
 
     /** The reducer used to preprocess the graph. */
-    private GraphReducer<Integer> reducer;
-
-    /** The stochastic greedy permutation decomposer used in the first phase */
-    private StochasticGreedyPermutationDecomposer<Integer> greedyPermutationDecomposer;
+    private volatile GraphReducer<Integer> reducer;
 
-    /** The local search decomposer used in the third phase */
-    private LocalSearchDecomposer<Integer> localSearchDecomposer;
+    /** The best decomposition found so far, published as decomposition of the input graph. */
+    private volatile SharedSolution<Integer> solution;
 
     public static volatile boolean shutdownFlag;
     
@@ -94,6 +106,26 @@ public class Heuristic implements sun.misc.SignalHandler {
         new Heuristic();
     }
 
+    /**
+     * Computes a heuristic tree decomposition of the given graph without any output and without handling system
+     * signals. This corresponds to the heuristic mode with the parameter -instant, i.e., the graph is reduced and
+     * decomposed by the stochastic greedy permutation phase, the local search phase is skipped. This method can be
+     * used to decompose many graphs within one program run.
+     * @param input the graph to be decomposed
+     * @return a tree decomposition of the input graph
+     * @throws Exception if the computation fails
+     */
+    public static TreeDecomposition<Integer> decompose(Graph<Integer> input) throws Exception {
+        GraphReducer<Integer> reducer = new GraphReducer<>(input);
+        Graph<Integer> reduced = reducer.getProcessedGraph();
+        if (reduced.getNumVertices() > 0) {
+            reducer.addbackTreeDecomposition(new StochasticGreedyPermutationDecomposer<>(reduced).call());
+        }
+        TreeDecomposition<Integer> decomposition = reducer.getTreeDecomposition();
+        decomposition.connectComponents();
+        return decomposition;
+    }
+
     /**
      * Constructor for the heuristic class.
      * This class use an @see jdrasil.algorithms.HeuristicDecomposer while handling system signals.
@@ -106,73 +138,23 @@ public class Heuristic implements sun.misc.SignalHandler {
         try {
             // read graph from stdin
             input = GraphFactory.graphFromStdin();
-            int upperBound = input.getNumVertices();
-            boolean needsPostProcessing = false;
-            List<Integer> perm = null;
-            for(int i = 0 ; i < 30 && !JdrasilProperties.timeout() && !Heuristic.shutdownFlag ; i++){
-	            PaceGreedyDegreeDecomposer pcdd = new PaceGreedyDegreeDecomposer(input);
-	            TreeDecomposition<Integer> td =  pcdd.computeTreeDecomposition(upperBound);
-	            if(td != null && td.getWidth() < upperBound){
-	            	this.decomposition = td;
-	            	upperBound = td.getWidth();
-	            	if(i > 3 && upperBound < 1000)
-	            		break;
-	            }
-            }
-            if(!Heuristic.shutdownFlag){
-	            /* Compute a explicit decomposition */
-	            tstart = System.nanoTime();
-	
-	            LOG.info("reducing the graph");
-	            reducer = new GraphReducer<>(input);
-	            Graph<Integer> reduced = reducer.getProcessedGraph();
-	            if (reduced.getCopyOfVertices().size() > 0) {
-	                LOG.info("reduced the graph to " + reduced.getCopyOfVertices().size() + " vertices");
-	
-	                // temporary tree decomposition to avoid raise conditions
-	                TreeDecomposition<Integer> tmp;
-	
-	                LOG.info("Starting greedy permutation phase");
-	                greedyPermutationDecomposer = new StochasticGreedyPermutationDecomposer<>(reduced);
-	                //greedyPermutationDecomposer.setUpper_bound(upperBound);
-	                tmp = greedyPermutationDecomposer.call();
-	                synchronized (this) {
-	                	if(this.decomposition == null || 
-	                			(tmp != null && tmp.getWidth() < this.decomposition.getWidth())){
-	                		this.decomposition = tmp;
-	                		needsPostProcessing = true;
-	                	}
-	                }
-	//                if(!JdrasilProperties.timeout() ){
-	//	                LOG.info("Improving the decomposition");
-	//	                tmp = this.decomposition.copy();
-	//	                tmp.improveDecomposition();
-	//	                synchronized (this) {
-	//	                    this.decomposition = tmp;
-	//	                }
-	//                }
-	
-	                // we may skip the local search phase
-	                if (!Heuristic.shutdownFlag &&  !JdrasilProperties.timeout() &&  !JdrasilProperties.containsKey("instant")) {
-	
-	                    LOG.info("Starting local search phase");
-	                    if(greedyPermutationDecomposer.getPermutation() != null)
-	                    	perm = greedyPermutationDecomposer.getPermutation();
-	                    localSearchDecomposer = new LocalSearchDecomposer<>(reduced, Integer.MAX_VALUE, 30, perm);
-	                    tmp = localSearchDecomposer.call();
-	                    synchronized (this) {
-	                    	if(this.decomposition == null || 
-	                    			(tmp != null && tmp.getWidth() < this.decomposition.getWidth())){
-	                    		this.decomposition = tmp;
-	                    		needsPostProcessing = true;
-	                    	}
-	                    }
-	
-	                }
-	            }
+            tstart = System.nanoTime();
+
+            // until something better is found, publish the trivial decomposition
+            SharedSolution<Integer> shared = new SharedSolution<>(this::postProcess);
+            TreeDecomposition<Integer> trivial = new TreeDecomposition<>(input);
+            trivial.createBag(input.getCopyOfVertices());
+            shared.offer(trivial);
+            solution = shared;
+
+            if (JdrasilProperties.containsKey("parallel")) {
+                runPortfolio();
+            } else {
+                runSequential();
             }
+
             // print and exit
-            printSolution(this.decomposition, needsPostProcessing);
+            printSolution();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -185,18 +167,160 @@ public class Heuristic implements sun.misc.SignalHandler {
     }
 
     /**
-     * This method undoes the preprocessing to create a final tree decompositions and prints this decomposition to std.out.
-     * This method will exit the program.
-     * @param td a tree decomposition of the reduced graph
+     * Computes a decomposition by running the heuristics one after another: the greedy degree heuristic on the input
+     * graph, then the stochastic greedy permutation phase and the local search phase on the reduced graph.
+     * @throws Exception
+     */
+    private void runSequential() throws Exception {
+        for(int i = 0 ; i < 30 && !JdrasilProperties.timeout() && !Heuristic.shutdownFlag ; i++){
+            runDegreeHeuristic();
+            if(i > 3 && solution.getUpperBound() < 1000)
+                break;
+        }
+        if (Heuristic.shutdownFlag) return;
+
+        /* Compute a explicit decomposition */
+        LOG.info("reducing the graph");
+        reducer = new GraphReducer<>(input);
+        Graph<Integer> reduced = reducer.getProcessedGraph();
+        if (reduced.getNumVertices() == 0) { // the reduction rules already produced an optimal decomposition
+            solution.offer(reducer.getTreeDecomposition());
+            return;
+        }
+        LOG.info("reduced the graph to " + reduced.getNumVertices() + " vertices");
+
+        LOG.info("Starting greedy permutation phase");
+        StochasticGreedyPermutationDecomposer<Integer> greedyPermutationDecomposer = new StochasticGreedyPermutationDecomposer<>(reduced);
+        greedyPermutationDecomposer.setSharedSolution(solution);
+        greedyPermutationDecomposer.call();
+
+        // we may skip the local search phase
+        if (Heuristic.shutdownFlag || JdrasilProperties.timeout() || JdrasilProperties.containsKey("instant")) return;
+        if (greedyPermutationDecomposer.getPermutation() == null) return;
+
+        LOG.info("Starting local search phase");
+        LocalSearchDecomposer<Integer> localSearchDecomposer = new LocalSearchDecomposer<>(reduced, Integer.MAX_VALUE, 30, greedyPermutationDecomposer.getPermutation());
+        localSearchDecomposer.setSharedSolution(solution);
+        localSearchDecomposer.call();
+    }
+
+    /**
+     * Computes a decomposition with a portfolio of workers that run concurrently. The graph is reduced first, then
+     * every worker runs the stochastic greedy permutation phase and the local search phase on its own copy of the
+     * reduced graph (sequentially, i.e., the workers do not fork on the common pool), the first worker starts with the
+     * greedy degree heuristic on the input graph. The workers share the published solution, i.e., the best found
+     * decomposition and its width as global upper bound.
+     * @throws Exception if a worker fails
+     */
+    private void runPortfolio() throws Exception {
+        LOG.info("reducing the graph");
+        reducer = new GraphReducer<>(input);
+        Graph<Integer> reduced = reducer.getProcessedGraph();
+        if (reduced.getNumVertices() == 0) { // the reduction rules already produced an optimal decomposition
+            solution.offer(reducer.getTreeDecomposition());
+            return;
+        }
+        LOG.info("reduced the graph to " + reduced.getNumVertices() + " vertices");
+
+        int numberOfWorkers = JdrasilProperties.containsKey("w")
+                ? Integer.parseInt(JdrasilProperties.getProperty("w"))
+                : Runtime.getRuntime().availableProcessors();
+        numberOfWorkers = Math.max(1, numberOfWorkers);
+        LOG.info("Starting portfolio with " + numberOfWorkers + " workers");
+
+        ExecutorService workers = Executors.newFixedThreadPool(numberOfWorkers, Batch.workerFactory("Jdrasil-heuristic"));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfWorkers; i++) {
+            boolean degreeHeuristic = i == 0;
+            Graph<Integer> graph = GraphFactory.copy(reduced);
+            RandomNumberGenerator.Dice dice = RandomNumberGenerator.split(); // every worker gets its own random numbers
+            Long deadline = JdrasilProperties.getDeadline();
+            futures.add(workers.submit(() -> {
+                RandomNumberGenerator.setDice(dice);
+                JdrasilProperties.setDeadline(deadline);
+                runPortfolioWorker(degreeHeuristic, graph);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) future.get();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * A single worker of the portfolio, @see runPortfolio.
+     * @param degreeHeuristic whether the worker should start with the greedy degree heuristic on the input graph
+     * @param reduced a copy of the reduced graph, owned by this worker
+     * @throws Exception
      */
-    private synchronized void printSolution(TreeDecomposition<Integer> td, boolean needsPostProcessing) {
-    	if(needsPostProcessing){
-	        if (reducer.getProcessedGraph().getCopyOfVertices().size() != 0) reducer.addbackTreeDecomposition(td);
-	        this.decomposition = reducer.getTreeDecomposition();
-    	}
-        this.decomposition.connectComponents();
+    private void runPortfolioWorker(boolean degreeHeuristic, Graph<Integer> reduced) throws Exception {
+        if (degreeHeuristic) {
+            for (int i = 0; i < 30 && !JdrasilProperties.timeout() && !Heuristic.shutdownFlag; i++) {
+                runDegreeHeuristic();
+                if (i > 3 && solution.getUpperBound() < 1000) break;
+            }
+        }
+        if (Heuristic.shutdownFlag || JdrasilProperties.timeout()) return;
+
+        // the workers already run concurrently, hence, the phases run sequentially within a worker
+        StochasticGreedyPermutationDecomposer<Integer> greedy = new StochasticGreedyPermutationDecomposer<>(reduced);
+        greedy.setSharedSolution(solution);
+        greedy.setParallel(false);
+        greedy.call();
+
+        // we may skip the local search phase
+        if (Heuristic.shutdownFlag || JdrasilProperties.timeout() || JdrasilProperties.containsKey("instant")) return;
+        if (greedy.getPermutation() == null) return;
+        LocalSearchDecomposer<Integer> localSearch = new LocalSearchDecomposer<>(reduced, Integer.MAX_VALUE, 30, greedy.getPermutation());
+        localSearch.setSharedSolution(solution);
+        localSearch.setParallel(false);
+        localSearch.call();
+    }
+
+    /**
+     * Run the greedy degree heuristic once on the input graph, pruned by the width of the published solution.
+     */
+    private void runDegreeHeuristic() {
+        PaceGreedyDegreeDecomposer pcdd = new PaceGreedyDegreeDecomposer(input);
+        TreeDecomposition<Integer> td = pcdd.computeTreeDecomposition(Math.min(solution.getUpperBound(), input.getNumVertices()));
+        if (td != null) {
+            td.setGraph(input); // the heuristic decomposes a copy of the input
+            solution.offer(td);
+        }
+    }
+
+    /**
+     * Transforms a decomposition offered by one of the heuristics into the decomposition that is published. That is,
+     * the preprocessing is undone for decompositions of the reduced graph (without changing the reducer, as there
+     * may follow better decompositions), and the components of the decomposition are connected.
+     * @param td a decomposition of the input graph or of the reduced graph
+     * @return a decomposition of the input graph
+     */
+    private TreeDecomposition<Integer> postProcess(TreeDecomposition<Integer> td) {
+        TreeDecomposition<Integer> result = td.getGraph() == input ? td : reducer.getTreeDecompositionFor(td);
+        result.connectComponents();
+        return result;
+    }
+
+    /**
+     * This method prints the published decomposition to std.out and exits the program. It is called at the end of
+     * the computation, or by the signal handler.
+     */
+    private synchronized void printSolution() {
+        SharedSolution<Integer> published = solution;
+        if (published == null) { // catch super early abort
+            LOG.warning("Did not finish reading the graph!");
+            System.exit(1);
+        }
+        TreeDecomposition<Integer> decomposition = published.getPublishedDecomposition();
         tend = System.nanoTime();
-        System.out.println(this.decomposition);
+        try {
+            GraphWriter.writeTreeDecomposition(decomposition);
+        } catch (IOException e) {
+            LOG.warning("Could not write the tree decomposition: " + e.getMessage());
+        }
         LOG.info("");
         LOG.info("Tree-Width: " + decomposition.getWidth());
         LOG.info("Used " + (tend-tstart)/1000000000 + " seconds");
@@ -206,45 +330,10 @@ public class Heuristic implements sun.misc.SignalHandler {
 
     @Override
     public void handle(Signal arg0) {
+        Heuristic.shutdownFlag = true;
 
-    	
-    	Heuristic.shutdownFlag = true;
-//        // catch super early abort
-//        if (input == null) {
-//            LOG.warning("Did not finish reading the graph!");
-//            System.exit(1);
-//        }
-//
-//        // catch abort during reduction phase
-//        if (reducer == null) {
-//            LOG.warning("Did not finish reducing the graph!");
-//            this.decomposition = new TreeDecomposition<>(input);
-//            Bag<Integer> singleBag = this.decomposition.createBag(input.getCopyOfVertices());
-//            System.out.println(this.decomposition);
-//            System.exit(0);
-//        }
-//
-//        // if local search has started, look if it has a solution
-//        if (localSearchDecomposer != null) {
-//            TreeDecomposition<Integer> td = localSearchDecomposer.getCurrentSolution();
-//            if (td != null) this.decomposition = td;
-//        }
-//
-//        // if we have no decomposition at all, the greedy permutation heuristic did not finish
-//        // but maybe she has a subsolution?
-//        if (this.decomposition == null) {
-//            this.decomposition = greedyPermutationDecomposer.getCurrentSolution();
-//        }
-//
-//        // if not, create trivial decomposition with a single bag
-//        if (this.decomposition == null) {
-//            Graph<Integer> H = reducer.getProcessedGraph();
-//            this.decomposition = new TreeDecomposition<>(H);
-//            Bag<Integer> singleBag = this.decomposition.createBag(H.getCopyOfVertices());
-//        }
-//
-//        // print the decomposition
-//        printSolution(decomposition);
+        // print the published decomposition right away, the heuristics may need a while to notice the flag
+        printSolution();
     }
 
 }
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2016-2017, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of
+ * the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package jdrasil;
+
+import jdrasil.algorithms.lowerbounds.MinorMinWidthLowerbound;
+import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
+import jdrasil.graph.GraphWriter;
+import jdrasil.graph.TreeDecomposition;
+import jdrasil.utilities.JdrasilProperties;
+import jdrasil.utilities.RandomNumberGenerator;
+import jdrasil.utilities.logging.JdrasilLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Jdrasil is a program to compute a small tree-decomposition of a given graph.
+ * It is developed at the Universitaet zu Luebeck in context of the PACE challenge (www.pacechallenge.wordpress.com).
+ *
+ * <p>
+ * This class provides an entry point to run Jdrasil as long running server on the loopback interface, such that other
+ * processes can decompose graphs without starting a JVM for every graph. The protocol is line based, a request
+ * consists of a header line, a .gr file, and a line "end":
+ * </p>
+ * <pre>
+ * decompose -m heuristic -t 10 -s 42
+ * p tw 3 2
+ * 1 2
+ * 2 3
+ * end
+ * </pre>
+ * <p>
+ * The parameters of the header are optional and have the same meaning as on the command line: -m is the mode (exact,
+ * heuristic, or approximation; default is exact), -t a time limit in seconds, and -s a random seed. The response
+ * starts with a status line and ends with a line "end". On success, the status is "ok" and is followed by the width
+ * and a lower bound (as comment lines) and the tree decomposition. Otherwise the status is "busy" (the request was
+ * not admitted), "timeout" (the time limit was reached before a decomposition was found), "cancelled", or
+ * "error" followed by a message.
+ * </p>
+ *
+ * <p>
+ * The requests are handled by a shared pool of workers (-w, default is the number of available processors). At most
+ * -q requests (default is twice the number of workers) wait for a worker, further requests are answered with "busy"
+ * right away, such that an overloaded server stays responsive. A client can have one request at a time, which it can
+ * cancel by sending a line "cancel" or by closing the connection. In heuristic mode, a reached time limit stops the
+ * computation and the best decomposition found so far is returned.
+ * </p>
+ *
+ * <p>
+ * The size of a request is limited: graphs with more than -n vertices (default 2^20) or -e edges (default 2^22) are
+ * answered with "error" without building them, and lines may have at most 1024 characters. The limits are checked
+ * while the request is read, i.e., before memory is allocated for the graph.
+ * </p>
+ *
+ * @author Max Bannach
+ */
+public class Server {
+
+    /** Jdrasils Logger */
+    private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
+
+    /** The default port of the server. */
+    private static final int DEFAULT_PORT = 4711;
+
+    /** Default limits on the number of vertices and edges of a request. */
+    private static final int DEFAULT_MAX_VERTICES = 1 << 20, DEFAULT_MAX_EDGES = 1 << 22;
+
+    /** Maximal length of a line of a request, longer lines are rejected. */
+    private static final int MAX_LINE_LENGTH = 1024;
+
+    /** Bytes of the payload that are allowed per edge (and for the p-line), comments are not stored. */
+    private static final int BYTES_PER_LINE = 32;
+
+    /** The workers that decompose the graphs. */
+    private final ThreadPoolExecutor workers;
+
+    /** Timer used to enforce the time limits of the requests. */
+    private final ScheduledExecutorService timer;
+
+    /** Limits the number of open connections. */
+    private final Semaphore connections;
+
+    /** Limits on the number of vertices and edges of a request. */
+    private final int maxVertices, maxEdges;
+
+    /**
+     * Entry point to Jdrasil in server mode.
+     * @param args
+     */
+    public static void main(String[] args) {
+
+        // parsing arguments
+        JdrasilProperties.parseArguments(args);
+
+        // if Jdrasil is used as standalone, use dimacs logging
+        JdrasilLogger.setToDimacsLogging();
+
+        try {
+            int port = JdrasilProperties.containsKey("p") ? Integer.parseInt(JdrasilProperties.getProperty("p")) : DEFAULT_PORT;
+            int numberOfWorkers = JdrasilProperties.containsKey("w")
+                    ? Integer.parseInt(JdrasilProperties.getProperty("w"))
+                    : Runtime.getRuntime().availableProcessors();
+            numberOfWorkers = Math.max(1, numberOfWorkers);
+            int queueSize = JdrasilProperties.containsKey("q") ? Integer.parseInt(JdrasilProperties.getProperty("q")) : 2*numberOfWorkers;
+            int maxVertices = JdrasilProperties.containsKey("n") ? Integer.parseInt(JdrasilProperties.getProperty("n")) : DEFAULT_MAX_VERTICES;
+            int maxEdges = JdrasilProperties.containsKey("e") ? Integer.parseInt(JdrasilProperties.getProperty("e")) : DEFAULT_MAX_EDGES;
+            new Server(numberOfWorkers, Math.max(1, queueSize), maxVertices, maxEdges).serve(port);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("c Could not open the server socket.");
+        } catch (Exception e) {
+            System.out.println("c Error parsing the arguments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Initialize the server with a pool of workers. Connections are limited to the number of requests that can be
+     * handled or queued, plus the same amount again, such that clients beyond that limit get an answer as well.
+     * @param numberOfWorkers
+     * @param queueSize
+     * @param maxVertices maximal number of vertices of a request
+     * @param maxEdges maximal number of edges of a request
+     */
+    private Server(int numberOfWorkers, int queueSize, int maxVertices, int maxEdges) {
+        this.workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), Batch.workerFactory("jdrasil-worker"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jdrasil-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.connections = new Semaphore(2*(numberOfWorkers + queueSize));
+        this.maxVertices = maxVertices;
+        this.maxEdges = maxEdges;
+    }
+
+    /**
+     * Accept connections on the loopback interface until the program is terminated.
+     * @param port
+     * @throws IOException
+     */
+    private void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            LOG.info("listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                if (!connections.tryAcquire()) { // too many clients, answer right away
+                    try (OutputStream out = socket.getOutputStream()) {
+                        out.write("busy\nend\n".getBytes(StandardCharsets.US_ASCII));
+                    } catch (IOException e) {
+                        // the client is gone anyway
+                    }
+                    socket.close();
+                    continue;
+                }
+                Thread t = new Thread(new Connection(socket), "jdrasil-connection");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    /**
+     * A connection to a client. The thread of the connection reads the requests of the client, while the responses
+     * are written by the workers.
+     */
+    private final class Connection implements Runnable {
+
+        /** The socket of the client. */
+        private final Socket socket;
+
+        /** The buffered output of the socket, access is synchronized on this object. */
+        private final OutputStream out;
+
+        /** The last request of the client. */
+        private Request current;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = readLine(in)) != null) {
+                    line = line.trim();
+                    if (line.isEmpty()) continue;
+                    String[] header = line.split("\\s+");
+                    switch (header[0]) {
+                        case "decompose":
+                            handle(header, in);
+                            break;
+                        case "cancel":
+                            if (current != null) current.finish("cancelled");
+                            break;
+                        default:
+                            respond("error unknown command " + header[0], null, 0);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warning("connection lost: " + e.getMessage());
+            } finally {
+                if (current != null) current.finish("cancelled"); // the client is gone
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // nothing left to do
+                }
+                connections.release();
+            }
+        }
+
+        /**
+         * Read the graph of a request and try to submit it to the workers.
+         * @param header the tokens of the header line
+         * @param in
+         * @throws IOException
+         */
+        private void handle(String[] header, BufferedReader in) throws IOException {
+
+            // read the graph in any case, such that the next request starts at the right position, but keep it only
+            // as long as it is within the limits of the server
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            long maxPayload = (long) BYTES_PER_LINE * (maxEdges + 1);
+            int[] edges = new int[1];
+            String violation = null;
+            String line;
+            while ((line = readLine(in)) != null && !line.trim().equals("end")) {
+                if (violation != null) continue;
+                violation = checkLimits(line, edges);
+                if (violation == null && payload.size() + line.length() + 1 > maxPayload) violation = "the request is too large";
+                if (violation == null && !line.trim().startsWith("c")) { // comments are not stored
+                    byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                    payload.write(bytes, 0, bytes.length);
+                    payload.write('\n');
+                }
+                if (violation != null) payload = null; // free the memory right away
+            }
+            if (line == null) throw new IOException("request not terminated");
+
+            if (current != null && !current.isFinished()) {
+                respond("error there is already a request of this client", null, 0);
+                return;
+            }
+            if (violation != null) {
+                respond("error " + violation, null, 0);
+                return;
+            }
+
+            // parse the request
+            Request request;
+            try {
+                Batch.Mode mode = Batch.Mode.exact;
+                long timeout = 0;
+                Long seed = null;
+                for (int i = 1; i < header.length; i++) {
+                    if (i+1 == header.length) throw new RuntimeException("missing value of " + header[i]);
+                    switch (header[i]) {
+                        case "-m": mode = Batch.Mode.valueOf(header[++i]); break;
+                        case "-t": timeout = Long.parseLong(header[++i]); break;
+                        case "-s": seed = Long.parseLong(header[++i]); break;
+                        default: throw new RuntimeException("unknown parameter " + header[i]);
+                    }
+                }
+                Graph<Integer> graph = GraphFactory.graphFromStream(new ByteArrayInputStream(payload.toByteArray()));
+                request = new Request(this, mode, graph, seed);
+                if (timeout > 0) request.timer = timer.schedule(() -> request.timeout(), timeout, TimeUnit.SECONDS);
+            } catch (Exception | OutOfMemoryError e) {
+                respond("error " + e.getMessage(), null, 0);
+                return;
+            }
+
+            // admission control
+            current = request;
+            try {
+                workers.execute(request);
+            } catch (RejectedExecutionException e) {
+                request.finish("busy");
+            }
+        }
+
+        /**
+         * Read a line of the client. Overlong lines are consumed completely, but only their first MAX_LINE_LENGTH+1
+         * characters are returned.
+         * @param in
+         * @return the line, or null if the stream has ended
+         * @throws IOException
+         */
+        private String readLine(BufferedReader in) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1 && c != '\n') {
+                if (sb.length() <= MAX_LINE_LENGTH) sb.append((char) c);
+            }
+            if (c == -1 && sb.length() == 0) return null;
+            return sb.toString();
+        }
+
+        /**
+         * Check a line of a graph against the limits of the server: the length of the line, the number of vertices of
+         * the p-line, the vertices of the edges, and the number of edges. Malformed lines are left to the parser.
+         * @param line of the graph
+         * @param edges the number of edges seen so far, updated by this method
+         * @return a description of the violated limit, or null
+         */
+        private String checkLimits(String line, int[] edges) {
+            if (line.length() > MAX_LINE_LENGTH) return "line longer than " + MAX_LINE_LENGTH + " characters";
+            String[] tokens = line.trim().split("\\s+");
+            try {
+                if (tokens[0].equals("p")) {
+                    if (tokens.length > 2 && Long.parseLong(tokens[2]) > maxVertices) return "more than " + maxVertices + " vertices";
+                    if (tokens.length > 3 && Long.parseLong(tokens[3]) > maxEdges) return "more than " + maxEdges + " edges";
+                } else if (tokens[0].equals("e") || (!tokens[0].isEmpty() && Character.isDigit(tokens[0].charAt(0)))) {
+                    int offset = tokens[0].equals("e") ? 1 : 0;
+                    for (int i = offset; i < offset + 2 && i < tokens.length; i++) {
+                        if (Long.parseLong(tokens[i]) > maxVertices) return "more than " + maxVertices + " vertices";
+                    }
+                    if (++edges[0] > maxEdges) return "more than " + maxEdges + " edges";
+                }
+            } catch (NumberFormatException e) {
+                // the parser reports malformed numbers
+            }
+            return null;
+        }
+
+        /**
+         * Write a response to the client.
+         * @param status the status line
+         * @param td the decomposition, or null
+         * @param lowerbound a lower bound on the tree width, only used if there is a decomposition
+         */
+        void respond(String status, TreeDecomposition<Integer> td, int lowerbound) {
+            synchronized (out) {
+                try {
+                    out.write((status + "\n").getBytes(StandardCharsets.US_ASCII));
+                    if (td != null) {
+                        out.write(("c width " + td.getWidth() + "\nc lowerbound " + lowerbound + "\n").getBytes(StandardCharsets.US_ASCII));
+                        GraphWriter.writeTreeDecomposition(td, out);
+                    }
+                    out.write("end\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (IOException e) {
+                    LOG.warning("could not send the response: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A single request, which is executed by a worker. Exactly one response is send for every request: either by the
+     * worker, or by the first of cancellation, rejection and timeout (if the request did not start yet or if the
+     * computation can not provide a partial result).
+     */
+    private final class Request implements Runnable {
+
+        /** The connection of the client. */
+        private final Connection connection;
+
+        /** What should be computed. */
+        private final Batch.Mode mode;
+
+        /** The graph to be decomposed. */
+        private final Graph<Integer> graph;
+
+        /** The random seed, or null. */
+        private final Long seed;
+
+        /** Timer that enforces the time limit, or null. */
+        private ScheduledFuture<?> timer;
+
+        /** The thread of the worker computing this request, or null if it is not running. */
+        private Thread runner;
+
+        /** True if the time limit was reached. */
+        private boolean timedOut;
+
+        /** True if the response was send. */
+        private boolean finished;
+
+        Request(Connection connection, Batch.Mode mode, Graph<Integer> graph, Long seed) {
+            this.connection = connection;
+            this.mode = mode;
+            this.graph = graph;
+            this.seed = seed;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (finished) return;
+                runner = Thread.currentThread();
+            }
+            TreeDecomposition<Integer> td = null;
+            int lowerbound = 0;
+            String error = null;
+            // a seeded request draws from its own dice, the generator shared by the other requests is not touched
+            RandomNumberGenerator.Dice previous = null;
+            if (seed != null) previous = RandomNumberGenerator.setDice(RandomNumberGenerator.fromSeed(seed));
+            try {
+                if (mode != Batch.Mode.exact) lowerbound = new MinorMinWidthLowerbound<>(graph).call();
+                td = mode.decompose(graph);
+                if (mode == Batch.Mode.exact) lowerbound = td.getWidth();
+            } catch (Exception | StackOverflowError | OutOfMemoryError e) {
+                error = "error " + e;
+            } finally {
+                if (seed != null) RandomNumberGenerator.setDice(previous);
+            }
+            synchronized (this) {
+                // no one interrupts us from now on, clear a pending interrupt such that the response can be written
+                runner = null;
+                Thread.interrupted();
+                if (td != null) {
+                    finish("ok", td, lowerbound);
+                } else {
+                    finish(timedOut ? "timeout" : error, null, 0);
+                }
+            }
+        }
+
+        /**
+         * The time limit is reached: a running computation is interrupted (and heuristics will answer with their best
+         * solution), a waiting request is answered right away.
+         */
+        synchronized void timeout() {
+            timedOut = true;
+            if (runner != null) {
+                runner.interrupt();
+            } else {
+                finish("timeout");
+            }
+        }
+
+        /**
+         * Answer the request with the given status and stop the computation.
+         * @param status
+         */
+        synchronized void finish(String status) {
+            if (finished) return;
+            finish(status, null, 0);
+            if (runner != null) runner.interrupt();
+            workers.remove(this);
+        }
+
+        synchronized boolean isFinished() {
+            return finished;
+        }
+
+        private synchronized void finish(String status, TreeDecomposition<Integer> td, int lowerbound) {
+            if (finished) return;
+            finished = true;
+            if (timer != null) timer.cancel(false);
+            connection.respond(status, td, lowerbound);
+        }
+    }
+
+}
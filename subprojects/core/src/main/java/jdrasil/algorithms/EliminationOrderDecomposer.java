@@ -18,17 +18,17 @@
  */
 package jdrasil.algorithms;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import jdrasil.Datastructures.IntVector;
 import jdrasil.graph.Bag;
 import jdrasil.graph.Graph;
-import jdrasil.graph.GraphFactory;
 import jdrasil.graph.TreeDecomposer;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.graph.TreeDecomposition.TreeDecompositionQuality;
@@ -50,10 +50,7 @@ public class EliminationOrderDecomposer<T extends Comparable<T>> implements Tree
 	/** Jdrasils Logger */
 	private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
 	
-	/** The graph that should be decomposed. This is copy and can be modified. */
-	private final Graph<T> graph;
-	
-	/** The original graph that should be decomposed. This  can not be modifed. */
+	/** The graph that should be decomposed. This graph is not modified. */
 	private final Graph<T> original;
 	
 	/** A permutation of the vertices of the graph. */
@@ -73,8 +70,7 @@ public class EliminationOrderDecomposer<T extends Comparable<T>> implements Tree
 	 * @param qualityOfPermutation the quality of the given permutation
 	 */
 	public EliminationOrderDecomposer(Graph<T> graph, List<T> permutation, TreeDecompositionQuality qualityOfPermutation) {
-		this.graph = GraphFactory.copy(graph);
-		this.permutation = new LinkedList<T>(permutation);		
+		this.permutation = new ArrayList<T>(permutation);
 		this.qualityOfPermutation = qualityOfPermutation;
 		this.eliminatedVertexToBag = new HashMap<>();
 		original = graph;
@@ -83,102 +79,76 @@ public class EliminationOrderDecomposer<T extends Comparable<T>> implements Tree
 	/**
 	 * Compute a tree-decomposition from a given permutation.
 	 * See Bodlaender and Koster - Treewidth computations I.
+	 *
+	 * The graph is not eliminated explicitly. Instead, the vertices are relabeled by their position in the permutation
+	 * and the higher neighbors of every vertex in the filled graph (i.e., the bag of the vertex) are computed with the
+	 * fill-in algorithm of Tarjan and Yannakakis ("Simple linear-time algorithms to test chordality of graphs, test
+	 * acyclicity of hypergraphs, and selectively reduce acyclic hypergraphs"): when vertex i is processed, every
+	 * lower neighbor of i, and all vertices on the path of the elimination tree from this neighbor upwards that are not
+	 * yet marked with i, obtain i as higher neighbor. The parent of a vertex in the elimination tree is its lowest
+	 * higher neighbor, and the bag of a vertex is connected to the bag of its parent. This needs time and space
+	 * O(n + m + fill), the bags are only created at the end.
 	 * 
 	 * @param perm
 	 * @return a tree-decomposition
 	 */
 	private TreeDecomposition<T> permutationToTreeDecomposition(List<T> perm) {
+		int n = perm.size();
 
-		TreeDecomposition<T> decomposition = new TreeDecomposition<>(graph);
-		Map<T, Integer> elimOrder = new HashMap<>();
+		// relabel the vertices by their position in the permutation
+		Map<T, Integer> position = new HashMap<>(2*n);
 		int index = 0;
-		for(T v : perm){
-			elimOrder.put(v, index++);
-			Set<T> neighbours = new HashSet<T>(graph.getNeighborhood(v));
-			neighbours.add(v);
-			Bag<T> bag = decomposition.createBag(neighbours);
-			//bag.id = perm.size()-index+1;
+		for (T v : perm) position.put(v, index++);
+
+		// follow[x] is the parent of x in the elimination tree (or x itself), mark[x] the last vertex that reached x
+		int[] follow = new int[n];
+		int[] mark = new int[n];
+		IntVector[] higher = new IntVector[n];
+		for (int i = 0; i < n; i++) {
+			follow[i] = i;
+			mark[i] = i;
+			higher[i] = new IntVector();
+			for (T u : original.getNeighborhood(perm.get(i))) {
+				int x = position.get(u);
+				if (x >= i) continue;
+				while (mark[x] < i) {
+					mark[x] = i;
+					higher[x].push(i);
+					x = follow[x];
+				}
+				if (follow[x] == x) follow[x] = i;
+			}
+		}
+
+		// create the bags in the order of the permutation and connect each bag to the bag of its parent
+		TreeDecomposition<T> decomposition = new TreeDecomposition<>(original);
+		List<Bag<T>> bags = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			Set<T> vertices = new HashSet<>(2*(higher[i].size()+1));
+			T v = perm.get(i);
+			vertices.add(v);
+			for (int j = 0; j < higher[i].size(); j++) vertices.add(perm.get(higher[i].get(j)));
+			higher[i] = null;
+			Bag<T> bag = decomposition.createBag(vertices);
 			eliminatedVertexToBag.put(v, bag);
-			graph.eliminateVertex(v);
+			bags.add(bag);
 		}
-		// Now add the edges: 
 		int edgesAdded = 0;
-		for(T v : perm){
-			int next_index = Integer.MAX_VALUE; 
-			T nextElimNode = null;
-			for(T u : eliminatedVertexToBag.get(v).vertices){
-				if(!elimOrder.containsKey(v))
-					throw new RuntimeException("Did not find this fucking node! ");
-				int positionInPermutation = elimOrder.get(u);
-				int pos2 = eliminatedVertexToBag.get(u).id;
-				if(pos2 != positionInPermutation+1){
-					throw new RuntimeException("orders are different?");
-				}
-				if(positionInPermutation < elimOrder.get(v))
-					throw new RuntimeException("Invalid index found! ");
-				
-				if (v.compareTo(u) != 0 &&  positionInPermutation < next_index){
-					nextElimNode = u;
-					next_index = positionInPermutation;
-				}
-			}
-			if(nextElimNode != null){
-				edgesAdded++;
-				
-				decomposition.addTreeEdge(eliminatedVertexToBag.get(v), eliminatedVertexToBag.get(nextElimNode));
-			}
+		for (int i = 0; i < n; i++) {
+			if (follow[i] == i) continue;
+			decomposition.addTreeEdge(bags.get(i), bags.get(follow[i]));
+			edgesAdded++;
 		}
 		if(edgesAdded + 1 != perm.size())
 			LOG.info("Have " + edgesAdded + " edges for " + perm.size() + " nodes?");
-		
-//		// end of recursion is a single back
-//		if (perm.size() == 1) {
-//			TreeDecomposition<T> decomposition = new TreeDecomposition<>(graph);
-//			Bag<T> bag = decomposition.createBag(new HashSet<>(perm));
-//			
-//			eliminatedVertexToBag.put(perm.get(0), bag);
-//			return decomposition;
-//		}
-//		
-//		// remove first element from permutation
-//		T v = perm.get(0);
-//		perm.remove(0);
-//		
-//		// create bag for v
-//		Set<T> bagVertices = new HashSet<T>();
-//		bagVertices.add(v);
-//		for (T u : graph.getNeighborhood(v)) {
-//			bagVertices.add(u);
-//		}
-//	
-//		// eliminate v
-//		graph.eliminateVertex(v);
-//		
-//		// search the next vertex of the bag that will be eliminated
-//		T vj = null;
-//		for (T u : perm) {
-//			if (bagVertices.contains(u)) {
-//				vj = u;
-//				break;
-//			}
-//		}
-//		
-//		// recurse
-//		TreeDecomposition<T> decomposition = permutationToTreeDecomposition(perm);
-//				
-//		// add edge
-//		Bag<T> bag = decomposition.createBag(bagVertices);
-//		eliminatedVertexToBag.put(v, bag);
-//		decomposition.addTreeEdge(eliminatedVertexToBag.get(v), eliminatedVertexToBag.get(vj));
-		
-		decomposition.setGraph(original);
+
 		// done
 		return decomposition;
 	}
 	
 	@Override
 	public TreeDecomposition<T> call() throws Exception {
-		int n = graph.getCopyOfVertices().size();
+		int n = original.getNumVertices();
 		TreeDecomposition<T> decomposition = permutationToTreeDecomposition(permutation);
 		decomposition.setN(n);
 		decomposition.setCreatedFromPermutation(true);
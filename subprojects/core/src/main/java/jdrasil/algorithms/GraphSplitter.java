@@ -24,6 +24,7 @@ import jdrasil.graph.invariants.ConnectedComponents;
 import jdrasil.graph.invariants.CutVertex;
 import jdrasil.graph.invariants.MinorSafeSeparator;
 import jdrasil.utilities.JdrasilProperties;
+import jdrasil.utilities.RandomNumberGenerator;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 import java.util.*;
@@ -46,6 +47,8 @@ import java.util.logging.Logger;
  *
  * The implementation makes use of Javas RecursiveTask interface, allowing the divide phase to be done in parallel.
  * If the "parallel" flag is set in JdrasilProperties, the forks will distributed to new threads.
+ * Every task draws random numbers from its own dice, which is split of the dice of the task that created it. Hence,
+ * seeded runs are reproducible regardless of the parallelism.
  *
  * @param <T>
  */
@@ -88,6 +91,9 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
     /** A lower bound on the tree width of the graph. */
     private int low;
 
+    /** The dice this task draws random numbers from. */
+    private final RandomNumberGenerator.Dice dice;
+
     /**
      * Standard constructor. This will set the connectivity to DC, i.e., connected components will be computed.
      * @param graph
@@ -129,6 +135,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
         this.targetConnectivity = separateUpTo;
         this.low = low;
         this.handleAtom = handleAtom;
+        this.dice = RandomNumberGenerator.split();
     }
 
     /**
@@ -166,6 +173,22 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
 
     @Override
     protected TreeDecomposition<T> compute() {
+        RandomNumberGenerator.Dice previous = RandomNumberGenerator.setDice(dice);
+        try {
+            return splitAndDecompose();
+        } finally {
+            RandomNumberGenerator.setDice(previous);
+        }
+    }
+
+    /**
+     * Search a safe separator for the current connectivity and fork on it, or handle the graph as atom if there is none.
+     * @return a tree decomposition of the graph
+     */
+    private TreeDecomposition<T> splitAndDecompose() {
+
+        // stop if the computation was cancelled
+        checkInterrupted();
 
         // if the graph fits in a single bag we have neither to separate it further nor to handle it as atom
         if (graph.getCopyOfVertices().size() <= low+1) {
@@ -194,7 +217,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             T cutVertex = new CutVertex<>(graph).getValue();
             if (cutVertex == null) { // graph is biconnected
                 mode = Connectivity.BCC;
-                return compute(); // recursive with new mode
+                return splitAndDecompose(); // recursive with new mode
             } else { // just fork on the cut vertex, he is a safe separator
                 LOG.info("found " + cutVertex);
                 HashSet<T> S = new HashSet<T>();
@@ -209,6 +232,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             LOG.info("searching a separator of size two");
             Set<T> S = new HashSet<T>();
             for (T c1 : graph) { // guess a cut vertex
+                checkInterrupted();
                 S.clear();
                 S.add(c1);
                 T c2 = new CutVertex<>(graph, S).getValue(); // find second cut vertex
@@ -220,7 +244,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             }
             // not found a cut -> graph is triconnected
             mode = Connectivity.TCC;
-            return compute(); // recursive with new mode
+            return splitAndDecompose(); // recursive with new mode
         }
 
         // if the graph is triconnected, we may search a separator of size 3, i.e., computing 4-connected components
@@ -229,6 +253,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             LOG.info("searching a separator of size three");
             Set<T> S = new HashSet<T>();
             for (T c1 : graph) { // guess first cut vertex
+                checkInterrupted();
                 for (T c2 : graph) { // guess second cut vertex
                     if (c1.compareTo(c2) < 0) continue;
                     S.clear();
@@ -271,7 +296,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             }
             // not found a cut -> no safe separator of size 3, go on and search for minimal clique separators
             mode = Connectivity.CLIQUE;
-            return compute(); // recursive with new mode
+            return splitAndDecompose(); // recursive with new mode
         } else if (mode == Connectivity.TCC) {
             mode = Connectivity.CLIQUE; // tcc is expansive, may skip directly to clique minimal separators
         }
@@ -286,7 +311,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             }
             // if we do not found one, we may search for almost clique minimal separators
             mode = Connectivity.ACLIQUE;
-            return compute(); // recursive with new mode
+            return splitAndDecompose(); // recursive with new mode
         }
 
         // we found all clique minimal separators, we may now search for almost clique minimal separators
@@ -294,6 +319,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             LOG.info("searching an almost clique minimal separator");
             Set<T> S = new HashSet<T>();
             for (T c1 : graph) { // guess first cut vertex (the "almost" part of the almost clique
+                checkInterrupted();
                 S.clear();
                 S.add(c1);
                 Set<T> clique = new CliqueMinimalSeparator<>(graph, S).getSeparator();
@@ -322,7 +348,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             }
             // if we do not found one, we may search for labeled-minor separators
             mode = Connectivity.MINOR;
-            return compute(); // recursive with new mode
+            return splitAndDecompose(); // recursive with new mode
         } else if (mode == Connectivity.ACLIQUE) {
             mode = Connectivity.MINOR; // almost clique minimal separator is expansive, we may skip it
         }
@@ -338,7 +364,7 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
             }
             // found none, done with splitting
             mode = Connectivity.ATOM;
-            return compute(); // recursive with new mode
+            return splitAndDecompose(); // recursive with new mode
         }
 
         // no further separation possible -> decompose the atom using the provided function
@@ -348,6 +374,14 @@ public class GraphSplitter<T extends Comparable<T>> extends RecursiveTask<TreeDe
 
     //MARK: Decomposition methods
 
+    /**
+     * The search for separators calls linear time algorithms for many candidates, which may take a while on large
+     * graphs. If the thread was interrupted (i.e., the computation was cancelled), we stop here.
+     */
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) throw new RuntimeException("Interrupted while splitting the graph");
+    }
+
     /**
      * Given a separator \(S\) (which is assumed to be safe for tree width), this method will split the graph at \(S\) and
      * fork on the connected components of \(G[V\S]\), to which \(S\) is added as a clique. The recursively computed
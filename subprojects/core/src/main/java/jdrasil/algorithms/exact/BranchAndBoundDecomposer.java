@@ -317,7 +317,8 @@ public class BranchAndBoundDecomposer<T extends Comparable<T>> implements TreeDe
 			tw = Integer.MAX_VALUE;
 			for (Node child : branch(node)) {
 				int delta = child.currentVertex == null ? 0 : graph.getNeighborhood(child.currentVertex).size();
-				Graph<T>.EliminationInformation info = graph.eliminateVertex(child.currentVertex);
+				int trailPosition = graph.getTrailPosition();
+				graph.eliminateVertexOnTrail(child.currentVertex);
 				
 				// store current branch
 				vertexToEliminate.put(node.eliminatedVertices, child.currentVertex);
@@ -329,7 +330,7 @@ public class BranchAndBoundDecomposer<T extends Comparable<T>> implements TreeDe
 					branchVertex = child.currentVertex;				
 				}
 				
-				graph.deEliminateVertex(info);
+				graph.undoTrail(trailPosition);
 			}
 			
 			// remove added edges
@@ -22,11 +22,20 @@ import jdrasil.algorithms.lowerbounds.ImprovedGraphLowerbound;
 import jdrasil.algorithms.lowerbounds.MinorMinWidthLowerbound;
 import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer;
 import jdrasil.graph.*;
-import jdrasil.utilities.BitSetTrie;
+import jdrasil.utilities.ConcurrentBitSetTrie;
+import jdrasil.utilities.FixedBitSet;
+import jdrasil.utilities.JdrasilProperties;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * Tree width has nice game theoretic characterisations, one of which is the node-search game played by a set of searchers and
@@ -52,6 +61,18 @@ import java.util.logging.Logger;
  * to implement a bottom-up version of the algorithm of Arnborg et al., which is based on similar ideas as the node-search
  * game.
  *
+ * If the "parallel" flag is set in JdrasilProperties, the configurations are processed by multiple workers (using the
+ * fork-join pool). The workers pull the currently largest configuration from a shared queue and glue it against the
+ * shared tries of its neighbors; all shared data structures are thread-safe. Since a configuration is inserted into the
+ * tries before the tries are searched, of two configurations that are processed concurrently at least one will find
+ * the other one, i.e., no glue is missed.
+ *
+ * In the mode that improves a lower bound, a win-configuration for k cops is also one for k+1 cops. Hence, the search
+ * for k+1 resumes from the state of the search for k: the handled configurations and the tries are kept, and only the
+ * configurations and glues that were rejected for k as they needed exactly one more cop are processed again. Since the
+ * rejected configurations and glues are only recorded up to a few steps ahead, the search starts from scratch once
+ * these steps are used up.
+ *
  * @author Max Bannach
  * @author Sebastian Berndt
  */
@@ -82,19 +103,49 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
      * As the cops have a winning strategy if \(V\) is a winning configuration, we will use a priority queue to
      * handle big subgraphs first (in the hope of reaching \(V\) faster).
      */
-    private PriorityQueue<BitSet> queue;
+    private PriorityBlockingQueue<FixedBitSet> queue;
+
+    /** Number of configurations that are in the queue or that are currently processed. */
+    private AtomicInteger pending;
+
+    /** Set as soon as a win-configuration for the whole graph is found. */
+    private AtomicBoolean solved;
 
     /** Number of configurations processed during the run (i.e. configurations that where added to the queue) */
-    private int configurations;
+    private AtomicInteger configurations;
 
     /** Memorization of win-configurations that we have already considered. */
-    private BitSetTrie memory;
+    private ConcurrentBitSetTrie memory;
 
     /** For each vertex \(v\) we store a collection of subgraphs that have \(v\) as neighbor. */
-    private Map<Integer, BitSetTrie> tries;
+    private ConcurrentBitSetTrie[] tries;
 
     /** Each element added to the queue is glued from one or more previous winning configurations. */
-    private Map<BitSet, BitSet[]> from;
+    private Map<FixedBitSet, FixedBitSet[]> from;
+
+    /** Configurations and glues that were rejected as there were not enough cops, by the width for which they are valid. */
+    private Map<Integer, Queue<Rejected>> rejected;
+
+    /**
+     * Rejected configurations and glues that are processed again by the current run of decompose. As the queue, they
+     * are ordered by the size of the configuration they result in, and both are processed together in this order.
+     */
+    private PriorityBlockingQueue<Rejected> frontier;
+
+    /** The configurations that were added to the queue since the search was started from scratch. */
+    private Queue<FixedBitSet> accepted;
+
+    /** The width tested by the last run of decompose, if it failed and its state can be resumed, or -1 otherwise. */
+    private int resumableWidth;
+
+    /** Rejected configurations and glues are recorded up to this width, i.e., decompose can be resumed up to it. */
+    private int horizon;
+
+    /** Number of widths for which a search can be resumed, before it is started from scratch again. */
+    private static final int RESUME_STEPS = 2;
+
+    /** Number of stripes of the memory if multiple workers are used, i.e., of workers that may insert configurations simultaneously. */
+    private static final int MEMORY_STRIPES = 64;
 
     /**
      * Initialize data structures and transform the graph into a BitSetGraph.
@@ -103,10 +154,16 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
     public CatchAndGlue(Graph<T> graph) {
         this.graph  = new BitSetGraph(graph);
         this.n      = this.graph.getN();
-        this.queue  = new PriorityQueue<>( (a,b) -> Integer.compare(b.cardinality(), a.cardinality()) );
-        this.memory = new BitSetTrie();
-        this.from   = new HashMap<>();
-        this.tries  = new HashMap<>();
+        this.queue  = new PriorityBlockingQueue<>(11, (a,b) -> Integer.compare(b.cardinality(), a.cardinality()) );
+        this.pending = new AtomicInteger();
+        this.solved = new AtomicBoolean();
+        this.configurations = new AtomicInteger();
+        this.from   = new ConcurrentHashMap<>();
+        this.tries  = new ConcurrentBitSetTrie[n];
+        this.rejected = new ConcurrentHashMap<>();
+        this.frontier = new PriorityBlockingQueue<>(11, (a,b) -> Integer.compare(b.size, a.size) );
+        this.accepted = new ConcurrentLinkedQueue<>();
+        this.resumableWidth = -1;
         setMode(Mode.improveLowerbound);
     }
 
@@ -143,18 +200,21 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
      * @param from array of win-configurations from which S was glued (may be at least one)
      * @return
      */
-    private boolean offer(BitSet S, int k, BitSet... from) {
+    private boolean offer(FixedBitSet S, int k, FixedBitSet... from) {
 
         // Prune 1: we have to handle each configuration just ones
-        if (memory.contains(S)) return false;
+        BitSet key = S.toBitSet();
+        if (memory.contains(key)) return false;
 
         // Prune 2: if the configuration requires to many cops, we can prune it as well
         // The configuration needs cops on its border (otherwise the robber could escape), as well as the cops
         // that are used to produce the next configuration by "fly" on the new vertices (as the robber can move in between).
-        BitSet neighbors = graph.exteriorBorder(S);
-        BitSet delta = (BitSet) S.clone();
-        for (BitSet f : from) delta.andNot(f);
-        if (neighbors.cardinality() + delta.cardinality() > k + 1) return false; // not enough cops
+        FixedBitSet neighbors = graph.exteriorBorder(S);
+        int delta = FixedBitSet.differenceCardinality(S, from);
+        if (neighbors.cardinality() + delta > k + 1) { // not enough cops
+            reject(neighbors.cardinality() + delta - 1, new Rejected(S, -1, from));
+            return false;
+        }
 
         // we will eventually add S to the queue, store how we have glued it
         this.from.put(S, from);
@@ -164,40 +224,37 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
         if (S.cardinality() >= n - k - 1) {
             // create extra bag for remaining vertices
             if (S.cardinality() < n) {
-                BitSet all = new BitSet();
-                all.set(0, n);
-                this.from.put(all, new BitSet[]{S});
+                FixedBitSet all = graph.emptySet();
+                all.setAll();
+                this.from.put(all, new FixedBitSet[]{S});
             }
             return true;
         }
 
         // Prune 3: if we have handled a superset of S and N(S), we can prune S
-        BitSet mask = (BitSet) S.clone();
+        FixedBitSet mask = S.clone();
         mask.or(neighbors);
-        if (memory.getSuperSets(mask).iterator().hasNext()) {
-            this.memory.insert(S);
+        if (memory.containsSuperSet(mask.toBitSet())) {
+            this.memory.insert(key);
             return false;
         }
 
         // Prune 4: if we have handled a superset S' of S such that N(S') is a subset of N(S) we can prune
-        for (BitSet Sprime : memory.getSuperSets(S)) {
-            BitSet neighborsPrime = graph.exteriorBorder(Sprime);
-            boolean cut = true;
-            for (int v = neighborsPrime.nextSetBit(0); v >= 0; v = neighborsPrime.nextSetBit(v + 1)) {
-                if (!neighbors.get(v)) {
-                    cut = false;
-                    break;
-                }
-            }
-            if (cut) {
-                this.memory.insert(S);
-                return false;
-            }
+        FixedBitSet borderBuffer = graph.emptySet();
+        if (memory.anySuperSet(key, Sprime -> {
+            graph.exteriorBorder(FixedBitSet.valueOf(Sprime, n), borderBuffer);
+            return borderBuffer.isSubsetOf(neighbors);
+        })) {
+            this.memory.insert(key);
+            return false;
         }
 
-        // Store the new win-configuration in the priority queue.
-        queue.offer(S);
-        memory.insert(S);
+        // Store the new win-configuration in the priority queue, unless another worker has just done so.
+        if (memory.insert(key)) {
+            pending.incrementAndGet();
+            accepted.add(S);
+            queue.offer(S);
+        }
 
         // done, but have to decompose further
         return false;
@@ -214,80 +271,238 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
      * @return
      */
     private boolean decompose(int k) {
-        // init data structures
-        queue.clear();
-        memory.clear();
-        from.clear();
-        tries.clear();
-        for (int v = 0; v < n; v++) tries.put(v, new BitSetTrie());
-        configurations = 0;
-
-        // pre-fill the queue with trivial win-configurations
-        for (int v = 0; v < n; v++) {
-            BitSet S = new BitSet();
-            S.set(v);
-            graph.saturate(S);
-            if (offer(S, k)) return true;
+        int workers = 1;
+        if (JdrasilProperties.containsKey("parallel")) workers = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        boolean resume = k == resumableWidth + 1 && k <= horizon;
+        resumableWidth = -1;
+        configurations.set(0);
+        pending.set(0);
+        solved.set(false);
+
+        if (resume) {
+            // handled configurations may be large enough now
+            for (FixedBitSet S : accepted) {
+                if (S.cardinality() >= n - k - 1) {
+                    if (S.cardinality() < n) {
+                        FixedBitSet all = graph.emptySet();
+                        all.setAll();
+                        this.from.put(all, new FixedBitSet[]{S});
+                    }
+                    return true;
+                }
+            }
+
+            // process configurations and glues again that needed one more cop
+            Queue<Rejected> resumed = rejected.remove(k);
+            if (resumed != null) {
+                frontier.addAll(resumed);
+                pending.addAndGet(resumed.size());
+            }
+        } else {
+            // init data structures
+            queue.clear();
+            memory = new ConcurrentBitSetTrie(workers == 1 ? 1 : MEMORY_STRIPES);
+            from.clear();
+            for (int v = 0; v < n; v++) tries[v] = new ConcurrentBitSetTrie();
+            rejected.clear();
+            frontier.clear();
+            accepted.clear();
+            horizon = mode == Mode.improveLowerbound ? k + RESUME_STEPS : k;
+
+            // pre-fill the queue with trivial win-configurations
+            for (int v = 0; v < n; v++) {
+                FixedBitSet S = graph.emptySet();
+                S.set(v);
+                graph.saturate(S);
+                if (offer(S, k)) return true;
+            }
         }
 
         // handle the queue
-        while (!queue.isEmpty()) {
-            configurations++;
-            // get currently largest win-configuration
-            BitSet S = queue.poll();
-            BitSet delta = graph.exteriorBorder(S);
-
-            // handle the neighbors of S
-            for (int v = delta.nextSetBit(0); v >= 0; v = delta.nextSetBit(v+1)) {
-
-                // 1. add S to the trie of v
-                tries.get(v).insert(S);
-
-                // 2. try to extend S by removing a cop from v, i.e., find a direct predecessor configuration
-                BitSet newS = (BitSet) S.clone();
-                newS.set(v);
-                graph.saturate(newS);
-                if (offer(newS, k, S)) return true;
-
-                // 3. try to glue S to other win-configurations
-                Stack<BitSet> stack = new Stack<>();
-                stack.push(S);
-                while (!stack.isEmpty()) {
-                    BitSet current = (BitSet) stack.pop().clone();
-                    BitSet currentNeighbors = graph.exteriorBorder(current);
-                    BitSet mask = (BitSet) current.clone();
-                    mask.or(currentNeighbors);
-                    mask.flip(0,n);
-                    for (BitSet toGlue : tries.get(v).getSubSets(mask)) {
-                        BitSet glueNeighbors = graph.exteriorBorder(toGlue);
-                        glueNeighbors.or(currentNeighbors);
-                        if (glueNeighbors.cardinality() > k+1) continue; // not enough cops
-                        newS = (BitSet) current.clone();
-                        newS.or(toGlue);
-
-                        int absorbable = graph.absorbable(newS);
-                        if (absorbable < 0 || absorbable == v) {
-                            BitSet tmp = (BitSet) newS.clone();
-                            tmp.set(v); // may prevent us from offering
-                            graph.saturate(tmp);
-                            if (offer(tmp, k, current, toGlue)) return true;
-                        }
-                        if (absorbable < 0) {
-                            from.put(newS, new BitSet[]{current, toGlue});
-                            stack.push(newS);
-                        }
+        Thread caller = Thread.currentThread();
+        if (workers == 1) {
+            work(k, caller);
+        } else {
+            IntStream.range(0, workers).parallel().forEach(i -> work(k, caller));
+        }
 
-                    }
-                }
+        // if the queue is empty, we failed to catch the robber -> tree width is larger then k
+        if (solved.get()) return true;
+        resumableWidth = k;
+        return false;
+    }
+
+    /**
+     * Records a configuration or glue that was rejected as there were not enough cops, such that it can be processed
+     * again if decompose is resumed for the given width.
+     * @param width the smallest width for which there are enough cops
+     * @param rejection
+     */
+    private void reject(int width, Rejected rejection) {
+        if (width > horizon) return;
+        rejected.computeIfAbsent(width, w -> new ConcurrentLinkedQueue<>()).add(rejection);
+    }
 
+    /**
+     * A worker of @see decompose(int): processes configurations from the queue until a win-configuration for the whole
+     * graph is found, or until the queue is empty and no other worker processes a configuration (which could add new
+     * configurations to the queue).
+     * @param k tree width that is tested
+     * @param caller the thread that has called decompose, the computation is stopped if it gets interrupted
+     */
+    private void work(int k, Thread caller) {
+        while (!solved.get() && pending.get() > 0) {
+            if (caller.isInterrupted()) throw new RuntimeException("Interrupted while searching a decomposition of width " + k);
+            // take the larger one of the next configuration and the next rejected configuration or glue
+            Rejected rejection = frontier.peek();
+            FixedBitSet S = queue.peek();
+            if (rejection != null && (S == null || rejection.size > S.cardinality())) {
+                rejection = frontier.poll();
+                S = null;
+            } else {
+                rejection = null;
+                S = queue.poll();
+            }
+            if (rejection == null && S == null) { // other workers may still produce configurations
+                Thread.yield();
+                continue;
             }
+            try {
+                if (rejection != null ? resume(rejection, k) : process(S, k)) solved.set(true);
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Computes the predecessor configurations of the given win-configuration, i.e., extends it by a vertex and glues it
+     * to other win-configurations, and offers them.
+     * @param S the win-configuration, which was taken from the queue
+     * @param k tree width that is tested
+     * @return true if a win-configuration for the whole graph was found
+     */
+    private boolean process(FixedBitSet S, int k) {
+        configurations.incrementAndGet();
+        FixedBitSet delta = graph.exteriorBorder(S);
+        BitSet key = S.toBitSet();
+        FixedBitSet borderBuffer = graph.emptySet();
+
+        // handle the neighbors of S
+        for (int v = delta.nextSetBit(0); v >= 0 && !solved.get(); v = delta.nextSetBit(v+1)) {
+
+            // 1. add S to the trie of v
+            tries[v].insert(key);
+
+            // 2. try to extend S by removing a cop from v, i.e., find a direct predecessor configuration
+            FixedBitSet newS = S.clone();
+            newS.set(v);
+            graph.saturate(newS);
+            if (offer(newS, k, S)) return true;
+
+            // 3. try to glue S to other win-configurations
+            Stack<FixedBitSet> stack = new Stack<>();
+            stack.push(S);
+            if (glue(stack, v, k, borderBuffer)) return true;
+
+        }
+        return false;
+    }
+
+    /**
+     * Processes a rejected configuration or glue again, @see decompose(int).
+     * @param rejection
+     * @param k tree width that is tested
+     * @return true if a win-configuration for the whole graph was found
+     */
+    private boolean resume(Rejected rejection, int k) {
+        if (rejection.v < 0) return offer(rejection.S, k, rejection.from);
+        FixedBitSet borderBuffer = graph.emptySet();
+        Stack<FixedBitSet> stack = new Stack<>();
+        FixedBitSet currentNeighbors = graph.exteriorBorder(rejection.S);
+        if (glue(rejection.S, currentNeighbors, rejection.from[0], rejection.v, k, stack, borderBuffer)) return true;
+        return glue(stack, rejection.v, k, borderBuffer);
+    }
 
+    /**
+     * Glues the configurations on the given stack to the configurations in the trie of v, and the results again, until
+     * the stack is empty.
+     * @param stack configurations that have v as neighbor
+     * @param v
+     * @param k tree width that is tested
+     * @param borderBuffer
+     * @return true if a win-configuration for the whole graph was found
+     */
+    private boolean glue(Stack<FixedBitSet> stack, int v, int k, FixedBitSet borderBuffer) {
+        while (!stack.isEmpty()) {
+            FixedBitSet current = stack.pop().clone();
+            FixedBitSet currentNeighbors = graph.exteriorBorder(current);
+            FixedBitSet mask = current.clone();
+            mask.or(currentNeighbors);
+            mask.complement();
+            for (BitSet glue : tries[v].getSubSets(mask.toBitSet())) {
+                FixedBitSet toGlue = FixedBitSet.valueOf(glue, n);
+                if (glue(current, currentNeighbors, toGlue, v, k, stack, borderBuffer)) return true;
+            }
         }
+        return false;
+    }
 
-        // queue empty -> failed to catch the robber -> tree width is larger then k
+    /**
+     * Glues two configurations that have v as neighbor. If v can be absorbed afterwards, the result is offered, otherwise
+     * the result is pushed onto the given stack to be glued further.
+     * @param current
+     * @param currentNeighbors the exterior border of current
+     * @param toGlue
+     * @param v
+     * @param k tree width that is tested
+     * @param stack
+     * @param borderBuffer
+     * @return true if a win-configuration for the whole graph was found
+     */
+    private boolean glue(FixedBitSet current, FixedBitSet currentNeighbors, FixedBitSet toGlue, int v, int k,
+                         Stack<FixedBitSet> stack, FixedBitSet borderBuffer) {
+        graph.exteriorBorder(toGlue, borderBuffer);
+        int cops = FixedBitSet.unionCardinality(borderBuffer, currentNeighbors);
+        if (cops > k+1) { // not enough cops
+            reject(cops - 1, new Rejected(current, v, toGlue));
+            return false;
+        }
+        FixedBitSet newS = current.clone();
+        newS.or(toGlue);
+
+        int absorbable = graph.absorbable(newS);
+        if (absorbable < 0 || absorbable == v) {
+            FixedBitSet tmp = newS.clone();
+            tmp.set(v); // may prevent us from offering
+            graph.saturate(tmp);
+            if (offer(tmp, k, current, toGlue)) return true;
+        }
+        if (absorbable < 0) {
+            from.put(newS, new FixedBitSet[]{current, toGlue});
+            stack.push(newS);
+        }
         return false;
     }
 
+    /**
+     * A configuration or a glue that was rejected as there were not enough cops. A configuration is stored with the
+     * configurations it was glued from, a glue of S and T at the vertex v is stored as S, v, and T.
+     */
+    private static class Rejected {
+        final FixedBitSet S;
+        final int v;
+        final FixedBitSet[] from;
+        /** Size of the resulting configuration (S and T are disjoint). */
+        final int size;
+        Rejected(FixedBitSet S, int v, FixedBitSet... from) {
+            this.S = S;
+            this.v = v;
+            this.from = from;
+            this.size = v < 0 ? S.cardinality() : S.cardinality() + from[0].cardinality();
+        }
+    }
+
     /**
      * Extract a tree decomposition from a winning-strategy of the cops.
      * Should be called after a run of @see decompose that has returned true
@@ -295,16 +510,16 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
      * @param td
      * @return
      */
-    private Bag<T> extractTreeDecomposition(BitSet S, TreeDecomposition<T> td) {
+    private Bag<T> extractTreeDecomposition(FixedBitSet S, TreeDecomposition<T> td) {
         // 1. create current bag
-        BitSet bagVertices = (BitSet) S.clone();
+        FixedBitSet bagVertices = S.clone();
 
-        for (BitSet f : from.get(S)) bagVertices.andNot(f); // reduce to delta
+        for (FixedBitSet f : from.get(S)) bagVertices.andNot(f); // reduce to delta
         bagVertices.or(graph.exteriorBorder(S));            // add neighbors
         Bag<T> bag = td.createBag(graph.getVertexSet(bagVertices));
 
         // 2. compute children and glue to them
-        for (BitSet child : from.get(S)) {
+        for (FixedBitSet child : from.get(S)) {
             Bag<T> childBag = extractTreeDecomposition(child, td);
             td.addTreeEdge(bag, childBag);
         }
@@ -321,8 +536,8 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
         int k = 0;
 
         // helper mask for the whole graph
-        BitSet all = new BitSet();
-        all.set(0,n);
+        FixedBitSet all = graph.emptySet();
+        all.setAll();
 
         // either improve a lower- or an upper-bound
         switch (this.mode) {
@@ -330,10 +545,10 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
                 k = new MinorMinWidthLowerbound<>(graph.getGraph()).call();
                 LOG.info(String.format("tree width > %2d ( heuristic )", k-1 ));
                 while (!decompose(k)) {
-                    LOG.info(String.format("tree width > %2d ( %4d configurations )", k, configurations));
+                    LOG.info(String.format("tree width > %2d ( %4d configurations )", k, configurations.get()));
                     k++;
                 }
-                LOG.info(String.format("tree width = %2d ( %4d configurations )", k, configurations));
+                LOG.info(String.format("tree width = %2d ( %4d configurations )", k, configurations.get()));
 
                 // extract constructed tree decomposition
                 td = new TreeDecomposition<T>(graph.getGraph());
@@ -346,12 +561,12 @@ public class CatchAndGlue<T extends Comparable<T>> implements TreeDecomposer<T>
                 k = td.getWidth() - 1;
                 LOG.info(String.format("tree width <= %2d ( heuristic )", k+1));
                 while (decompose(k)) {
-                    LOG.info(String.format("tree width <= %2d ( %4d configurations )", k, configurations));
+                    LOG.info(String.format("tree width <= %2d ( %4d configurations )", k, configurations.get()));
                     td = new TreeDecomposition<>(graph.getGraph());
                     extractTreeDecomposition(all, td);
                     k = k - 1;
                 }
-                LOG.info(String.format("tree width > %3d ( %4d configurations )", k, configurations));
+                LOG.info(String.format("tree width > %3d ( %4d configurations )", k, configurations.get()));
                 break;
         }
 
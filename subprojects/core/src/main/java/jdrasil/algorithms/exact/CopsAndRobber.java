@@ -19,6 +19,7 @@
 package jdrasil.algorithms.exact;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,6 +35,7 @@ import jdrasil.graph.Graph;
 import jdrasil.graph.TreeDecomposer;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.graph.TreeDecomposition.TreeDecompositionQuality;
+import jdrasil.utilities.ConfigurationStore;
 
 /**
  * An alternative definition of tree-width is about the cops and robbers game.
@@ -56,8 +58,11 @@ public class CopsAndRobber<T extends Comparable<T>> implements TreeDecomposer<T>
 	private final Map<T, Integer> vertexToInt;
 	private final Map<Integer, T> intToVertex;
 	
-	/** The dynamic programming table */
-	private final Map<Node, Boolean> memorization;
+	/** The dynamic programming table, configurations are stored as words of the cops followed by the robber */
+	private final ConfigurationStore memorization;
+
+	/** Number of words used to store the cops of a configuration */
+	private final int words;
 	
 	/** 
 	 * The winning strategy computed for the cops. 
@@ -113,7 +118,8 @@ public class CopsAndRobber<T extends Comparable<T>> implements TreeDecomposer<T>
 			intToVertex.put(i,v);
 			i = i+1;			
 		}
-		this.memorization = new HashMap<>();
+		this.words = (n + 63) / 64;
+		this.memorization = ConfigurationStore.create(words + 1);
 		this.winningStrategy = new HashMap<>();
 	}
 	
@@ -182,7 +188,9 @@ public class CopsAndRobber<T extends Comparable<T>> implements TreeDecomposer<T>
 	private boolean computeWinningStrategy(Node x, int k) {
 		
 		// use memorization
-		if (memorization.containsKey(x)) return memorization.get(x);
+		long[] key = key(x);
+		int known = memorization.get(key, -1);
+		if (known >= 0) return known == 1;
 	
 		boolean result = false;
 		BitSet cops = x.cops;
@@ -240,9 +248,20 @@ public class CopsAndRobber<T extends Comparable<T>> implements TreeDecomposer<T>
 		}
 		
 		// done - store and return
-		memorization.put(x, result);
+		memorization.put(key, result ? 1 : 0);
 		return result;		
 	}
+
+	/**
+	 * Packs the configuration x into words for the dynamic programming table.
+	 * @param x
+	 * @return the words of the cops followed by the position of the robber
+	 */
+	private long[] key(Node x) {
+		long[] key = Arrays.copyOf(x.cops.toLongArray(), words + 1);
+		key[words] = x.robber;
+		return key;
+	}
 	
 	/**
 	 * Reports a edge of the tree-decomposition as part of the winning strategy of the cops.
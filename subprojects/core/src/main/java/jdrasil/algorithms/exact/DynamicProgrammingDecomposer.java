@@ -25,15 +25,16 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.stream.IntStream;
 
 import jdrasil.algorithms.EliminationOrderDecomposer;
 import jdrasil.graph.Graph;
 import jdrasil.graph.TreeDecomposer;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.graph.TreeDecomposition.TreeDecompositionQuality;
+import jdrasil.utilities.JdrasilProperties;
 
 /**
  * This class implements exact exponential time (and exponential space) algorithms to compute a tree-decomposition via dynamic programming.
@@ -64,6 +65,21 @@ public class DynamicProgrammingDecomposer<T extends Comparable<T>> implements Tr
 	
 	/** store for a subgraph of G, which vertex should be eliminated next */
 	private final Map<BitSet, Integer> vertexToEliminate;
+
+	/**
+	 * The simple dynamic program is restricted to graphs with at most this many vertices. It keeps two layers of one byte per
+	 * subset, i.e., at most 2*binomial(30,15) bytes (about 310 MB).
+	 */
+	private static final int SIMPLE_DP_MAX_VERTICES = 30;
+
+	/** Number of subsets of a layer that are processed as one task by the simple dynamic program. */
+	private static final int SIMPLE_DP_BLOCK = 1024;
+
+	/** the elimination order computed by the simple dynamic program */
+	private int[] simpleDPOrder;
+
+	/** binomial coefficients used to rank subsets in the simple dynamic program */
+	private int[][] binomial;
 	
 	/** memorization for TWDP */
 	private final Map<Integer, Map<BitSet, Integer>> TWi;
@@ -260,68 +276,170 @@ public class DynamicProgrammingDecomposer<T extends Comparable<T>> implements Tr
 	
 	/**
 	 * A simple iterative implementation of the dynamic program. (Theorem 3.3 of the cited paper).
+	 *
+	 * The subsets are processed layer by layer, i.e., by increasing cardinality. As TW(S) only depends on subsets of S that are one
+	 * vertex smaller, only the values of the previous layer are kept. Subsets are represented as bitmasks and the values of a
+	 * layer are stored in an array indexed by the rank of the subsets in colexicographic order. The subsets of a layer are
+	 * independent and, thus, are processed in parallel if Jdrasil runs in parallel mode.
+	 *
+	 * The vertices to eliminate are not stored per subset. Instead, the elimination order is restored backwards: the vertex
+	 * eliminated last from S is the best vertex with respect to the values of the subsets of S that are one vertex smaller,
+	 * which are recomputed by the dynamic program over the subsets of S. As the number of these subsets halves with every
+	 * vertex, this at most doubles the running time.
 	 * @return
 	 */
 	private int simpleDPitr() {
-		
-		// empty set is set to "-infinity" .... -1 is good enough, though
-		TW.put(new BitSet(), -1);		
-		Queue<BitSet> Q = new LinkedList<BitSet>();
-		
-		// initialize queue with |S|=1
-		for (T vertex : graph.getCopyOfVertices()) {
-			BitSet S = new BitSet();
-			S.set(vertexToInt.get(vertex));
-			Q.offer(S);
+		if (n > SIMPLE_DP_MAX_VERTICES) throw new IllegalStateException("simpleDP supports graphs with at most " + SIMPLE_DP_MAX_VERTICES + " vertices");
+
+		// neighborhoods as bitmasks
+		long[] neighbors = new long[n];
+		for (T vertex : graph) {
+			for (T neighbor : graph.getNeighborhood(vertex)) neighbors[vertexToInt.get(vertex)] |= 1L << vertexToInt.get(neighbor);
 		}
-		
-		// with the queue we simulate the iteration over increasing subsets
-		while (!Q.isEmpty()) {
-			
-			// current set
-			BitSet S = Q.poll();
-						
-			// compute TW(S)
+
+		// binomial coefficients, used to rank subsets
+		binomial = new int[n+1][n+1];
+		for (int i = 0; i <= n; i++) {
+			binomial[i][0] = 1;
+			for (int j = 1; j <= i; j++) binomial[i][j] = binomial[i-1][j-1] + (j < i ? binomial[i-1][j] : 0);
+		}
+
+		// restore the elimination order backwards, starting with S = V
+		int[] vertices = new int[n];
+		for (int v = 0; v < n; v++) vertices[v] = v;
+		simpleDPOrder = new int[n];
+		int tw = -1;
+		for (int m = n; m > 0; m--) {
+			byte[] last = simpleDPLayers(vertices, m, neighbors);
+
+			// the best vertex to eliminate last from S, for S = V its value is the tree-width
+			long S = 0;
+			for (int j = 0; j < m; j++) S |= 1L << vertices[j];
 			int result = Integer.MAX_VALUE;
-			int nextV = -1;
-			for (int v = S.nextSetBit(0); v >= 0; v = S.nextSetBit(v+1)) {				
-				BitSet Sprime = (BitSet) S.clone();
-				Sprime.set(v, false); // remove v
-				int value = Math.max(TW.get(Sprime), Q(Sprime, v).cardinality()); // recursion
-				if (value < result) { // take the best v
-					result = value; 
-					nextV = v;
-				}					 
-				if (v == Integer.MAX_VALUE) {
-					break; // or (i+1) would overflow
-			    }
-			}
-			
-			// store result
-			TW.put(S, result);
-			vertexToEliminate.put(S, nextV);
-			
-			// end of computation
-			if (S.cardinality() == n) return result;
-			
-			// add next layer to Queue (i.e. S' with |S'|=|S|+1)
-			for (T vertex : graph.getCopyOfVertices()) {
-				int v = vertexToInt.get(vertex);
-				if (!S.get(v)) {
-					BitSet next = (BitSet) S.clone();
-					next.set(v);
-					if (!TW.containsKey(next)) {
-						Q.offer(next);
-						TW.put(next, Integer.MAX_VALUE);
-					}					
-				}				
+			int next = -1;
+			for (int j = 0; j < m; j++) {
+				int value = Math.max(last[rank(((1L << m) - 1) & ~(1L << j))], Q(S & ~(1L << vertices[j]), vertices[j], neighbors));
+				if (value < result) {
+					result = value;
+					next = j;
+				}
 			}
+			if (m == n) tw = result;
+
+			// eliminate the vertex, the remaining vertices stay sorted
+			simpleDPOrder[m-1] = vertices[next];
+			System.arraycopy(vertices, next+1, vertices, next, m-next-1);
 		}
-		
-		// error
-		return -1;
+		return tw;
 	}
-	
+
+	/**
+	 * Runs the simple dynamic program on the subsets of the given vertices, up to the subsets that miss one of them.
+	 * Within the program the subsets are represented as subsets of {0,...,m-1}, where bit j represents vertices[j].
+	 * @param vertices the first m entries are the vertices, in increasing order
+	 * @param m the number of vertices
+	 * @param neighbors the neighborhoods of the vertices as bitmasks
+	 * @return TW of the subsets of cardinality m-1, indexed by their rank
+	 */
+	private byte[] simpleDPLayers(int[] vertices, int m, long[] neighbors) {
+
+		// empty set is set to "-infinity" .... -1 is good enough, though
+		byte[] previous = new byte[] { -1 };
+
+		// compute the layers of increasing subsets
+		for (int i = 1; i < m; i++) {
+			final int k = i;
+			final byte[] last = previous;
+			final byte[] current = new byte[binomial[m][k]];
+
+			// split the layer in blocks of consecutive ranks
+			IntStream blocks = IntStream.range(0, (current.length + SIMPLE_DP_BLOCK - 1) / SIMPLE_DP_BLOCK);
+			if (JdrasilProperties.containsKey("parallel")) blocks = blocks.parallel();
+			blocks.forEach( b -> {
+				int to = Math.min(current.length, (b+1) * SIMPLE_DP_BLOCK);
+				long S = unrank(b * SIMPLE_DP_BLOCK, k, m);
+				for (int r = b * SIMPLE_DP_BLOCK; r < to; r++) {
+
+					// the vertices represented by S
+					long set = 0;
+					for (long mask = S; mask != 0; mask &= mask-1) set |= 1L << vertices[Long.numberOfTrailingZeros(mask)];
+
+					// compute TW(S)
+					int result = Integer.MAX_VALUE;
+					for (long mask = S; mask != 0; mask &= mask-1) {
+						int j = Long.numberOfTrailingZeros(mask);
+						int v = vertices[j];
+						int value = Math.max(last[rank(S & ~(1L << j))], Q(set & ~(1L << v), v, neighbors)); // recursion
+						if (value < result) result = value; // take the best v
+					}
+					current[r] = (byte) result;
+
+					// next subset of the same cardinality in colexicographic order
+					long c = S & -S;
+					long next = S + c;
+					S = (((next ^ S) >>> 2) / c) | next;
+				}
+			});
+
+			previous = current;
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Version of @see DynamicProgrammingDecomposer#Q(java.util.BitSet, int) on bitmasks, which only returns the size of the set.
+	 * @param S
+	 * @param v
+	 * @param neighbors the neighborhoods of the vertices as bitmasks
+	 * @return |Q(S,v)|
+	 */
+	private static int Q(long S, int v, long[] neighbors) {
+		long component = 1L << v;
+		long frontier = component;
+		long border = 0;
+		while (frontier != 0) {
+			int s = Long.numberOfTrailingZeros(frontier);
+			frontier &= frontier-1;
+			border |= neighbors[s];
+			long next = neighbors[s] & S & ~component;
+			component |= next;
+			frontier |= next;
+		}
+		return Long.bitCount(border & ~S & ~(1L << v));
+	}
+
+	/**
+	 * The rank of the subset S under all subsets of the same cardinality in colexicographic order.
+	 * @param S
+	 * @return
+	 */
+	private int rank(long S) {
+		int rank = 0;
+		int j = 1;
+		for (long m = S; m != 0; m &= m-1) rank += binomial[Long.numberOfTrailingZeros(m)][j++];
+		return rank;
+	}
+
+	/**
+	 * The subset of {0,...,m-1} of cardinality k with the given rank in colexicographic order.
+	 * @param rank
+	 * @param k
+	 * @param m
+	 * @return
+	 */
+	private long unrank(int rank, int k, int m) {
+		long S = 0;
+		int c = m-1;
+		for (int j = k; j > 0; j--) {
+			while (binomial[c][j] > rank) c--;
+			S |= 1L << c;
+			rank -= binomial[c][j];
+			c--;
+		}
+		return S;
+	}
+
 	/**
 	 * The improved algorithm of the cited paper. The number of of considered subsets is reduced, and a given clique is used
 	 * to reduce the search-space further.
@@ -399,6 +517,12 @@ public class DynamicProgrammingDecomposer<T extends Comparable<T>> implements Tr
 		// a optimal elimination order
 		List<T> permutation = new LinkedList<>();
 		
+		// the simple dynamic program restores the order on its own
+		if (mode == Mode.simpleDP) {
+			for (int v : simpleDPOrder) permutation.add(intToVertex.get(v));
+			return permutation;
+		}
+
 		// restore from saved data
 		BitSet S = new BitSet();
 		for (T v : graph) S.set(vertexToInt.get(v));
@@ -19,6 +19,8 @@
 package jdrasil.algorithms.exact;
 
 import jdrasil.graph.*;
+import jdrasil.utilities.ConfigurationStore;
+import jdrasil.utilities.FixedBitSet;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 import java.util.*;
@@ -47,17 +49,20 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
     /** a good approximation of infinity ... */
     private final int INFINITY = Integer.MAX_VALUE/2;
 
-    /** The graph we wish to decomposed as array of BitSets */
+    /** The graph we wish to decomposed as array of bitsets */
     private BitSetGraph<T> graph;
 
     /** Number of vertices of the graph we decompose. */
     private int n;
 
-    /** Hash map used for dynamic programming over subgraphs. */
-    private Map<BitSet, Integer> label;
+    /**
+     * Store used for dynamic programming over subgraphs. The winning strategy of the searchers, which is used to
+     * extract the tree decomposition, is not stored but reconstructed from the labels.
+     */
+    private ConfigurationStore label;
 
-    /** Winning strategy of the searchers, used to extract the tree decomposition. */
-    private Map<BitSet, List<BitSet>> strategy;
+    /** The number of searchers used in the last call of @see decompose. */
+    private int k;
 
     /** The number of reveals we wish to use (we will compute smallest k that can use no more reveals) */
     private int reveals;
@@ -80,8 +85,7 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
     public LimitedGraphSearch(Graph<T> graph, int q) {
         this.graph = new BitSetGraph<T>(graph);
         this.n = this.graph.getN();
-        this.label = new HashMap<>();
-        this.strategy = new HashMap<>();
+        this.label = ConfigurationStore.create(this.graph.emptySet().toLongArray().length);
         this.reveals = q;
     }
 
@@ -92,42 +96,38 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
      * @param k
      * @return
      */
-    private int decompose(BitSet S, int k) {
-        if (label.containsKey(S)) return label.get(S); // label of S was already computed
-        strategy.put(S, new LinkedList<>());
+    private int decompose(FixedBitSet S, int k) {
+        long[] key = S.toLongArray();
+        int known = label.get(key, -1);
+        if (known >= 0) return known; // label of S was already computed
         if (S.cardinality() == n) { // end configuration is labeled with 0
-            label.put(S, 0);
+            label.put(key, 0);
             return 0;
         }
         int value = INFINITY; // default label is (almost) infinity
 
         // the next move depends on the number of free searchers we have
-        BitSet delta = graph.interiorBorder(S);
+        FixedBitSet delta = graph.interiorBorder(S);
         if (delta.cardinality() < k) {
             // we have a free searcher, make an existential step
             for (int v = 0; v < n; v++) {
                 if (S.get(v)) continue; // already cleared
-                BitSet newS = (BitSet) S.clone();
+                FixedBitSet newS = S.clone();
                 newS.set(v);
                 int tmp = decompose(newS, k);
-                if (tmp < value) {
-                    value = tmp;
-                    strategy.get(S).clear();
-                    strategy.get(S).add(newS);
-                }
+                if (tmp < value) value = tmp;
             }
         } else {
             // we have no free searcher, we have to make an universal step and use S as separator
-            List<BitSet> components = graph.separate(S);
+            List<FixedBitSet> components = graph.separate(S);
             if (components.size() > 1) { // if we have not more then one component we lost
                 int tmp = 0; // it has to work for all, so we invert the logic
-                for (BitSet component : components) {
+                for (FixedBitSet component : components) {
                     // reveal the component the searcher is in by marking everything else safe
-                    BitSet mask = new BitSet();
-                    mask.set(0,n);
+                    FixedBitSet mask = graph.emptySet();
+                    mask.setAll();
                     mask.andNot(component);
                     tmp = Math.max(tmp, decompose(mask, k));
-                    strategy.get(S).add(mask);
                     if (tmp == INFINITY) break;
                 }
                 tmp = tmp + 1;
@@ -136,20 +136,51 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
         }
 
         // done, store result in label and return
-        label.put(S, value);
-        if (value == INFINITY) strategy.put(S, null); // safe some space
+        label.put(key, value);
         return value;
     }
 
     /**
-     * Initial call method for @see jdrasil.algorithms.exact.LimitedGraphSearch#decompose(java.util.BitSet, int)
+     * Initial call method for @see jdrasil.algorithms.exact.LimitedGraphSearch#decompose(jdrasil.utilities.FixedBitSet, int)
      * @param k
      * @return
      */
     private boolean decompose(int k) {
         label.clear();
-        strategy.clear();
-        return decompose(new BitSet(), k) <= reveals;
+        this.k = k;
+        return decompose(graph.emptySet(), k) <= reveals;
+    }
+
+    /**
+     * Reconstruct the move of the searchers in the configuration S from the labels computed by @see decompose, i.e.,
+     * the first configuration reached by an existential step that has the same label as S, or the configurations of all
+     * components if S is used as separator.
+     * @param S
+     * @return the configurations that follow S in the winning strategy
+     */
+    private List<FixedBitSet> strategy(FixedBitSet S) {
+        List<FixedBitSet> children = new LinkedList<>();
+        if (S.cardinality() == n) return children;
+        if (graph.interiorBorder(S).cardinality() < k) {
+            int value = label.get(S.toLongArray(), INFINITY);
+            for (int v = 0; v < n; v++) {
+                if (S.get(v)) continue;
+                FixedBitSet newS = S.clone();
+                newS.set(v);
+                if (label.get(newS.toLongArray(), INFINITY) == value) {
+                    children.add(newS);
+                    break;
+                }
+            }
+        } else {
+            for (FixedBitSet component : graph.separate(S)) {
+                FixedBitSet mask = graph.emptySet();
+                mask.setAll();
+                mask.andNot(component);
+                children.add(mask);
+            }
+        }
+        return children;
     }
 
     /**
@@ -159,13 +190,14 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
      * @param td
      * @return
      */
-    private Bag<T> extractTreeDecomposition(BitSet S, TreeDecomposition<T> td) {
+    private Bag<T> extractTreeDecomposition(FixedBitSet S, TreeDecomposition<T> td) {
         Bag<T> bag = td.createBag(graph.getVertexSet(graph.interiorBorder(S)));
-        int n_childs = strategy.get(S).size();
-        for (BitSet child : strategy.get(S)) {
+        List<FixedBitSet> children = strategy(S);
+        int n_childs = children.size();
+        for (FixedBitSet child : children) {
             if (n_childs == 1) {
                 // create an intermediate bag bag(S) -> bag(S cut child) -> bag(child)
-                BitSet cut = (BitSet) child.clone();
+                FixedBitSet cut = child.clone();
                 cut.andNot(S);
                 cut.or(graph.interiorBorder(S));
                 Bag<T> cutBag = td.createBag(graph.getVertexSet(cut));
@@ -190,7 +222,7 @@ public class LimitedGraphSearch<T extends Comparable<T>> implements TreeDecompos
         }
         LOG.info("limited search number == " + k);
         TreeDecomposition<T> td = new TreeDecomposition<T>(graph.getGraph());
-        extractTreeDecomposition(new BitSet(), td);
+        extractTreeDecomposition(graph.emptySet(), td);
         return td;
     }
 
@@ -132,24 +132,14 @@ public class MinorMinWidthLowerbound<T extends Comparable<T>> implements Lowerbo
 	@Override
 	public Integer call() throws Exception {	 
 
+		// the degrees are maintained by the priority index of the graph during the contractions
+		graph.setPriorityIndex(true);
+
 		// as long as the graph has vertices we can still contract some
-		while (graph.getCopyOfVertices().size() > 0) {
+		while (graph.getNumVertices() > 0) {
 			
-			// search vertex of min degree
-			int min = Integer.MAX_VALUE;
-			List<T> nextV = new LinkedList<>();
-			for (T v : graph) {
-				int deg = graph.getNeighborhood(v).size();
-				if (deg == 0) continue; // ignore isolated vertices
-				if (deg < min) {
-					min = deg;
-					nextV.clear();
-					nextV.add(v);
-				} else if (deg == min) { // break ties randomly
-					nextV.add(v);
-				}
-			}
-			T v = nextV.size() > 0 ? nextV.get(RandomNumberGenerator.nextInt(nextV.size())) : null;
+			// search vertex of min degree, ignoring isolated vertices (ties are broken randomly)
+			T v = graph.getMinDegreeVertex(1);
 			if (v == null) break;
 
 			// update lowerbound
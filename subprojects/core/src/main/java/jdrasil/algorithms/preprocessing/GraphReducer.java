@@ -18,22 +18,30 @@
  */
 package jdrasil.algorithms.preprocessing;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 import jdrasil.graph.Bag;
 import jdrasil.graph.Graph;
 import jdrasil.graph.GraphFactory;
 import jdrasil.graph.TreeDecomposition;
+import jdrasil.utilities.JdrasilProperties;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 /**
@@ -59,14 +67,14 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	/** Jdrasils Logger */
 	private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
 
-	/** The exhaustive application of reduction rules may be to expensive, in this case we use only a subset of them. */
-	private final int EXHAUSTIVE_THRESHOLD = 2000;
-
 	/** Bags that are created during the reduction (and which have to be glued to a later decomposition).*/
 	private Stack<Set<T>> bags;
 	
 	/** A lower bound on the tree-width. */
 	private int low;
+
+	/** Endpoints of the edges added by the reduction rules (pairwise), used to find the vertices to check again. */
+	private List<T> fillEdges;
 	
 	/**
 	 * @param graph
@@ -75,6 +83,62 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 		super(graph);
 	}
 
+	/**
+	 * The bags created during the reduction, in the order in which they were pushed on the stack.
+	 * @return a copy of the bags
+	 */
+	List<Set<T>> getReductionBags() {
+		getProcessedGraph();
+		return new ArrayList<>(bags);
+	}
+
+	/**
+	 * Computes a tree decomposition of the input graph from the given decomposition of the reduced graph, like
+	 * @see addbackTreeDecomposition, but without changing the state of the reducer: the given decomposition is
+	 * copied and the bags created during the reduction are kept. Hence, this method can be called for several
+	 * decompositions, for instance, to publish the intermediate solutions of an anytime algorithm.
+	 * @param decomposition of the reduced graph
+	 * @return a tree decomposition of the input graph
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized TreeDecomposition<T> getTreeDecompositionFor(TreeDecomposition<T> decomposition) {
+		getProcessedGraph();
+		Stack<Set<T>> savedBags = (Stack<Set<T>>) bags.clone();
+		TreeDecomposition<T> savedDecomposition = treeDecomposition;
+		TreeDecomposition<T> savedProcessedDecomposition = processedTreeDecomposition;
+		try {
+			addbackTreeDecomposition(copyOf(decomposition));
+			return treeDecomposition;
+		} finally {
+			bags = savedBags;
+			treeDecomposition = savedDecomposition;
+			processedTreeDecomposition = savedProcessedDecomposition;
+		}
+	}
+
+	/**
+	 * Copies the bags (with their ids) and the tree of a decomposition, such that gluing bags to the copy does not
+	 * modify the original.
+	 * @param decomposition
+	 * @return
+	 */
+	private TreeDecomposition<T> copyOf(TreeDecomposition<T> decomposition) {
+		TreeDecomposition<T> copy = new TreeDecomposition<>(decomposition.getGraph());
+		copy.setCreatedFromPermutation(decomposition.isCreatedFromPermutation());
+		Map<Bag<T>, Bag<T>> oldToNew = new HashMap<>();
+		for (Bag<T> bag : decomposition.getBags()) {
+			Bag<T> newBag = copy.createBag(new HashSet<>(bag.vertices));
+			newBag.id = bag.id;
+			oldToNew.put(bag, newBag);
+		}
+		for (Bag<T> s : decomposition.getBags()) {
+			for (Bag<T> t : decomposition.getNeighborhood(s)) {
+				if (s.compareTo(t) < 0) copy.addTreeEdge(oldToNew.get(s), oldToNew.get(t));
+			}
+		}
+		return copy;
+	}
+
 	//MARK: Preprocessor interface
 	
 	/* (non-Javadoc)
@@ -86,6 +150,7 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 		// init data structures
 		this.bags = new Stack<>();
 		this.low = 0;
+		this.fillEdges = new ArrayList<>();
 		this.treeDecomposition = new TreeDecomposition<>(graph);
 
 		// the reduced graph we will produce
@@ -109,27 +174,11 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 		if (reduced.getCopyOfVertices().size() == 0) { glueBags(); return GraphFactory.emptyGraph(); };
 		
 		LOG.info("Running single pass trick...");
-		for(int i = 0 ; i < 20 && singlePass(reduced) ; i++) {}
+		singlePass(reduced);
 
 		// apply classic reduction rules until exhaustion
 		LOG.info("Applying other rules...");
-		boolean fixPointReached = reduced.getNumVertices() > EXHAUSTIVE_THRESHOLD;
-		while(!fixPointReached){
-			Set<T> bag = null;
-			bag = isolatedVertexRule(reduced);
-			if (bag == null) bag = leafVertexRule(reduced);
-			if (bag == null) bag = seriesRule(reduced);
-			if (bag == null) bag = triangleRule(reduced);
-			if (bag == null) bag = buddyRule(reduced);
-			if (bag == null) bag = cubeRule(reduced);
-			if (bag == null) bag = simplicialRule(reduced);
-			if (bag == null) bag = almostSimplicialRule(reduced);
-			if (bag == null)
-				fixPointReached = true;
-			else{
-				bags.push(bag);
-			}
-		}
+		applyRulesExhaustively(reduced);
 		if (reduced.getCopyOfVertices().size() == 0) { glueBags(); return GraphFactory.emptyGraph(); }
 		
 		// done
@@ -192,93 +241,243 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	/**
 	 * Eliminate several nodes in one run. 
 	 * This combines partial applications of several rules: 
-	 * 	- we eliminate all nodes with fill value of at most 1 - these are either simplicial, or almost simplicial
+	 * 	- we eliminate all nodes with fill value of 0 (simplicial) and nodes with fill value 1 (almost simplicial)
+	 * 	  with degree smaller than the lower bound
 	 * 	- we eliminate nodes with degree <=3, and fill-in value of <= 2 - this is the triangle rule.
 	 * Before this, make sure that no nodes with degree <= 2 have not been eliminated yet. 
+	 *
+	 * The nodes are handled in rounds. In every round, the candidates are detected (in parallel, if the "parallel"
+	 * flag is set in JdrasilProperties, using the fork-join pool of parallel streams) and a set of candidates with
+	 * pairwise disjoint closed neighborhoods is selected greedily. The rules only depend on the closed neighborhood of
+	 * a node and the edges within it, and an elimination only changes the closed neighborhood of the eliminated node.
+	 * Hence, the selected candidates stay applicable while the others are eliminated, and the batch is applied just as
+	 * if the candidates would have been eliminated one after another. The next round only considers the deferred
+	 * candidates and the nodes affected by the batch. Since the selection is done sequentially in a fixed order, the
+	 * result does not depend on the parallelism.
 	 * @param work
 	 * @return Whether at least one node has been eliminated or not. 
 	 */
 	private boolean singlePass(Graph<T> work){
+		boolean parallel = JdrasilProperties.containsKey("parallel");
 		int numApplications = 0;
-		boolean ret = false;
-		Queue<T> q = new LinkedList<>();
-		Set<T> onQueue = new HashSet<>();
-		for (T v : work) {
-			if (work.getNeighborhood(v).size() <= 3 || work.getFillInValue(v) <= 1) {
-				q.add(v);
-				onQueue.add(v);
-			}
-		}
-		while(!q.isEmpty()){
-			T v = q.poll();
-			int fillValue = work.getFillInValue(v);
-			onQueue.remove(v);
-			boolean eliminate = fillValue < 1 || (fillValue == 1 && work.getNeighborhood(v).size() < low);
-			if (!eliminate) {
-				// Check if triangle rule is applicable: In this case, the node has a degree of 3, and fillIn-value at most 2, as one of the edges between its neighbours exists
-				eliminate = work.getNeighborhood(v).size() == 3 && fillValue <= 2 && low >= 3;
-			}
-			if (eliminate) {
-				numApplications++;
-				ret = true;
-				for(T n : work.getNeighborhood(v)){
-					if(!onQueue.contains(n)){
-						onQueue.add(n);
-						q.add(n);
-					}
+		int rounds = 0;
+		List<T> pending = new ArrayList<>(work.getCopyOfVertices());
+		while (!pending.isEmpty()) {
+			rounds++;
+
+			// detect the candidates of this round
+			int bound = low;
+			Stream<T> stream = parallel ? pending.parallelStream() : pending.stream();
+			List<T> candidates = stream.filter(v -> isSinglePassCandidate(work, v, bound)).collect(Collectors.toList());
+			if (candidates.isEmpty()) break;
+
+			// select candidates with disjoint closed neighborhoods, defer the others to the next round
+			Set<T> blocked = new HashSet<>();
+			Set<T> next = new LinkedHashSet<>();
+			List<T> batch = new ArrayList<>();
+			search: for (T v : candidates) {
+				if (blocked.contains(v)) { next.add(v); continue; }
+				for (T w : work.getNeighborhood(v)) {
+					if (blocked.contains(w)) { next.add(v); continue search; }
 				}
+				blocked.add(v);
+				blocked.addAll(work.getNeighborhood(v));
+				batch.add(v);
+			}
 
+			// apply the batch
+			for (T v : batch) {
 				Set<T> newBag = new HashSet<>();
 				newBag.add(v);
 				newBag.addAll(work.getNeighborhood(v));
 				bags.push(newBag);
-				if (fillValue < 1) low = Math.max(low, newBag.size()-1);
-				work.eliminateVertex(v);
+				if (work.getFillInValue(v) == 0) low = Math.max(low, newBag.size()-1);
+				eliminate(work, v);
+				forAffectedVertices(work, newBag, next::add);
 			}
+			numApplications += batch.size();
+			pending = new ArrayList<>(next);
 		}
-		LOG.info("Ran single-pass, eliminated " + numApplications + " nodes! ");
-		return ret;
+		LOG.info("Ran single-pass, eliminated " + numApplications + " nodes in " + rounds + " rounds! ");
+		return numApplications > 0;
 	}
 
 	/**
-	 * If the graph contains an isolated vertex v, create a bag {v} and remove the vertex.
-	 * This method returns the created Bag, or null if the rule can not be applied.
+	 * Checks if the node v is eliminated by @see singlePass.
+	 * @param work
+	 * @param v
+	 * @param low the current lower bound
 	 * @return
 	 */
-	private Set<T> isolatedVertexRule(Graph<T> work) {
+	private boolean isSinglePassCandidate(Graph<T> work, T v, int low) {
+		if (!work.containsNode(v)) return false;
+		int fillValue = work.getFillInValue(v);
+		int degree = work.getNeighborhood(v).size();
+		if (fillValue == 0) return true;
+		// Check if triangle rule is applicable: In this case, the node has a degree of 3, and fillIn-value at most 2, as one of the edges between its neighbours exists
+		if (degree == 3 && fillValue <= 2 && low >= 3) return true;
+		return fillValue == 1 && degree < low;
+	}
+
+	/**
+	 * Applies the reduction rules until none of them is applicable anymore.
+	 *
+	 * Instead of searching the whole graph for an applicable rule after every application, the vertices that have
+	 * to be checked are maintained in a worklist: initially all vertices are checked, and after a rule was applied
+	 * only the vertices whose neighborhood (or the edges within it) may have changed are checked again. These are the
+	 * modified vertices, the common neighbors of the endpoints of added edges, and (for the buddy and cube rule)
+	 * vertices of degree three next to a modified vertex of degree three. Vertices of degree at most two are handled
+	 * first, as the other rules rely on the lower bound of four they establish.
+	 * @param work
+	 */
+	private void applyRulesExhaustively(Graph<T> work) {
+		Deque<T> lowDegree = new ArrayDeque<>();
+		Deque<T> dirty = new ArrayDeque<>();
+		Set<T> onQueue = new HashSet<>();
+		List<T> waiting = new ArrayList<>(); // almost simplicial vertices that need a larger lower bound
 		for (T v : work) {
-			if (work.getNeighborhood(v).size() == 0) {
-				Set<T> set = new HashSet<>();
-				set.add(v);
-				work.removeVertex(v);
-				low = Math.max(low, 1);
-				return set;
+			if (work.getNeighborhood(v).size() <= 2) lowDegree.add(v);
+			dirty.add(v);
+			onQueue.add(v);
+		}
+
+		int applications = 0;
+		while (!lowDegree.isEmpty() || !dirty.isEmpty()) {
+			T v;
+			Set<T> bag = null;
+			Set<T> modified;
+			if (!lowDegree.isEmpty()) {
+				v = lowDegree.poll();
+				if (!work.containsNode(v)) continue;
+				modified = new HashSet<>(work.getNeighborhood(v));
+				bag = isolatedVertexRule(work, v);
+				if (bag == null) bag = leafVertexRule(work, v);
+				if (bag == null) bag = seriesRule(work, v);
+			} else {
+				v = dirty.poll();
+				onQueue.remove(v);
+				if (!work.containsNode(v)) continue;
+				if (work.getNeighborhood(v).size() <= 2) { lowDegree.add(v); continue; }
+				modified = new HashSet<>(work.getNeighborhood(v));
+				int oldLow = low;
+				bag = triangleRule(work, v);
+				if (bag == null) bag = buddyRule(work, v);
+				if (bag == null) bag = cubeRule(work, v);
+				if (bag == null) bag = simplicialRule(work, v);
+				if (bag == null) bag = almostSimplicialRule(work, v);
+				if (bag == null && work.getNeighborhood(v).size() + 1 > low && isAlmostSimplicial(work, v)) waiting.add(v);
+				if (low > oldLow) { // almost simplicial vertices may be eliminated now
+					for (T w : waiting) markDirty(work, w, lowDegree, dirty, onQueue);
+					waiting.clear();
+				}
 			}
+			if (bag == null) continue;
+
+			// the rule was applied, check the affected vertices again
+			bags.push(bag);
+			applications++;
+			modified.addAll(bag);
+			forAffectedVertices(work, modified, w -> markDirty(work, w, lowDegree, dirty, onQueue));
 		}
-		return null;
+		LOG.info("Applied reduction rules " + applications + " times");
+	}
+
+	/**
+	 * Calls the action for all vertices for which the applicability of a rule may have changed after the given
+	 * vertices were modified and the edges in @see fillEdges were added, as described at
+	 * @see applyRulesExhaustively. The action may be called multiple times for a vertex. Afterwards, fillEdges is
+	 * cleared.
+	 * @param work
+	 * @param modified the vertices whose neighborhood was modified (may contain removed vertices)
+	 * @param action
+	 */
+	private void forAffectedVertices(Graph<T> work, Collection<T> modified, Consumer<T> action) {
+		Set<T> changed = new HashSet<>(modified);
+		changed.addAll(fillEdges);
+		for (T m : changed) {
+			if (!work.containsNode(m)) continue;
+			action.accept(m);
+			if (work.getNeighborhood(m).size() != 3) continue;
+			for (T w : work.getNeighborhood(m)) {
+				if (work.getNeighborhood(w).size() == 3) action.accept(w);
+			}
+		}
+		for (int i = 0; i < fillEdges.size(); i += 2) {
+			T x = fillEdges.get(i);
+			T y = fillEdges.get(i+1);
+			if (!work.containsNode(x) || !work.containsNode(y)) continue;
+			if (work.getNeighborhood(x).size() > work.getNeighborhood(y).size()) { T tmp = x; x = y; y = tmp; }
+			for (T w : work.getNeighborhood(x)) {
+				if (work.isAdjacent(w, y)) action.accept(w);
+			}
+		}
+		fillEdges.clear();
+	}
+
+	/**
+	 * Adds the vertex to the worklist used by @see applyRulesExhaustively.
+	 */
+	private void markDirty(Graph<T> work, T v, Deque<T> lowDegree, Deque<T> dirty, Set<T> onQueue) {
+		if (!work.containsNode(v)) return;
+		if (work.getNeighborhood(v).size() <= 2) lowDegree.add(v);
+		if (onQueue.add(v)) dirty.add(v);
+	}
+
+	/**
+	 * Eliminates the vertex v and stores the added edges in @see fillEdges.
+	 */
+	private void eliminate(Graph<T> work, T v) {
+		if (work.getFillInValue(v) > 0) {
+			List<T> N = new ArrayList<>(work.getNeighborhood(v));
+			for (int i = 0; i < N.size(); i++) {
+				for (int j = i+1; j < N.size(); j++) {
+					if (!work.isAdjacent(N.get(i), N.get(j))) addEdge(work, N.get(i), N.get(j));
+				}
+			}
+		}
+		work.removeVertex(v);
+	}
+
+	/**
+	 * Adds the edge {u,v} and stores it in @see fillEdges.
+	 */
+	private void addEdge(Graph<T> work, T u, T v) {
+		work.addEdge(u, v);
+		fillEdges.add(u);
+		fillEdges.add(v);
+	}
+
+	/**
+	 * If the vertex v is isolated, create a bag {v} and remove the vertex.
+	 * This method returns the created Bag, or null if the rule can not be applied.
+	 * @return
+	 */
+	private Set<T> isolatedVertexRule(Graph<T> work, T v) {
+		if (work.getNeighborhood(v).size() != 0) return null;
+		Set<T> set = new HashSet<>();
+		set.add(v);
+		work.removeVertex(v);
+		low = Math.max(low, 1);
+		return set;
 	}
 	
 	/**
-	 * If the graph contains an leaf vertex v, create a bag {v,w} where w is the neighbor of v, and remove the vertex v.
+	 * If the vertex v is a leaf, create a bag {v,w} where w is the neighbor of v, and remove the vertex v.
 	 * This method returns the created Bag, or null if the rule can not be applied.
 	 * @return
 	 */
-	private Set<T> leafVertexRule(Graph<T> work) {
-		for (T v : work) {
-			if (work.getNeighborhood(v).size() == 1) {
-				Set<T> set = new HashSet<>();
-				set.add(v);
-				set.addAll(work.getNeighborhood(v));
-				work.removeVertex(v);
-				low = Math.max(low, 2);
-				return set;
-			}
-		}
-		return null;
+	private Set<T> leafVertexRule(Graph<T> work, T v) {
+		if (work.getNeighborhood(v).size() != 1) return null;
+		Set<T> set = new HashSet<>();
+		set.add(v);
+		set.addAll(work.getNeighborhood(v));
+		work.removeVertex(v);
+		low = Math.max(low, 2);
+		return set;
 	}
 	
 	/**
-	 * If the graph contains a vertex v with deg(v) = 2 and neighbors u, w.
+	 * If the vertex v has deg(v) = 2 and neighbors u, w.
 	 * Remove v, add edge {u,w}, and create bag {v,w,u}.
 	 * 
 	 * This is a special case of the almost simplical rule, but can be computed quicker and guarantees that
@@ -288,68 +487,56 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	 * 
 	 * @return
 	 */
-	public Set<T> seriesRule(Graph<T> work) {
-		for (T v : work) {
-			if (work.getNeighborhood(v).size() == 2) {
-				Set<T> set = new HashSet<>();
-				set.add(v);
-				set.addAll(work.getNeighborhood(v));
-				work.eliminateVertex(v);
-				low = Math.max(low, 3);
-				return set;
-			}
-		}
-		return null;
+	public Set<T> seriesRule(Graph<T> work, T v) {
+		if (work.getNeighborhood(v).size() != 2) return null;
+		Set<T> set = new HashSet<>();
+		set.add(v);
+		set.addAll(work.getNeighborhood(v));
+		eliminate(work, v);
+		low = Math.max(low, 3);
+		return set;
 	}
 	
 	/**
-	 * If the graph contains a vertex v with deg(v) = 3 and N(b)={x,y,z} and there is at least on
+	 * If the vertex v has deg(v) = 3 and N(b)={x,y,z} and there is at least on
 	 * of the edges {x,y}, {x,z}, {y,z}, then remove v, create the bag {v,x,y,z}, and make x,y,z a clique.
 	 * @return
 	 */
-	public Set<T> triangleRule(Graph<T> work) {
+	public Set<T> triangleRule(Graph<T> work, T v) {
 		low = Math.max(low, 4);
-		for (T v : work) {
-			if (work.getNeighborhood(v).size() != 3) continue;
-			ArrayList<T> neighbours = new ArrayList<>();
-			neighbours.addAll(work.getNeighborhood(v));
-			T x = neighbours.get(0);
-			T y = neighbours.get(1);
-			T z = neighbours.get(2);
-			if (work.isAdjacent(x, y) || work.isAdjacent(x, z) || work.isAdjacent(y, z)) {
-				Set<T> set = new HashSet<>();
-				set.add(v);
-				set.addAll(work.getNeighborhood(v));
-				work.eliminateVertex(v);
-				return set;
-			}
-		}
-		return null;
+		if (work.getNeighborhood(v).size() != 3) return null;
+		if (work.getFillInValue(v) > 2) return null; // no edge between the neighbors
+		Set<T> set = new HashSet<>();
+		set.add(v);
+		set.addAll(work.getNeighborhood(v));
+		eliminate(work, v);
+		return set;
 	}
 	
 	/**
-	 * If the graph contains two vertices v and w such that deg(v)=deg(w)=3 and they both have the same neighbors, 
+	 * If the vertex v has a buddy w, i.e., deg(v)=deg(w)=3 and they both have the same neighbors,
 	 * say x,y,z, then create bag {v,x,y,z}, remove v, and make {x,y,z} a clique.
 	 * 
 	 * Returns the bag if the rule can be applied, otherwise it returns null.
 	 * @return
 	 */
-	private Set<T> buddyRule(Graph<T> work) {
-		for (T v : work) {
-			if (work.getNeighborhood(v).size() != 3) continue;
-			search: for (T w : work) {
-				if (v.compareTo(w) >= 0) continue;
-				if (work.getNeighborhood(v).contains(w)) continue;
+	private Set<T> buddyRule(Graph<T> work, T v) {
+		Set<T> N = work.getNeighborhood(v);
+		if (N.size() != 3) return null;
+		for (T x : N) {
+			search: for (T w : work.getNeighborhood(x)) {
+				if (w.compareTo(v) == 0) continue;
+				if (N.contains(w)) continue;
 				if (work.getNeighborhood(w).size() != 3) continue;
-				for (T x : work.getNeighborhood(v))  {
-					if (!work.getNeighborhood(w).contains(x)) continue search;
+				for (T y : N)  {
+					if (!work.getNeighborhood(w).contains(y)) continue search;
 				}
 					
 				// v and w are buddies;
 				Set<T> set = new HashSet<>();
 				set.add(v);
-				set.addAll(work.getNeighborhood(v));
-				work.eliminateVertex(v);
+				set.addAll(N);
+				eliminate(work, v);
 				return set;
 			}
 		}
@@ -357,66 +544,62 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	}
 	
 	/**
-	 * If the graph contains a vertex v with N(v) = {x, y, z} such that deg(x)=deg(y)=deg(z)=3 and such
+	 * If the vertex v has N(v) = {x, y, z} such that deg(x)=deg(y)=deg(z)=3 and such
 	 * that x,y,z have pairwise one neighbor in common (a,b,c), then create the bag {z, b, c, v} and remove z.
 	 * 
 	 * Returns the bag if the rule can be applied, otherwise it returns null.
 	 * @return
 	 */
-	private Set<T> cubeRule(Graph<T> work) {
-			for (T v : work) {
-				if (work.getNeighborhood(v).size() != 3) continue;
-				ArrayList<T> neighboursOfV = new ArrayList<>();
-				neighboursOfV.addAll(work.getNeighborhood(v));
-				for(T x : neighboursOfV)
-					if(work.getNeighborhood(x).size() != 3)
-						continue;
-
-				List<T> N = new ArrayList<>(work.getNeighborhood(v));
-				T x = N.get(0);
-				if (work.getNeighborhood(x).size() != 3) continue;
-				T y = N.get(1);
-				if (work.getNeighborhood(y).size() != 3) continue;
-				T z = N.get(2);
-				if (work.getNeighborhood(z).size() != 3) continue;
-
-				// v is center of cube with neighbors x,y,z, compute other corners a,b,c
-				N = new ArrayList<>(work.getNeighborhood(x));
-				T a = N.get(0);
-				if (a.compareTo(v) == 0) a = N.get(2);
-				T b = N.get(1);
-				if (b.compareTo(v) == 0) b = N.get(2);
-
-				if ( !(work.isAdjacent(y, a) && work.isAdjacent(z, b)) ) {
-					T tmp = a;
-					a = b;
-					b = tmp;
-				}
-				if ( !(work.isAdjacent(y, a) && work.isAdjacent(z, b)) ) continue;
+	private Set<T> cubeRule(Graph<T> work, T v) {
+		if (work.getNeighborhood(v).size() != 3) return null;
 
-				T c = null;
-				for (T tmp : work.getNeighborhood(y)) {
-					if (tmp.compareTo(v) != 0 && work.isAdjacent(z, tmp)) c = tmp;
-				}
-				if (c == null) continue;
+		List<T> N = new ArrayList<>(work.getNeighborhood(v));
+		T x = N.get(0);
+		if (work.getNeighborhood(x).size() != 3) return null;
+		T y = N.get(1);
+		if (work.getNeighborhood(y).size() != 3) return null;
+		T z = N.get(2);
+		if (work.getNeighborhood(z).size() != 3) return null;
 
-				Set<T> set = new HashSet<>();
-				set.add(z);
-				set.add(b);
-				set.add(c);
-				set.add(v);
-				work.removeVertex(z);
-				if (!work.isAdjacent(a, b)) work.addEdge(a, b);
-				if (!work.isAdjacent(a, c)) work.addEdge(a, c);
-				if (!work.isAdjacent(a, v)) work.addEdge(a, v);
-				if (!work.isAdjacent(b, c)) work.addEdge(b, c);
-				if (!work.isAdjacent(b, v)) work.addEdge(b, v);
-				if (!work.isAdjacent(c, v)) work.addEdge(c, v);
-				return set;
-			}
+		// v is center of cube with neighbors x,y,z, compute other corners a,b,c
+		N = new ArrayList<>(work.getNeighborhood(x));
+		T a = N.get(0);
+		if (a.compareTo(v) == 0) a = N.get(2);
+		T b = N.get(1);
+		if (b.compareTo(v) == 0) b = N.get(2);
 
-		// done
-		return null;
+		if ( !(work.isAdjacent(y, a) && work.isAdjacent(z, b)) ) {
+			T tmp = a;
+			a = b;
+			b = tmp;
+		}
+		if ( !(work.isAdjacent(y, a) && work.isAdjacent(z, b)) ) return null;
+
+		T c = null;
+		for (T tmp : work.getNeighborhood(y)) {
+			if (tmp.compareTo(v) != 0 && work.isAdjacent(z, tmp)) c = tmp;
+		}
+		if (c == null) return null;
+
+		// the corners have to be pairwise distinct, otherwise the neighborhood of z is not {b, c, v}
+		Set<T> corners = new HashSet<>();
+		corners.add(v); corners.add(x); corners.add(y); corners.add(z);
+		corners.add(a); corners.add(b); corners.add(c);
+		if (corners.size() != 7) return null;
+
+		Set<T> set = new HashSet<>();
+		set.add(z);
+		set.add(b);
+		set.add(c);
+		set.add(v);
+		work.removeVertex(z);
+		if (!work.isAdjacent(a, b)) addEdge(work, a, b);
+		if (!work.isAdjacent(a, c)) addEdge(work, a, c);
+		if (!work.isAdjacent(a, v)) addEdge(work, a, v);
+		if (!work.isAdjacent(b, c)) addEdge(work, b, c);
+		if (!work.isAdjacent(b, v)) addEdge(work, b, v);
+		if (!work.isAdjacent(c, v)) addEdge(work, c, v);
+		return set;
 	}
 	
 	/**
@@ -426,9 +609,8 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	 * Returns the bag if the rule can be applied, otherwise it returns null.
 	 * @return
 	 */
-	public Set<T> simplicialRule(Graph<T> work) {
-		T v = work.getSimplicialVertex(new HashSet<>());
-		if (v == null) return null;
+	public Set<T> simplicialRule(Graph<T> work, T v) {
+		if (work.getFillInValue(v) != 0) return null;
 		Set<T> set = new HashSet<>();
 		set.add(v);
 		set.addAll(work.getNeighborhood(v));
@@ -438,22 +620,41 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	}
 
 	/**
-	 * An almost simplicial vertex v is a vertex, such that N[v] is a clique.
-	 * We can remove v and create a bag containing N[v].
+	 * An almost simplicial vertex v is a vertex that has a neighbor w, such that N[v] without w is a clique.
+	 * If deg(v) is at most the lower bound, we can eliminate v and create a bag containing N[v].
 	 * 
 	 * Returns the bag if the rule can be applied, otherwise it returns null.
 	 * @return
 	 */
-	public Set<T> almostSimplicialRule(Graph<T> work) {
-		T v = work.getAlmostSimplicialVertex(new HashSet<>());
-		if (v == null) return null;
+	public Set<T> almostSimplicialRule(Graph<T> work, T v) {
+		if (work.getNeighborhood(v).size() + 1 > low) return null;
+		if (!isAlmostSimplicial(work, v)) return null;
 		Set<T> set = new HashSet<>();
 		set.add(v);
 		set.addAll(work.getNeighborhood(v));
-		if (set.size() > low) return null;
-		work.eliminateVertex(v);
+		eliminate(work, v);
 		return set;
 	}
+
+	/**
+	 * Checks if v is almost simplicial, but not simplicial, i.e., if all missing edges in N(v) have a common endpoint.
+	 * @param work
+	 * @param v
+	 * @return
+	 */
+	private boolean isAlmostSimplicial(Graph<T> work, T v) {
+		Set<T> N = work.getNeighborhood(v);
+		int fill = work.getFillInValue(v);
+		if (fill == 0 || fill > N.size()-1) return false;
+		for (T w : N) {
+			int missing = 0;
+			for (T u : N) {
+				if (u.compareTo(w) != 0 && !work.isAdjacent(u, w)) missing++;
+			}
+			if (missing == fill) return true;
+		}
+		return false;
+	}
 	
 	//MARK: glue methods
 	
@@ -479,15 +680,79 @@ public class GraphReducer<T extends Comparable<T>> extends Preprocessor<T> {
 	
 	/**
 	 * Glues all bags that where generated during the reduction.
+	 *
+	 * Every bag consists of a removed vertex v and its neighborhood N at the time of removal, which is a clique in the
+	 * remaining graph. The bags are glued in reverse order, i.e., when a bag is glued, v is the only vertex of it that
+	 * is neither part of the decomposition of the reduced graph nor of a bag glued before. If some vertices of N were
+	 * removed later than v, the first of them, say u, was removed while N was still a clique, i.e., the bag of u
+	 * (which is the latest glued bag of a vertex of N) contains N and we can attach the bag to it. Otherwise, N is a
+	 * clique of the reduced graph and we search a bag containing N among the bags containing one of its vertices.
+	 * Hence, every bag is glued in time roughly linear in its size instead of scanning the whole decomposition.
 	 */
 	private synchronized void glueBags() {
 		// Don't call the alternative version - does not work if td was produced by the dynamic program? 
 		if(treeDecomposition.isCreatedFromPermutation())
 			glueBags_test();
 		// 
-		LOG.info("Calling old glueBags, bags to glue: " + bags.size());
+		LOG.info("Calling glueBags, bags to glue: " + bags.size());
+		if (bags.isEmpty()) return;
+
+		// the bags of the decomposition of the reduced graph containing a vertex
+		Map<T, List<Bag<T>>> occurrences = new HashMap<>();
+		Bag<T> last = null;
+		for (Bag<T> x : treeDecomposition.getBags()) {
+			for (T v : x.vertices) occurrences.computeIfAbsent(v, k -> new ArrayList<>()).add(x);
+			last = x;
+		}
+
+		// the bag in which a removed vertex was glued
+		Map<T, Bag<T>> gluedAt = new HashMap<>();
 		while (!bags.isEmpty()) {
-			glue(bags.pop());
+			Set<T> bag = bags.pop();
+
+			// find the removed vertex and the bag of the neighbor that was removed next
+			T removed = null;
+			Bag<T> target = null;
+			for (T v : bag) {
+				Bag<T> x = gluedAt.get(v);
+				if (x != null) {
+					if (target == null || x.id > target.id) target = x;
+				} else if (!occurrences.containsKey(v)) {
+					if (removed != null) { removed = null; break; } // not created by a removal
+					removed = v;
+				}
+			}
+			if (removed == null) { // should not happen, fall back to the search
+				glue(bag);
+				continue;
+			}
+
+			// no neighbor was removed later, search a bag of the reduced graph
+			if (target == null && bag.size() > 1) {
+				List<Bag<T>> candidates = null;
+				for (T v : bag) {
+					if (v.equals(removed)) continue;
+					List<Bag<T>> list = occurrences.get(v);
+					if (candidates == null || list.size() < candidates.size()) candidates = list;
+				}
+				for (Bag<T> x : candidates) {
+					if (x.vertices.size() < bag.size()-1) continue;
+					int count = 0;
+					for (T v : bag) if (!x.contains(v)) count++;
+					if (count <= 1) { target = x; break; }
+				}
+				if (target == null) { // should not happen, fall back to the search
+					glue(bag);
+					continue;
+				}
+			} else if (target == null) { // isolated vertex, keep the decomposition connected
+				target = last;
+			}
+
+			Bag<T> y = treeDecomposition.createBag(bag);
+			if (target != null) treeDecomposition.addTreeEdge(y, target);
+			gluedAt.put(removed, y);
+			last = y;
 		}
 	}
 	
@@ -27,8 +27,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
+import java.util.function.IntSupplier;
 import java.util.logging.Logger;
 
 import jdrasil.Heuristic;
@@ -85,6 +85,9 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 	/** Algorithm that is used. */
 	private Algorithm toRun;
 
+	/** A copy of the graph that is reused by call(), may be null. @see setWorkingGraph(Graph) */
+	private transient Graph<T> workingGraph;
+
 	/**
 	 * The algorithm is initialized with a graph that should be decomposed.
 	 * The default algorithm to run is FillIn.
@@ -176,9 +179,10 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 			// eliminate vertex and look for further value
 			if (k > 1 && G.getCopyOfVertices().size() > 1) {
 //				System.out.println("test");
-				Graph.EliminationInformation info = G.eliminateVertex(v);
+				int trailPosition = G.getTrailPosition();
+				G.eliminateVertexOnTrail(v);
 				VertexValue next = nextVertex(G, k - 1);
-				G.deEliminateVertex(info);
+				G.undoTrail(trailPosition);
 				tuple.value += next.value;
 			}
 
@@ -220,29 +224,69 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 	 * @throws Exception
 	 */
 	public TreeDecomposition<T> call(int upper_bound) throws Exception {
+		return call(() -> upper_bound);
+	}
+
+	/**
+	 * As @see call(int), but the upper bound is queried before every elimination. Hence, the bound may be improved
+	 * concurrently (for instance by other runs of the heuristic) and the computation aborts as soon as the width of
+	 * the constructed permutation reaches the current bound.
+	 * @param upper_bound
+	 * @return a tree decomposition or null, if the width of the constructed permutation exceeds the upper bound
+	 * @throws Exception
+	 */
+	public TreeDecomposition<T> call(IntSupplier upper_bound) throws Exception {
 		
 		// catch the empty graph
 		if (graph.getCopyOfVertices().size() == 0) return new TreeDecomposition<T>(graph);
-		long tStart = System.currentTimeMillis();
-		// the permutation that we wish to compute and a copy of the graph, which will be modified
-		List<T> permutation = new LinkedList<T>();
-		Graph<T> workingCopy = GraphFactory.copy(graph);
+		
+		// the graph that will be modified, eliminations are performed on its trail and, if it is reused, undone
+		Graph<T> workingCopy = workingGraph != null ? workingGraph : GraphFactory.copy(graph);
+		int trailPosition = workingCopy.getTrailPosition();
+		boolean logEdges = workingCopy.isLogEdgesInNeighbourhood();
 		if(toRun == Algorithm.Degree){
 			workingCopy.setLogEdgesInNeighbourhood(false);
 		}
+		try {
+			return eliminate(workingCopy, upper_bound);
+		} finally {
+			if (workingGraph != null) {
+				workingCopy.undoTrail(trailPosition);
+				workingCopy.setLogEdgesInNeighbourhood(logEdges);
+			}
+		}
+	}
+
+	/**
+	 * Computes the permutation by eliminating the vertices of the given working copy of the graph, @see call(IntSupplier).
+	 * @param workingCopy
+	 * @param upper_bound
+	 * @return a tree decomposition or null, if the width of the constructed permutation exceeds the upper bound
+	 */
+	private TreeDecomposition<T> eliminate(Graph<T> workingCopy, IntSupplier upper_bound) {
+		long tStart = System.currentTimeMillis();
+		// the permutation that we wish to compute
+		List<T> permutation = new LinkedList<T>();
+		
+		// degree and fill-in are maintained by the priority index of the graph, other values by a priority queue
+		boolean useIndex = toRun == Algorithm.Degree || toRun == Algorithm.FillIn;
 		UpdatablePriorityQueue<T, Integer> q = new UpdatablePriorityQueue<T, Integer>();
-		ArrayList<T> helper = new ArrayList<>(graph.getCopyOfVertices());
-		Collections.shuffle(helper, new Random(RandomNumberGenerator.nextLong()));
-		for(T v : helper){
-			VertexValue vv = getValue(graph, v);
-			q.insert(vv.vertex, vv.value);
+		if (useIndex) {
+			if (!workingCopy.hasPriorityIndex()) workingCopy.setPriorityIndex(true);
+		} else {
+			ArrayList<T> helper = new ArrayList<>(graph.getCopyOfVertices());
+			Collections.shuffle(helper, RandomNumberGenerator.getDice());
+			for(T v : helper){
+				VertexValue vv = getValue(graph, v);
+				q.insert(vv.vertex, vv.value);
+			}
 		}
 		Map<T, Bag<T>> eliminatedAt = new HashMap<>();
 		TreeDecomposition<T> td = new TreeDecomposition<>(graph);
 			
 		// compute the permutation
-		for (int i = 0; i < graph.getNumVertices() && q.size() > 0; i++) {
-			if(workingCopy.getNumVertices() != q.size())
+		for (int i = 0; i < graph.getNumVertices() && workingCopy.getNumVertices() > 0; i++) {
+			if(!useIndex && workingCopy.getNumVertices() != q.size())
 				throw new RuntimeException("Queue is wrong???");
 			/***********************************************************************************
 			 * 				Check for termination. 
@@ -252,7 +296,7 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 			 ***********************************************************************************/
 			if((i % 10) == 0 && (JdrasilProperties.timeout() || Heuristic.shutdownFlag)){
 				// Panic, we're running out of time! 
-				if(q.size() <= upper_bound){
+				if(workingCopy.getNumVertices() <= upper_bound.getAsInt()){
 					Set<T> allRemainingVertices = workingCopy.getCopyOfVertices();
 					Bag<T> finalBag = td.createBag(allRemainingVertices);
 					for(T v : allRemainingVertices){
@@ -269,19 +313,22 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 				}
 			}
 			// obtain next vertex with respect to the current algorithm and check if this is a reasonable choice
-			int lowestPrio = q.getMinPrio();
-			T vv = q.removeMinRandom();
+			T v;
 			Set<T> tmp = new HashSet<>();
-			T v = vv; // nextVertex(working, this.k);
-			for(T v1 : workingCopy.getNeighborhood(v)){
-				tmp.add(v1);
-				for(T v2 : workingCopy.getNeighborhood(v1)){
-					tmp.add(v2);
+			if (useIndex) {
+				v = toRun == Algorithm.Degree ? workingCopy.getMinDegreeVertex() : workingCopy.getMinFillInVertex();
+			} else {
+				v = q.removeMinRandom();
+				for(T v1 : workingCopy.getNeighborhood(v)){
+					tmp.add(v1);
+					for(T v2 : workingCopy.getNeighborhood(v1)){
+						tmp.add(v2);
+					}
 				}
 			}
 			int predictionNewNumberEdges = workingCopy.getNumberOfEdges() + workingCopy.getFillInValue(v) - workingCopy.getNeighborhood(v).size();
 			
-			if(workingCopy.getNeighborhood(v).size() >= upper_bound){
+			if(workingCopy.getNeighborhood(v).size() >= upper_bound.getAsInt()){
 				// Okay, this creates a clique of size >= upper_bound + 1, I can abort!
 				return null;
 			}
@@ -294,7 +341,7 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 			eliminatedAt.put(v, td.createBag(bagNodes));
 			// Look into this bag: Is there a node such that its neighbourhood is a subset of this bag? 
 			// If so, it can be removed here as well! 
-			workingCopy.eliminateVertex(v, toRun != Algorithm.Degree);
+			workingCopy.eliminateVertexOnTrail(v);
 			if(toRun != Algorithm.Degree &&  workingCopy.getNumberOfEdges() != predictionNewNumberEdges){
 				throw new RuntimeException("Miss-predicted fill values!");
 			}
@@ -318,7 +365,8 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 			for(T u : deleteImmediately){
 				permutation.add(u);
 				eliminatedAt.put(u, eliminatedAt.get(v));
-				workingCopy.eliminateSimplicialVertex(u, toRun != Algorithm.Degree);
+				workingCopy.eliminateVertexOnTrail(u);
+				if (useIndex) continue;
 				q.updateValue(u, q.getMinPrio()-1);
 				if(q.removeMin().compareTo(u) != 0)
 					throw new RuntimeException("Removing the node from the queue did not work???");
@@ -389,6 +437,17 @@ public class GreedyPermutationDecomposer<T extends Comparable<T>> implements Tre
 		this.toRun = toRun;
 	}
 
+	/**
+	 * Reuse the given copy of the graph in every call of call(), instead of copying the graph in every call. The copy
+	 * is modified during the computation and restored afterwards by undoing its elimination trail, it should have
+	 * the priority index enabled (@see Graph#setPriorityIndex(boolean)). A working graph must not be used by two
+	 * computations at the same time.
+	 * @param workingGraph a copy of the graph, or null to copy the graph in every call
+	 */
+	public void setWorkingGraph(Graph<T> workingGraph) {
+		this.workingGraph = workingGraph;
+	}
+
 	/**
 	 * Defines how far the heuristic looks into the future while selecting a good vertex.
 	 * @param k the number of vertices considered while selected a good vertex
@@ -19,6 +19,7 @@
 package jdrasil.algorithms.upperbounds;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -27,9 +28,12 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import jdrasil.Heuristic;
+import jdrasil.Datastructures.IntVector;
 import jdrasil.algorithms.EliminationOrderDecomposer;
 import jdrasil.graph.Bag;
 import jdrasil.graph.Graph;
@@ -61,6 +65,9 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 
 	private static final long serialVersionUID = 7245062311907240240L;
 
+	/** Minimum number of moves evaluated by a thread, if moves are evaluated in parallel. */
+	private static final int MIN_MOVES_PER_CHUNK = 16;
+
 	/** The Graph that should be decomposed. */
 	private final Graph<T> graph;
 
@@ -75,6 +82,18 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 
 	TreeDecomposition<T> tdOpt;
 
+	/** Solution shared with concurrently running heuristics, may be null. */
+	private SharedSolution<T> sharedSolution;
+
+	/** Whether moves are evaluated in parallel, @see setParallel(boolean). */
+	private boolean parallel = JdrasilProperties.containsKey("parallel");
+
+	/**
+	 * The evaluators of moves, one per thread that evaluates moves. The first one works on the graph itself, the others
+	 * on copies. More than one is only used if moves are evaluated in parallel.
+	 */
+	private transient List<MoveEvaluator> evaluators;
+
 	/**
 	 * Initialize the algorithm to decompose the given graph.
 	 * @param graph to be decomposed
@@ -123,12 +142,14 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 				
 				
 				
-				// the current best neighbour, its permutation and its score
-				List<T> bestNeighbourPerm = null;
-				T bestNeighbour = null;
+				// the current best move and its score
+				int bestMove = -1;
 				long evalTmp = Long.MAX_VALUE;
 
-				// try to improve the current permutation by changing the position of one node
+				// collect the moves that try to improve the current permutation by changing the position of one node
+				IntVector moveFrom = new IntVector();
+				IntVector moveTo = new IntVector();
+				List<T> moveNeighbour = new ArrayList<>();
 				for(T v: perm){
 					/*
 					 * Check if we have to terminate! 
@@ -155,46 +176,45 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 							}
 						}
 
-						// evaluate the permutations of the minsucc and maxpred vertices
-						// and update the bestNeighbour values if necessary
-						long evalMax = Long.MAX_VALUE;
-						long evalMin = Long.MAX_VALUE;
+						// the permutations of the minsucc and maxpred vertices
 						if(maxw != null){
-							List<T> permMax = modifyPerm(perm, v, pos.get(v), max);
-							evalMax = evalPerm(permMax);
-							if (evalMax < evalTmp){
-								evalTmp = evalMax;
-								bestNeighbourPerm = permMax;
-								bestNeighbour = maxw;
-							}
+							moveFrom.push(pos.get(v));
+							moveTo.push(max);
+							moveNeighbour.add(maxw);
 						}
 						if(minw != null){
-							List<T> permMin = modifyPerm(perm, v, pos.get(v), min);
-							evalMin = evalPerm(permMin);
-							if (evalMin < evalTmp){
-								evalTmp = evalMin;
-								bestNeighbourPerm = permMin;
-								bestNeighbour = minw;
-
-							}
+							moveFrom.push(pos.get(v));
+							moveTo.push(min);
+							moveNeighbour.add(minw);
 						}
+					}
+				}
 
+				// evaluate the moves and find the best one, ties are broken by the order of the moves
+				long[] evals = evalMoves(perm, moveFrom, moveTo);
+				if (evals == null) return tdOpt; // terminated
+				for (int m = 0; m < evals.length; m++) {
+					if (evals[m] < evalTmp) {
+						evalTmp = evals[m];
+						bestMove = m;
 					}
 				}
+
 				// we could improve our local permutation and thus need to update the current values
 				if (evalTmp < eval){
 
-					perm = bestNeighbourPerm;
+					int from = moveFrom.get(bestMove);
+					perm = modifyPerm(perm, perm.get(from), from, moveTo.get(bestMove));
 					dec = new EliminationOrderDecomposer<T>(
 							graph, perm, TreeDecompositionQuality.Heuristic
 							);
 					dec.call();
 					map = dec.eliminatedVertexToBag;
-					eval = evalPerm(perm);
+					eval = evalTmp; // the cost of the move, @see evalMove
 					pos = toMap(perm);
 
 					// add the moved neighbour to the tabu list and shrink the tabu list if necessary
-					tabu.add(bestNeighbour);
+					tabu.add(moveNeighbour.get(bestMove));
 					if(tabu.size() > 7){
 						tabu.remove();
 					}
@@ -214,6 +234,7 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 					tdOpt = tmp;
 					evalOpt = eval;
 					LOG.info("new upper bound: " + tdOpt.getWidth());
+					if (sharedSolution != null) sharedSolution.offer(tdOpt);
 				}
 			}
 
@@ -289,55 +310,243 @@ public class LocalSearchDecomposer<T extends Comparable<T>> implements TreeDecom
 	
 	/**
 	 * Calculates the cost of a permutation by computing its treewidth and preferring tree decompositions with more smaller bags.
+	 * The permutation is simulated on the elimination trail of the graph, which is undone afterwards, i.e., the graph
+	 * is not copied.
 	 * @param perm The permutation
 	 * @return the cost of perm
 	 */
 	public long evalPerm(List<T> perm) throws Exception{
-		Map<T, Integer> pos = toMap(perm);
-		Graph<T> g = GraphFactory.copy(graph);
-		g.setLogEdgesInNeighbourhood(false);
+		boolean logEdges = graph.isLogEdgesInNeighbourhood();
+		graph.setLogEdgesInNeighbourhood(false);
+		int trailPosition = graph.getTrailPosition();
 		int maxBag = 0;
 		long res = 0;
-		int posOfV = 0;
-		int maxDegreeSeenHere = 0;
 		for(T v: perm){
-			// only consider the neighbours with higher index. The others are already removed
-			Set<T> bag = new HashSet<T>();
-			if(g.getNeighborhood(v).size() > maxDegreeSeenHere)
-				maxDegreeSeenHere = g.getNeighborhood(v).size();
-			for(T u: g.getNeighborhood(v)){
-				if(pos.get(u) > posOfV){
-					bag.add(u);
-				}
-			}
+			// the neighbours with higher index are exactly the neighbours in the eliminated graph
+			int tmp = graph.eliminateVertexOnTrail(v);
 
 			// update the treewidth if necessary
-			int tmp = bag.size();
 			if (tmp > maxBag){
 				maxBag = tmp;
 			}
 
 			// add the value succ^2 to the result
-			res = res + tmp*tmp;
+			res = res + (long) tmp*tmp;
+		}
+		graph.undoTrail(trailPosition);
+		graph.setLogEdgesInNeighbourhood(logEdges);
 
-			// connect every node in the bag
-			for(T u: bag){
-				for(T w: bag){
-					if(!g.isAdjacent(u,w)){
-						g.addEdge(u,w);
-					}
+		return score(res, maxBag, perm.size());
+	}
+
+	/**
+	 * The cost of a permutation, given the sum of the squared degrees and the maximum degree of the eliminated
+	 * vertices.
+	 * @param sum the sum of the squared degrees
+	 * @param maxBag the maximum degree
+	 * @param n the length of the permutation
+	 * @return the cost
+	 */
+	private long score(long sum, int maxBag, int n) {
+		// ensure that the tw dominates
+		long l1 = (long) maxBag * maxBag;
+		long l2 = (long) n * n;
+		return sum+l1*l2;
+	}
+
+	/**
+	 * Evaluate the given moves on the given permutation, i.e., compute the cost of the permutations obtained by
+	 * moving the vertex at position moveFrom[m] to position moveTo[m], as @see modifyPerm would do.
+	 * If moves are evaluated in parallel (@see setParallel(boolean)), the moves are split into consecutive chunks that are
+	 * evaluated in parallel, every chunk by its own evaluator.
+	 * @param perm the current permutation
+	 * @param moveFrom the positions of the moved vertices
+	 * @param moveTo the positions the vertices are moved to
+	 * @return the costs of the moves, or null if the computation should terminate
+	 */
+	private long[] evalMoves(List<T> perm, IntVector moveFrom, IntVector moveTo) {
+		int numberOfMoves = moveFrom.size();
+		long[] evals = new long[numberOfMoves];
+		if (evaluators == null) evaluators = new ArrayList<>();
+		if (evaluators.isEmpty()) evaluators.add(new MoveEvaluator(graph));
+		int chunks = 1;
+		if (parallel) {
+			chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), numberOfMoves / MIN_MOVES_PER_CHUNK));
+		}
+		while (evaluators.size() < chunks) evaluators.add(new MoveEvaluator(GraphFactory.copy(graph)));
+
+		// each chunk is evaluated by the evaluator of the same index, the results are written to disjoint ranges
+		List<T> base = new ArrayList<>(perm);
+		int numberOfChunks = chunks;
+		IntStream range = IntStream.range(0, numberOfChunks);
+		if (numberOfChunks > 1) range = range.parallel();
+		range.forEach(c -> {
+			MoveEvaluator evaluator = evaluators.get(c);
+			int from = (int) ((long) numberOfMoves * c / numberOfChunks);
+			int to = (int) ((long) numberOfMoves * (c+1) / numberOfChunks);
+			evaluator.start(base);
+			try {
+				for (int m = from; m < to && !Heuristic.shutdownFlag; m++) {
+					evals[m] = evaluator.evalMove(moveFrom.get(m), moveTo.get(m));
 				}
+			} finally {
+				evaluator.stop();
+			}
+		});
+		return Heuristic.shutdownFlag ? null : evals;
+	}
+
+	/**
+	 * Evaluates moves of a permutation incrementally on the elimination trail of a graph. The permutation is eliminated
+	 * once, storing the degree of every vertex at the time of its elimination. An evaluator is confined to the thread
+	 * that currently uses it.
+	 */
+	class MoveEvaluator {
+
+		/** The graph the permutation is eliminated on, it must not be used otherwise during an evaluation. */
+		private final Graph<T> graph;
+
+		/** The permutation on which moves are evaluated, @see start. */
+		private List<T> base;
+
+		/** The degree of the vertex at position p at the time of its elimination in the evaluated permutation. */
+		private int[] degree;
+
+		/** Sum of the squared degrees of the first p vertices of the evaluated permutation. */
+		private long[] prefixSum;
+
+		/** Maximum degree of the first p vertices, and of the vertices from position p on. */
+		private int[] prefixMax, suffixMax;
+
+		/** The position of the trail after the first p vertices were eliminated. */
+		private int[] trailAt;
+
+		/** The number of vertices of the evaluated permutation that are currently eliminated in the graph. */
+		private int cursor;
+
+		/** Whether the graph logged the edges in neighbourhoods before the evaluation started. */
+		private boolean logEdges;
+
+		MoveEvaluator(Graph<T> graph) {
+			this.graph = graph;
+		}
+
+		/**
+		 * Start the evaluation of moves on the given permutation.
+		 * The graph must not be used otherwise until @see stop() is called.
+		 * @param perm the permutation
+		 */
+		void start(List<T> perm) {
+			int n = perm.size();
+			base = perm;
+			degree = new int[n];
+			prefixSum = new long[n+1];
+			prefixMax = new int[n+1];
+			suffixMax = new int[n+1];
+			trailAt = new int[n+1];
+			logEdges = graph.isLogEdgesInNeighbourhood();
+			graph.setLogEdgesInNeighbourhood(false);
+
+			trailAt[0] = graph.getTrailPosition();
+			for (int p = 0; p < n; p++) {
+				int d = graph.eliminateVertexOnTrail(base.get(p));
+				degree[p] = d;
+				trailAt[p+1] = graph.getTrailPosition();
+				prefixSum[p+1] = prefixSum[p] + (long) d*d;
+				prefixMax[p+1] = Math.max(prefixMax[p], d);
 			}
-			posOfV++;
+			for (int p = n-1; p >= 0; p--) suffixMax[p] = Math.max(suffixMax[p+1], degree[p]);
+			cursor = n;
 		}
 
-		// ensure that the tw dominates
-		long l1 = maxBag * maxBag;
-		long l2 = perm.size() * perm.size();
-		
-		return res+l1*l2;
+		/**
+		 * Move the elimination on the trail such that exactly the first p vertices of the evaluated permutation
+		 * are eliminated.
+		 * @param p
+		 */
+		private void moveCursor(int p) {
+			if (p < cursor) {
+				graph.undoTrail(trailAt[p]);
+				cursor = p;
+			}
+			while (cursor < p) {
+				graph.eliminateVertexOnTrail(base.get(cursor));
+				cursor++;
+			}
+		}
+
+		/**
+		 * Compute the cost of the permutation obtained by moving the vertex at position posOfV to position j, as
+		 * @see modifyPerm would do, without copying the permutation or the graph.
+		 *
+		 * The graph obtained by eliminating a set of vertices does not depend on the order in which they are
+		 * eliminated. A move only changes the order of the vertices in the window between posOfV and j, hence, the
+		 * vertices before and after the window have the same degree as in the evaluated permutation, and only the
+		 * window is simulated.
+		 * @param posOfV the position of the moved vertex
+		 * @param j the position it is moved to
+		 * @return the cost of the modified permutation
+		 */
+		long evalMove(int posOfV, int j) {
+			// the window [lo, hi) contains the same vertices before and after the move
+			int lo = Math.min(posOfV, j);
+			int hi = posOfV < j ? j : posOfV+1;
+			moveCursor(lo);
+			int trailPosition = graph.getTrailPosition();
+
+			long sum = 0;
+			int maxBag = 0;
+			T v = base.get(posOfV);
+			if (posOfV >= j) { // v moves to the front of the window (or stays where it is)
+				int d = graph.eliminateVertexOnTrail(v);
+				sum += (long) d*d;
+				maxBag = Math.max(maxBag, d);
+			}
+			for (int p = lo; p < hi; p++) {
+				if (p == posOfV) continue;
+				int d = graph.eliminateVertexOnTrail(base.get(p));
+				sum += (long) d*d;
+				maxBag = Math.max(maxBag, d);
+			}
+			if (posOfV < j) { // v moves to the end of the window
+				int d = graph.eliminateVertexOnTrail(v);
+				sum += (long) d*d;
+				maxBag = Math.max(maxBag, d);
+			}
+			graph.undoTrail(trailPosition);
+
+			int n = base.size();
+			sum += prefixSum[lo] + prefixSum[n] - prefixSum[hi];
+			maxBag = Math.max(maxBag, Math.max(prefixMax[lo], suffixMax[hi]));
+			return score(sum, maxBag, n);
+		}
+
+		/**
+		 * Stop the evaluation, i.e., undo all eliminations on the graph.
+		 */
+		void stop() {
+			graph.undoTrail(trailAt[0]);
+			graph.setLogEdgesInNeighbourhood(logEdges);
+			base = null;
+		}
 	}
 
+	/**
+	 * Enables or disables the parallel evaluation of moves. By default, moves are evaluated in parallel if the
+	 * "parallel" flag is set in JdrasilProperties; heuristics that already run concurrently should disable it.
+	 * @param parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Share the solution with concurrently running heuristics: improved decompositions are offered to the given holder.
+	 * @param sharedSolution
+	 */
+	public void setSharedSolution(SharedSolution<T> sharedSolution) {
+		this.sharedSolution = sharedSolution;
+	}
 
 	@Override
 	public TreeDecompositionQuality decompositionQuality() {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.algorithms.upperbounds;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import jdrasil.graph.TreeDecomposition;
+
+/**
+ * Holder for the best tree decomposition found by heuristics that run concurrently. The heuristics offer the
+ * decompositions they find and may use the width of the best one as global upper bound to prune their search.
+ * The holder is lock-free, offering a decomposition is a compare-and-set on the currently best one.
+ *
+ * Offered decompositions are transformed by a post-processing function before they are published, for instance, a
+ * decomposition of a preprocessed graph can be transformed to a decomposition of the original graph. The published
+ * decompositions are compared by their width and are not modified afterwards, i.e., the currently published
+ * decomposition can be output at any time (for instance, if the program is killed).
+ *
+ * @param <T> the vertex type of the graph
+ * @author Max Bannach
+ */
+public class SharedSolution<T extends Comparable<T>> {
+
+	/** A published decomposition together with its width. */
+	private static class Entry<T extends Comparable<T>> {
+		final TreeDecomposition<T> decomposition;
+		final int width;
+
+		Entry(TreeDecomposition<T> decomposition) {
+			this.decomposition = decomposition;
+			this.width = decomposition.getWidth();
+		}
+	}
+
+	/** The best decomposition published so far, or null. */
+	private final AtomicReference<Entry<T>> best;
+
+	/** Maps offered decompositions to the decompositions that are published. */
+	private final UnaryOperator<TreeDecomposition<T>> postProcessing;
+
+	/**
+	 * Create an empty holder that publishes the offered decompositions as they are.
+	 */
+	public SharedSolution() {
+		this(UnaryOperator.identity());
+	}
+
+	/**
+	 * Create an empty holder that publishes the offered decompositions transformed by the given function.
+	 * The function must not decrease the width of a decomposition and must not modify the decomposition after it was
+	 * returned. It may be called concurrently.
+	 * @param postProcessing
+	 */
+	public SharedSolution(UnaryOperator<TreeDecomposition<T>> postProcessing) {
+		this.best = new AtomicReference<>();
+		this.postProcessing = postProcessing;
+	}
+
+	/**
+	 * Offer a decomposition. It will be published, if it is better than the best decomposition published so far.
+	 * The decomposition is only post-processed, if it may be better.
+	 * @param decomposition the decomposition, may be null
+	 * @return true if the decomposition is the new best one
+	 */
+	public boolean offer(TreeDecomposition<T> decomposition) {
+		if (decomposition == null || decomposition.getWidth() >= getUpperBound()) return false;
+		Entry<T> entry = new Entry<>(postProcessing.apply(decomposition));
+		while (true) {
+			Entry<T> current = best.get();
+			if (current != null && current.width <= entry.width) return false;
+			if (best.compareAndSet(current, entry)) return true;
+		}
+	}
+
+	/**
+	 * The width of the best decomposition published so far, or Integer.MAX_VALUE if none was published.
+	 * @return an upper bound on the tree width
+	 */
+	public int getUpperBound() {
+		Entry<T> current = best.get();
+		return current == null ? Integer.MAX_VALUE : current.width;
+	}
+
+	/**
+	 * The best decomposition published so far.
+	 * @return the post-processed decomposition, or null if none was published
+	 */
+	public TreeDecomposition<T> getPublishedDecomposition() {
+		Entry<T> current = best.get();
+		return current == null ? null : current.decomposition;
+	}
+
+}
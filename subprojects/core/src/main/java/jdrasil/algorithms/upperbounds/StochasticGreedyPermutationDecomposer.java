@@ -21,6 +21,10 @@ package jdrasil.algorithms.upperbounds;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
 /**
  * StochasticGreedyPermutationDecomposer.java
  * @author bannach
@@ -30,6 +34,7 @@ import java.util.logging.Logger;
 import jdrasil.Heuristic;
 import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer.Algorithm;
 import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
 import jdrasil.graph.TreeDecomposer;
 import jdrasil.graph.TreeDecomposition;
 import jdrasil.graph.TreeDecomposition.TreeDecompositionQuality;
@@ -44,6 +49,13 @@ import jdrasil.utilities.JdrasilProperties;
  * different algorithms, we can pick different algorithms in different runs. As the performance of these algortihms differ,
  * we choose them with different probabilities.
  * 
+ * A run aborts as soon as its width reaches the best width found so far, and restores its working copy of the graph
+ * by undoing the eliminations on the trail of the graph. If the "parallel" flag is set in JdrasilProperties (and not
+ * overridden with @see setParallel(boolean)), the runs are performed in parallel (using the fork-join pool), sharing
+ * the best width found so far as upper bound.
+ * Every run draws from its own dice and ties in the width are broken in favor of the earlier run, i.e., the
+ * computed decomposition does not depend on the scheduling of the runs (as long as the timeout is not reached).
+ * 
  * @param <T> the vertex type
  * @author Max Bannach
  * @author Thorsten Ehlers
@@ -59,12 +71,22 @@ public class StochasticGreedyPermutationDecomposer<T extends Comparable<T>> impl
 	private final Graph<T> graph;
 	
 	/** The decomposition we try to compute */
-	private TreeDecomposition<T> decomposition;
+	private volatile TreeDecomposition<T> decomposition;
 
 	/** The best permutation that is computed. */
-	public List<T> permutation;
+	public volatile List<T> permutation;
 	
-	private int upper_bound;
+	/** The best width found so far, shared by concurrent runs. */
+	private final AtomicInteger upper_bound = new AtomicInteger();
+
+	/** The run in which the best decomposition was found, 0 if there is none. */
+	private volatile int bestIteration = 0;
+
+	/** Solution shared with concurrently running heuristics, may be null. */
+	private SharedSolution<T> sharedSolution;
+
+	/** Whether the runs are performed in parallel, @see setParallel(boolean). */
+	private boolean parallel = JdrasilProperties.containsKey("parallel");
 	
 	/**
 	 * The algorithm is initialized with a graph that should be decomposed.
@@ -80,63 +102,135 @@ public class StochasticGreedyPermutationDecomposer<T extends Comparable<T>> impl
 	@Override
 	public TreeDecomposition<T> call() throws Exception {
 
-		// an upper bound that will be improved during the run of the algortihm
-		//int ub = graph.getCopyOfVertices().size();
-
-		// iterating sqrt(n) times, at least 100
+		// iterating sqrt(n) times, at least 10000
 		int itr = (int) Math.max(Math.sqrt(getUpper_bound()), 10000);
-		int iterationsPerformed = 0;
+		AtomicInteger iterationsPerformed = new AtomicInteger();
+
+		// every run gets its own random numbers, split here in a fixed order such that seeded runs are reproducible
+		RandomNumberGenerator.Dice[] dice = new RandomNumberGenerator.Dice[itr+1];
+		for (int i = 1; i <= itr; i++) dice[i] = RandomNumberGenerator.split();
+		
+		int workers = 1;
+		if (parallel) workers = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+		if (workers == 1) {
+			runRounds(itr, iterationsPerformed, dice);
+		} else {
+			Long deadline = JdrasilProperties.getDeadline(); // the pool threads work for the task of this thread
+			IntStream.range(0, workers).parallel().forEach(i -> {
+				Long previous = JdrasilProperties.setDeadline(deadline);
+				try {
+					runRounds(itr, iterationsPerformed, dice);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				} finally {
+					JdrasilProperties.setDeadline(previous);
+				}
+			});
+		}
+		LOG.info("Finished stochastic run, did " + Math.min(itr, iterationsPerformed.get()) + " iterations...");
+		// done
+		return decomposition;
+	}
+
+	/**
+	 * Performs runs of the Greedy-Permutation heuristic until the given number of runs is performed (counted by all
+	 * workers together), the computation is terminated, or the timeout is reached. The runs of one worker reuse a
+	 * working copy of the graph.
+	 * @param itr the number of runs to be performed
+	 * @param iterationsPerformed the number of runs that are started so far
+	 * @param dice the dice of the runs, indexed by iteration
+	 * @throws Exception
+	 */
+	private void runRounds(int itr, AtomicInteger iterationsPerformed, RandomNumberGenerator.Dice[] dice) throws Exception {
+		Graph<T> workingGraph = GraphFactory.copy(graph);
+		
 		// each run will call the Greed-Permutation heuristic
-		while (itr --> 0) {
-			iterationsPerformed++;
-//			if (Thread.currentThread().isInterrupted()) throw new Exception();
-			if(Heuristic.shutdownFlag)
+		int iteration;
+		while ((iteration = iterationsPerformed.incrementAndGet()) <= itr) {
+			if(Heuristic.shutdownFlag || JdrasilProperties.timeout())
 				break;
-			GreedyPermutationDecomposer<T> greedyPermutation = new GreedyPermutationDecomposer<T>(graph);
+			RandomNumberGenerator.Dice previous = RandomNumberGenerator.setDice(dice[iteration]);
+			try {
+				run(iteration, workingGraph);
+			} finally {
+				RandomNumberGenerator.setDice(previous);
+			}
+		}
+	}
+
+	/**
+	 * Performs a single run of the Greedy-Permutation heuristic on the given working copy of the graph.
+	 * @param iteration the index of the run
+	 * @param workingGraph
+	 * @throws Exception
+	 */
+	private void run(int iteration, Graph<T> workingGraph) throws Exception {
+
+		// rebuild the priority index, such that the random choices do not depend on the runs performed before
+		workingGraph.setPriorityIndex(true);
+
+		// compute the decomposition, once we have a permutation we may prune with the bound found by other
+		// heuristics (decompositions of the same width are still computed, as they may be good starting points
+		// for a later local search); runs before the best one may still reach its width, as they win ties
+		IntSupplier bound = () -> {
+			int ub = getUpper_bound(); // read before bestIteration, @see improve
+			if (iteration < bestIteration) ub = ub + 1;
+			if (sharedSolution != null && permutation != null && sharedSolution.getUpperBound() < ub) ub = sharedSolution.getUpperBound()+1;
+			return ub;
+		};
 
-			if(iterationsPerformed < 2){
+		GreedyPermutationDecomposer<T> greedyPermutation = new GreedyPermutationDecomposer<T>(graph);
+		greedyPermutation.setWorkingGraph(workingGraph);
+
+		if(iteration < 2){
+			greedyPermutation.setToRun(Algorithm.SparsestSubgraph);
+		}
+		else if(iteration < 3){
+			greedyPermutation.setToRun(Algorithm.FillIn);
+		}
+		else{
+			// choose an algorithm at random
+			// with probability 0.5 we choose fill-in, as this algorithm performs very well,
+			// the other algorithms have probability 0.1
+			double p = RandomNumberGenerator.nextDouble();
+			if (p > 0.95) {
+				greedyPermutation.setToRun(Algorithm.Degree);
+			} else if (p > 0.8) {
+				greedyPermutation.setToRun(Algorithm.DegreePlusFillIn);
+			} else if (p > 0.5) {
 				greedyPermutation.setToRun(Algorithm.SparsestSubgraph);
-			}
-			else if(iterationsPerformed < 3){
+			} else if (p > 0.45) {
+				greedyPermutation.setToRun(Algorithm.FillInDegree);
+			} else if (p > 0.4) {
+				greedyPermutation.setToRun(Algorithm.DegreeFillIn);
+			} else {
 				greedyPermutation.setToRun(Algorithm.FillIn);
 			}
-			else{
-				// choose an algorithm at random
-				// with probability 0.5 we choose fill-in, as this algorithm performs very well,
-				// the other algorithms have probability 0.1
-				double p = RandomNumberGenerator.nextDouble();
-				if (p > 0.95) {
-					greedyPermutation.setToRun(Algorithm.Degree);
-				} else if (p > 0.8) {
-					greedyPermutation.setToRun(Algorithm.DegreePlusFillIn);
-				} else if (p > 0.5) {
-					greedyPermutation.setToRun(Algorithm.SparsestSubgraph);
-				} else if (p > 0.45) {
-					greedyPermutation.setToRun(Algorithm.FillInDegree);
-				} else if (p > 0.4) {
-					greedyPermutation.setToRun(Algorithm.DegreeFillIn);
-				} else {
-					greedyPermutation.setToRun(Algorithm.FillIn);
-				}
-			}
+		}
 
-			// compute the decomposition
-			TreeDecomposition<T> newDec = greedyPermutation.call(getUpper_bound());
+		// we we get one, and if this decomposition improves the currently best -> update bound
+		TreeDecomposition<T> newDec = greedyPermutation.call(bound);
+		if (newDec != null) improve(newDec, greedyPermutation, iteration);
+	}
 
-			// we we get one, and if this decomposition improves the currently best -> update bound
-			if (newDec != null && newDec.getWidth() < getUpper_bound()) {
-				setUpper_bound(newDec.getWidth());
-				LOG.info("new upper bound: " + getUpper_bound());
-				LOG.info("Algorithm was " + greedyPermutation.getToRun());
-				decomposition = newDec;
-				permutation = greedyPermutation.getPermutation();
-			}
-			if(JdrasilProperties.timeout())
-                          break;
-		}
-		LOG.info("Finished stochastic run, did " + iterationsPerformed + " iterations...");
-		// done
-		return decomposition;
+	/**
+	 * Updates the best decomposition, if the given one (computed by the given heuristic) has a smaller width, or the
+	 * same width and was computed in an earlier run.
+	 * @param newDec
+	 * @param greedyPermutation
+	 * @param iteration the run in which the decomposition was computed
+	 */
+	private synchronized void improve(TreeDecomposition<T> newDec, GreedyPermutationDecomposer<T> greedyPermutation, int iteration) {
+		int width = newDec.getWidth();
+		if (width > getUpper_bound() || (width == getUpper_bound() && iteration >= bestIteration)) return;
+		// the run is stored before the bound, such that a reader that sees the new bound also sees this run
+		bestIteration = iteration;
+		setUpper_bound(width);
+		LOG.info("new upper bound: " + getUpper_bound());
+		LOG.info("Algorithm was " + greedyPermutation.getToRun());
+		decomposition = newDec;
+		permutation = greedyPermutation.getPermutation();
+		if (sharedSolution != null) sharedSolution.offer(newDec);
 	}
 
 	/**
@@ -158,11 +252,29 @@ public class StochasticGreedyPermutationDecomposer<T extends Comparable<T>> impl
 	}
 
 	public int getUpper_bound() {
-		return upper_bound;
+		return upper_bound.get();
 	}
 
 	public void setUpper_bound(int upper_bound) {
-		this.upper_bound = upper_bound;
+		this.upper_bound.set(upper_bound);
+	}
+
+	/**
+	 * Enables or disables parallel runs. By default, the runs are performed in parallel if the "parallel" flag is set
+	 * in JdrasilProperties; heuristics that already run concurrently should disable it.
+	 * @param parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Share the solution with concurrently running heuristics: found decompositions are offered to the given holder,
+	 * and its upper bound is used to prune the search.
+	 * @param sharedSolution
+	 */
+	public void setSharedSolution(SharedSolution<T> sharedSolution) {
+		this.sharedSolution = sharedSolution;
 	}
 	
 }
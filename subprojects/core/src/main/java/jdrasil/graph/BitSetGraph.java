@@ -18,17 +18,22 @@
  */
 package jdrasil.graph;
 
+import jdrasil.utilities.FixedBitSet;
+
 import java.util.*;
 
 /**
- * A BitSetGraph stores a graph (with arbitrary vertices) as bitwise adjacency matrix, i.e., as array of BitSets where
- * the i'th BitSet corresponds to the i'th row of the adjacency matrix. This comes with all the advantages and disadvantages
+ * A BitSetGraph stores a graph (with arbitrary vertices) as bitwise adjacency matrix, i.e., as array of bitsets where
+ * the i'th bitset corresponds to the i'th row of the adjacency matrix. This comes with all the advantages and disadvantages
  * of an adjacency matrix.
  *
  * The crucial advantage is that the graph is compact and that many operations can be performed quickly on the bit level.
- * In particular, dynamic programming over subgraphs can be implemented efficiently, as subgraphs are also just BitSets
+ * In particular, dynamic programming over subgraphs can be implemented efficiently, as subgraphs are also just bitsets
  * that can efficiently be hashed.
  *
+ * The rows and subgraphs are @see jdrasil.utilities.FixedBitSet over the universe \(\{0,\dots,n-1\}\). Methods that
+ * compute a set have a variant that writes into a given set, which allows callers to reuse buffers in their inner loops.
+ *
  * @param <T> the type of vertices the original graph has
  * @author Max Bannach
  */
@@ -44,18 +49,18 @@ public class BitSetGraph<T extends Comparable<T>> {
     private final Map<T, Integer> vToInt;
     private final Map<Integer, T> intToV;
 
-    /** The graph as array of BitSets (aka. bit adjacency matrix). */
-    private final BitSet[] bitSetGraph;
+    /** The graph as array of bitsets (aka. bit adjacency matrix). */
+    private final FixedBitSet[] bitSetGraph;
 
     /**
      * Creates the BitSetGraph from the given graph by computing a bijection from the vertices to {0,...,n-1}
-     * and storing edges in an adjacency matrix represented by an array of BitSets.
+     * and storing edges in an adjacency matrix represented by an array of bitsets.
      * @param graph
      */
     public BitSetGraph(Graph<T> graph) {
         // parse given graph
         this.graph = graph;
-        this.n = graph.getCopyOfVertices().size();
+        this.n = graph.getNumVertices();
 
         // compute the bijection
         this.vToInt = new HashMap<>();
@@ -68,8 +73,8 @@ public class BitSetGraph<T extends Comparable<T>> {
         }
 
         // create the bitgraph
-        bitSetGraph = new BitSet[n];
-        for (int v = 0; v < n; v++) bitSetGraph[v] = new BitSet();
+        bitSetGraph = new FixedBitSet[n];
+        for (int v = 0; v < n; v++) bitSetGraph[v] = new FixedBitSet(n);
         for (T v : graph) {
             int x = vToInt.get(v);
             for (T w : graph.getNeighborhood(v)) {
@@ -96,11 +101,11 @@ public class BitSetGraph<T extends Comparable<T>> {
     }
 
     /**
-     * Getter for the BitSet graph: an array of n BitSets where the i'th BitSet corresponds to the i'th row
+     * Getter for the BitSet graph: an array of n bitsets where the i'th bitset corresponds to the i'th row
      * of the adjacency matrix of the graph.
      * @return
      */
-    public BitSet[] getBitSetGraph() {
+    public FixedBitSet[] getBitSetGraph() {
         return this.bitSetGraph;
     }
 
@@ -121,11 +126,19 @@ public class BitSetGraph<T extends Comparable<T>> {
     }
 
     /**
-     * Computes a set of "real" vertices to the corresponding BitSet.
+     * Creates an empty bitset over the vertices of this graph.
+     * @return
+     */
+    public FixedBitSet emptySet() {
+        return new FixedBitSet(n);
+    }
+
+    /**
+     * Computes a set of "real" vertices to the corresponding bitset.
      * @param S
      * @return
      */
-    public Set<T> getVertexSet(BitSet S) {
+    public Set<T> getVertexSet(FixedBitSet S) {
         Set<T> vertexSet = new HashSet<T>();
         for (int v = S.nextSetBit(0); v >= 0; v = S.nextSetBit(v+1)) {
             vertexSet.add(intToV.get(v));
@@ -134,12 +147,12 @@ public class BitSetGraph<T extends Comparable<T>> {
     }
 
     /**
-     * Computes a corresponding BitSet to a "real" vertex set.
+     * Computes a corresponding bitset to a "real" vertex set.
      * @param vertexSet
      * @return
      */
-    public BitSet getBitSet(Set<T> vertexSet) {
-        BitSet S = new BitSet();
+    public FixedBitSet getBitSet(Set<T> vertexSet) {
+        FixedBitSet S = new FixedBitSet(n);
         for (T v : vertexSet) S.set(vToInt.get(v));
         return S;
     }
@@ -149,12 +162,10 @@ public class BitSetGraph<T extends Comparable<T>> {
      * @param S
      * @return
      */
-    public BitSet interiorBorder(BitSet S) {
-        BitSet border = new BitSet();
-        BitSet outside = (BitSet) S.clone();
-        outside.flip(0,n);
+    public FixedBitSet interiorBorder(FixedBitSet S) {
+        FixedBitSet border = new FixedBitSet(n);
         for (int v = S.nextSetBit(0); v >= 0; v = S.nextSetBit(v+1)) {
-            if (bitSetGraph[v].intersects(outside)) border.set(v);
+            if (!bitSetGraph[v].isSubsetOf(S)) border.set(v);
         }
         return border;
     }
@@ -164,29 +175,33 @@ public class BitSetGraph<T extends Comparable<T>> {
      * @param S
      * @return
      */
-    public BitSet exteriorBorder(BitSet S) {
-        BitSet border = new BitSet();
-        BitSet outside = (BitSet) S.clone();
-        outside.flip(0,n);
-        for (int v = S.nextSetBit(0); v >= 0; v = S.nextSetBit(v+1)) {
-            if (bitSetGraph[v].intersects(outside)) border.or(bitSetGraph[v]);
-        }
-        border.andNot(S);
+    public FixedBitSet exteriorBorder(FixedBitSet S) {
+        FixedBitSet border = new FixedBitSet(n);
+        exteriorBorder(S, border);
         return border;
     }
 
+    /**
+     * Computes the exterior border of S into the given set, which will be overwritten.
+     * @param S
+     * @param border
+     */
+    public void exteriorBorder(FixedBitSet S, FixedBitSet border) {
+        border.clearAll();
+        for (int v = S.nextSetBit(0); v >= 0; v = S.nextSetBit(v+1)) border.or(bitSetGraph[v]);
+        border.andNot(S);
+    }
+
     /**
      * Saturates the subgraph \(S\) by adding all vertices \(v\in N(S)\) of \(V\setminus S\) that have all neighbors in \(S\) or \(N(S)\).
      * @param S
      */
-    public void saturate(BitSet S) {
-        BitSet neighbors = exteriorBorder(S);
-        BitSet Sprime = (BitSet) S.clone();
+    public void saturate(FixedBitSet S) {
+        FixedBitSet neighbors = exteriorBorder(S);
+        FixedBitSet Sprime = S.clone();
         Sprime.or(neighbors);
         for (int v = neighbors.nextSetBit(0); v >= 0; v = neighbors.nextSetBit(v+1)) {
-            BitSet tmp = (BitSet) bitSetGraph[v].clone();
-            tmp.andNot(Sprime);
-            if (tmp.cardinality() == 0) S.set(v);
+            if (bitSetGraph[v].isSubsetOf(Sprime)) S.set(v);
         }
     }
 
@@ -196,13 +211,12 @@ public class BitSetGraph<T extends Comparable<T>> {
      * @param S
      * @return
      */
-    public int absorbable(BitSet S) {
-        BitSet neighbors = exteriorBorder(S);
-        BitSet outside = (BitSet) S.clone();
-        outside.or(neighbors);
-        outside.flip(0,n);
+    public int absorbable(FixedBitSet S) {
+        FixedBitSet neighbors = exteriorBorder(S);
+        FixedBitSet closed = S.clone();
+        closed.or(neighbors);
         for (int v = neighbors.nextSetBit(0); v >= 0; v = neighbors.nextSetBit(v+1)) {
-            if (!bitSetGraph[v].intersects(outside)) return v;
+            if (bitSetGraph[v].isSubsetOf(closed)) return v;
         }
         return -1;
     }
@@ -212,28 +226,26 @@ public class BitSetGraph<T extends Comparable<T>> {
      * @param S
      * @return
      */
-    public List<BitSet> separate(BitSet S) {
-        List<BitSet> components = new ArrayList<>(5);
-        BitSet visited = new BitSet();
-        visited.or(S);
+    public List<FixedBitSet> separate(FixedBitSet S) {
+        List<FixedBitSet> components = new ArrayList<>(5);
+        FixedBitSet visited = S.clone();
+        FixedBitSet frontier = new FixedBitSet(n);
 
-        // start dfs on each vertex
-        Stack<Integer> stack = new Stack<>();
+        // explore the components layer by layer, starting at the first unvisited vertex
         for (int s = 0; s < n; s++) {
             if (visited.get(s)) continue; // old component
-            BitSet component = new BitSet();
+            FixedBitSet component = new FixedBitSet(n);
             component.set(s);
             visited.set(s);
-            stack.add(s);
-            while (!stack.isEmpty()) {
-                int v = stack.pop();
-                for (int w = 0; w < n; w++) {
-                    if (!bitSetGraph[v].get(w)) continue;
-                    if (visited.get(w)) continue;
-                    component.set(w);
-                    visited.set(w);
-                    stack.push(w);
-                }
+            frontier.clearAll();
+            frontier.set(s);
+            while (!frontier.isEmpty()) {
+                FixedBitSet next = new FixedBitSet(n);
+                for (int v = frontier.nextSetBit(0); v >= 0; v = frontier.nextSetBit(v+1)) next.or(bitSetGraph[v]);
+                next.andNot(visited);
+                component.or(next);
+                visited.or(next);
+                frontier = next;
             }
             components.add(component);
         }
@@ -250,11 +262,11 @@ public class BitSetGraph<T extends Comparable<T>> {
      * @param S
      * @return
      */
-    public boolean isPotentialMaximalClique(BitSet S) {
-        List<BitSet> components = separate(S);
+    public boolean isPotentialMaximalClique(FixedBitSet S) {
+        List<FixedBitSet> components = separate(S);
 
         // Test 1: S can not be maximal potential clique, if there is a component C with N(C)=S
-        for (BitSet C : components) {
+        for (FixedBitSet C : components) {
             if (exteriorBorder(C).cardinality() == S.cardinality()) return false; // |N(C)|=|S| vs N(C)=S
         }
 
@@ -263,7 +275,7 @@ public class BitSetGraph<T extends Comparable<T>> {
             for (int w = S.nextSetBit(v+1); w >= 0; w = S.nextSetBit(w+1)) {
                 if (bitSetGraph[v].get(w)) continue;
                 boolean completeable = false;
-                for (BitSet C : components) {
+                for (FixedBitSet C : components) {
                     if (C.intersects(bitSetGraph[v]) && C.intersects(bitSetGraph[w])) {
                         completeable = true;
                         break;
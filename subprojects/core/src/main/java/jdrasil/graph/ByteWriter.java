@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small buffered writer on the byte level, the counterpart to @see GraphReader.
+ * Integers are encoded directly into a direct buffer, either as ASCII digits or as variable length binary integers
+ * (varints), i.e., no Strings are created for them, and the buffer is written to the channel whenever it is full.
+ * Other objects are written using their toString() representation.
+ *
+ * @author Max Bannach
+ */
+final class ByteWriter {
+
+	/** Size of the buffer used to write to the channel. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** An int has at most 11 characters (including the sign). */
+	private static final int MAX_INT_LENGTH = 11;
+
+	/** An int has at most 5 bytes as varint. */
+	private static final int MAX_VARINT_LENGTH = 5;
+
+	/** The channel we write to. */
+	private final WritableByteChannel channel;
+
+	/** The buffer in which the output is collected. */
+	private final ByteBuffer buffer;
+
+	/** Scratch space to encode the digits of an integer from right to left. */
+	private final byte[] digits;
+
+	ByteWriter(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.digits = new byte[MAX_INT_LENGTH];
+	}
+
+	/**
+	 * Write a single ASCII character.
+	 * @param c
+	 * @throws IOException
+	 */
+	void write(char c) throws IOException {
+		if (!buffer.hasRemaining()) drain();
+		buffer.put((byte) c);
+	}
+
+	/**
+	 * Write the decimal representation of the given integer.
+	 * @param value
+	 * @throws IOException
+	 */
+	void write(int value) throws IOException {
+		if (buffer.remaining() < MAX_INT_LENGTH) drain();
+		if (value == Integer.MIN_VALUE) { // can not be negated
+			buffer.put("-2147483648".getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+		if (value < 0) {
+			buffer.put((byte) '-');
+			value = -value;
+		}
+		int p = MAX_INT_LENGTH;
+		do {
+			digits[--p] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		buffer.put(digits, p, MAX_INT_LENGTH - p);
+	}
+
+	/**
+	 * Write the given object, integers are encoded directly and everything else through toString().
+	 * @param o
+	 * @throws IOException
+	 */
+	void write(Object o) throws IOException {
+		if (o instanceof Integer) {
+			write(((Integer) o).intValue());
+			return;
+		}
+		byte[] bytes = String.valueOf(o).getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < bytes.length; ) {
+			if (!buffer.hasRemaining()) drain();
+			int length = Math.min(buffer.remaining(), bytes.length - i);
+			buffer.put(bytes, i, length);
+			i += length;
+		}
+	}
+
+	/**
+	 * Write a single raw byte.
+	 * @param b
+	 * @throws IOException
+	 */
+	void writeByte(int b) throws IOException {
+		if (!buffer.hasRemaining()) drain();
+		buffer.put((byte) b);
+	}
+
+	/**
+	 * Write the given integer as unsigned varint, i.e., in groups of seven bits starting with the least significant
+	 * one, where the highest bit of each byte indicates that further bytes follow. Small values need fewer bytes,
+	 * which makes this encoding a good fit for the gaps of sorted sequences.
+	 * @param value interpreted as unsigned integer
+	 * @throws IOException
+	 */
+	void writeVarint(int value) throws IOException {
+		if (buffer.remaining() < MAX_VARINT_LENGTH) drain();
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Write the given integer as zigzag encoded varint, such that small negative values need few bytes as well.
+	 * @param value
+	 * @throws IOException
+	 */
+	void writeSignedVarint(int value) throws IOException {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Write the content of the buffer to the channel. The channel itself is not flushed or closed.
+	 * @throws IOException
+	 */
+	void flush() throws IOException {
+		drain();
+	}
+
+	/**
+	 * Write the whole buffer to the channel and clear it.
+	 * @throws IOException
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import jdrasil.graph.invariants.ColorRefinement;
+import jdrasil.utilities.JdrasilProperties;
+import jdrasil.utilities.logging.JdrasilLogger;
+
+/**
+ * A persistent cache that stores tree decompositions and proven lower bounds of graphs in a directory. Graphs are
+ * addressed by their content, not by their labels: the key of a graph is its fingerprint computed by
+ * @see jdrasil.graph.invariants.ColorRefinement, such that relabelled (i.e., isomorphic) graphs are found as well.
+ *
+ * As different graphs may have the same fingerprint, a lookup searches an explicit isomorphism from the queried graph
+ * to every stored graph with this fingerprint. The search is a backtracking over the vertices in breadth-first order,
+ * in which a vertex is only mapped to a vertex with the same stable colour. For most graphs the colour classes are
+ * small and the search is linear, in the worst case it gives up after a bounded number of steps and the lookup is a
+ * miss. On a hit, the stored decomposition is translated to the labels of the queried graph.
+ *
+ * Every entry is a file in the directory, containing the lower bound, the graph, and the decomposition in the
+ * formats of PACE. The total size of the files is bounded by the capacity of the cache, and the least recently used
+ * entries are evicted if the capacity is exceeded. All methods are synchronized, i.e., the cache can be shared by
+ * several threads.
+ *
+ * @author Max Bannach
+ */
+public class DecompositionCache {
+
+	/** Jdrasils Logger */
+	private final static Logger LOG = Logger.getLogger(JdrasilLogger.getName());
+
+	/** Suffix of the files of the cache. */
+	private static final String SUFFIX = ".tdc";
+
+	/** Capacity of the global cache in bytes. */
+	private static final long DEFAULT_CAPACITY = 1L << 28;
+
+	/** The search for an isomorphism gives up after this many steps per vertex. */
+	private static final int SEARCH_STEPS_PER_VERTEX = 64;
+
+	/** The global cache, @see getGlobalCache() */
+	private static DecompositionCache globalCache;
+
+	/** True if the global cache was created (or it was tried). */
+	private static boolean globalCacheInitialized;
+
+	/** The directory storing the entries. */
+	private final File directory;
+
+	/** The maximal size of all entries in bytes. */
+	private final long capacity;
+
+	/** The entries of each fingerprint. */
+	private final Map<Long, List<File>> entries;
+
+	/** All entries with their size, in the order of their last use. */
+	private final LinkedHashMap<File, Long> lru;
+
+	/** The size of all entries in bytes. */
+	private long size;
+
+	/**
+	 * The result of a successful lookup.
+	 * @param <T>
+	 */
+	public static final class Hit<T extends Comparable<T>> {
+
+		/** A decomposition of the queried graph, or null if only a lower bound is known. */
+		public final TreeDecomposition<T> decomposition;
+
+		/** A proven lower bound on the tree width of the queried graph. */
+		public final int lowerbound;
+
+		private Hit(TreeDecomposition<T> decomposition, int lowerbound) {
+			this.decomposition = decomposition;
+			this.lowerbound = lowerbound;
+		}
+
+		/**
+		 * @return true if the decomposition is known to be optimal
+		 */
+		public boolean isOptimal() {
+			return decomposition != null && decomposition.getWidth() <= lowerbound;
+		}
+	}
+
+	/**
+	 * Returns the cache used by Jdrasil. The cache is stored in the directory given by the property "c", if the
+	 * property is not set (or the directory can not be used) there is no global cache.
+	 * @return the global cache or null
+	 */
+	public static synchronized DecompositionCache getGlobalCache() {
+		if (!globalCacheInitialized) {
+			globalCacheInitialized = true;
+			if (JdrasilProperties.containsKey("c")) {
+				try {
+					globalCache = new DecompositionCache(new File(JdrasilProperties.getProperty("c")), DEFAULT_CAPACITY);
+				} catch (IOException e) {
+					LOG.warning("Could not open the decomposition cache: " + e.getMessage());
+				}
+			}
+		}
+		return globalCache;
+	}
+
+	/**
+	 * Opens the cache stored in the given directory, which is created if it does not exist.
+	 * @param directory
+	 * @param capacity the maximal size of all entries in bytes
+	 * @throws IOException if the directory can not be created or read
+	 */
+	public DecompositionCache(File directory, long capacity) throws IOException {
+		this.directory = directory;
+		this.capacity = capacity;
+		this.entries = new HashMap<>();
+		this.lru = new LinkedHashMap<>(16, 0.75f, true);
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create the directory " + directory);
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null) throw new IOException("Could not list the directory " + directory);
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			try {
+				register(file, fingerprintOf(file));
+			} catch (NumberFormatException e) {
+				LOG.warning("Ignoring " + file + " in the decomposition cache");
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Searches a stored graph that is isomorphic to the given one.
+	 * @param graph
+	 * @return the stored decomposition and lower bound translated to the given graph, or null if there is none
+	 */
+	public synchronized <T extends Comparable<T>> Hit<T> lookup(Graph<T> graph) {
+		Probe<T> probe = new Probe<>(graph);
+		for (File file : new ArrayList<>(entries.getOrDefault(probe.fingerprint, Collections.emptyList()))) {
+			Stored stored = read(file);
+			if (stored == null) continue;
+			int[] inverse = probe.isomorphismFrom(stored);
+			if (inverse == null) continue;
+			touch(file);
+			return new Hit<>(probe.translate(stored, inverse), stored.lowerbound);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a stored decomposition of the given graph, if it is optimal.
+	 * @param graph
+	 * @return an optimal tree decomposition of the graph, or null if there is none in the cache
+	 */
+	public <T extends Comparable<T>> TreeDecomposition<T> getOptimalDecomposition(Graph<T> graph) {
+		Hit<T> hit = lookup(graph);
+		return hit != null && hit.isOptimal() ? hit.decomposition : null;
+	}
+
+	/**
+	 * Stores a decomposition and a lower bound of the given graph. If an isomorphic graph is already stored, the entry
+	 * is only updated if the new information is better, i.e., if the lower bound is larger or the decomposition smaller.
+	 * @param graph
+	 * @param decomposition a tree decomposition of the graph, or null
+	 * @param lowerbound a proven lower bound on the tree width of the graph
+	 */
+	public synchronized <T extends Comparable<T>> void put(Graph<T> graph, TreeDecomposition<T> decomposition, int lowerbound) {
+		Probe<T> probe = new Probe<>(graph);
+
+		// merge with the entry of an isomorphic graph
+		for (File file : new ArrayList<>(entries.getOrDefault(probe.fingerprint, Collections.emptyList()))) {
+			Stored stored = read(file);
+			if (stored == null) continue;
+			int[] inverse = probe.isomorphismFrom(stored);
+			if (inverse == null) continue;
+			boolean betterBound = lowerbound > stored.lowerbound;
+			boolean betterDecomposition = decomposition != null && (stored.bags == null || decomposition.getWidth() < stored.width);
+			if (!betterBound && !betterDecomposition) {
+				touch(file);
+				return;
+			}
+			if (!betterDecomposition) decomposition = probe.translate(stored, inverse);
+			lowerbound = Math.max(lowerbound, stored.lowerbound);
+			remove(file);
+			break;
+		}
+
+		// write a new entry
+		try {
+			File file;
+			do {
+				file = new File(directory, String.format("%016x-%x%s", probe.fingerprint, System.nanoTime(), SUFFIX));
+			} while (file.exists());
+			try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+				out.write(probe.serialize(decomposition, lowerbound));
+			}
+			register(file, probe.fingerprint);
+			evict();
+		} catch (IOException e) {
+			LOG.warning("Could not write to the decomposition cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the number of entries in the cache
+	 */
+	public synchronized int size() {
+		return lru.size();
+	}
+
+	/**
+	 * Add a file to the index of the cache as most recently used entry.
+	 * @param file
+	 * @param fingerprint
+	 */
+	private void register(File file, long fingerprint) {
+		entries.computeIfAbsent(fingerprint, k -> new ArrayList<>()).add(file);
+		long length = file.length();
+		lru.put(file, length);
+		size += length;
+	}
+
+	/**
+	 * Remove a file from the cache and from the disk.
+	 * @param file
+	 */
+	private void remove(File file) {
+		Long length = lru.remove(file);
+		if (length != null) size -= length;
+		long fingerprint = fingerprintOf(file);
+		List<File> files = entries.get(fingerprint);
+		if (files != null) {
+			files.remove(file);
+			if (files.isEmpty()) entries.remove(fingerprint);
+		}
+		if (!file.delete() && file.exists()) LOG.warning("Could not delete " + file);
+	}
+
+	/**
+	 * Mark the file as most recently used.
+	 * @param file
+	 */
+	private void touch(File file) {
+		lru.get(file);
+		file.setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * Remove the least recently used entries until the capacity is respected.
+	 */
+	private void evict() {
+		while (size > capacity && !lru.isEmpty()) remove(lru.keySet().iterator().next());
+	}
+
+	private static long fingerprintOf(File file) {
+		return Long.parseUnsignedLong(file.getName().substring(0, 16), 16);
+	}
+
+	/**
+	 * A stored entry of the cache, vertices are numbered from 0 to n-1.
+	 */
+	private static final class Stored {
+
+		/** The adjacency lists of the stored graph. */
+		int[][] neighbors;
+
+		/** The stable colours of the stored graph. */
+		long[] color;
+
+		/** The proven lower bound. */
+		int lowerbound;
+
+		/** The bags of the decomposition, or null. */
+		int[][] bags;
+
+		/** The width of the decomposition. */
+		int width;
+
+		/** The edges of the decomposition, as pairs of indices of @see bags. */
+		int[] treeEdges;
+
+		/** The number of tree edges. */
+		int numberOfTreeEdges;
+	}
+
+	/**
+	 * Reads an entry of the cache, an entry that can not be read is removed.
+	 * @param file
+	 * @return the entry or null
+	 */
+	private Stored read(File file) {
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			Stored stored = new Stored();
+			int n = 0, m = 0;
+			int[] tails = new int[16], heads = new int[16];
+			List<int[]> bags = null;
+			int[] treeEdges = new int[16];
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] token = line.trim().split("\\s+");
+				if (token[0].isEmpty()) continue;
+				switch (token[0]) {
+					case "c":
+						if (token.length == 3 && token[1].equals("lowerbound")) stored.lowerbound = Integer.parseInt(token[2]);
+						break;
+					case "p":
+						n = Integer.parseInt(token[2]);
+						break;
+					case "s":
+						bags = new ArrayList<>();
+						break;
+					case "b":
+						int[] bag = new int[token.length-2];
+						for (int i = 0; i < bag.length; i++) bag[i] = Integer.parseInt(token[i+2])-1;
+						bags.add(bag);
+						stored.width = Math.max(stored.width, bag.length-1);
+						break;
+					default: // an edge of the graph or of the decomposition
+						int u = Integer.parseInt(token[0]), v = Integer.parseInt(token[1]);
+						if (bags == null) {
+							if (m == tails.length) {
+								tails = Arrays.copyOf(tails, 2*m);
+								heads = Arrays.copyOf(heads, 2*m);
+							}
+							tails[m] = u;
+							heads[m++] = v;
+						} else {
+							if (2*stored.numberOfTreeEdges+1 >= treeEdges.length) treeEdges = Arrays.copyOf(treeEdges, 2*treeEdges.length);
+							treeEdges[2*stored.numberOfTreeEdges] = u-1;
+							treeEdges[2*stored.numberOfTreeEdges+1] = v-1;
+							stored.numberOfTreeEdges++;
+						}
+				}
+			}
+
+			// compute adjacency lists and colours of the stored graph, vertex v has index v-1
+			Graph<Integer> graph = GraphFactory.graphFromEdgeList(n, tails, heads, m);
+			Map<Integer, Long> colors = new ColorRefinement<>(graph).getModel();
+			stored.neighbors = new int[n][];
+			stored.color = new long[n];
+			for (int v = 1; v <= n; v++) {
+				stored.neighbors[v-1] = graph.getNeighborhood(v).stream().mapToInt(w -> w-1).toArray();
+				stored.color[v-1] = colors.get(v);
+			}
+			if (bags != null) stored.bags = bags.toArray(new int[bags.size()][]);
+			stored.treeEdges = treeEdges;
+			return stored;
+		} catch (IOException | RuntimeException e) {
+			LOG.warning("Removing the broken entry " + file + " from the decomposition cache");
+			remove(file);
+			return null;
+		}
+	}
+
+	/**
+	 * A graph that is looked up or stored, indexed by the integers 0 to n-1.
+	 * @param <T>
+	 */
+	private static final class Probe<T extends Comparable<T>> {
+
+		/** The graph. */
+		final Graph<T> graph;
+
+		/** The vertices in the order of their index. */
+		final List<T> vertices;
+
+		/** The index of each vertex. */
+		final Map<T, Integer> index;
+
+		/** The adjacency lists. */
+		final int[][] neighbors;
+
+		/** The stable colour of each vertex. */
+		final long[] color;
+
+		/** The fingerprint of the graph. */
+		final long fingerprint;
+
+		Probe(Graph<T> graph) {
+			this.graph = graph;
+			ColorRefinement<T> refinement = new ColorRefinement<>(graph);
+			this.fingerprint = refinement.getValue();
+			Map<T, Long> colors = refinement.getModel();
+			this.vertices = new ArrayList<>(graph.getCopyOfVertices());
+			int n = vertices.size();
+			this.index = new HashMap<>();
+			for (int i = 0; i < n; i++) index.put(vertices.get(i), i);
+			this.neighbors = new int[n][];
+			this.color = new long[n];
+			for (int i = 0; i < n; i++) {
+				neighbors[i] = graph.getNeighborhood(vertices.get(i)).stream().mapToInt(index::get).toArray();
+				color[i] = colors.get(vertices.get(i));
+			}
+		}
+
+		/**
+		 * Searches an isomorphism from the stored graph to this one, which maps each vertex to a vertex with the same
+		 * colour. The vertices of this graph are processed in breadth-first order, such that the candidates of a vertex
+		 * are the neighbours of the image of its parent.
+		 * @param stored
+		 * @return the isomorphism (mapping stored vertices to indices of this graph) or null, if there is none or the
+		 *         search was aborted
+		 */
+		int[] isomorphismFrom(Stored stored) {
+			int n = neighbors.length;
+			if (stored.neighbors.length != n) return null;
+
+			// the colour classes of the stored graph, they have to be as large as the ones of this graph
+			Map<Long, int[]> classes = new HashMap<>();
+			Map<Long, Integer> classSize = new HashMap<>();
+			for (int u = 0; u < n; u++) classSize.merge(stored.color[u], 1, Integer::sum);
+			for (Map.Entry<Long, Integer> e : classSize.entrySet()) classes.put(e.getKey(), new int[e.getValue()]);
+			Map<Long, Integer> fill = new HashMap<>();
+			for (int u = 0; u < n; u++) {
+				int p = fill.merge(stored.color[u], 1, Integer::sum) - 1;
+				classes.get(stored.color[u])[p] = u;
+			}
+			for (int v = 0; v < n; v++) {
+				if (classSize.merge(color[v], -1, Integer::sum) < 0) return null;
+			}
+
+			// breadth-first order, each component starts at a vertex of a smallest colour class
+			Integer[] roots = new Integer[n];
+			for (int v = 0; v < n; v++) roots[v] = v;
+			Arrays.sort(roots, Comparator.comparingInt(v -> classes.get(color[v]).length));
+			int[] order = new int[n];
+			int[] parent = new int[n];
+			boolean[] visited = new boolean[n];
+			int head = 0, tail = 0;
+			for (int r : roots) {
+				if (visited[r]) continue;
+				visited[r] = true;
+				parent[r] = -1;
+				order[tail++] = r;
+				while (head < tail) {
+					int v = order[head++];
+					for (int w : neighbors[v]) {
+						if (visited[w]) continue;
+						visited[w] = true;
+						parent[w] = v;
+						order[tail++] = w;
+					}
+				}
+			}
+
+			// backtracking
+			int[] phi = new int[n], inverse = new int[n];
+			Arrays.fill(phi, -1);
+			Arrays.fill(inverse, -1);
+			int[][] candidates = new int[n][];
+			int[] next = new int[n];
+			int[] mark = new int[n];
+			int stamp = 0;
+			long budget = (long) SEARCH_STEPS_PER_VERTEX * n + 1024;
+			int level = 0;
+			while (level >= 0 && level < n) {
+				int v = order[level];
+				if (candidates[level] == null) {
+					candidates[level] = parent[v] < 0 ? classes.get(color[v]) : stored.neighbors[phi[parent[v]]];
+					next[level] = 0;
+				}
+				boolean found = false;
+				while (!found && next[level] < candidates[level].length) {
+					int u = candidates[level][next[level]++];
+					if (--budget < 0) return null;
+					if (inverse[u] >= 0 || stored.color[u] != color[v] || stored.neighbors[u].length != neighbors[v].length) continue;
+
+					// mapped neighbours of v have to be mapped to neighbours of u, and vice versa
+					stamp++;
+					for (int x : stored.neighbors[u]) mark[x] = stamp;
+					int mapped = 0;
+					boolean consistent = true;
+					for (int w : neighbors[v]) {
+						if (phi[w] < 0) continue;
+						if (mark[phi[w]] != stamp) { consistent = false; break; }
+						mapped++;
+					}
+					if (!consistent) continue;
+					for (int x : stored.neighbors[u]) if (inverse[x] >= 0) mapped--;
+					if (mapped != 0) continue;
+					phi[v] = u;
+					inverse[u] = v;
+					found = true;
+				}
+				if (found) {
+					level++;
+				} else { // backtrack
+					candidates[level] = null;
+					level--;
+					if (level >= 0) {
+						int w = order[level];
+						inverse[phi[w]] = -1;
+						phi[w] = -1;
+					}
+				}
+			}
+			return level == n ? inverse : null;
+		}
+
+		/**
+		 * Translate the stored decomposition to this graph.
+		 * @param stored
+		 * @param inverse an isomorphism from the stored graph to this one
+		 * @return the decomposition or null, if the entry has none
+		 */
+		TreeDecomposition<T> translate(Stored stored, int[] inverse) {
+			if (stored.bags == null) return null;
+			TreeDecomposition<T> td = new TreeDecomposition<>(graph);
+			List<Bag<T>> bags = new ArrayList<>(stored.bags.length);
+			for (int[] bag : stored.bags) {
+				Set<T> vertexSet = new HashSet<>();
+				for (int u : bag) vertexSet.add(vertices.get(inverse[u]));
+				bags.add(td.createBag(vertexSet));
+			}
+			for (int i = 0; i < stored.numberOfTreeEdges; i++) {
+				td.addTreeEdge(bags.get(stored.treeEdges[2*i]), bags.get(stored.treeEdges[2*i+1]));
+			}
+			return td;
+		}
+
+		/**
+		 * Represent the graph and the decomposition in the formats of PACE, the vertex with index i is written as i+1.
+		 * @param decomposition or null
+		 * @param lowerbound
+		 * @return the content of an entry of the cache
+		 */
+		String serialize(TreeDecomposition<T> decomposition, int lowerbound) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("c lowerbound ").append(lowerbound).append('\n');
+			sb.append("p tw ").append(vertices.size()).append(' ').append(graph.getNumberOfEdges()).append('\n');
+			for (int v = 0; v < neighbors.length; v++) {
+				for (int w : neighbors[v]) if (v < w) sb.append(v+1).append(' ').append(w+1).append('\n');
+			}
+			if (decomposition == null) return sb.toString();
+
+			// bags are numbered in the order of the decomposition
+			Map<Bag<T>, Integer> id = new HashMap<>();
+			sb.append("s td ").append(decomposition.getNumberOfBags()).append(' ').append(decomposition.getWidth()+1)
+			  .append(' ').append(vertices.size()).append('\n');
+			for (Bag<T> bag : decomposition.getTree()) {
+				id.put(bag, id.size()+1);
+				sb.append("b ").append(id.size());
+				for (T v : bag.vertices) sb.append(' ').append(index.get(v)+1);
+				sb.append('\n');
+			}
+			for (Bag<T> bag : decomposition.getTree()) {
+				for (Bag<T> other : decomposition.getNeighborhood(bag)) {
+					if (id.get(bag) < id.get(other)) sb.append(id.get(bag)).append(' ').append(id.get(other)).append('\n');
+				}
+			}
+			return sb.toString();
+		}
+	}
+}
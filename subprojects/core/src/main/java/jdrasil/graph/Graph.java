@@ -19,20 +19,21 @@
 package jdrasil.graph;
 
 import java.io.Serializable;
-import java.security.KeyStore.Entry;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
 import java.util.logging.Logger;
 
-import javax.management.RuntimeErrorException;
-
+import jdrasil.Datastructures.BucketQueue;
+import jdrasil.Datastructures.IntVector;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 /**
@@ -40,8 +41,9 @@ import jdrasil.utilities.logging.JdrasilLogger;
  * As Jdrasil mainly deals with undirected graphs, this class provides method to perform all operations symmetrically,
  * and, thus, can be used as representation for undirected graphs.
  * 
- * The graph is stored as adjacency list, making edge iterations effective but adjacency tests expensive.
- * In addition, a hashmap provides fast access to adjacency tests.
+ * The graph is a thin labelled facade over an @see IntGraph: every vertex of type T is mapped to an int id and
+ * the adjacency structure is stored with primitive sorted arrays. The neighborhoods returned by this class are
+ * live views on these arrays, i.e., no boxed sets are stored.
  *
  * This class should be constructed with the graph factory.
  * @see GraphFactory 
@@ -58,25 +60,23 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	
 	private static final long serialVersionUID = -6506030235954373541L;
 	
-	/**
-	 * The graph is stored as adjacency list, i.e., for every vertex of the graph
-	 * there is one entry in the map that points to a list of neighbors.
-	 */
-//	private Map<T, List<T>> adjacencyList;
+	/** The int-indexed adjacency structure of the graph. */
+	private IntGraph core;
 	
-	/**
-	 * We also store edges in HashSets to get O(1) adjacency tests.
-	 */
-	private Map<T, Set<T>> adjacencies;
+	/** Maps a vertex to its id in the core. Removed vertices keep their id. */
+	private Map<T, Integer> index;
+	
+	/** Maps an id of the core back to the vertex. */
+	private ArrayList<T> labels;
+	
+	/** The index and labels may be shared between copies, in this case they are copied before a new vertex is added. */
+	private boolean sharedIndex;
 	
 	/**
-	 * Store the number of edges in the neighborhood of the vertices,
+	 * Store the number of edges in the neighborhood of the vertices (indexed by the id of the vertex),
 	 * this value can be used to determine if a vertex is simplicial in O(1).
 	 */
-	private Map<T, Integer> edgesInNeighborhood;
-	
-	/** The number of edges in the graph .*/
-	private int m;
+	private int[] edgesInNeighborhood;
 	
 	/** Enable or disable logging of the number of edges in each vertices' neighbourhood */
 	
@@ -84,31 +84,120 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	
 	private boolean isDirected;
 	
+	/**
+	 * The elimination trail stores everything needed to undo eliminations performed by @see eliminateVertexOnTrail(T).
+	 * For every elimination the neighbors of the vertex, the inserted fill edges (as pairs), the number of neighbors,
+	 * the number of fill edges, and the vertex itself are pushed as ints. The trail is not copied with the graph.
+	 */
+	private transient IntVector trail;
+	
+	/**
+	 * Optional priority index over the ids of the vertices, keyed by degree and by fill-in value. If enabled by
+	 * @see setPriorityIndex(boolean), the index is updated with every modification of the graph. The fill-in keys are
+	 * only exact while the edges in the neighborhoods are logged. The index is not serialized.
+	 */
+	private transient BucketQueue degreeIndex, fillInIndex;
+	
 	/**
 	 * Package private constructor, only initialize data structures.
 	 */
 	Graph() {
-//		adjacencyList = new HashMap<>();	
-		adjacencies = new HashMap<>();
-		edgesInNeighborhood = new HashMap<>();
+		core = new IntGraph();
+		index = new HashMap<>();
+		labels = new ArrayList<>();
+		edgesInNeighborhood = new int[16];
 		setLogEdgesInNeighbourhood(true);
 		isDirected = false;
 	}
 	
+	/**
+	 * Package private constructor that wraps an already constructed core. The i'th entry of the label list is
+	 * the vertex with id i, labels of ids that are not present in the core are ignored.
+	 * The number of edges in the neighborhoods are computed from the core.
+	 * @param core
+	 * @param vertexLabels
+	 */
+	Graph(IntGraph core, List<T> vertexLabels) {
+		this.core = core;
+		this.labels = new ArrayList<>(vertexLabels);
+		this.index = new HashMap<>(2*vertexLabels.size());
+		for (int v = 0; v < core.getCapacity(); v++) {
+			if (core.contains(v)) index.put(labels.get(v), v);
+		}
+		this.edgesInNeighborhood = new int[Math.max(16, core.getCapacity())];
+		this.isDirected = false;
+		computeEdgesInNeighborhood();
+		setLogEdgesInNeighbourhood(true);
+	}
+	
 	public Graph(Graph<T> original){
 		isDirected = original.isDirected;
 		setLogEdgesInNeighbourhood(original.isLogEdgesInNeighbourhood());
 		
-		adjacencies = new HashMap<>();
-		for(T v : original.adjacencies.keySet()){
-			adjacencies.put(v, new HashSet<>());
-			adjacencies.get(v).addAll(original.adjacencies.get(v));
+		core = new IntGraph(original.core);
+		index = original.index;
+		labels = original.labels;
+		sharedIndex = true;
+		original.sharedIndex = true;
+		edgesInNeighborhood = Arrays.copyOf(original.edgesInNeighborhood, original.edgesInNeighborhood.length);
+		if (original.hasPriorityIndex()) setPriorityIndex(true);
+	}
+	
+	/**
+	 * Returns the int id of the given vertex, or -1 if the vertex is not part of the graph.
+	 * The id can be used to access the underlying @see IntGraph.
+	 * @param v
+	 * @return the id of v
+	 */
+	public int indexOf(T v) {
+		Integer x = index.get(v);
+		return x != null && core.contains(x) ? x : -1;
+	}
+	
+	/**
+	 * Returns the vertex with the given id.
+	 * @param id
+	 * @return the vertex with this id
+	 */
+	public T vertexAt(int id) {
+		return labels.get(id);
+	}
+	
+	/**
+	 * Returns the int-indexed core of this graph. The core must only be read, all modifications have to be
+	 * performed with this class in order to keep the edge statistics consistent.
+	 * @return the core of the graph
+	 */
+	public IntGraph getIntGraph() {
+		return core;
+	}
+	
+	/**
+	 * Returns the id of v, adds v to the graph if it is not present.
+	 * @param v
+	 * @return the id of v
+	 */
+	private int indexOrAdd(T v) {
+		Integer x = index.get(v);
+		if (x == null) {
+			if (sharedIndex) {
+				index = new HashMap<>(index);
+				labels = new ArrayList<>(labels);
+				sharedIndex = false;
+			}
+			x = labels.size();
+			labels.add(v);
+			index.put(v, x);
 		}
-		edgesInNeighborhood = new HashMap<>();
-		for(T v : original.edgesInNeighborhood.keySet()){
-			edgesInNeighborhood.put(v,  original.edgesInNeighborhood.get(v));
+		if (!core.contains(x)) {
+			core.addVertex(x);
+			if (x >= edgesInNeighborhood.length) {
+				edgesInNeighborhood = Arrays.copyOf(edgesInNeighborhood, Math.max(x+1, 2*edgesInNeighborhood.length));
+			}
+			edgesInNeighborhood[x] = 0;
+			reindex(x);
 		}
-		m = original.m;
+		return x;
 	}
 	
 	/**
@@ -117,11 +206,15 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return Set the vertices of the represented graph
 	 */
 	public Set<T> getCopyOfVertices() {
-		return new HashSet<T>(adjacencies.keySet());
+		Set<T> vertices = new HashSet<T>(2*core.getNumVertices());
+		for (int v = 0; v < core.getCapacity(); v++) {
+			if (core.contains(v)) vertices.add(labels.get(v));
+		}
+		return vertices;
 	}
 	
 	public boolean containsNode(T v){
-		return adjacencies.containsKey(v);
+		return indexOf(v) >= 0;
 	}
 	
 	/**
@@ -130,8 +223,8 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 */
 	public int getMaxDegree() {
 		int max = Integer.MIN_VALUE;
-		for (T v : this) {
-			if (getNeighborhood(v).size() > max) max = getNeighborhood(v).size();
+		for (int v = 0; v < core.getCapacity(); v++) {
+			if (core.contains(v) && core.getDegree(v) > max) max = core.getDegree(v);
 		}
 		return max;
 	}
@@ -140,16 +233,20 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * Returns the neighborhood of the requested vertex.
 	 * This will return an empty list if the vertex is isolated and null if the vertex is not part
 	 * of the represented graph.
+	 * 
+	 * The returned set is a read-only view on the graph, i.e., it reflects later modifications of the graph.
 	 * @param v the requested vertex  
 	 * @return List the neighborhood of v
 	 */
 	public Set<T> getNeighborhood(T v) {
-		return adjacencies.get(v);
+		int x = indexOf(v);
+		if (x < 0) return null;
+		return new Neighborhood(x);
 	}
 	
 	
 	public List<T> getNeighbourhoodAsList(T v){
-		return new ArrayList(adjacencies.get(v));
+		return new ArrayList<>(getNeighborhood(v));
 	}
 	/**
 	 * Check if two vertices are adjacent
@@ -158,8 +255,10 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return
 	 */
 	public boolean isAdjacent(T u, T v) {
-		if (adjacencies.get(u) == null) return false;
-		return adjacencies.get(u).contains(v);
+		Integer x = index.get(u);
+		Integer y = index.get(v);
+		if (x == null || y == null) return false;
+		return core.isAdjacent(x, y);
 	}
 	
 	/**
@@ -168,11 +267,7 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @param v - the vertex to bed added
 	 */
 	public void addVertex(T v) {
-		if (adjacencies.get(v) == null) {
-//			adjacencyList.put(v, new ArrayList<T>());
-			adjacencies.put(v, new HashSet<>());
-			edgesInNeighborhood.put(v, 0);
-		}
+		indexOrAdd(v);
 	}
 	
 	/**
@@ -184,92 +279,119 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 */
 	public void addDirectedEdge(T u, T v) {
 		isDirected = true;
-		addHalfOfEdge(u, v);
-			
-	}
-	
-	
-	private void addHalfOfEdge(T u, T v){
-		addVertex(u);
-		addVertex(v);
-		if (adjacencies.get(u).contains(v)) return;
-		m++;
-		adjacencies.get(u).add(v);	
+		int x = indexOrAdd(u);
+		int y = indexOrAdd(v);
+		core.addArc(x, y);
+		reindex(x);
 	}
 	
 	/**
 	 * Adds an undirected edge {u,v} to the graph by adding the vertices to the neighborhood of the corresponding other vertex.
 	 * If u or v is not in the graph they will automatically be added.
 	 * 
-	 * This method costs \(O(\delta(u))\), as it updates the simplicial properties
+	 * This method costs \(O(\delta(u)+\delta(v))\), as it updates the simplicial properties
 	 * 
 	 * @param u - an endpoint of the edge
 	 * @param v - an endpoint of the edge
 	 */
 	public void addEdge(T u, T v) {
+		addEdge(indexOrAdd(u), indexOrAdd(v));
+	}
+	
+	/**
+	 * Adds an undirected edge between two present vertices given by their ids.
+	 * @param x
+	 * @param y
+	 */
+	private void addEdge(int x, int y) {
 		boolean updateEdgeStatistics = !isDirected;					// Do not log fill-values if this graph is undirected.
-		if(updateEdgeStatistics && adjacencies.get(u).contains(v))
+		if(updateEdgeStatistics && core.isAdjacent(x, y))
 			return;
 		// add symetric edge
-		addHalfOfEdge(u, v);
-		addHalfOfEdge(v, u);
+		core.addArc(x, y);
+		core.addArc(y, x);
 		
 		// update number of neighbor edges value
 		if(updateEdgeStatistics && logEdgesInNeighbourhood){
-			for (T x : getNeighborhood(u)) {
-				if (isAdjacent(x, v)) {
-					edgesInNeighborhood.put(x, edgesInNeighborhood.get(x)+1);
-					edgesInNeighborhood.put(u, edgesInNeighborhood.get(u)+1);
-					edgesInNeighborhood.put(v, edgesInNeighborhood.get(v)+1);
-				}
+			updateCommonNeighbors(x, y, 1);
+		}
+		reindex(x);
+		reindex(y);
+	}
+	
+	/**
+	 * Adds delta to the number of edges in the neighborhood of all common neighbors of x and y, as well as to x and y
+	 * for every common neighbor. This reflects the insertion (delta = 1) or removal (delta = -1) of the edge {x,y}.
+	 * @param x
+	 * @param y
+	 * @param delta
+	 */
+	private void updateCommonNeighbors(int x, int y, int delta) {
+		int[] a = core.adjacency(x), b = core.adjacency(y);
+		int i = core.adjacencyStart(x), j = core.adjacencyStart(y);
+		int iEnd = i + core.getDegree(x), jEnd = j + core.getDegree(y);
+		int common = 0;
+		while (i < iEnd && j < jEnd) {
+			if (a[i] == b[j]) {
+				edgesInNeighborhood[a[i]] += delta;
+				reindex(a[i]);
+				common++;
+				i++; j++;
+			} else if (a[i] < b[j]) {
+				i++;
+			} else {
+				j++;
 			}
 		}
+		edgesInNeighborhood[x] += delta*common;
+		edgesInNeighborhood[y] += delta*common;
 	}
 	
 	/**
 	 * Remove a given directed edge from the graph.
-	 * This method costs O(1), as operations are performed with hashing.
+	 * This method costs \(O(\delta(u))\), as the neighborhoods are stored as sorted arrays.
 	 * This method may be used from the outside, and will turn the graph into a directed graph. 
 	 * @param u
 	 * @param v
 	 */
 	public void removeDirectedEdge(T u, T v) {
 		isDirected = true;
-		removeHalfOfEdge(u, v);
+		int x = indexOf(u);
+		int y = indexOf(v);
+		if (x < 0 || y < 0) return;
+		core.removeArc(x, y);
+		reindex(x);
 	}
 	
 	/**
-	 * Internal method to remove a directed edge. 
-	 * As all undirected edges are represented by two directed edges, this method is used to remove both of the directed representants.
+	 * Remove a given edge from the graph.
 	 * @param u
 	 * @param v
 	 */
-	private void removeHalfOfEdge(T u, T v){
-		m--;
-		adjacencies.get(u).remove(v);
+	public void removeEdge(T u, T v) {
+		int x = indexOf(u);
+		int y = indexOf(v);
+		if (x < 0 || y < 0) return;
+		removeEdge(x, y);
 	}
 	
 	/**
-	 * Remove a given edge from the graph.
-	 * @param u
-	 * @param v
+	 * Removes the undirected edge between two present vertices given by their ids.
+	 * @param x
+	 * @param y
 	 */
-	public void removeEdge(T u, T v) {
+	private void removeEdge(int x, int y) {
 		
 		// remove symmetric edge
-		removeHalfOfEdge(u, v);
-		removeHalfOfEdge(v, u);
+		core.removeArc(x, y);
+		core.removeArc(y, x);
 		
 		// update number of neighbor edges value
 		if(logEdgesInNeighbourhood){
-			for (T x : getNeighborhood(u)) {
-				if (isAdjacent(x, v)) {
-					edgesInNeighborhood.put(x, edgesInNeighborhood.get(x)-1);
-					edgesInNeighborhood.put(u, edgesInNeighborhood.get(u)-1);
-					edgesInNeighborhood.put(v, edgesInNeighborhood.get(v)-1);
-				}
-			}
+			updateCommonNeighbors(x, y, -1);
 		}
+		reindex(x);
+		reindex(y);
 	}
 	
 	/**
@@ -277,7 +399,7 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return
 	 */
 	public int getNumberOfDirectedEdges() {
-		return m;
+		return core.getNumArcs();
 	}
 	
 	/**
@@ -286,7 +408,7 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return
 	 */
 	public int getNumberOfEdges() {
-		return m/2;
+		return core.getNumArcs()/2;
 	}
 	
 	/**
@@ -294,16 +416,25 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @param v
 	 */
 	public void removeVertex(T v) {
+		int x = indexOf(v);
+		if (x >= 0) removeVertex(x);
+	}
+	
+	/**
+	 * Remove a present vertex given by its id.
+	 * @param x
+	 */
+	private void removeVertex(int x) {
 		
 		// remove the edges from other vertices
-		for (T u : new ArrayList<>(getNeighborhood(v))) {
-			removeEdge(u, v);
+		for (int u : core.getNeighbors(x)) {
+			removeEdge(u, x);
 		}
 				
 		// actually remove the vertex
-//		adjacencyList.remove(v);
-		adjacencies.remove(v);
-		edgesInNeighborhood.remove(v);
+		core.removeVertex(x);
+		edgesInNeighborhood[x] = 0;
+		unindex(x);
 	}
 	
 	/**
@@ -322,17 +453,19 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 		ContractionInformation info = new ContractionInformation(v, w);
 		boolean oldLogEdges = logEdgesInNeighbourhood;			// If "logEdgesInNeighbourhood" was set to false by the greedy algorithm, this breaks the updates here. Use the old method for a while!
 		logEdgesInNeighbourhood = true;
+		int x = indexOf(v);
+		int y = indexOf(w);
 		// add the neighbors of w to N(v)
-		for (T u : getNeighborhood(w)) {
-			info.addEdges.add(u);
-			if (!u.equals(v) && !isAdjacent(u, v)) {
-				addEdge(u, v);
-				info.removeEdges.add(u);
+		for (int u : core.getNeighbors(y)) {
+			info.addEdges.add(labels.get(u));
+			if (u != x && !core.isAdjacent(u, x)) {
+				addEdge(u, x);
+				info.removeEdges.add(labels.get(u));
 			}
 		}
 		
 		// delete w
-		removeVertex(w);
+		removeVertex(y);
 		logEdgesInNeighbourhood = oldLogEdges;
 		// done
 		return info;
@@ -385,19 +518,23 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	public EliminationInformation eliminateVertex(T v) {
 
 		EliminationInformation info = new EliminationInformation(v);
+		int x = indexOf(v);
+		int[] N = core.getNeighbors(x);
+		
 		// make the neighborhood of v a clique
-		for (T u : getNeighborhood(v)) {
+		for (int i = 0; i < N.length; i++) {
+			T u = labels.get(N[i]);
 			info.addNeighbors(u);
-			for (T w : getNeighborhood(v)) {
-				if (u.compareTo(w) < 0 && !isAdjacent(u, w)) {
-					addEdge(u, w);
-					info.addEdge(u, w);
+			for (int j = i+1; j < N.length; j++) {
+				if (!core.isAdjacent(N[i], N[j])) {
+					addEdge(N[i], N[j]);
+					info.addEdge(u, labels.get(N[j]));
 				}
 			}
 		}
 
 		// delete the vertex
-		removeVertex(v);
+		removeVertex(x);
 		
 		return info;
 	}
@@ -448,16 +585,47 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 		
 	}
 	
+	/**
+	 * Computes the number of edges in the neighborhood of every vertex from scratch, i.e., the number of triangles
+	 * every vertex is contained in. Every triangle \(u<v<w\) is found exactly once by marking N(u) and scanning the
+	 * neighbors w>v of every neighbor v>u, which uses that the neighborhoods are sorted.
+	 */
+	void computeEdgesInNeighborhood() {
+		Arrays.fill(edgesInNeighborhood, 0);
+		int[] mark = new int[core.getCapacity()];
+		Arrays.fill(mark, -1);
+		for (int u = 0; u < core.getCapacity(); u++) {
+			if (!core.contains(u)) continue;
+			int[] a = core.adjacency(u);
+			int start = core.adjacencyStart(u), end = start + core.getDegree(u);
+			for (int i = start; i < end; i++) mark[a[i]] = u;
+			for (int i = end-1; i >= start && a[i] > u; i--) {
+				int v = a[i];
+				int[] b = core.adjacency(v);
+				int lStart = core.adjacencyStart(v);
+				for (int l = lStart + core.getDegree(v) - 1; l >= lStart && b[l] > v; l--) {
+					int w = b[l];
+					if (mark[w] == u) {
+						edgesInNeighborhood[u]++;
+						edgesInNeighborhood[v]++;
+						edgesInNeighborhood[w]++;
+					}
+				}
+			}
+		}
+		if (hasPriorityIndex()) setPriorityIndex(true);
+	}
 	
 	public T checkFillValues(){
-		for(T v : getCopyOfVertices()){
+		for(T v : this){
+			int x = indexOf(v);
 			int tmp = 0;
 			for(T u1 : getNeighborhood(v))
 				for(T u2 : getNeighborhood(v))
 					if(u1.compareTo(u2) < 0 && isAdjacent(u1, u2))
 						tmp++;
-			if(edgesInNeighborhood.get(v) != tmp){
-				LOG.info("Edges in neighbourhood were not counted correctly! Counted " + tmp + ", but stored " + edgesInNeighborhood.get(v));
+			if(edgesInNeighborhood[x] != tmp){
+				LOG.info("Edges in neighbourhood were not counted correctly! Counted " + tmp + ", but stored " + edgesInNeighborhood[x]);
 				LOG.info("Node was " + v);
 				StringBuilder sb = new StringBuilder();
 				for(T u : getNeighborhood(v))
@@ -478,9 +646,9 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 			for(T u1 : commonNeighbours)
 				for(T u2 : commonNeighbours)
 					if(u1.compareTo(u2) < 0)
-						if(!adjacencies.get(u1).contains(u2))
+						if(!isAdjacent(u1, u2))
 							fillDecrease++;
-			predicedValues.put(u, edgesInNeighborhood.get(u) + fillDecrease);
+			predicedValues.put(u, edgesInNeighborhood[indexOf(u)] + fillDecrease);
 		}
 	}
 	/**
@@ -493,17 +661,19 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	public EliminationInformation eliminateSimplicialVertex(T v, boolean updateFillValues){
 		EliminationInformation info = new EliminationInformation(v);
 		
-		int degree = adjacencies.get(v).size();
+		int x = indexOf(v);
+		int degree = core.getDegree(x);
 		int reduce = degree -1;
 		// Create the eliminiation information, and reduce the 
-		for (T u : getNeighborhood(v)) {
-			info.addNeighbors(u);
-			edgesInNeighborhood.put(u, edgesInNeighborhood.get(u)-reduce);
+		for (int u : core.getNeighbors(x)) {
+			info.addNeighbors(labels.get(u));
+			edgesInNeighborhood[u] -= reduce;
+			reindex(u);
 		}
 
 		// delete the vertex
 		setLogEdgesInNeighbourhood(false);
-		removeVertex(v);
+		removeVertex(x);
 		
 		return info;
 	}
@@ -537,7 +707,7 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 			Set<T> neighbourhood = getNeighborhood(v);
 			int reduce = neighbourhood.size()-1;
 			for(T u : neighbourhood)
-				edgesInNeighborhood.put(u, edgesInNeighborhood.get(u)-reduce);	
+				setNumEdgesInNeighbourhood(u, edgesInNeighborhood[indexOf(u)] - reduce);
 			EliminationInformation ret = eliminateVertex(v);
 			return ret;
 		}
@@ -594,7 +764,7 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 							nodeList.addAll(N_e.get(u));
 							for(int i = 0 ; i < nodeList.size();i++){
 								for(int j = i+1 ; j < nodeList.size();j++)
-									if(adjacencies.get(nodeList.get(i)).contains(nodeList.get(j)))
+									if(isAdjacent(nodeList.get(i), nodeList.get(j)))
 										missing--;
 							}
 							newFill -= missing;
@@ -637,9 +807,9 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 //				for(T u1 : commonNeighbours)
 //					for(T u2 : commonNeighbours)
 //						if(u1.compareTo(u2) < 0)
-//							if(!adjacencies.get(u1).contains(u2))
+//							if(!isAdjacent(u1, u2))
 //								fillDecrease++;
-//				predicedValues.put(u, edgesInNeighborhood.get(u) + fillDecrease);
+//				predicedValues.put(u, edgesInNeighborhood[indexOf(u)] + fillDecrease);
 //			}
 			int numEdgesBefore = getNumberOfEdges();
 			int predictedFill = getFillInValue(v);
@@ -652,14 +822,14 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 			for(java.util.Map.Entry<T, Integer> e : predicedValues.entrySet()){
 				if(e.getKey().equals(v))
 					throw new RuntimeException();
-				edgesInNeighborhood.put(e.getKey(), e.getValue().intValue());
+				setNumEdgesInNeighbourhood(e.getKey(), e.getValue().intValue());
 			}
 			// DEBUG: Check that all fill values are correct! 
 //			checkFillValues();
 			
 			// DEBUG: Check that predicted values are correct
 			for(java.util.Map.Entry<T, Integer> e : predicedValues.entrySet()){
-				if(e.getValue().intValue() != edgesInNeighborhood.get(e.getKey()).intValue())
+				if(e.getValue().intValue() != edgesInNeighborhood[indexOf(e.getKey())])
 					throw new RuntimeException();
 			}
 			
@@ -679,6 +849,94 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	}
 	
 	
+	/**
+	 * Returns the current position of the elimination trail. Passing this value to @see undoTrail(int) will undo
+	 * all eliminations that are performed on the trail afterwards.
+	 * @return the size of the trail
+	 */
+	public int getTrailPosition() {
+		return trail == null ? 0 : trail.size();
+	}
+	
+	/**
+	 * Eliminates the vertex v, i.e., makes its neighborhood a clique and deletes it, and records the elimination
+	 * on the elimination trail. In contrast to @see eliminateVertex(T), no objects are allocated: the neighborhood
+	 * and the fill edges are stored as int ranges on the trail.
+	 * @param v the vertex to be eliminated
+	 * @return the degree of v at the time of the elimination
+	 */
+	public int eliminateVertexOnTrail(T v) {
+		return eliminateOnTrail(indexOf(v));
+	}
+	
+	/**
+	 * Eliminates the present vertex with the given id and records the elimination on the trail.
+	 * @param x
+	 * @return the degree of x at the time of the elimination
+	 */
+	private int eliminateOnTrail(int x) {
+		if (trail == null) trail = new IntVector();
+		int d = core.getDegree(x);
+		int start = trail.size();
+		
+		// store N(x) on the trail
+		int[] a = core.adjacency(x);
+		int s = core.adjacencyStart(x);
+		for (int i = 0; i < d; i++) trail.push(a[s+i]);
+		
+		// make the neighborhood a clique, the fill edges are stored as pairs
+		int fill = 0;
+		for (int i = 0; i < d; i++) {
+			int u = trail.get(start+i);
+			for (int j = i+1; j < d; j++) {
+				int w = trail.get(start+j);
+				if (!core.isAdjacent(u, w)) {
+					addEdge(u, w);
+					trail.push(u);
+					trail.push(w);
+					fill++;
+				}
+			}
+		}
+		
+		// delete the vertex
+		for (int i = 0; i < d; i++) removeEdge(trail.get(start+i), x);
+		core.removeVertex(x);
+		unindex(x);
+		
+		// header of the record
+		trail.push(d);
+		trail.push(fill);
+		trail.push(x);
+		return d;
+	}
+	
+	/**
+	 * Undo all eliminations that were recorded on the elimination trail after the given position, i.e., the trail
+	 * is truncated to the given position. The position has to be obtained by @see getTrailPosition().
+	 * @param position
+	 */
+	public void undoTrail(int position) {
+		while (getTrailPosition() > position) {
+			int top = trail.size();
+			int x = trail.get(top-1);
+			int fill = trail.get(top-2);
+			int d = trail.get(top-3);
+			int fillStart = top - 3 - 2*fill;
+			int start = fillStart - d;
+			
+			// remove the fill edges
+			for (int i = fillStart; i < fillStart + 2*fill; i += 2) removeEdge(trail.get(i), trail.get(i+1));
+			
+			// add the vertex and its edges
+			core.addVertex(x);
+			reindex(x);
+			for (int i = start; i < fillStart; i++) addEdge(x, trail.get(i));
+			
+			trail.truncate(start);
+		}
+	}
+	
 	/**
 	 * Undo the elimination of a vertex.
 	 * @param info
@@ -739,36 +997,88 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	
 	/**
 	 * Returns an iterator over the vertices of this graph.
+	 * The iterator works on a snapshot of the vertex set, i.e., the graph may be modified during the iteration.
 	 * @return vertex Iterator
 	 */
 	@Override
 	public Iterator<T> iterator() {
-		return new GraphVertexIterator<T>(this);
+		return new GraphVertexIterator();
 	}
 	
 	/**
 	 * An iterator to iterate over the vertices of a graph object.
-	 * @param <Z>
+	 * It iterates over a snapshot of the ids that are present when the iterator is created.
 	 */
-	class GraphVertexIterator<Z extends Comparable<Z>> implements Iterator<Z> {
+	class GraphVertexIterator implements Iterator<T> {
 
-		private final Iterator<Z> itr;
+		private final int[] ids;
+		private final List<T> vertexLabels;
+		private int next;
 		
-		GraphVertexIterator(Graph<Z> G) {
-			itr = G.getCopyOfVertices().iterator();
+		GraphVertexIterator() {
+			ids = new int[core.getNumVertices()];
+			int i = 0;
+			for (int v = 0; v < core.getCapacity(); v++) {
+				if (core.contains(v)) ids[i++] = v;
+			}
+			vertexLabels = labels;
+			next = 0;
 		}
 		
 		@Override
 		public boolean hasNext() {
-			return itr.hasNext();
+			return next < ids.length;
 		}
 
 		@Override
-		public Z next() {
-			return itr.next();
+		public T next() {
+			if (next >= ids.length) throw new NoSuchElementException();
+			return vertexLabels.get(ids[next++]);
 		}		
 	}
 	
+	/**
+	 * A read-only view on the neighborhood of a vertex, backed by the core of the graph.
+	 */
+	private class Neighborhood extends AbstractSet<T> {
+		
+		/** The id of the vertex of which this is the neighborhood. */
+		private final int x;
+		
+		Neighborhood(int x) {
+			this.x = x;
+		}
+		
+		@Override
+		public int size() {
+			return core.getDegree(x);
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			Integer y = index.get(o);
+			return y != null && core.isAdjacent(x, y);
+		}
+		
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+				private int i = 0;
+				
+				@Override
+				public boolean hasNext() {
+					return i < core.getDegree(x);
+				}
+				
+				@Override
+				public T next() {
+					if (i >= core.getDegree(x)) throw new NoSuchElementException();
+					return labels.get(core.getNeighbor(x, i++));
+				}
+			};
+		}
+	}
+	
 	/**
 	 * Returns the number of edges the elimination operation on v will introduce to the graph.
 	 * This method works in O(1) as the data is computed during graph modification.
@@ -776,10 +1086,11 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return
 	 */
 	public int getFillInValue(T v) {
-		int delta = getNeighborhood(v).size();
+		int x = indexOf(v);
+		int delta = core.getDegree(x);
 		if(isDirected)
 			LOG.warning("Requesting fill-values of a directed graph!");
-		return (delta*delta-delta)/2 - edgesInNeighborhood.get(v);
+		return (delta*delta-delta)/2 - edgesInNeighborhood[x];
 	}
 	
 	
@@ -789,10 +1100,12 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return
 	 */
 	public T getSimplicialVertex(Set<T> forbidden) {
-		for (T v : this) {
+		for (int x = 0; x < core.getCapacity(); x++) {
+			if (!core.contains(x)) continue;
+			T v = labels.get(x);
 			if (forbidden.contains(v)) continue;
-			int delta = getNeighborhood(v).size();
-			if (edgesInNeighborhood.get(v) == (delta*delta-delta)/2) {
+			int delta = core.getDegree(x);
+			if (edgesInNeighborhood[x] == (delta*delta-delta)/2) {
 				return v;
 			}
 			
@@ -841,25 +1154,29 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	public List<Set<T>> getConnectedComponents() {
 		List<Set<T>> connectedComponents = new LinkedList<>();
 		
-		Set<T> marked = new HashSet<>();
-		for (T v : this) {
-			if (marked.contains(v)) continue;
+		boolean[] marked = new boolean[core.getCapacity()];
+		int[] stack = new int[core.getNumVertices()];
+		for (int v = 0; v < core.getCapacity(); v++) {
+			if (!core.contains(v) || marked[v]) continue;
 			
 			/* found new connected component */
 			Set<T> component = new HashSet<>();
-			component.add(v);
-			marked.add(v);
+			component.add(labels.get(v));
+			marked[v] = true;
 			
 			/* Explore the component using DFS */
-			Stack<T> S = new Stack<>();
-			S.push(v);
-			while (!S.isEmpty()) {
-				T s = S.pop();
-				for (T t : getNeighborhood(s)) {
-					if (!marked.contains(t)) {
-						marked.add(t);
-						component.add(t);
-						S.push(t);
+			int top = 0;
+			stack[top++] = v;
+			while (top > 0) {
+				int s = stack[--top];
+				int[] a = core.adjacency(s);
+				int start = core.adjacencyStart(s);
+				for (int i = start; i < start + core.getDegree(s); i++) {
+					int t = a[i];
+					if (!marked[t]) {
+						marked[t] = true;
+						component.add(labels.get(t));
+						stack[top++] = t;
 					}
 				}
 			}
@@ -877,18 +1194,14 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	 * @return whether the graph is a clique
 	 */
 	public boolean isClique(){
-		boolean res = true;
-		for(T v: getCopyOfVertices()){
-			for(T u: getCopyOfVertices()){
-				if(u != v && !isAdjacent(u,v)){
-					res = false;
-				}
-			}
+		int n = core.getNumVertices();
+		for (int v = 0; v < core.getCapacity(); v++) {
+			if (core.contains(v) && core.getDegree(v) != n-1) return false;
 		}
-		return res;
+		return true;
 	}
 	public int getNumVertices(){
-		return adjacencies.keySet().size();
+		return core.getNumVertices();
 	}
 
 	public boolean isLogEdgesInNeighbourhood() {
@@ -900,10 +1213,93 @@ public class Graph<T extends Comparable<T>> implements Iterable<T>, Serializable
 	}
 	
 	public void setNumEdgesInNeighbourhood(T v, int newVal){
-		if(edgesInNeighborhood.containsKey(v) == false)
+		int x = indexOf(v);
+		if(x < 0)
 			throw new RuntimeException("This vertex does not exists! ");
-		edgesInNeighborhood.put(v, newVal);
-		
+		edgesInNeighborhood[x] = newVal;
+		reindex(x);
+	}
+	
+	/**
+	 * Enables or disables the priority index of the graph. While enabled, the vertices are kept in buckets by their
+	 * degree and by their fill-in value, which are updated on every modification of the graph (including eliminations
+	 * and contractions). This allows to query a vertex of minimum degree or fill-in in O(1), at the cost of a
+	 * constant overhead for every modification. Enabling an already enabled index rebuilds it.
+	 * @param enabled
+	 */
+	public void setPriorityIndex(boolean enabled) {
+		if (!enabled) {
+			degreeIndex = null;
+			fillInIndex = null;
+			return;
+		}
+		int capacity = Math.max(16, core.getCapacity());
+		degreeIndex = new BucketQueue(capacity, capacity);
+		fillInIndex = new BucketQueue(capacity, capacity);
+		for (int x = 0; x < core.getCapacity(); x++) {
+			if (core.contains(x)) reindex(x);
+		}
+	}
+	
+	/**
+	 * @return true if the priority index is enabled
+	 */
+	public boolean hasPriorityIndex() {
+		return degreeIndex != null;
+	}
+	
+	/**
+	 * Returns a vertex of minimum degree, ties are broken uniformly at random.
+	 * Requires the priority index, @see setPriorityIndex(boolean).
+	 * @return a vertex of minimum degree, or null if the graph is empty
+	 */
+	public T getMinDegreeVertex() {
+		return getMinDegreeVertex(0);
+	}
+	
+	/**
+	 * Returns a vertex of minimum degree among the vertices with degree at least the given bound, ties are broken
+	 * uniformly at random. Requires the priority index, @see setPriorityIndex(boolean).
+	 * @param atLeast lower bound on the degree of the returned vertex
+	 * @return a vertex of minimum degree >= atLeast, or null if there is no such vertex
+	 */
+	public T getMinDegreeVertex(int atLeast) {
+		if (degreeIndex == null) throw new RuntimeException("The priority index of the graph is not enabled!");
+		int x = degreeIndex.getRandom(degreeIndex.getMinKey(atLeast));
+		return x < 0 ? null : labels.get(x);
+	}
+	
+	/**
+	 * Returns a vertex of minimum fill-in value, ties are broken uniformly at random.
+	 * Requires the priority index, @see setPriorityIndex(boolean), and that the edges in the neighborhoods are logged.
+	 * @return a vertex of minimum fill-in value, or null if the graph is empty
+	 */
+	public T getMinFillInVertex() {
+		if (fillInIndex == null) throw new RuntimeException("The priority index of the graph is not enabled!");
+		int x = fillInIndex.getMinRandom();
+		return x < 0 ? null : labels.get(x);
+	}
+	
+	/**
+	 * Updates the keys of the present vertex x in the priority index, if the index is enabled.
+	 * The fill-in key is clamped at zero, as it may be out of date if the edges in the neighborhoods are not logged.
+	 * @param x
+	 */
+	private void reindex(int x) {
+		if (degreeIndex == null) return;
+		int delta = core.getDegree(x);
+		degreeIndex.update(x, delta);
+		fillInIndex.update(x, Math.max(0, (delta*delta-delta)/2 - edgesInNeighborhood[x]));
+	}
+	
+	/**
+	 * Removes x from the priority index, if the index is enabled.
+	 * @param x
+	 */
+	private void unindex(int x) {
+		if (degreeIndex == null) return;
+		degreeIndex.remove(x);
+		fillInIndex.remove(x);
 	}
 	
 }
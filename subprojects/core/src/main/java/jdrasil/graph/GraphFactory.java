@@ -20,16 +20,21 @@ package jdrasil.graph;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.ObjectInputStream.GetField;
+import java.nio.channels.Channels;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import jdrasil.utilities.JdrasilProperties;
@@ -77,9 +82,12 @@ public class GraphFactory {
 	 */
 	public static Graph<Integer> graphFromBufferedReaderGR(BufferedReader in) throws IOException {
 		
-		// create a "fresh" graph
-		Graph<Integer> G = new Graph<>();
-		G.setLogEdgesInNeighbourhood(false);
+		// the edges are collected as int arrays, the graph is build in one step afterwards
+		int n = 0;
+		int m = 0;
+		int[] tails = new int[1024];
+		int[] heads = new int[1024];
+		
 		// read the graph
 		String line = "";
 		String[] ll;
@@ -88,13 +96,15 @@ public class GraphFactory {
 			ll = line.split(" ");
 			if (ll[0].equals("c")) { continue; } // we do not handle comments
 			if (ll[0].equals("p")) { 
-				int n = Integer.parseInt(ll[2]);
-				
-				// create vertices {1,...n}, this is required as .dimacs can contain isolated vertices
-				for (int v = 1; v <= n; v++) {
-					G.addVertex(v);					
-				}		
-				
+				// vertices {1,...n} are created, this is required as .dimacs can contain isolated vertices
+				n = Math.max(n, Integer.parseInt(ll[2]));
+				if (ll.length > 3) { // the number of edges is optional and only used as (capped) capacity hint
+					int edges = Math.min(Integer.parseInt(ll[3]), GraphReader.MAX_EDGE_HINT);
+					if (edges > tails.length) {
+						tails = Arrays.copyOf(tails, edges);
+						heads = Arrays.copyOf(heads, edges);
+					}
+				}
 				continue;
 			} 
 			
@@ -116,12 +126,64 @@ public class GraphFactory {
 				u = Integer.parseInt(ll[0]);
 				v = Integer.parseInt(ll[1]);	
 			}
-			G.addEdge(u, v);
+			if (m == tails.length) {
+				tails = Arrays.copyOf(tails, 2*m);
+				heads = Arrays.copyOf(heads, 2*m);
+			}
+			tails[m] = u;
+			heads[m] = v;
+			m++;
 		}
 		
 		// done
-		getFillValues(G);
-		G.setLogEdgesInNeighbourhood(true);		// Set it to true - if it's not needed, it can be disabled lateron
+		return graphFromEdgeList(n, tails, heads, m);
+	}
+	
+	/**
+	 * Constructs a graph with vertices \(\{1,\dots,n\}\) from an edge list given as two int arrays. Vertices larger
+	 * than n that appear in the edge list are added as well. The graph is directly build in the compact layout of
+	 * @see IntGraph, where vertex v gets id v-1.
+	 * @param n the number of vertices
+	 * @param tails the first endpoints of the edges
+	 * @param heads the second endpoints of the edges
+	 * @param m the number of edges stored in the arrays
+	 * @return A graph object with the graph (vertices are integer)
+	 */
+	static Graph<Integer> graphFromEdgeList(int n, int[] tails, int[] heads, int m) {
+		long t = System.currentTimeMillis();
+		
+		// vertices of the edge list that are larger then n
+		int maxVertex = n;
+		for (int i = 0; i < m; i++) {
+			maxVertex = Math.max(maxVertex, Math.max(tails[i], heads[i]));
+		}
+		boolean[] present = new boolean[maxVertex];
+		Arrays.fill(present, 0, n, true);
+		
+		// shift the vertices to ids
+		for (int i = 0; i < m; i++) {
+			tails[i]--;
+			heads[i]--;
+			present[tails[i]] = true;
+			present[heads[i]] = true;
+		}
+		IntGraph core = IntGraph.fromArcs(maxVertex, tails, heads, m, true);
+		for (int v = n; v < maxVertex; v++) {
+			if (!present[v]) core.removeVertex(v);
+		}
+		List<Integer> labels = new ArrayList<>(maxVertex);
+		for (int v = 1; v <= maxVertex; v++) labels.add(v);
+		Graph<Integer> G = new Graph<>(core, labels);
+		LOG.info("Time for creating the graph: " + (System.currentTimeMillis()-t));
+		
+		if(JdrasilProperties.containsKey("debug")){
+			t = System.currentTimeMillis();
+			Integer toCheck =  G.checkFillValues();
+			if(toCheck != null){
+				LOG.info("Checking " + toCheck + " with fill-value " + G.getFillInValue(toCheck));
+			}
+			LOG.info("Checking the fill-values took time " + (System.currentTimeMillis()-t));
+		}
 		return G;
 	}
 
@@ -136,13 +198,8 @@ public class GraphFactory {
 	 */
 	public static Graph<Integer> graphFromGr(File grFile) throws IOException {
 		
-		// read the graph
-		BufferedReader in = new BufferedReader(new FileReader(grFile));
-		Graph<Integer> G = graphFromBufferedReaderGR(in);
-		in.close();
-		
-		// done
-		return G;
+		// the file is mapped into memory and parsed on the byte level
+		return GraphReader.read(grFile);
 	}
 	
 	/**
@@ -155,15 +212,63 @@ public class GraphFactory {
 	 */
 	public static Graph<Integer> graphFromStdin() throws IOException {
 		
-		// read the graph
-		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
-		Graph<Integer> G = graphFromBufferedReaderGR(in);
-		in.close();
-		
-		// done
-		return G;
+		// stdin is read in chunks into a direct buffer and parsed on the byte level
+		return GraphReader.read(new FileInputStream(FileDescriptor.in).getChannel());
+	}
+
+	/**
+	 * Construct a graph from the content of a .gr file read from the given stream, which is not closed.
+	 * 
+	 * This method can also be used to parse .dgf files.
+	 * 
+	 * @param in the stream containing the graph
+	 * @return A graph object with the graph (vertices are integer)
+	 * @throws IOException if the stream could not be read or is not correct encoded
+	 */
+	public static Graph<Integer> graphFromStream(InputStream in) throws IOException {
+		return GraphReader.read(Channels.newChannel(in));
+	}
+
+	/**
+	 * Reads a sequence of concatenated .gr (or .dgf) files from stdin, where every p-line starts a new graph.
+	 * Each graph is handed to the consumer as soon as it is read, i.e., while the rest of the stream is still pending.
+	 *
+	 * @param consumer that receives the graphs in the order of the stream
+	 * @return the number of graphs read
+	 * @throws IOException if stdin could not be read or is not correct encoded
+	 */
+	public static int graphsFromStdin(Consumer<Graph<Integer>> consumer) throws IOException {
+		return GraphReader.readAll(new FileInputStream(FileDescriptor.in).getChannel(), consumer);
 	}
 	
+	/**
+	 * Loads a graph that was written with @see GraphWriter#writeBinaryGraph. The file is mapped into memory and the
+	 * graph is build directly from the decoded adjacencies, which is much faster than parsing a .gr file. This makes
+	 * the format useful to store intermediate graphs, as for instance reduced graphs of the preprocessing.
+	 *
+	 * @param file - the file storing the graph
+	 * @return A graph object with the graph (vertices are integer)
+	 * @throws IOException if the file was not found or is not a binary graph
+	 */
+	public static Graph<Integer> graphFromBinary(File file) throws IOException {
+		long t = System.currentTimeMillis();
+		Graph<Integer> G = GraphReader.readBinary(file);
+		LOG.info("Time for loading the binary graph: " + (System.currentTimeMillis()-t));
+		return G;
+	}
+
+	/**
+	 * Loads a tree decomposition that was written with @see GraphWriter#writeBinaryTreeDecomposition.
+	 *
+	 * @param file - the file storing the decomposition
+	 * @param graph - the graph that is decomposed
+	 * @return the tree decomposition
+	 * @throws IOException if the file was not found or is not a binary tree decomposition
+	 */
+	public static TreeDecomposition<Integer> treeDecompositionFromBinary(File file, Graph<Integer> graph) throws IOException {
+		return GraphReader.readBinaryTreeDecomposition(file, graph);
+	}
+
 	/**
 	 * Given a graph and a subgraph of it (in form of a set of vertices), this method computes a new graph object
 	 * representing the subgraph. The vertices in this graph are the same objects as in the original graph.
@@ -173,25 +278,43 @@ public class GraphFactory {
 	 */
 	public static <T extends Comparable<T>> Graph<T> graphFromSubgraph(Graph<T> graph, Set<T> subgraph) {
 		
-		// create a fresh graph
-		Graph<T> G = new Graph<>();
+		// the vertices of the subgraph get the ids {0,...,|subgraph|-1}
+		List<T> labels = new ArrayList<>(subgraph);
+		int k = labels.size();
+		Map<T, Integer> local = new HashMap<>(2*k);
+		for (int i = 0; i < k; i++) local.put(labels.get(i), i);
 		
-		// add vertices of the component to G
-		for (T v : subgraph) {
-			G.addVertex(v);
-		}
-		
-		// add edges of the component to G
-		for (T v : subgraph) {
-			for (T w: subgraph) {
-				if (v.compareTo(w) < 0 && graph.isAdjacent(v, w)) {
-					G.addEdge(v, w);
+		// collect the edges of the subgraph, either from the neighborhood or from the subgraph (whatever is smaller)
+		IntGraph core = graph.getIntGraph();
+		int m = 0;
+		int[] tails = new int[16];
+		int[] heads = new int[16];
+		for (int i = 0; i < k; i++) {
+			int x = graph.indexOf(labels.get(i));
+			if (x < 0) continue;
+			int degree = core.getDegree(x);
+			for (int l = 0; l < Math.min(degree, k); l++) {
+				int j = l;
+				if (degree <= k) {
+					Integer y = local.get(graph.vertexAt(core.getNeighbor(x, l)));
+					if (y == null) continue;
+					j = y;
+				} else if (!graph.isAdjacent(labels.get(i), labels.get(j))) {
+					continue;
+				}
+				if (j <= i) continue;
+				if (m == tails.length) {
+					tails = Arrays.copyOf(tails, 2*m);
+					heads = Arrays.copyOf(heads, 2*m);
 				}
+				tails[m] = i;
+				heads[m] = j;
+				m++;
 			}
 		}
 		
 		// done
-		return G;
+		return new Graph<>(IntGraph.fromArcs(k, tails, heads, m, true), labels);
 	}
 	
 	/**
@@ -218,124 +341,4 @@ public class GraphFactory {
 //		return copy;
 	}
 	
-	/**
-	 * Compute the size of the intersection of two arraylists of Integers. This assumes that they are sorted.
-	 */
-	private static int getSizeOfIntersection(ArrayList<Integer> a1, ArrayList<Integer> a2, int[] countAt){
-		int ret = 0;
-		int i1=0;
-		int i2=0;
-		while(i1 < a1.size() && i2 < a2.size()){
-			if(a1.get(i1).equals(a2.get(i2))){
-				countAt[a1.get(i1)]++;
-				i1++;
-				i2++;
-			}
-			else if(a1.get(i1).compareTo(a2.get(i2)) < 0)
-				i1++;
-			else
-				i2++;
-		}
-		return ret;
-	}
-	/**
-	 * Compute the intersection of two arrays of ints. Used for updating the number of edges in the neighbourhood of the graph. 
-	 * @param a1
-	 * @param a2
-	 * @param countAt
-	 * @return
-	 */
-	private static int getSizeOfIntersection(int[] a1, int[] a2, int[] countAt){
-		int ret = 0;
-		int i1=0;
-		int i2=0;
-		while(i1 < a1.length && i2 < a2.length){
-			if(a1[i1] == a2[i2]){
-				countAt[a1[i1]]++;
-				i1++;
-				i2++;
-			}
-			else if(a1[i1] < a2[i2]) 
-				i1++;
-			else
-				i2++;
-		}
-		return ret;
-	}
-	
-	private static void getFillValues(Graph<Integer> graph){
-		// Get the adjacency list as integers
-		ArrayList<int[]> myAdArrays = new ArrayList<>();
-//		ArrayList<ArrayList<Integer>> myAdLists = new ArrayList<>();
-		for(int i = 0 ; i <= graph.getNumVertices()+1 ; i++){
-			myAdArrays.add(null);
-//			myAdLists.add(new ArrayList<>());
-		}
-		long t = System.currentTimeMillis();
-		for(int node : graph.getCopyOfVertices()){
-			Set<Integer> out_edges = graph.getNeighborhood(node);
-			myAdArrays.set(node, new int[out_edges.size()]);
-			int index = 0;
-			for(int out : out_edges)
-				myAdArrays.get(node)[index++]=out;
-//			myAdLists.get(node).addAll(out_edges);  
-			
-		}
-//		int[] count1 = new int[graph.getNumVertices()+1];
-		int[] count2 = new int[graph.getNumVertices()+1];
-		
-		
-		LOG.info("Time for creating the arrays: " + (System.currentTimeMillis()-t));
-		t = System.currentTimeMillis();
-		for(int[] e : myAdArrays)
-			if(e != null)
-				Arrays.sort(e);
-//		for(ArrayList<Integer> l : myAdLists)
-//			Collections.sort(l);
-		LOG.info("Time for sorting: " + (System.currentTimeMillis()-t));
-		t = System.currentTimeMillis();
-		Set<Integer> nodes = graph.getCopyOfVertices();
-//		for(Integer i : nodes){
-//			for(Integer v : graph.getNeighborhood(i)){
-//				if(v.compareTo(i) < 0){
-//					getSizeOfIntersection(myAdLists.get(i), myAdLists.get(v), count1);
-//				}
-//			}
-//		}
-//		LOG.info("Time for the array-list-version: " + (System.currentTimeMillis()-t));
-		t = System.currentTimeMillis();
-		for(Integer i : nodes){
-			for(Integer v : graph.getNeighborhood(i)){
-				if(v.compareTo(i) < 0){
-					getSizeOfIntersection(myAdArrays.get(i), myAdArrays.get(v), count2);
-				}
-			}
-		}
-		LOG.info("Time for the version on arrays: " + (System.currentTimeMillis()-t));
-		
-//		for(int i = 0 ; i < count1.length ; i++){
-//			if(count1[i] != count2[i]){
-//				throw new RuntimeException("i=" + i +  ",count-values were different???"  + count1[i] + " - " + count2[i]);
-//			}
-//		}
-//		LOG.info("Results were equal! ");
-		for(Integer v : nodes)
-			graph.setNumEdgesInNeighbourhood(v, count2[v]);
-		if(JdrasilProperties.containsKey("debug")){
-			t = System.currentTimeMillis();
-			Integer toCheck =  graph.checkFillValues();
-			if(toCheck != null){
-				LOG.info("Checking " + toCheck + " with fill-value " + count2[toCheck]);
-				for(Integer u : graph.getNeighborhood(toCheck)){
-					StringBuilder sb = new StringBuilder("Neighbour " + u + " with adjacencies ");
-					int[] n = myAdArrays.get(u);
-					for(int i : n)
-						sb.append(i + " ");
-					LOG.info(sb.toString());
-				}
-			}
-			LOG.info("Checking the fill-values took time " + (System.currentTimeMillis()-t));
-		}
-	}
-	
 }
@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A byte level parser for .gr files (as defined by PACE) and .dgf files. The input is either memory-mapped or read
+ * through a direct buffer, and the integers are scanned directly from the bytes, i.e., no Strings are created.
+ * The edges are collected in int arrays and the graph is build in one step by @see GraphFactory#graphFromEdgeList.
+ *
+ * The parser is line based and handles the same lines as @see GraphFactory#graphFromBufferedReaderGR: empty lines,
+ * comments (c) and the additional information of .dgf files (n, d, v, x, b, l) are skipped, the p-line defines the
+ * number of vertices, and every other line is an edge given either as "u v" or as "e u v". Further tokens of an
+ * edge line are ignored.
+ *
+ * A channel may also contain a sequence of concatenated graphs (@see #readAll), in which case every p-line starts a
+ * new graph.
+ *
+ * Furthermore, the reader handles a compact binary format for graphs and tree decompositions with integer vertices,
+ * which is written by @see GraphWriter#writeBinaryGraph and @see GraphWriter#writeBinaryTreeDecomposition. Both
+ * start with a four byte magic word and a version byte, all further numbers are varints (@see ByteWriter#writeVarint):
+ *   - graph: n, m, the sorted vertices as gaps (the first one zigzag encoded), and then for every vertex (in this
+ *     order) the number of larger neighbors followed by their gaps (starting at the position of the vertex);
+ *   - decomposition: number of bags, width+1, n, every bag as its size and its sorted vertices as gaps (the first
+ *     one zigzag encoded), and finally the number of tree edges followed by the edges {a,b} with a smaller than b,
+ *     sorted by a and stored as gap to the previous a and b-a. Bags are identified by their position, starting at 1.
+ * Since the whole input consists of small varints, it is usually several times smaller than the text formats and can
+ * be loaded without any parsing of tokens.
+ *
+ * @author Max Bannach
+ */
+final class GraphReader {
+
+	/** Size of the buffer used to read from a channel. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Magic word at the beginning of a binary graph. */
+	static final byte[] BINARY_GRAPH_MAGIC = { 'J', 'D', 'R', 'G' };
+
+	/** Magic word at the beginning of a binary tree decomposition. */
+	static final byte[] BINARY_TREE_DECOMPOSITION_MAGIC = { 'J', 'D', 'R', 'T' };
+
+	/** Version of the binary formats, readers reject all other versions. */
+	static final int BINARY_VERSION = 1;
+
+	/** Files are mapped in regions of at most this size. */
+	private static final long REGION_SIZE = 1L << 30;
+
+	/** The edge list is pre-sized to the number of edges of the p-line, but at most to this size. */
+	static final int MAX_EDGE_HINT = 1 << 20;
+
+	/** The channel we read from, if the input is not mapped. */
+	private final ReadableByteChannel channel;
+
+	/** The mapped file, if the input is mapped. */
+	private final FileChannel file;
+
+	/** Position of the next region of the mapped file. */
+	private long filePosition;
+
+	/** The current buffer, either a mapped region or the read buffer. */
+	private ByteBuffer buffer;
+
+	/** The current byte of the input, or -1 at the end of the input. */
+	private int current;
+
+	/** Number of the current line, used for error messages. */
+	private int line;
+
+	/** True if the first byte of the input was read. */
+	private boolean started;
+
+	/** True if the last parse stopped at a p-line, which was already consumed up to the word "p". */
+	private boolean pendingProblemLine;
+
+	private GraphReader(FileChannel file, ReadableByteChannel channel) {
+		this.file = file;
+		this.channel = channel;
+		this.filePosition = 0;
+		this.line = 1;
+		if (file == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.flip();
+		} else {
+			buffer = ByteBuffer.allocate(0);
+		}
+	}
+
+	/**
+	 * Parses the given file by mapping it into memory.
+	 * @param grFile
+	 * @return A graph object with the graph (vertices are integer)
+	 * @throws IOException if the file could not be read or is not correct formatted
+	 */
+	static Graph<Integer> read(File grFile) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(grFile, "r"); FileChannel file = raf.getChannel()) {
+			return new GraphReader(file, null).parse(true);
+		}
+	}
+
+	/**
+	 * Parses the content of the given channel, which is read through a direct buffer. The channel is not closed.
+	 * @param channel
+	 * @return A graph object with the graph (vertices are integer)
+	 * @throws IOException if the channel could not be read or the content is not correct formatted
+	 */
+	static Graph<Integer> read(ReadableByteChannel channel) throws IOException {
+		return new GraphReader(null, channel).parse(true);
+	}
+
+	/**
+	 * Parses a sequence of concatenated graphs from the given channel, each p-line starts a new graph. Every graph
+	 * is handed to the consumer as soon as it is parsed, i.e., before the remaining input is read. The channel is not
+	 * closed.
+	 * @param channel
+	 * @param consumer that receives the graphs in the order of the input
+	 * @return the number of parsed graphs
+	 * @throws IOException if the channel could not be read or the content is not correct formatted
+	 */
+	static int readAll(ReadableByteChannel channel, Consumer<Graph<Integer>> consumer) throws IOException {
+		GraphReader reader = new GraphReader(null, channel);
+		int count = 0;
+		Graph<Integer> graph;
+		while ((graph = reader.parse(false)) != null) {
+			consumer.accept(graph);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Loads a graph in the binary format from the given file, which is mapped into memory.
+	 * @param file
+	 * @return A graph object with the graph (vertices are integer)
+	 * @throws IOException if the file could not be read or is not a binary graph of the supported version
+	 */
+	static Graph<Integer> readBinary(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			return new GraphReader(channel, null).parseBinaryGraph();
+		}
+	}
+
+	/**
+	 * Loads a tree decomposition in the binary format from the given file, which is mapped into memory.
+	 * @param file
+	 * @param graph the graph that is decomposed, the vertices of the bags are taken from it
+	 * @return the tree decomposition
+	 * @throws IOException if the file could not be read or is not a binary decomposition of the supported version
+	 */
+	static TreeDecomposition<Integer> readBinaryTreeDecomposition(File file, Graph<Integer> graph) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			return new GraphReader(channel, null).parseBinaryTreeDecomposition(graph);
+		}
+	}
+
+	/**
+	 * Decodes a binary graph, the CSR core is build directly from the decoded edges.
+	 * @return the graph
+	 * @throws IOException
+	 */
+	private Graph<Integer> parseBinaryGraph() throws IOException {
+		readBinaryHeader(BINARY_GRAPH_MAGIC);
+		int n = readVarint();
+		int m = readVarint();
+
+		// the sorted vertices, vertex at position i gets id i
+		List<Integer> labels = new ArrayList<>(n);
+		int label = 0;
+		for (int i = 0; i < n; i++) {
+			label = i == 0 ? readSignedVarint() : label + readVarint();
+			labels.add(label);
+		}
+
+		// the edges, every edge is stored once at its smaller endpoint
+		int[] tails = new int[m];
+		int[] heads = new int[m];
+		int e = 0;
+		for (int v = 0; v < n; v++) {
+			int w = v;
+			for (int k = readVarint(); k > 0; k--) {
+				w += readVarint();
+				if (e == m || w >= n) throw new IOException("Corrupted binary graph");
+				tails[e] = v;
+				heads[e] = w;
+				e++;
+			}
+		}
+		if (e != m) throw new IOException("Corrupted binary graph");
+		return new Graph<>(IntGraph.fromArcs(n, tails, heads, m, true), labels);
+	}
+
+	/**
+	 * Decodes a binary tree decomposition of the given graph.
+	 * @param graph
+	 * @return the tree decomposition
+	 * @throws IOException
+	 */
+	private TreeDecomposition<Integer> parseBinaryTreeDecomposition(Graph<Integer> graph) throws IOException {
+		readBinaryHeader(BINARY_TREE_DECOMPOSITION_MAGIC);
+		int numberOfBags = readVarint();
+		int width = readVarint() - 1;
+		int n = readVarint();
+		TreeDecomposition<Integer> td = new TreeDecomposition<>(graph);
+
+		// the bags
+		List<Bag<Integer>> bags = new ArrayList<>(numberOfBags);
+		for (int i = 0; i < numberOfBags; i++) {
+			int size = readVarint();
+			Set<Integer> vertices = new HashSet<>(2*size);
+			int v = 0;
+			for (int j = 0; j < size; j++) {
+				v = j == 0 ? readSignedVarint() : v + readVarint();
+				vertices.add(v);
+			}
+			bags.add(td.createBag(vertices));
+		}
+
+		// the tree
+		int a = 0;
+		for (int k = readVarint(); k > 0; k--) {
+			a += readVarint();
+			int b = a + readVarint();
+			if (a < 1 || b > numberOfBags) throw new IOException("Corrupted binary tree decomposition");
+			td.addTreeEdge(bags.get(a-1), bags.get(b-1));
+		}
+
+		td.setWidth(width);
+		td.setN(n);
+		return td;
+	}
+
+	/**
+	 * Reads and checks the magic word and the version of a binary input.
+	 * @param magic the expected magic word
+	 * @throws IOException if the input starts differently
+	 */
+	private void readBinaryHeader(byte[] magic) throws IOException {
+		next();
+		for (byte b : magic) {
+			if (current != b) throw new IOException("Input is not in the expected binary format");
+			next();
+		}
+		if (current != BINARY_VERSION) throw new IOException("Unsupported version " + current + " of the binary format");
+		next();
+	}
+
+	/**
+	 * Reads an unsigned varint, @see ByteWriter#writeVarint.
+	 * @return
+	 * @throws IOException if the input ends within the number
+	 */
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (current == -1) throw new IOException("Unexpected end of the binary input");
+			int b = current;
+			next();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed varint in the binary input");
+	}
+
+	/**
+	 * Reads a zigzag encoded varint, @see ByteWriter#writeSignedVarint.
+	 * @return
+	 * @throws IOException if the input ends within the number
+	 */
+	private int readSignedVarint() throws IOException {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Parse the input line by line and build the graph.
+	 * @param single if false, the parser stops in front of the second p-line such that the next call continues there
+	 * @return the graph, or null if there was neither a p-line nor an edge
+	 * @throws IOException
+	 */
+	private Graph<Integer> parse(boolean single) throws IOException {
+		int n = 0;
+		int m = 0;
+		int[] tails = new int[1024];
+		int[] heads = new int[1024];
+		boolean problem = false;
+
+		if (!started) {
+			next();
+			started = true;
+		}
+		while (current != -1 || pendingProblemLine) {
+			int word;
+			if (pendingProblemLine) { // the previous call stopped at this p-line
+				pendingProblemLine = false;
+				word = 'p';
+			} else {
+				skipBlanks();
+				if (current == -1) break;
+				if (current == '\n') { skipLine(); continue; } // just catch empty lines
+
+				// parse an edge
+				if (isDigit(current)) {
+					if (m == tails.length) {
+						tails = Arrays.copyOf(tails, 2*m);
+						heads = Arrays.copyOf(heads, 2*m);
+					}
+					tails[m] = readInt();
+					heads[m] = readInt();
+					m++;
+					skipLine();
+					continue;
+				}
+
+				// lines starting with a word
+				word = readWord();
+			}
+			switch (word) {
+				case 'p':
+					if (!single && problem) { // the next graph starts here
+						pendingProblemLine = true;
+						return GraphFactory.graphFromEdgeList(n, tails, heads, m);
+					}
+					problem = true;
+					// vertices {1,...n} are created, this is required as .dimacs can contain isolated vertices
+					readWord();
+					n = Math.max(n, readInt());
+					skipBlanks();
+					if (isDigit(current)) { // the number of edges is optional and only used as capacity hint
+						int edges = Math.min(readInt(), MAX_EDGE_HINT);
+						if (edges > tails.length) {
+							tails = Arrays.copyOf(tails, edges);
+							heads = Arrays.copyOf(heads, edges);
+						}
+					}
+					break;
+				case 'e': // .dgf edge
+					if (m == tails.length) {
+						tails = Arrays.copyOf(tails, 2*m);
+						heads = Arrays.copyOf(heads, 2*m);
+					}
+					tails[m] = readInt();
+					heads[m] = readInt();
+					m++;
+					break;
+				case 'c': // we do not handle comments
+				case 'n': // we skip information from .dgf files to be compatible to them
+				case 'd':
+				case 'v':
+				case 'x':
+				case 'b':
+				case 'l':
+					break;
+				default:
+					throw new IOException("Unexpected token in line " + line);
+			}
+			skipLine();
+		}
+
+		// done
+		if (!single && !problem && m == 0) return null;
+		return GraphFactory.graphFromEdgeList(n, tails, heads, m);
+	}
+
+	/**
+	 * Advance to the next byte of the input.
+	 * @throws IOException
+	 */
+	private void next() throws IOException {
+		if (!buffer.hasRemaining() && !refill()) {
+			current = -1;
+			return;
+		}
+		current = buffer.get() & 0xff;
+	}
+
+	/**
+	 * Load the next chunk of the input into the buffer.
+	 * @return false if the end of the input is reached
+	 * @throws IOException
+	 */
+	private boolean refill() throws IOException {
+		if (file != null) {
+			long size = file.size();
+			if (filePosition >= size) return false;
+			long length = Math.min(REGION_SIZE, size - filePosition);
+			buffer = file.map(FileChannel.MapMode.READ_ONLY, filePosition, length);
+			filePosition += length;
+			return true;
+		}
+		buffer.clear();
+		int read;
+		do {
+			read = channel.read(buffer);
+		} while (read == 0);
+		buffer.flip();
+		return read > 0;
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isBlank(int c) {
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+	/**
+	 * Skip spaces and tabs (but not the end of the line).
+	 * @throws IOException
+	 */
+	private void skipBlanks() throws IOException {
+		while (isBlank(current)) next();
+	}
+
+	/**
+	 * Skip the rest of the current line, including the line break.
+	 * @throws IOException
+	 */
+	private void skipLine() throws IOException {
+		while (current != '\n' && current != -1) next();
+		if (current == '\n') line++;
+		next();
+	}
+
+	/**
+	 * Reads the next token of the current line and returns its first character if the token has length one, or 0
+	 * otherwise.
+	 * @return
+	 * @throws IOException
+	 */
+	private int readWord() throws IOException {
+		skipBlanks();
+		int first = current;
+		int length = 0;
+		while (current != -1 && current != '\n' && !isBlank(current)) {
+			length++;
+			next();
+		}
+		return length == 1 ? first : 0;
+	}
+
+	/**
+	 * Reads the next non-negative integer of the current line.
+	 * @return
+	 * @throws IOException if there is no integer
+	 */
+	private int readInt() throws IOException {
+		skipBlanks();
+		if (!isDigit(current)) throw new IOException("Expected a number in line " + line);
+		long value = 0;
+		while (isDigit(current)) {
+			value = 10*value + (current - '0');
+			if (value > Integer.MAX_VALUE) throw new IOException("Number out of range in line " + line);
+			next();
+		}
+		return (int) value;
+	}
+}
@@ -22,6 +22,8 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -135,18 +137,179 @@ public class GraphWriter {
 	}
 	
 	/**
-	 * Write the string of @see treedecompositionToString to the given output stream.
+	 * Write the tree decomposition in the format of @see treedecompositionToString to the given output stream,
+	 * followed by a final line break.
+	 * In contrast to treedecompositionToString, the decomposition is streamed: bags and edges are encoded directly
+	 * into a byte buffer while the tree is traversed, i.e., the whole output is never materialized as String. This
+	 * is important for large decompositions, where the String would otherwise be several times the size of the
+	 * decomposition itself.
+	 * The stream is flushed, but not closed.
 	 * @param td the tree decomposition to be written
 	 * @param stream to which the graph should be written
 	 * @throws IOException
 	 */
 	public static <T extends Comparable<T>> void writeTreeDecomposition(TreeDecomposition<T> td, OutputStream stream) throws IOException {
-		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(stream));
-		out.write(treedecompositionToString(td));
+		ByteWriter out = new ByteWriter(Channels.newChannel(stream));
+
+		// print solution line
+		out.write("s td ");
+		out.write(td.numberOfBags);
+		out.write(' ');
+		out.write(td.width+1);
+		out.write(' ');
+		out.write(td.n);
+		out.write('\n');
+
+		// print the bags
+		for (Bag<T> bag : td.tree) {
+			out.write("b ");
+			out.write(bag.id);
+			for (T v : bag.vertices) {
+				out.write(' ');
+				out.write(v);
+			}
+			out.write('\n');
+		}
+
+		// print the edges
+		for (Bag<T> v : td.tree) {
+			for (Bag<T> w : td.tree.getNeighborhood(v)) {
+				if (v.id >= w.id) continue;
+				out.write(v.id);
+				out.write(' ');
+				out.write(w.id);
+				out.write('\n');
+			}
+		}
+
+		// done
 		out.flush();
-		out.close();
+		stream.flush();
 	}
 	
+	/**
+	 * Write the graph in the compact binary format described in @see GraphReader to the given output stream.
+	 * Vertices are stored in ascending order and every edge once at its smaller endpoint, all numbers are written as
+	 * varint encoded gaps. Since the labels are stored as well, this also works for graphs whose vertices are not
+	 * \(\{1,\dots,n\}\), as for instance the graphs produced by the preprocessing.
+	 * The graph can be loaded with @see GraphFactory#graphFromBinary.
+	 * The stream is flushed, but not closed.
+	 * @param graph that should be serialized
+	 * @param stream to which the graph should be written
+	 * @throws IOException
+	 */
+	public static void writeBinaryGraph(Graph<Integer> graph, OutputStream stream) throws IOException {
+		ByteWriter out = new ByteWriter(Channels.newChannel(stream));
+		IntGraph core = graph.getIntGraph();
+
+		// sort the vertices and compute the position of every id
+		int n = graph.getNumVertices();
+		int[] vertices = new int[n];
+		int i = 0;
+		for (Integer v : graph) vertices[i++] = v;
+		Arrays.sort(vertices);
+		int[] position = new int[core.getCapacity()];
+		for (i = 0; i < n; i++) position[graph.indexOf(vertices[i])] = i;
+
+		// header
+		for (byte b : GraphReader.BINARY_GRAPH_MAGIC) out.writeByte(b);
+		out.writeByte(GraphReader.BINARY_VERSION);
+		out.writeVarint(n);
+		out.writeVarint(graph.getNumberOfEdges());
+
+		// the vertices
+		for (i = 0; i < n; i++) {
+			if (i == 0) out.writeSignedVarint(vertices[i]);
+			else out.writeVarint(vertices[i] - vertices[i-1]);
+		}
+
+		// the larger neighbors of every vertex
+		int[] neighbors = new int[16];
+		for (i = 0; i < n; i++) {
+			int x = graph.indexOf(vertices[i]);
+			int degree = core.getDegree(x);
+			if (degree > neighbors.length) neighbors = new int[Math.max(degree, 2*neighbors.length)];
+			int k = 0;
+			for (int j = 0; j < degree; j++) {
+				int p = position[core.getNeighbor(x, j)];
+				if (p > i) neighbors[k++] = p;
+			}
+			Arrays.sort(neighbors, 0, k);
+			out.writeVarint(k);
+			int last = i;
+			for (int j = 0; j < k; j++) {
+				out.writeVarint(neighbors[j] - last);
+				last = neighbors[j];
+			}
+		}
+
+		// done
+		out.flush();
+		stream.flush();
+	}
+
+	/**
+	 * Write the tree decomposition in the compact binary format described in @see GraphReader to the given output
+	 * stream. The bags are numbered by the order of the tree, i.e., their ids are not stored.
+	 * The decomposition can be loaded with @see GraphFactory#treeDecompositionFromBinary.
+	 * The stream is flushed, but not closed.
+	 * @param td the tree decomposition to be written
+	 * @param stream to which the decomposition should be written
+	 * @throws IOException
+	 */
+	public static void writeBinaryTreeDecomposition(TreeDecomposition<Integer> td, OutputStream stream) throws IOException {
+		ByteWriter out = new ByteWriter(Channels.newChannel(stream));
+
+		// number the bags by their position
+		Map<Bag<Integer>, Integer> position = new HashMap<>(2*td.numberOfBags);
+		for (Bag<Integer> bag : td.tree) position.put(bag, position.size()+1);
+
+		// header
+		for (byte b : GraphReader.BINARY_TREE_DECOMPOSITION_MAGIC) out.writeByte(b);
+		out.writeByte(GraphReader.BINARY_VERSION);
+		out.writeVarint(position.size());
+		out.writeVarint(td.width+1);
+		out.writeVarint(td.n);
+
+		// the bags
+		int[] vertices = new int[16];
+		for (Bag<Integer> bag : td.tree) {
+			int k = 0;
+			if (bag.vertices.size() > vertices.length) vertices = new int[Math.max(bag.vertices.size(), 2*vertices.length)];
+			for (Integer v : bag.vertices) vertices[k++] = v;
+			Arrays.sort(vertices, 0, k);
+			out.writeVarint(k);
+			for (int j = 0; j < k; j++) {
+				if (j == 0) out.writeSignedVarint(vertices[j]);
+				else out.writeVarint(vertices[j] - vertices[j-1]);
+			}
+		}
+
+		// the edges, sorted by their smaller endpoint (which is the order of the tree)
+		int edges = 0;
+		for (Bag<Integer> v : td.tree) {
+			for (Bag<Integer> w : td.tree.getNeighborhood(v)) {
+				if (position.get(v) < position.get(w)) edges++;
+			}
+		}
+		out.writeVarint(edges);
+		int last = 0;
+		for (Bag<Integer> v : td.tree) {
+			int a = position.get(v);
+			for (Bag<Integer> w : td.tree.getNeighborhood(v)) {
+				int b = position.get(w);
+				if (b <= a) continue;
+				out.writeVarint(a - last);
+				out.writeVarint(b - a);
+				last = a;
+			}
+		}
+
+		// done
+		out.flush();
+		stream.flush();
+	}
+
 	/**
 	 * Represents the graph as string the the .gr file format of PACE.
 	 * In order to do so, a bijection from V to {1,...,|V|} will be computed and vertices
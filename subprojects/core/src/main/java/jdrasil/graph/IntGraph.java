@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An IntGraph is the primitive core of a graph: vertices are the integers \(\{0,\dots,capacity-1\}\) and every vertex
+ * stores its (out-)neighbors as sorted int array. This class does not know anything about vertex labels, this is handled
+ * by the thin facade @see Graph.
+ *
+ * The graph is stored in two layers:
+ *  - a compact CSR layout (an offset array and one large target array), which is used for static graphs,
+ *  - mutable adjacency blocks (one growable array per vertex), which are created lazily for every vertex whose
+ *    neighborhood is modified (for instance during vertex elimination).
+ *
+ * The CSR arrays are never written once they are created. Hence, copies of an IntGraph share them and only the modified
+ * blocks have to be copied. Adjacency tests are binary searches within the neighborhood of a vertex.
+ *
+ * Vertices that are removed keep their id, i.e., the id space only grows. A removed vertex can be added again
+ * with the same id.
+ *
+ * @author Max Bannach
+ */
+public class IntGraph implements Serializable {
+
+	private static final long serialVersionUID = 6391750123867240113L;
+
+	/** Shared empty block for vertices without neighbors. */
+	private static final int[] EMPTY = new int[0];
+
+	/** Number of vertex ids that are in use, removed or not. */
+	private int capacity;
+
+	/** Number of vertices currently present. */
+	private int numVertices;
+
+	/** Number of (directed) arcs in the graph, an undirected edge is counted twice. */
+	private int m;
+
+	/** Marks which vertex ids are present in the graph. */
+	private boolean[] present;
+
+	/** The number of neighbors of every vertex. */
+	private int[] degree;
+
+	/** CSR layout: the neighbors of v are targets[offset[v]],...,targets[offset[v]+degree[v]-1] if block[v] is null. */
+	private int[] offset;
+	private int[] targets;
+
+	/** Mutable adjacency blocks, the neighbors of v are block[v][0],...,block[v][degree[v]-1] if block[v] is not null. */
+	private int[][] block;
+
+	/**
+	 * Creates an empty graph with room for the given number of vertex ids.
+	 * @param expectedCapacity
+	 */
+	public IntGraph(int expectedCapacity) {
+		int c = Math.max(expectedCapacity, 4);
+		this.present = new boolean[c];
+		this.degree = new int[c];
+		this.block = new int[c][];
+		this.offset = null;
+		this.targets = EMPTY;
+	}
+
+	/**
+	 * Creates an empty graph.
+	 */
+	public IntGraph() {
+		this(16);
+	}
+
+	/**
+	 * Creates a copy of the given graph. The CSR arrays are shared, modified blocks are copied.
+	 * @param original
+	 */
+	public IntGraph(IntGraph original) {
+		this.capacity = original.capacity;
+		this.numVertices = original.numVertices;
+		this.m = original.m;
+		this.present = Arrays.copyOf(original.present, original.present.length);
+		this.degree = Arrays.copyOf(original.degree, original.degree.length);
+		this.offset = original.offset;
+		this.targets = original.targets;
+		this.block = new int[original.block.length][];
+		for (int v = 0; v < capacity; v++) {
+			int[] b = original.block[v];
+			if (b != null) block[v] = b.length == 0 ? EMPTY : Arrays.copyOf(b, degree[v]);
+		}
+	}
+
+	/**
+	 * Builds a graph in CSR layout from an arc list. All vertices \(\{0,\dots,n-1\}\) are present.
+	 * Duplicated arcs are ignored. If symmetric is true, for every arc (u,v) also the arc (v,u) is inserted.
+	 * @param n the number of vertices
+	 * @param tails the tails of the arcs
+	 * @param heads the heads of the arcs
+	 * @param arcs the number of arcs stored in tails and heads
+	 * @param symmetric whether the arcs should be inserted in both directions
+	 * @return the graph in CSR layout
+	 */
+	public static IntGraph fromArcs(int n, int[] tails, int[] heads, int arcs, boolean symmetric) {
+		IntGraph G = new IntGraph(n);
+		G.capacity = n;
+		G.numVertices = n;
+		Arrays.fill(G.present, 0, n, true);
+
+		// count the degrees and compute the offsets
+		int[] off = new int[n+1];
+		for (int i = 0; i < arcs; i++) {
+			off[tails[i]+1]++;
+			if (symmetric) off[heads[i]+1]++;
+		}
+		for (int v = 0; v < n; v++) off[v+1] += off[v];
+
+		// distribute the arcs
+		int[] tar = new int[off[n]];
+		int[] fill = Arrays.copyOf(off, n);
+		for (int i = 0; i < arcs; i++) {
+			tar[fill[tails[i]]++] = heads[i];
+			if (symmetric) tar[fill[heads[i]]++] = tails[i];
+		}
+
+		// sort the neighborhoods and remove duplicates in place
+		int write = 0;
+		for (int v = 0; v < n; v++) {
+			int from = off[v], to = off[v+1];
+			Arrays.sort(tar, from, to);
+			off[v] = write;
+			for (int i = from; i < to; i++) {
+				if (i > from && tar[i] == tar[i-1]) continue;
+				tar[write++] = tar[i];
+			}
+			G.degree[v] = write - off[v];
+		}
+		off[n] = write;
+
+		G.offset = off;
+		G.targets = write == tar.length ? tar : Arrays.copyOf(tar, write);
+		G.m = write;
+		return G;
+	}
+
+	/**
+	 * Rebuilds the CSR layout from the current state of the graph, i.e., all blocks are merged into a fresh
+	 * target array. This is useful after a graph was heavily modified and will be copied often afterwards.
+	 */
+	public void compact() {
+		int[] off = new int[capacity+1];
+		int[] tar = new int[m];
+		int write = 0;
+		for (int v = 0; v < capacity; v++) {
+			off[v] = write;
+			System.arraycopy(adjacency(v), adjacencyStart(v), tar, write, degree[v]);
+			write += degree[v];
+			block[v] = null;
+		}
+		off[capacity] = write;
+		this.offset = off;
+		this.targets = tar;
+	}
+
+	/**
+	 * The number of vertex ids in use, i.e., all present vertices have an id smaller than this value.
+	 * @return the capacity of the graph
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The number of present vertices.
+	 * @return n
+	 */
+	public int getNumVertices() {
+		return numVertices;
+	}
+
+	/**
+	 * The number of arcs, i.e., an undirected edge is counted twice.
+	 * @return number of arcs
+	 */
+	public int getNumArcs() {
+		return m;
+	}
+
+	/**
+	 * Checks if the given vertex is present in the graph.
+	 * @param v
+	 * @return true if v is a vertex of the graph
+	 */
+	public boolean contains(int v) {
+		return v >= 0 && v < capacity && present[v];
+	}
+
+	/**
+	 * Adds the vertex with the given id to the graph. Does nothing if the vertex is already present.
+	 * @param v
+	 */
+	public void addVertex(int v) {
+		if (v >= present.length) grow(Math.max(v+1, present.length + (present.length >> 1)));
+		if (v >= capacity) {
+			for (int u = capacity; u < v; u++) block[u] = EMPTY;
+			capacity = v+1;
+			block[v] = EMPTY;
+		}
+		if (present[v]) return;
+		present[v] = true;
+		numVertices++;
+	}
+
+	/**
+	 * Removes a vertex and its outgoing arcs from the graph. Arcs pointing to v are not touched, i.e.,
+	 * in an undirected graph the edges have to be removed before.
+	 * @param v
+	 */
+	public void removeVertex(int v) {
+		if (!contains(v)) return;
+		m -= degree[v];
+		degree[v] = 0;
+		block[v] = EMPTY;
+		present[v] = false;
+		numVertices--;
+	}
+
+	/**
+	 * The number of (out-)neighbors of v.
+	 * @param v
+	 * @return the degree of v
+	 */
+	public int getDegree(int v) {
+		return degree[v];
+	}
+
+	/**
+	 * Returns the array that currently stores the neighborhood of v. The neighbors are stored in sorted order starting
+	 * at @see adjacencyStart(int). The array must not be modified and is only valid until the graph is modified.
+	 * @param v
+	 * @return the array storing N(v)
+	 */
+	public int[] adjacency(int v) {
+		int[] b = block[v];
+		return b != null ? b : targets;
+	}
+
+	/**
+	 * The start index of N(v) in the array returned by @see adjacency(int).
+	 * @param v
+	 * @return the index of the first neighbor of v
+	 */
+	public int adjacencyStart(int v) {
+		return block[v] != null ? 0 : offset[v];
+	}
+
+	/**
+	 * The i'th neighbor of v (with respect to the sorted order).
+	 * @param v
+	 * @param i
+	 * @return the i'th neighbor
+	 */
+	public int getNeighbor(int v, int i) {
+		int[] b = block[v];
+		return b != null ? b[i] : targets[offset[v]+i];
+	}
+
+	/**
+	 * Copies the neighborhood of v into a fresh array.
+	 * @param v
+	 * @return N(v) as sorted array
+	 */
+	public int[] getNeighbors(int v) {
+		int start = adjacencyStart(v);
+		return Arrays.copyOfRange(adjacency(v), start, start + degree[v]);
+	}
+
+	/**
+	 * Test if there is an arc from u to v. This is a binary search in the neighborhood of u.
+	 * @param u
+	 * @param v
+	 * @return true if (u,v) is an arc
+	 */
+	public boolean isAdjacent(int u, int v) {
+		if (!contains(u)) return false;
+		int start = adjacencyStart(u);
+		return Arrays.binarySearch(adjacency(u), start, start + degree[u], v) >= 0;
+	}
+
+	/**
+	 * Adds the arc (u,v). Both vertices have to be present.
+	 * @param u
+	 * @param v
+	 * @return true if the arc was not present before
+	 */
+	public boolean addArc(int u, int v) {
+		int d = degree[u];
+		int start = adjacencyStart(u);
+		int pos = Arrays.binarySearch(adjacency(u), start, start + d, v);
+		if (pos >= 0) return false;
+		pos = -pos - 1 - start;
+		int[] b = detach(u, d+1);
+		System.arraycopy(b, pos, b, pos+1, d-pos);
+		b[pos] = v;
+		degree[u] = d+1;
+		m++;
+		return true;
+	}
+
+	/**
+	 * Removes the arc (u,v).
+	 * @param u
+	 * @param v
+	 * @return true if the arc was present
+	 */
+	public boolean removeArc(int u, int v) {
+		if (!contains(u)) return false;
+		int d = degree[u];
+		int start = adjacencyStart(u);
+		int pos = Arrays.binarySearch(adjacency(u), start, start + d, v);
+		if (pos < 0) return false;
+		pos = pos - start;
+		int[] b = detach(u, d);
+		System.arraycopy(b, pos+1, b, pos, d-pos-1);
+		degree[u] = d-1;
+		m--;
+		return true;
+	}
+
+	/**
+	 * Computes \(|N(u)\cap N(v)|\) by merging the two sorted neighborhoods.
+	 * @param u
+	 * @param v
+	 * @return the number of common neighbors
+	 */
+	public int countCommonNeighbors(int u, int v) {
+		int[] a = adjacency(u), b = adjacency(v);
+		int i = adjacencyStart(u), j = adjacencyStart(v);
+		int iEnd = i + degree[u], jEnd = j + degree[v];
+		int count = 0;
+		while (i < iEnd && j < jEnd) {
+			if (a[i] == b[j]) { count++; i++; j++; }
+			else if (a[i] < b[j]) i++;
+			else j++;
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the common neighbors of u and v into the given array (which must be large enough).
+	 * @param u
+	 * @param v
+	 * @param out
+	 * @return the number of common neighbors written to out
+	 */
+	public int commonNeighbors(int u, int v, int[] out) {
+		int[] a = adjacency(u), b = adjacency(v);
+		int i = adjacencyStart(u), j = adjacencyStart(v);
+		int iEnd = i + degree[u], jEnd = j + degree[v];
+		int count = 0;
+		while (i < iEnd && j < jEnd) {
+			if (a[i] == b[j]) { out[count++] = a[i]; i++; j++; }
+			else if (a[i] < b[j]) i++;
+			else j++;
+		}
+		return count;
+	}
+
+	/**
+	 * Makes sure that v owns a mutable block with room for the given number of neighbors.
+	 * The current neighborhood is copied into the block if necessary.
+	 * @param v
+	 * @param required
+	 * @return the block of v
+	 */
+	private int[] detach(int v, int required) {
+		int[] b = block[v];
+		if (b != null && b.length >= required) return b;
+		int[] nb = new int[Math.max(4, required + (required >> 1))];
+		if (b != null) {
+			System.arraycopy(b, 0, nb, 0, degree[v]);
+		} else {
+			System.arraycopy(targets, offset[v], nb, 0, degree[v]);
+		}
+		block[v] = nb;
+		return nb;
+	}
+
+	/**
+	 * Grow the per vertex arrays to the given size.
+	 * @param size
+	 */
+	private void grow(int size) {
+		present = Arrays.copyOf(present, size);
+		degree = Arrays.copyOf(degree, size);
+		block = Arrays.copyOf(block, size);
+	}
+
+}
@@ -19,15 +19,20 @@
 package jdrasil.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import jdrasil.graph.invariants.MinimalSeparator;
+import jdrasil.utilities.JdrasilProperties;
 import jdrasil.utilities.logging.JdrasilLogger;
 
 /**
@@ -247,50 +252,111 @@ public class TreeDecomposition<T extends Comparable<T>> implements java.io.Seria
 
 	/**
 	 * This method checks whether nor not the tree decomposition is valid.
-	 * If it is invalid, the reason will be logged.
+	 * If it is invalid, the first found violation will be logged.
+	 * The check runs in parallel, if the "parallel" flag is set in JdrasilProperties.
 	 * @return true if the decomposition is valid
 	 */
 	public boolean isValid() {
-		boolean valid = true;
+		return isValid(JdrasilProperties.containsKey("parallel"));
+	}
 
-		// Property 1: every vertex is in a bag
-		for (T v : graph) {
-			boolean contained = false;
-			for (Bag<T> b : tree) {
-				if (b.contains(v)) contained = true;
-			}
-			if (!contained) {
-				valid = false;
-				LOG.warning("Vertex " + v + " not contained in any bag!");
-			}
-		}
+	/**
+	 * This method checks whether nor not the tree decomposition is valid.
+	 * If it is invalid, the first found violation will be logged (in parallel mode this is any violation).
+	 *
+	 * The check runs in time linear in the size of the decomposition and the graph: the tree is rooted by a single
+	 * traversal and every vertex v gets the bags containing v whose parent does not contain v. The bags containing v
+	 * are connected if, and only if, there is exactly one such bag, which is then the top bag of v (the one closest to
+	 * the root). Furthermore, if all these subtrees are connected, the subtrees of v and w intersect if, and only if,
+	 * the top bag of v contains w or the top bag of w contains v. Hence, every edge needs just two hash lookups.
+	 * @param parallel if true, the bags and edges are checked in parallel
+	 * @return true if the decomposition is valid
+	 */
+	public boolean isValid(boolean parallel) {
+		String violation = findViolation(parallel);
+		if (violation != null) LOG.warning(violation);
+		return violation == null;
+	}
 
-		// Property 2: every edge is in a bag
-		for (T v : graph) {
-			for (T w : graph.getNeighborhood(v)) {
-				if (v.compareTo(w) >= 0) continue;
-				boolean contained = false;
-				for (Bag<T> b : tree) {
-					if (b.contains(v) && b.contains(w)) contained = true;
-				}
-				if (!contained) {
-					valid = false;
-					LOG.warning("Edge {" + v + ", " + w + "} not contained in any bag!");
+	/**
+	 * Searches a violation of the properties of a tree decomposition as described at @see isValid(boolean).
+	 * @param parallel
+	 * @return a description of the violation, or null if the decomposition is valid
+	 */
+	private String findViolation(boolean parallel) {
+		IntGraph T = tree.getIntGraph();
+		IntGraph G = graph.getIntGraph();
+		int k = T.getCapacity();
+		int n = G.getCapacity();
+
+		// root every tree of the forest, parent is -1 for roots and -2 for unvisited bags
+		int[] parent = new int[k];
+		Arrays.fill(parent, -2);
+		int[] queue = new int[k];
+		for (int r = 0; r < k; r++) {
+			if (!T.contains(r) || parent[r] != -2) continue;
+			parent[r] = -1;
+			int head = 0, tail = 0;
+			queue[tail++] = r;
+			while (head < tail) {
+				int u = queue[head++];
+				int[] a = T.adjacency(u);
+				for (int i = T.adjacencyStart(u), end = i + T.getDegree(u); i < end; i++) {
+					int w = a[i];
+					if (w == parent[u]) continue;
+					if (parent[w] != -2) return "The tree of the decomposition contains a cycle!";
+					parent[w] = u;
+					queue[tail++] = w;
 				}
 			}
 		}
 
-		// Property 3: subtrees connected
-		for (T v : graph) {
-			Stack<Bag<T>> S = connectedComponents(v);
-			if (S.size() != 1) {
-				valid = false;
-				LOG.warning("Tree containing vertex " + v + " is not connected!");
+		// Property 3: find the top bag of every vertex, a second top bag means that the subtree is not connected
+		AtomicIntegerArray top = new AtomicIntegerArray(n);
+		for (int x = 0; x < n; x++) top.set(x, -1);
+		AtomicReference<T> disconnected = new AtomicReference<>();
+		IntStream bags = IntStream.range(0, k);
+		if (parallel) bags = bags.parallel();
+		bags.forEach(b -> {
+			if (!T.contains(b)) return;
+			Bag<T> bag = tree.vertexAt(b);
+			Bag<T> up = parent[b] >= 0 ? tree.vertexAt(parent[b]) : null;
+			for (T v : bag.vertices) {
+				int x = graph.indexOf(v);
+				if (x < 0 || (up != null && up.contains(v))) continue;
+				if (!top.compareAndSet(x, -1, b)) disconnected.compareAndSet(null, v);
 			}
+		});
+
+		// Property 1: every vertex is in a bag
+		for (int x = 0; x < n; x++) {
+			if (G.contains(x) && top.get(x) == -1) return "Vertex " + graph.vertexAt(x) + " not contained in any bag!";
 		}
+		if (disconnected.get() != null) return "Tree containing vertex " + disconnected.get() + " is not connected!";
+
+		// Property 2: every edge is in a bag, i.e., in the top bag of one of its endpoints
+		AtomicReference<String> uncovered = new AtomicReference<>();
+		IntStream vertices = IntStream.range(0, n);
+		if (parallel) vertices = vertices.parallel();
+		vertices.anyMatch(x -> {
+			if (!G.contains(x)) return false;
+			T v = graph.vertexAt(x);
+			Bag<T> topV = tree.vertexAt(top.get(x));
+			int[] a = G.adjacency(x);
+			for (int i = G.adjacencyStart(x), end = i + G.getDegree(x); i < end; i++) {
+				int y = a[i];
+				if (y <= x) continue;
+				T w = graph.vertexAt(y);
+				if (topV.contains(w) || tree.vertexAt(top.get(y)).contains(v)) continue;
+				if (v.compareTo(w) > 0) { T tmp = v; v = w; w = tmp; }
+				uncovered.compareAndSet(null, "Edge {" + v + ", " + w + "} not contained in any bag!");
+				return true;
+			}
+			return false;
+		});
 
 		// done
-		return valid;
+		return uncovered.get();
 	}
 
 	/**
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph.invariants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdrasil.graph.Graph;
+
+/**
+ * Colour refinement (also known as the one-dimensional Weisfeiler-Leman algorithm) iteratively refines a colouring of
+ * the vertices: initially all vertices have the same colour, and in each round the new colour of a vertex is determined
+ * by its old colour and the multiset of the colours of its neighbours. The refinement stops as soon as the partition
+ * into colour classes does not change anymore.
+ *
+ * In contrast to @see jdrasil.utilities.PartitionRefinement, the colours are not arbitrary class identifiers, but
+ * 64-bit hashes that only depend on the structure of the graph. Therefore, the stable colouring is an invariant, i.e.,
+ * isomorphic graphs obtain the same colours and an isomorphism maps every vertex to a vertex of the same colour. The
+ * value of this invariant is a fingerprint of the graph, computed from the number of vertices and edges and the
+ * multiset of stable colours. Isomorphic graphs have the same fingerprint, but the converse does not hold (for
+ * instance, all regular graphs with the same degree and size are coloured alike).
+ *
+ * @author Max Bannach
+ */
+public class ColorRefinement<T extends Comparable<T>> extends Invariant<T, Long, Long> {
+
+	/** The stable colour of the vertices, indexed by their position in the vertex list of @see computeModel(). */
+	private long[] color;
+
+	/**
+	 * Standard constructor that just takes the graph which should be coloured.
+	 * @param graph
+	 */
+	public ColorRefinement(Graph<T> graph) {
+		super(graph);
+	}
+
+	/* (non-Javadoc)
+	 * @see jdrasil.graph.invariants.Invariant#computeModel()
+	 */
+	@Override
+	protected Map<T, Long> computeModel() {
+
+		// index the vertices
+		List<T> vertices = new ArrayList<>(graph.getCopyOfVertices());
+		int n = vertices.size();
+		Map<T, Integer> index = new HashMap<>();
+		for (int i = 0; i < n; i++) index.put(vertices.get(i), i);
+		int[][] neighbors = new int[n][];
+		for (int i = 0; i < n; i++) {
+			neighbors[i] = graph.getNeighborhood(vertices.get(i)).stream().mapToInt(index::get).toArray();
+		}
+
+		// refine until the number of colour classes is stable, the first round colours by degree
+		color = new long[n];
+		long[] next = new long[n];
+		int classes = 1;
+		while (true) {
+			for (int v = 0; v < n; v++) {
+				long sum = 0; // a commutative hash of the multiset of neighbour colours
+				for (int w : neighbors[v]) sum += mix(color[w] ^ 0x5bd1e995L);
+				next[v] = mix(31*color[v] + sum);
+			}
+			long[] tmp = color; color = next; next = tmp;
+			int newClasses = numberOfClasses(color);
+			if (newClasses == classes) break;
+			classes = newClasses;
+		}
+
+		// the model maps each vertex to its stable colour
+		Map<T, Long> model = new HashMap<>();
+		for (int i = 0; i < n; i++) model.put(vertices.get(i), color[i]);
+		return model;
+	}
+
+	/* (non-Javadoc)
+	 * @see jdrasil.graph.invariants.Invariant#computeValue()
+	 */
+	@Override
+	protected Long computeValue() {
+		long[] sorted = color.clone();
+		Arrays.sort(sorted);
+		long h = mix(sorted.length);
+		h = mix(31*h + graph.getNumberOfEdges());
+		for (long c : sorted) h = mix(31*h + c);
+		return h;
+	}
+
+	/* (non-Javadoc)
+	 * @see jdrasil.graph.invariants.Invariant#isExact()
+	 */
+	@Override
+	public boolean isExact() {
+		return true;
+	}
+
+	/**
+	 * Counts the different values of the given array.
+	 * @param color
+	 * @return
+	 */
+	private static int numberOfClasses(long[] color) {
+		if (color.length == 0) return 0;
+		long[] sorted = color.clone();
+		Arrays.sort(sorted);
+		int classes = 1;
+		for (int i = 1; i < sorted.length; i++) if (sorted[i] != sorted[i-1]) classes++;
+		return classes;
+	}
+
+	/**
+	 * The finalizer of SplitMix64, a bijective function that scatters the bits of its input.
+	 * @param z
+	 * @return
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
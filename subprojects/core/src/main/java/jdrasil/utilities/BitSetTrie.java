@@ -31,23 +31,51 @@ import java.util.*;
  * that set operation costs \(O(|U|)\) where \(U\) is the universe and not the set (however, these costs are mainly a
  * single bit-level iteration which is fast in practice).
  *
+ * The nodes of the trie are stored in parallel int arrays (label, parent, first child, next sibling, and a marked flag),
+ * i.e., a node costs a few bytes and no objects. The children of a node form a list that is sorted by label, the children
+ * of the root (which may be many) can additionally be looked up by their label in an array. The iterators use an int
+ * array as stack and only allocate the BitSets they return.
+ *
  * @author Max Bannach
  * @author Sebastian Berndt
  */
 public class BitSetTrie {
 
-    /* the root of the trie */
-    private Node root;
+    /* node 0 is the root, as the root is never a child or sibling, 0 is also used as null pointer */
+    private static final int ROOT = 0, NIL = 0;
+
+    /* the label of each node, i.e., the element of the universe it represents (-1 for the root) */
+    private int[] label;
+
+    /* the parent of each node */
+    private int[] parent;
+
+    /* the child with the smallest label of each node */
+    private int[] firstChild;
+
+    /* the sibling with the next larger label of each node, the list of free nodes is linked by this array as well */
+    private int[] nextSibling;
+
+    /* flag that indicates if the set given by the path from the root to the node is in the trie */
+    private boolean[] marked;
+
+    /* the child of the root with a given label */
+    private int[] rootChild;
+
+    /* number of used entries of the node arrays (including free nodes) */
+    private int size;
+
+    /* head of the list of free nodes */
+    private int free;
 
     /* flag that specifies if the trie stores the empty set or not */
     private boolean containsEmptySet;
 
     /*
-     * Size of the universe, i.e., the size of the largest bitset stored in the trie.
-     * Needed for superset iteration in the trie, will be updated by the insert method, but not by removing, i.e.,
-     * during the usage of a trie this value is monotone growing.
+     * Expected size of the universe, i.e., the size of the largest bitset stored in the trie.
+     * Used to size the lookup table of the root, which is grown automatically if bigger sets are inserted.
      */
-    private int universeSize;
+    private final int universeSize;
 
     /**
      * The constructor creates and initializes an empty trie with current universe size 0.
@@ -68,13 +96,104 @@ public class BitSetTrie {
 
     /**
      * Clears the BitSetTrie, that is, removes all elements stored in the trie.
-     * This method will just delete a pointer and, thus, runs in constant time independent of the size of the trie.
+     * This method will just replace the node arrays by small new ones and, thus, runs in time \(O(|U|)\) independent
+     * of the size of the trie.
      */
     public void clear() {
-        root = new Node(null, -1);
+        int capacity = 16;
+        label = new int[capacity];
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        marked = new boolean[capacity];
+        rootChild = new int[Math.max(universeSize, 16)];
+        label[ROOT] = -1;
+        size = 1;
+        free = NIL;
         containsEmptySet = false;
     }
 
+    /**
+     * Returns the child of v with the given label, or NIL if there is no such child.
+     * @param v
+     * @param e
+     * @return
+     */
+    private int child(int v, int e) {
+        if (v == ROOT) return e < rootChild.length ? rootChild[e] : NIL;
+        for (int c = firstChild[v]; c != NIL && label[c] <= e; c = nextSibling[c]) {
+            if (label[c] == e) return c;
+        }
+        return NIL;
+    }
+
+    /**
+     * Creates a new child of v with the given label, which v must not have yet.
+     * @param v
+     * @param e
+     * @return the new child
+     */
+    private int addChild(int v, int e) {
+        // obtain a node
+        int c = free;
+        if (c != NIL) {
+            free = nextSibling[c];
+        } else {
+            if (size == label.length) {
+                int capacity = 2 * size;
+                label = Arrays.copyOf(label, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                marked = Arrays.copyOf(marked, capacity);
+            }
+            c = size++;
+        }
+        label[c] = e;
+        parent[c] = v;
+        firstChild[c] = NIL;
+        marked[c] = false;
+
+        // find the sibling with the next smaller label
+        int prev = NIL;
+        if (v == ROOT) {
+            if (e >= rootChild.length) rootChild = Arrays.copyOf(rootChild, Math.max(e + 1, 2 * rootChild.length));
+            rootChild[e] = c;
+            for (int l = e - 1; l >= 0 && prev == NIL; l--) prev = rootChild[l];
+        } else {
+            for (int x = firstChild[v]; x != NIL && label[x] < e; x = nextSibling[x]) prev = x;
+        }
+
+        // link c into the sorted list of children
+        if (prev == NIL) {
+            nextSibling[c] = firstChild[v];
+            firstChild[v] = c;
+        } else {
+            nextSibling[c] = nextSibling[prev];
+            nextSibling[prev] = c;
+        }
+        return c;
+    }
+
+    /**
+     * Removes the child c (which must have no children) from v and adds it to the list of free nodes.
+     * @param v
+     * @param c
+     */
+    private void removeChild(int v, int c) {
+        if (firstChild[v] == c) {
+            firstChild[v] = nextSibling[c];
+        } else {
+            int prev = firstChild[v];
+            while (nextSibling[prev] != c) prev = nextSibling[prev];
+            nextSibling[prev] = nextSibling[c];
+        }
+        if (v == ROOT) rootChild[label[c]] = NIL;
+        marked[c] = false;
+        nextSibling[c] = free;
+        free = c;
+    }
+
     /**
      * Insert the given set to the trie by crawling down the trie and, eventually, create nodes on the path.
      * The running time is \(O(|U|)\) where \(U\) is the universe and \(s\) the set to be inserted.
@@ -87,23 +206,32 @@ public class BitSetTrie {
      */
     public void insert(BitSet s) {
         if (s.cardinality() == 0) { containsEmptySet = true; return; } // empty set is special
-        if (s.size() > universeSize) universeSize = s.size(); // update universe size
 
         // crawl to the node containing s
-        Node crawler = root;
+        int crawler = ROOT;
         int e = -1;
         while ( (e = s.nextSetBit(e+1)) != -1 ) { // while there are elements in s
-            if (crawler.children.containsKey(e)) { // label already there -> follow
-                crawler = crawler.children.get(e);
-            } else { // create a new child
-                Node child = new Node(crawler, e);
-                crawler.children.put(e, child);
-                crawler = child;
-            }
+            int next = child(crawler, e);
+            crawler = next != NIL ? next : addChild(crawler, e); // label already there -> follow, otherwise create
         }
 
         // mark the node containing s
-        crawler.marked = true;
+        marked[crawler] = true;
+    }
+
+    /**
+     * Crawls down the trie along the given (non-empty) set.
+     * @param s
+     * @return the node representing s, or NIL if there is no such node
+     */
+    private int find(BitSet s) {
+        int crawler = ROOT;
+        int e = -1;
+        while ( (e = s.nextSetBit(e+1)) != -1 ) { // while there are elements in s
+            crawler = child(crawler, e);
+            if (crawler == NIL) return NIL;
+        }
+        return crawler;
     }
 
     /**
@@ -120,17 +248,8 @@ public class BitSetTrie {
      */
     public boolean contains(BitSet s) {
         if (s.cardinality() == 0) return containsEmptySet; // handle empty set
-
-        // crawl to a node that would contain s
-        Node crawler = root;
-        int e = -1;
-        while ( (e = s.nextSetBit(e+1)) != -1 ) { // while there are elements in s
-            if (!crawler.children.containsKey(e)) return false;
-            crawler = crawler.children.get(e);
-        }
-
-        // check if the node stores something
-        return crawler.marked;
+        int node = find(s);
+        return node != NIL && marked[node];
     }
 
     /**
@@ -147,29 +266,96 @@ public class BitSetTrie {
      */
     public void remove(BitSet s) {
         if (s.cardinality() == 0) { containsEmptySet = false; return; } // handle empty set
-
-        // crawl to a node that would contain s
-        Node crawler = root;
-        int e = -1;
-        while ( (e = s.nextSetBit(e+1)) != -1 ) { // while there are elements in s
-            if (!crawler.children.containsKey(e)) return; // s is not in the trie
-            crawler = crawler.children.get(e);
-        }
+        int crawler = find(s);
+        if (crawler == NIL) return; // s is not in the trie
 
         // remove s from the trie
-        crawler.marked = false;
+        marked[crawler] = false;
 
         // try to shrink the trie
-        while (!crawler.marked && crawler.children.size() == 0) {
+        while (crawler != ROOT && !marked[crawler] && firstChild[crawler] == NIL) {
             // crawler is unmarked and has no children -> delete it
-            Node parent = crawler.parent;
-            for (int element : parent.children.keySet()) {
-                if (parent.children.get(element) == crawler) {
-                    parent.children.remove(element);
-                    break;
+            int p = parent[crawler];
+            removeChild(p, crawler);
+            crawler = p;
+        }
+    }
+
+    //MARK: Iterators
+
+    /**
+     * Base class of the iterators: a pre-order traversal of the trie on an int stack, in which the children of a node
+     * are visited in the order of their labels.
+     */
+    private abstract class TrieIterator implements Iterator<BitSet> {
+
+        /* the stack of nodes that are still to be visited */
+        private int[] stack = new int[16];
+        private int sp;
+
+        protected BitSet next;
+
+        protected TrieIterator() {
+            stack[sp++] = ROOT;
+        }
+
+        /**
+         * Pushes the children of v with label at most the given bound (and, if a filter is given, with a label in the
+         * filter) onto the stack, such that the child with the smallest label is on top.
+         * @param v
+         * @param filter a set of allowed labels or null
+         * @param bound
+         * @return the number of pushed children
+         */
+        protected int pushChildren(int v, BitSet filter, int bound) {
+            int base = sp;
+            if (v == ROOT) { // the children of the root are looked up by label, in reverse order
+                int l = Math.min(bound, rootChild.length - 1);
+                if (filter != null) l = filter.previousSetBit(l);
+                while (l >= 0) {
+                    if (rootChild[l] != NIL) push(rootChild[l]);
+                    l = filter != null ? filter.previousSetBit(l - 1) : l - 1;
                 }
+                return sp - base;
+            }
+            for (int c = firstChild[v]; c != NIL && label[c] <= bound; c = nextSibling[c]) {
+                if (filter == null || filter.get(label[c])) push(c);
+            }
+            for (int i = base, j = sp - 1; i < j; i++, j--) { // reverse, such that the smallest label is on top
+                int tmp = stack[i];
+                stack[i] = stack[j];
+                stack[j] = tmp;
             }
-            crawler = parent;
+            return sp - base;
+        }
+
+        private void push(int v) {
+            if (sp == stack.length) stack = Arrays.copyOf(stack, 2 * sp);
+            stack[sp++] = v;
+        }
+
+        protected boolean isEmpty() {
+            return sp == 0;
+        }
+
+        protected int pop() {
+            return stack[--sp];
+        }
+
+        /**
+         * Constructs the set stored at the given node.
+         * @param v
+         * @return
+         */
+        protected BitSet setOf(int v) {
+            BitSet set = new BitSet();
+            for (; v != ROOT; v = parent[v]) set.set(label[v]);
+            return set;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
         }
     }
 
@@ -198,17 +384,13 @@ public class BitSetTrie {
      * in the trie. However, if \(s\) becomes smaller this method becomes more efficient. Note that the size of the trie
      * can be exponential in the size of the universe.
      */
-    class SubSetIterator implements Iterator<BitSet> {
+    class SubSetIterator extends TrieIterator {
 
-        private Stack<Node> stack;
         private BitSet s;
-        private BitSet next;
         private boolean returnedEmptySet;
 
         public SubSetIterator(BitSet s) {
             this.s = s;
-            this.stack = new Stack<>();
-            this.stack.push(root);
             this.returnedEmptySet = false;
             this.next = successor();
         }
@@ -220,29 +402,15 @@ public class BitSetTrie {
                 return new BitSet();
             }
             // traverse the trie
-            while (!stack.isEmpty()) {
-                Node v = stack.pop();
-                for (int i = s.length(); (i = s.previousSetBit(i - 1)) > v.label; ) {
-                    if (v.children.containsKey(i)) stack.push(v.children.get(i));
-                }
-                if (v.marked) { // construct found bitset
-                    BitSet nextSet = new BitSet();
-                    while (v.label >= 0) {
-                        nextSet.set(v.label);
-                        v = v.parent;
-                    }
-                    return nextSet;
-                }
+            while (!isEmpty()) {
+                int v = pop();
+                pushChildren(v, s, Integer.MAX_VALUE);
+                if (marked[v]) return setOf(v); // construct found bitset
             }
             // trie search done
             return null;
         }
 
-        @Override
-        public boolean hasNext() {
-            return next != null;
-        }
-
         @Override
         public BitSet next() {
             BitSet tmp = next;
@@ -274,17 +442,13 @@ public class BitSetTrie {
      * the iterator uses only edges set in the given set. The running time is \(O(|T|*|U|\) where \(T\) is the the trie
      * and \(U\) is the universe.
      */
-    class MaxSubSetIterator implements Iterator<BitSet> {
+    class MaxSubSetIterator extends TrieIterator {
 
-        private Stack<Node> stack;
         private BitSet s;
-        private BitSet next;
         private boolean returnedEmptySet;
 
         public MaxSubSetIterator(BitSet s) {
             this.s = s;
-            this.stack = new Stack<>();
-            this.stack.push(root);
             this.returnedEmptySet = false;
             this.next = successor();
         }
@@ -296,33 +460,15 @@ public class BitSetTrie {
                 return new BitSet();
             }
             // traverse the trie
-            while (!stack.isEmpty()) {
-                Node v = stack.pop();
-                boolean noChildren = true;
-                for (int i = s.length(); (i = s.previousSetBit(i - 1)) > v.label; ) {
-                    if (v.children.containsKey(i)){
-                        stack.push(v.children.get(i));
-                        noChildren = false;
-                    }
-                }
-                if (v.marked && noChildren) { // construct found bitset
-                    BitSet nextSet = new BitSet();
-                    while (v.label >= 0) {
-                        nextSet.set(v.label);
-                        v = v.parent;
-                    }
-                    return nextSet;
-                }
+            while (!isEmpty()) {
+                int v = pop();
+                boolean noChildren = pushChildren(v, s, Integer.MAX_VALUE) == 0;
+                if (marked[v] && noChildren) return setOf(v); // construct found bitset
             }
             // trie search done
             return null;
         }
 
-        @Override
-        public boolean hasNext() {
-            return next != null;
-        }
-
         @Override
         public BitSet next() {
             BitSet tmp = next;
@@ -358,17 +504,13 @@ public class BitSetTrie {
      * in the trie. However, if \(s\) becomes larger this method becomes more efficient. Note that |T| can be exponential
      * in the universe size.
      */
-    class SuperSetIterator implements Iterator<BitSet> {
+    class SuperSetIterator extends TrieIterator {
 
-        private Stack<Node> stack;
         private BitSet s;
-        private BitSet next;
         private boolean returnedEmptySet;
 
         public SuperSetIterator(BitSet s) {
             this.s = s;
-            this.stack = new Stack<>();
-            this.stack.push(root);
             this.returnedEmptySet = false;
             this.next = successor();
         }
@@ -380,33 +522,17 @@ public class BitSetTrie {
                 return new BitSet();
             }
             // find next marked node
-            while (!stack.isEmpty()) {
-                Node v = stack.pop();
-                int i = s.nextSetBit(v.label +1);
-                if (i < 0) i = universeSize; // no label left, we can add all
-                do { // insert elements up to the first label of s
-                    if (v.children.containsKey(i)) stack.push(v.children.get(i));
-                    i--;
-                } while (i > v.label);
+            while (!isEmpty()) {
+                int v = pop();
+                int i = s.nextSetBit(label[v] + 1);
+                pushChildren(v, null, i < 0 ? Integer.MAX_VALUE : i); // no label left, we can add all
                 // if v is marked and we have reached every bit in s
-                if (v.marked && s.nextSetBit(v.label+1) == -1) {
-                    BitSet nextSet = new BitSet();
-                    while (v.label >= 0) { // constructed the stored set
-                        nextSet.set(v.label);
-                        v = v.parent;
-                    }
-                    return nextSet;
-                }
+                if (marked[v] && i == -1) return setOf(v); // constructed the stored set
             }
             // trie search done
             return null;
         }
 
-        @Override
-        public boolean hasNext() {
-            return next != null;
-        }
-
         @Override
         public BitSet next() {
             BitSet tmp = next;
@@ -414,24 +540,4 @@ public class BitSetTrie {
             return tmp;
         }
     }
-
-    //MARK: internal node class
-
-    /**
-     * A node of the trie is labeled with an label of the universe and may be marked. If the node is marked, the set
-     * consisting of all labels on the unique path from the node to the root is stored in the trie.
-     * The node also stores adjacency information to its children and to its unique parent.
-     */
-    private class Node {
-        Node parent;
-        Map<Integer, Node> children;
-        int label; // label with wish the node is labeled
-        boolean marked; // flag that indicates if the given set is in the trie
-        public Node(Node parent, int element) {
-            this.parent = parent;
-            this.children = new HashMap<>();
-            this.label = element;
-            this.marked = false;
-        }
-    }
 }
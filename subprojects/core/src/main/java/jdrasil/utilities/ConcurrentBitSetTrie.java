@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe collection of BitSets that supports the queries of a @see BitSetTrie.
+ *
+ * The collection is striped: a set is stored in the BitSetTrie of the stripe given by its smallest element (modulo the
+ * number of stripes), and every stripe is guarded by its own read-write lock. Hence, threads that insert or look up sets
+ * with different smallest elements do not block each other, and queries never block each other. Sub- and superset
+ * queries visit all stripes.
+ *
+ * @author Max Bannach
+ */
+public class ConcurrentBitSetTrie {
+
+    /* the tries storing the sets, indexed by the smallest element of the set modulo the number of stripes */
+    private final BitSetTrie[] stripes;
+
+    /* the lock guarding the trie of the same index */
+    private final ReadWriteLock[] locks;
+
+    /**
+     * Creates an empty trie with a single stripe, i.e., every operation uses the same lock.
+     */
+    public ConcurrentBitSetTrie() {
+        this(1);
+    }
+
+    /**
+     * Creates an empty trie with the given number of stripes.
+     * @param numberOfStripes
+     */
+    public ConcurrentBitSetTrie(int numberOfStripes) {
+        numberOfStripes = Math.max(1, numberOfStripes);
+        this.stripes = new BitSetTrie[numberOfStripes];
+        this.locks = new ReadWriteLock[numberOfStripes];
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripes[i] = new BitSetTrie();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * The stripe that stores the given set, the empty set is stored in the first stripe.
+     * @param s
+     * @return
+     */
+    private int stripeOf(BitSet s) {
+        int e = s.nextSetBit(0);
+        return e < 0 ? 0 : e % stripes.length;
+    }
+
+    /**
+     * Removes all elements stored in the trie.
+     */
+    public void clear() {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].writeLock().lock();
+            try {
+                stripes[i].clear();
+            } finally {
+                locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the given set into the trie, if it is not already stored. The check and the insertion are performed
+     * atomically, i.e., if multiple threads insert the same set, exactly one of them will succeed.
+     * @param s
+     * @return true if the set was inserted, false if it was already stored in the trie
+     */
+    public boolean insert(BitSet s) {
+        int i = stripeOf(s);
+        locks[i].writeLock().lock();
+        try {
+            if (stripes[i].contains(s)) return false;
+            stripes[i].insert(s);
+            return true;
+        } finally {
+            locks[i].writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether or not the trie stores the given set.
+     * @param s
+     * @return
+     */
+    public boolean contains(BitSet s) {
+        int i = stripeOf(s);
+        locks[i].readLock().lock();
+        try {
+            return stripes[i].contains(s);
+        } finally {
+            locks[i].readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the subsets of the given set s that are stored in the trie (including s).
+     * In contrast to @see BitSetTrie#getSubSets(BitSet), the subsets are collected into a list, i.e., the result is a
+     * snapshot that is not affected by later modifications of the trie.
+     * @param s
+     * @return
+     */
+    public List<BitSet> getSubSets(BitSet s) {
+        List<BitSet> result = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].readLock().lock();
+            try {
+                for (BitSet subset : stripes[i].getSubSets(s)) result.add(subset);
+            } finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether or not the trie stores a superset of the given set s (including s) that satisfies the given
+     * predicate. The supersets are tested one after another, and the search stops at the first one that satisfies
+     * the predicate. The predicate is evaluated while the stripe of the superset is locked for reading, it must not
+     * modify the trie.
+     * @param s
+     * @param predicate
+     * @return true if a stored superset satisfies the predicate
+     */
+    public boolean anySuperSet(BitSet s, Predicate<BitSet> predicate) {
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i].readLock().lock();
+            try {
+                for (BitSet superset : stripes[i].getSuperSets(s)) {
+                    if (predicate.test(superset)) return true;
+                }
+            } finally {
+                locks[i].readLock().unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether or not the trie stores a superset of the given set s (including s).
+     * @param s
+     * @return
+     */
+    public boolean containsSuperSet(BitSet s) {
+        return anySuperSet(s, superset -> true);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+/**
+ * A store for the configurations visited by the exact game solvers, i.e., a map from configurations to int values.
+ * A configuration is given as array of a fixed number of longs (for instance, the words of a bitset), the store copies
+ * it if necessary, i.e., the caller may reuse the array.
+ *
+ * By default, the configurations are stored in a hash map on the heap. If a RAM budget is given with the parameter
+ * -r (in megabytes), they are packed into off-heap memory instead, and configurations exceeding the budget are
+ * stored in memory-mapped files, @see OffHeapConfigurationStore.
+ *
+ * Stores are not thread-safe.
+ *
+ * @author Max Bannach
+ */
+public interface ConfigurationStore {
+
+    /**
+     * Returns the value stored for the given configuration.
+     * @param key the configuration
+     * @param absent the value that is returned if the configuration is not stored
+     * @return the value of the configuration, or absent
+     */
+    int get(long[] key, int absent);
+
+    /**
+     * Stores the given value for the given configuration, an already stored value is overwritten.
+     * @param key the configuration
+     * @param value
+     */
+    void put(long[] key, int value);
+
+    /**
+     * @return the number of stored configurations
+     */
+    int size();
+
+    /**
+     * Removes all configurations from the store.
+     */
+    void clear();
+
+    /**
+     * Creates a store for configurations with the given number of words, which is kept on the heap or off-heap,
+     * depending on the parameter -r.
+     * @param words the length of the configurations
+     * @return a new and empty store
+     */
+    static ConfigurationStore create(int words) {
+        if (!JdrasilProperties.containsKey("r")) return new HeapConfigurationStore(words);
+        long budget = Long.parseLong(JdrasilProperties.getProperty("r")) * 1024 * 1024;
+        return new OffHeapConfigurationStore(words, budget);
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A bitset over a fixed universe \(\{0,\dots,n-1\}\) stored as array of longs.
+ *
+ * In contrast to java.util.BitSet, the number of words never changes: there is no bookkeeping of the words in use,
+ * binary operations work in place on equally sized arrays, and there are fused kernels (such as the cardinality of a
+ * union) that do not need a temporary set. All operations are simple loops over the words, which the JIT compiler can
+ * unroll and vectorize. Binary operations expect both sets to be defined over the same universe.
+ *
+ * @author Max Bannach
+ */
+public class FixedBitSet implements Cloneable {
+
+	/** The words of the set, bit i is stored in words[i >>> 6]. */
+	private final long[] words;
+
+	/** The size of the universe. */
+	private final int n;
+
+	/**
+	 * Creates an empty set over the universe \(\{0,\dots,n-1\}\).
+	 * @param n
+	 */
+	public FixedBitSet(int n) {
+		this.n = n;
+		this.words = new long[(n+63) >>> 6];
+	}
+
+	/**
+	 * Copy constructor.
+	 * @param original
+	 */
+	public FixedBitSet(FixedBitSet original) {
+		this.n = original.n;
+		this.words = original.words.clone();
+	}
+
+	/**
+	 * Creates a set over the universe \(\{0,\dots,n-1\}\) containing the elements of the given BitSet that are smaller than n.
+	 * @param s
+	 * @param n
+	 * @return
+	 */
+	public static FixedBitSet valueOf(BitSet s, int n) {
+		FixedBitSet set = new FixedBitSet(n);
+		long[] w = s.toLongArray();
+		System.arraycopy(w, 0, set.words, 0, Math.min(w.length, set.words.length));
+		set.trim();
+		return set;
+	}
+
+	/**
+	 * @return a java.util.BitSet containing the elements of this set
+	 */
+	public BitSet toBitSet() {
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * @return the size of the universe
+	 */
+	public int size() {
+		return n;
+	}
+
+	public boolean get(int i) {
+		return (words[i >>> 6] & (1L << i)) != 0;
+	}
+
+	public void set(int i) {
+		words[i >>> 6] |= 1L << i;
+	}
+
+	public void clear(int i) {
+		words[i >>> 6] &= ~(1L << i);
+	}
+
+	/**
+	 * Adds all elements of the universe to the set.
+	 */
+	public void setAll() {
+		Arrays.fill(words, -1L);
+		trim();
+	}
+
+	/**
+	 * Removes all elements from the set.
+	 */
+	public void clearAll() {
+		Arrays.fill(words, 0L);
+	}
+
+	/**
+	 * Overwrites this set with the content of the other one.
+	 * @param other
+	 */
+	public void copyFrom(FixedBitSet other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * Replaces this set by its complement with respect to the universe.
+	 */
+	public void complement() {
+		for (int i = 0; i < words.length; i++) words[i] = ~words[i];
+		trim();
+	}
+
+	public void and(FixedBitSet other) {
+		long[] w = other.words;
+		for (int i = 0; i < words.length; i++) words[i] &= w[i];
+	}
+
+	public void or(FixedBitSet other) {
+		long[] w = other.words;
+		for (int i = 0; i < words.length; i++) words[i] |= w[i];
+	}
+
+	public void andNot(FixedBitSet other) {
+		long[] w = other.words;
+		for (int i = 0; i < words.length; i++) words[i] &= ~w[i];
+	}
+
+	/**
+	 * Sets this set to the union of a and b.
+	 * @param a
+	 * @param b
+	 */
+	public void setUnion(FixedBitSet a, FixedBitSet b) {
+		long[] x = a.words, y = b.words;
+		for (int i = 0; i < words.length; i++) words[i] = x[i] | y[i];
+	}
+
+	/**
+	 * @return the number of elements in the set
+	 */
+	public int cardinality() {
+		int c = 0;
+		for (int i = 0; i < words.length; i++) c += Long.bitCount(words[i]);
+		return c;
+	}
+
+	public boolean isEmpty() {
+		for (int i = 0; i < words.length; i++) if (words[i] != 0) return false;
+		return true;
+	}
+
+	/**
+	 * @param other
+	 * @return true if this set and the other one share an element
+	 */
+	public boolean intersects(FixedBitSet other) {
+		long[] w = other.words;
+		for (int i = 0; i < words.length; i++) if ((words[i] & w[i]) != 0) return true;
+		return false;
+	}
+
+	/**
+	 * @param other
+	 * @return true if every element of this set is in the other one
+	 */
+	public boolean isSubsetOf(FixedBitSet other) {
+		long[] w = other.words;
+		for (int i = 0; i < words.length; i++) if ((words[i] & ~w[i]) != 0) return false;
+		return true;
+	}
+
+	/**
+	 * Computes \(|a\cup b|\) without creating the union.
+	 * @param a
+	 * @param b
+	 * @return the size of the union
+	 */
+	public static int unionCardinality(FixedBitSet a, FixedBitSet b) {
+		long[] x = a.words, y = b.words;
+		int c = 0;
+		for (int i = 0; i < x.length; i++) c += Long.bitCount(x[i] | y[i]);
+		return c;
+	}
+
+	/**
+	 * Computes \(|a\cap b|\) without creating the intersection.
+	 * @param a
+	 * @param b
+	 * @return the size of the intersection
+	 */
+	public static int intersectionCardinality(FixedBitSet a, FixedBitSet b) {
+		long[] x = a.words, y = b.words;
+		int c = 0;
+		for (int i = 0; i < x.length; i++) c += Long.bitCount(x[i] & y[i]);
+		return c;
+	}
+
+	/**
+	 * Computes \(|a\setminus(b_1\cup\dots\cup b_k)|\) without creating the difference.
+	 * @param a
+	 * @param b
+	 * @return the size of the difference
+	 */
+	public static int differenceCardinality(FixedBitSet a, FixedBitSet... b) {
+		long[] x = a.words;
+		int c = 0;
+		for (int i = 0; i < x.length; i++) {
+			long w = x[i];
+			for (FixedBitSet s : b) w &= ~s.words[i];
+			c += Long.bitCount(w);
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the index of the first element that is greater or equal to the given one, or -1 if there is none.
+	 * @param from
+	 * @return
+	 */
+	public int nextSetBit(int from) {
+		if (from < 0) from = 0;
+		int i = from >>> 6;
+		if (i >= words.length) return -1;
+		long w = words[i] & (-1L << from);
+		while (true) {
+			if (w != 0) return (i << 6) + Long.numberOfTrailingZeros(w);
+			if (++i == words.length) return -1;
+			w = words[i];
+		}
+	}
+
+	/**
+	 * Returns the index of the last element that is smaller or equal to the given one, or -1 if there is none.
+	 * @param from
+	 * @return
+	 */
+	public int previousSetBit(int from) {
+		if (from < 0) return -1;
+		int i = from >>> 6;
+		if (i >= words.length) {
+			i = words.length-1;
+			from = n-1;
+		}
+		if (i < 0) return -1;
+		long w = words[i] & (-1L >>> (63 - (from & 63)));
+		while (true) {
+			if (w != 0) return (i << 6) + 63 - Long.numberOfLeadingZeros(w);
+			if (i-- == 0) return -1;
+			w = words[i];
+		}
+	}
+
+	/**
+	 * @return the largest element plus one, or 0 if the set is empty
+	 */
+	public int length() {
+		for (int i = words.length-1; i >= 0; i--) {
+			if (words[i] != 0) return (i << 6) + 64 - Long.numberOfLeadingZeros(words[i]);
+		}
+		return 0;
+	}
+
+	/** Clear the unused bits of the last word. */
+	private void trim() {
+		if (words.length > 0 && (n & 63) != 0) words[words.length-1] &= -1L >>> (64 - (n & 63));
+	}
+
+	/**
+	 * Returns a copy of the words of this bitset, i.e., bit i is stored in word i/64 at position i%64.
+	 * @return a new array with the words of the bitset
+	 */
+	public long[] toLongArray() {
+		return words.clone();
+	}
+
+	@Override
+	public FixedBitSet clone() {
+		return new FixedBitSet(this);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof FixedBitSet)) return false;
+		return Arrays.equals(words, ((FixedBitSet) o).words);
+	}
+
+	@Override
+	public int hashCode() {
+		long h = 1234;
+		for (int i = words.length; --i >= 0; ) h ^= words[i] * (i + 1);
+		return (int) ((h >> 32) ^ h);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i+1)) {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append(i);
+		}
+		return sb.append("}").toString();
+	}
+}
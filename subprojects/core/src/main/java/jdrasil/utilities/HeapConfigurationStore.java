@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A @see ConfigurationStore that keeps the configurations in a hash map on the heap.
+ *
+ * @author Max Bannach
+ */
+public class HeapConfigurationStore implements ConfigurationStore {
+
+    /** The stored configurations. */
+    private final Map<Key, Integer> map;
+
+    /** The length of the configurations. */
+    private final int words;
+
+    /**
+     * Creates an empty store for configurations with the given number of words.
+     * @param words
+     */
+    public HeapConfigurationStore(int words) {
+        this.words = words;
+        this.map = new HashMap<>();
+    }
+
+    @Override
+    public int get(long[] key, int absent) {
+        Integer value = map.get(new Key(key));
+        return value == null ? absent : value;
+    }
+
+    @Override
+    public void put(long[] key, int value) {
+        if (key.length != words) throw new IllegalArgumentException("The configuration has " + key.length + " instead of " + words + " words.");
+        map.put(new Key(key.clone()), value);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    /** A configuration as key of the hash map. */
+    private static class Key {
+        final long[] words;
+        Key(long[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(words, ((Key) o).words);
+        }
+    }
+}
@@ -34,6 +34,12 @@ public class JdrasilProperties {
     /** Global properties object used by Jdrasil. */
     private static Properties properties;
 
+    /** The time limit given by -t in nanoseconds, or 0 if there is none. */
+    private static long timeLimit;
+
+    /** Deadline (in terms of System.nanoTime()) of the task of the current thread, overrides the global timeout. */
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
     /** Version of the program. */
     private static final float VERSION = 0.1f;
 
@@ -68,11 +74,56 @@ public class JdrasilProperties {
     public static void setProperty(String key, String value) {
         properties.setProperty(key, value);
     }
+
+    /**
+     * Removes the property 'key'.
+     * @param key
+     */
+    public static void removeProperty(String key) {
+        properties.remove(key);
+    }
+    
+    /**
+     * The time limit given by the -t argument in nanoseconds, or 0 if no time limit was given.
+     * @return the time limit
+     */
+    public static long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * The deadline of the task of the current thread, @see setDeadline.
+     * @return the deadline in terms of System.nanoTime(), or null if the global timeout applies
+     */
+    public static Long getDeadline() {
+        return deadline.get();
+    }
+
+    /**
+     * Sets the deadline of the task of the current thread. As long as it is set, it is used by timeout() in this thread
+     * instead of the global timeout. This is used if multiple graphs are decomposed within one run (e.g., in batch mode),
+     * such that the time limit applies to each graph. Threads that work for the task have to set the deadline as well.
+     * @param deadline in terms of System.nanoTime(), or null to fall back to the global timeout
+     * @return the previous deadline of the current thread
+     */
+    public static Long setDeadline(Long deadline) {
+        Long previous = JdrasilProperties.deadline.get();
+        if (deadline == null) JdrasilProperties.deadline.remove();
+        else JdrasilProperties.deadline.set(deadline);
+        return previous;
+    }
     
     /**
     * If a timeout is specified, return whether this has been reached or not. 
+    * The timeout is also reached if the current thread was interrupted, e.g., if a request of the server was cancelled.
+    * If a deadline is set for the current thread, it is used instead of the global timeout.
     */
     public static boolean timeout(){
+      if(Thread.currentThread().isInterrupted())
+        return true;
+      Long d = deadline.get();
+      if(d != null)
+        return System.nanoTime() > d;
       if(!properties.containsKey("t"))
         return false;
       return System.nanoTime() > Long.parseLong(properties.getProperty("t")); 
@@ -126,7 +177,8 @@ public class JdrasilProperties {
         
         // Set timeout
         if(JdrasilProperties.containsKey("t")){
-          setProperty("t", "" + (System.nanoTime() + 1000 * 1000 * 1000 * Long.parseLong(JdrasilProperties.getProperty("t"))));
+          timeLimit = 1000L * 1000 * 1000 * Long.parseLong(JdrasilProperties.getProperty("t"));
+          setProperty("t", "" + (System.nanoTime() + timeLimit));
         }
     }
 
@@ -141,9 +193,18 @@ public class JdrasilProperties {
         System.out.println("Parameters:");
         System.out.println("  -h : print this dialog");
         System.out.println("  -s <seed> : set a random seed");
-        System.out.println("  -t <timeout> : set a time limit");
+        System.out.println("  -t <timeout> : set a time limit in seconds (per graph in batch mode)");
         System.out.println("  -parallel : enable parallel processing");
+        System.out.println("  -c <directory> : cache decompositions of atoms in this directory (only exact mode)");
         System.out.println("  -instant : computes solution directly (only heuristic mode)");
+        System.out.println("  -m <mode> : exact, heuristic, or approximation (only batch mode)");
+        System.out.println("  -w <workers> : number of graphs decomposed in parallel (batch and server mode), or of heuristic workers (heuristic mode with -parallel)");
+        System.out.println("  -o <directory> : directory for the .td files (only batch mode)");
+        System.out.println("  -p <port> : port on the loopback interface (only server mode)");
+        System.out.println("  -q <requests> : number of requests that may wait for a worker (only server mode)");
+        System.out.println("  -n <vertices> : maximal number of vertices of a request (only server mode)");
+        System.out.println("  -e <edges> : maximal number of edges of a request (only server mode)");
+        System.out.println("  -r <megabytes> : RAM budget of the exact game solvers, configurations beyond it are stored in memory-mapped files");
         System.out.println("  -log : enable log output");
         System.out.println("  -debug : Run some more debugging");
     }
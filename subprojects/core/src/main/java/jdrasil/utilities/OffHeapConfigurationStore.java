@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A @see ConfigurationStore that packs the configurations into memory outside of the Java heap.
+ *
+ * The configurations are distributed over a fixed number of segments by their hash value. Each segment is an open
+ * addressing hash table with linear probing, stored in a single ByteBuffer in which every slot holds an occupied flag,
+ * the value, and the words of the configuration. A segment that becomes too full is rehashed into a buffer of twice the
+ * size. Buffers are allocated as direct buffers as long as the given RAM budget is not exceeded, afterwards they are
+ * memory-mapped from temporary files, i.e., the operating system can spill cold parts of the store to disk.
+ *
+ * @author Max Bannach
+ */
+public class OffHeapConfigurationStore implements ConfigurationStore {
+
+    /** Number of segments, a power of two. */
+    private static final int SEGMENTS = 64;
+
+    /** Number of slots of a new segment, a power of two. */
+    private static final int INITIAL_SLOTS = 64;
+
+    /** The length of the configurations. */
+    private final int words;
+
+    /** Size of a slot in bytes: occupied flag, value, and the words of the configuration. */
+    private final int slotSize;
+
+    /** RAM budget in bytes for direct buffers. */
+    private final long budget;
+
+    /** Bytes currently allocated in direct buffers. */
+    private long allocated;
+
+    /** The segments of the store. */
+    private final ByteBuffer[] segments;
+
+    /** Number of configurations stored in each segment. */
+    private final int[] sizes;
+
+    /** Whether the buffer of a segment is a direct buffer (and not mapped). */
+    private final boolean[] direct;
+
+    /** Number of stored configurations. */
+    private int size;
+
+    /**
+     * Creates an empty store for configurations with the given number of words that keeps at most the given amount
+     * of bytes in RAM.
+     * @param words the length of the configurations
+     * @param budget RAM budget in bytes
+     */
+    public OffHeapConfigurationStore(int words, long budget) {
+        this.words = words;
+        this.slotSize = 8 + 8 * words;
+        this.budget = budget;
+        this.segments = new ByteBuffer[SEGMENTS];
+        this.sizes = new int[SEGMENTS];
+        this.direct = new boolean[SEGMENTS];
+    }
+
+    @Override
+    public int get(long[] key, int absent) {
+        long hash = hash(key);
+        ByteBuffer segment = segments[segment(hash)];
+        if (segment == null) return absent;
+        int slot = find(segment, key, hash);
+        if (segment.getInt(slot) == 0) return absent;
+        return segment.getInt(slot + 4);
+    }
+
+    @Override
+    public void put(long[] key, int value) {
+        if (key.length != words) throw new IllegalArgumentException("The configuration has " + key.length + " instead of " + words + " words.");
+        long hash = hash(key);
+        int s = segment(hash);
+        if (segments[s] == null) allocate(s, INITIAL_SLOTS);
+        ByteBuffer segment = segments[s];
+        int slot = find(segment, key, hash);
+        if (segment.getInt(slot) == 0) {
+            if (4L * (sizes[s] + 1) > 3L * slots(segment)) { // keep load factor below 3/4
+                grow(s);
+                segment = segments[s];
+                slot = find(segment, key, hash);
+            }
+            segment.putInt(slot, 1);
+            for (int i = 0; i < words; i++) segment.putLong(slot + 8 + 8 * i, key[i]);
+            sizes[s]++;
+            size++;
+        }
+        segment.putInt(slot + 4, value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int s = 0; s < SEGMENTS; s++) release(s);
+        size = 0;
+    }
+
+    /**
+     * Find the slot of the given configuration in the segment, or the empty slot at which it would be inserted.
+     * @param segment
+     * @param key
+     * @param hash
+     * @return byte offset of the slot
+     */
+    private int find(ByteBuffer segment, long[] key, long hash) {
+        int mask = slots(segment) - 1;
+        int i = (int) hash & mask;
+        while (true) {
+            int slot = i * slotSize;
+            if (segment.getInt(slot) == 0 || matches(segment, slot, key)) return slot;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Checks if the slot holds the given configuration.
+     * @param segment
+     * @param slot
+     * @param key
+     * @return true if the stored words equal the key
+     */
+    private boolean matches(ByteBuffer segment, int slot, long[] key) {
+        for (int i = 0; i < words; i++) {
+            if (segment.getLong(slot + 8 + 8 * i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rehash segment s into a buffer with twice as many slots.
+     * @param s
+     */
+    private void grow(int s) {
+        ByteBuffer old = segments[s];
+        int oldSlots = slots(old);
+        boolean oldDirect = direct[s];
+        int oldSize = sizes[s];
+        allocate(s, 2 * oldSlots);
+        sizes[s] = oldSize;
+        ByteBuffer segment = segments[s];
+        long[] key = new long[words];
+        for (int i = 0; i < oldSlots; i++) {
+            int from = i * slotSize;
+            if (old.getInt(from) == 0) continue;
+            for (int j = 0; j < words; j++) key[j] = old.getLong(from + 8 + 8 * j);
+            int to = find(segment, key, hash(key));
+            for (int j = 0; j < slotSize; j += 4) segment.putInt(to + j, old.getInt(from + j));
+        }
+        if (oldDirect) allocated -= old.capacity();
+    }
+
+    /**
+     * Allocate a new and empty buffer for segment s. The buffer is a direct buffer if it fits into the budget,
+     * otherwise it is mapped from a temporary file.
+     * @param s
+     * @param slots
+     */
+    private void allocate(int s, int slots) {
+        long bytes = (long) slots * slotSize;
+        if (bytes > Integer.MAX_VALUE) throw new RuntimeException("Configuration store segment exceeds " + Integer.MAX_VALUE + " bytes.");
+        ByteBuffer buffer = null;
+        if (allocated + bytes <= budget) {
+            try {
+                buffer = ByteBuffer.allocateDirect((int) bytes);
+                allocated += bytes;
+                direct[s] = true;
+            } catch (OutOfMemoryError e) {
+                buffer = null;
+            }
+        }
+        if (buffer == null) {
+            buffer = map((int) bytes);
+            direct[s] = false;
+        }
+        segments[s] = buffer;
+        sizes[s] = 0;
+    }
+
+    /**
+     * Release the buffer of segment s.
+     * @param s
+     */
+    private void release(int s) {
+        if (segments[s] != null && direct[s]) allocated -= segments[s].capacity();
+        segments[s] = null;
+        sizes[s] = 0;
+        direct[s] = false;
+    }
+
+    /**
+     * Map a zero-initialized buffer of the given size from a temporary file. The file is deleted immediately, the
+     * mapping stays valid until the buffer is garbage collected.
+     * @param bytes
+     * @return the mapped buffer
+     */
+    private static ByteBuffer map(int bytes) {
+        try {
+            File file = File.createTempFile("jdrasil", ".store");
+            ByteBuffer buffer;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            }
+            if (!file.delete()) file.deleteOnExit();
+            return buffer;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not map configuration store to disk.", e);
+        }
+    }
+
+    /**
+     * @param segment
+     * @return number of slots of the segment
+     */
+    private int slots(ByteBuffer segment) {
+        return segment.capacity() / slotSize;
+    }
+
+    /**
+     * The segment of a configuration is given by the highest bits of its hash value.
+     * @param hash
+     * @return index of the segment
+     */
+    private static int segment(long hash) {
+        return (int) (hash >>> 58);
+    }
+
+    /**
+     * Hash function for configurations.
+     * @param key
+     * @return 64 bit hash value
+     */
+    private static long hash(long[] key) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (long w : key) {
+            h ^= w;
+            h *= 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 29);
+    }
+}
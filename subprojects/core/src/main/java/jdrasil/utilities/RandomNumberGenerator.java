@@ -19,34 +19,89 @@
 package jdrasil.utilities;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
 /**
- * Static overlay of Javas random number generator, as we globally need a single random sequence, that can
+ * Static overlay of Javas random number generator, as we globally need a random sequence, that can
  * be seeded with a single seed.
  *
+ * Every thread draws from its own dice, such that threads do not compete for a shared state. The dice are based on
+ * Javas SplittableRandom and can be split into independent dice deterministically. The thread that calls
+ * {@link RandomNumberGenerator#seed(long)} draws from a dice with exactly this seed, other threads obtain a dice that
+ * is split off a root dice when they draw their first number. Since the order in which threads do this is not fixed,
+ * parallel tasks that should be reproducible have to split their dice from the dice of the thread that creates them
+ * (with {@link RandomNumberGenerator#split()}) and install it while they run (with
+ * {@link RandomNumberGenerator#setDice(Dice)}).
+ *
  * This should be the only source of randomness used by classes and methods of Jdrasil.
  *
  * @author Max Bannach
  */
 public class RandomNumberGenerator {
 
-    /** The random source of Jdrasil. */
-    private static Random dice;
+    /** The root from which the dice of threads are split, that did not install a dice on their own. */
+    private static SplittableRandom root;
+
+    /** The dice of the individual threads. */
+    private static final ThreadLocal<Dice> dice = ThreadLocal.withInitial(RandomNumberGenerator::splitRoot);
 
-    /** Static constructor that just will load the Random object. */
+    /** Static constructor that just will load the root. */
     static {
-        dice = new Random();
+        root = new SplittableRandom();
+    }
+
+    /**
+     * Split a new dice of the root, used by threads that draw their first number.
+     * @return a new dice
+     */
+    private static synchronized Dice splitRoot() {
+        return new Dice(root.split());
     }
 
     /**
-     * Seed the random number generator of Jdrasil
+     * Seed the random number generator of Jdrasil.
+     * The current thread will draw from a dice with the given seed, the dice of threads that did not draw yet are
+     * derived from the seed as well.
      * @param seed to be used
      */
     public static void seed(long seed) {
-        dice.setSeed(seed);
+        synchronized (RandomNumberGenerator.class) {
+            root = new SplittableRandom(seed).split();
+        }
+        dice.set(fromSeed(seed));
+    }
+
+    /**
+     * Create a dice with the given seed, without touching the generator of Jdrasil. The dice draws the same numbers as
+     * a thread after seed(seed), and can be installed for a single task with setDice.
+     * @param seed to be used
+     * @return a new dice
+     */
+    public static Dice fromSeed(long seed) {
+        return new Dice(new SplittableRandom(seed));
+    }
+
+    /**
+     * Split a new dice of the dice of the current thread. The new dice is independent of the current one, but is
+     * determined by its state. This can be used to hand reproducible dice to tasks that run in other threads.
+     * @return a new dice
+     */
+    public static Dice split() {
+        return dice.get().split();
+    }
+
+    /**
+     * Let the current thread draw from the given dice.
+     * @param newDice to be used by the current thread
+     * @return the dice used by the thread before, such that it can be restored
+     */
+    public static Dice setDice(Dice newDice) {
+        Dice old = dice.get();
+        dice.set(newDice);
+        return old;
     }
 
     /**
@@ -54,7 +109,7 @@ public class RandomNumberGenerator {
      * @return random integer
      */
     public static int nextInt() {
-        return dice.nextInt();
+        return dice.get().nextInt();
     }
 
     /**
@@ -63,7 +118,7 @@ public class RandomNumberGenerator {
      * @return random integer less then the given bound
      */
     public static int nextInt(int bound) {
-        return dice.nextInt(bound);
+        return dice.get().nextInt(bound);
     }
 
     /**
@@ -71,7 +126,7 @@ public class RandomNumberGenerator {
      * @return random double
      */
     public static double nextDouble() {
-        return dice.nextDouble();
+        return dice.get().nextDouble();
     }
 
     /**
@@ -79,7 +134,7 @@ public class RandomNumberGenerator {
      * @return random long
      */
     public static long nextLong() {
-        return dice.nextLong();
+        return dice.get().nextLong();
     }
 
     /**
@@ -87,7 +142,7 @@ public class RandomNumberGenerator {
      * @return random boolean
      */
     public static boolean nextBoolean() {
-        return dice.nextBoolean();
+        return dice.get().nextBoolean();
     }
 
     /**
@@ -95,7 +150,7 @@ public class RandomNumberGenerator {
      * @return random float
      */
     public static float nextFloat() {
-        return dice.nextFloat();
+        return dice.get().nextFloat();
     }
 
     /**
@@ -103,14 +158,14 @@ public class RandomNumberGenerator {
      * @return random double
      */
     public static double nextGaussian() {
-        return dice.nextGaussian();
+        return dice.get().nextGaussian();
     }
 
     /**
      * @see Random#nextBytes(byte[])
      */
     public static void nextBytes(byte[] bytes) {
-        dice.nextBytes(bytes);
+        dice.get().nextBytes(bytes);
     }
 
     /**
@@ -118,7 +173,7 @@ public class RandomNumberGenerator {
      * @return random IntStream
      */
     public static IntStream ints() {
-        return dice.ints();
+        return dice.get().ints();
     }
 
     /**
@@ -126,7 +181,7 @@ public class RandomNumberGenerator {
      * @return random IntStream
      */
     public static IntStream ints(int randomNumberOrigin, int randomNumberBound) {
-        return dice.ints(randomNumberOrigin, randomNumberBound);
+        return dice.get().ints(randomNumberOrigin, randomNumberBound);
     }
 
     /**
@@ -134,7 +189,7 @@ public class RandomNumberGenerator {
      * @return random IntStream
      */
     public static IntStream ints(long streamSize) {
-        return dice.ints(streamSize);
+        return dice.get().ints(streamSize);
     }
 
     /**
@@ -142,7 +197,7 @@ public class RandomNumberGenerator {
      * @return random IntStream
      */
     public static IntStream ints(long streamSize, int randomNumberOrigin, int randomNumberBound) {
-        return dice.ints(streamSize, randomNumberOrigin, randomNumberBound);
+        return dice.get().ints(streamSize, randomNumberOrigin, randomNumberBound);
     }
 
     /**
@@ -150,7 +205,7 @@ public class RandomNumberGenerator {
      * @return random DoubleStream
      */
     public static DoubleStream doubles() {
-        return dice.doubles();
+        return dice.get().doubles();
     }
 
     /**
@@ -158,7 +213,7 @@ public class RandomNumberGenerator {
      * @return random DoubleStream
      */
     public static DoubleStream doubles(double randomNumberOrigin, double randomNumberBound) {
-        return dice.doubles(randomNumberOrigin,randomNumberBound);
+        return dice.get().doubles(randomNumberOrigin,randomNumberBound);
     }
 
     /**
@@ -166,7 +221,7 @@ public class RandomNumberGenerator {
      * @return random DoubleStream
      */
     public static DoubleStream doubles(long streamSize) {
-        return dice.doubles(streamSize);
+        return dice.get().doubles(streamSize);
     }
 
     /**
@@ -174,7 +229,7 @@ public class RandomNumberGenerator {
      * @return random DoubleStream
      */
     public static DoubleStream doubles(long streamSize, double randomNumberOrigin, double randomNumberBound) {
-        return dice.doubles(streamSize, randomNumberOrigin, randomNumberBound);
+        return dice.get().doubles(streamSize, randomNumberOrigin, randomNumberBound);
     }
 
     /**
@@ -182,7 +237,7 @@ public class RandomNumberGenerator {
      * @return random LongStream
      */
     public static LongStream longs() {
-        return dice.longs();
+        return dice.get().longs();
     }
 
     /**
@@ -190,7 +245,7 @@ public class RandomNumberGenerator {
      * @return random LongStream
      */
     public static LongStream longs(long streamSize) {
-        return dice.longs(streamSize);
+        return dice.get().longs(streamSize);
     }
 
     /**
@@ -198,7 +253,7 @@ public class RandomNumberGenerator {
      * @return random LongStream
      */
     public static LongStream longs(long randomNumberOrigin, long randomNumberBound) {
-        return dice.longs(randomNumberOrigin, randomNumberBound);
+        return dice.get().longs(randomNumberOrigin, randomNumberBound);
     }
 
     /**
@@ -206,14 +261,141 @@ public class RandomNumberGenerator {
      * @return random LongStream
      */
     public static LongStream longs(long streamSize, long randomNumberOrigin, long randomNumberBound) {
-        return dice.longs(streamSize, randomNumberOrigin, randomNumberBound);
+        return dice.get().longs(streamSize, randomNumberOrigin, randomNumberBound);
     }
 
+
     /**
-     * Get the underlying random object.
+     * Get the dice of the current thread. The dice is a Random object and can, thus, be used for methods
+     * like Collections.shuffle. It should not be handed to other threads.
      * @return
      */
-    public static Random getDice() {
-        return dice;
+    public static Dice getDice() {
+        return dice.get();
+    }
+
+    /**
+     * A Random object that draws from a SplittableRandom. In contrast to Random, it does not synchronize its state,
+     * i.e., it can only be used by a single thread, but it can be split into independent dice.
+     */
+    public static class Dice extends Random {
+
+        private static final long serialVersionUID = 4672934718094736521L;
+
+        /** The source of the random numbers. */
+        private SplittableRandom source;
+
+        /**
+         * Create a dice that draws from the given source.
+         * @param source
+         */
+        private Dice(SplittableRandom source) {
+            this.source = source;
+        }
+
+        /**
+         * Split a new, independent dice of this dice.
+         * @see SplittableRandom#split()
+         * @return a new dice
+         */
+        public Dice split() {
+            return new Dice(source.split());
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            super.setSeed(seed); // resets the state of nextGaussian()
+            source = new SplittableRandom(seed);
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int) (source.nextLong() >>> (64 - bits));
+        }
+
+        @Override
+        public int nextInt() {
+            return source.nextInt();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return source.nextInt(bound);
+        }
+
+        @Override
+        public long nextLong() {
+            return source.nextLong();
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            return source.nextBoolean();
+        }
+
+        @Override
+        public double nextDouble() {
+            return source.nextDouble();
+        }
+
+        @Override
+        public IntStream ints(long streamSize) {
+            return source.ints(streamSize);
+        }
+
+        @Override
+        public IntStream ints() {
+            return source.ints();
+        }
+
+        @Override
+        public IntStream ints(long streamSize, int randomNumberOrigin, int randomNumberBound) {
+            return source.ints(streamSize, randomNumberOrigin, randomNumberBound);
+        }
+
+        @Override
+        public IntStream ints(int randomNumberOrigin, int randomNumberBound) {
+            return source.ints(randomNumberOrigin, randomNumberBound);
+        }
+
+        @Override
+        public LongStream longs(long streamSize) {
+            return source.longs(streamSize);
+        }
+
+        @Override
+        public LongStream longs() {
+            return source.longs();
+        }
+
+        @Override
+        public LongStream longs(long streamSize, long randomNumberOrigin, long randomNumberBound) {
+            return source.longs(streamSize, randomNumberOrigin, randomNumberBound);
+        }
+
+        @Override
+        public LongStream longs(long randomNumberOrigin, long randomNumberBound) {
+            return source.longs(randomNumberOrigin, randomNumberBound);
+        }
+
+        @Override
+        public DoubleStream doubles(long streamSize) {
+            return source.doubles(streamSize);
+        }
+
+        @Override
+        public DoubleStream doubles() {
+            return source.doubles();
+        }
+
+        @Override
+        public DoubleStream doubles(long streamSize, double randomNumberOrigin, double randomNumberBound) {
+            return source.doubles(streamSize, randomNumberOrigin, randomNumberBound);
+        }
+
+        @Override
+        public DoubleStream doubles(double randomNumberOrigin, double randomNumberBound) {
+            return source.doubles(randomNumberOrigin, randomNumberBound);
+        }
     }
 }
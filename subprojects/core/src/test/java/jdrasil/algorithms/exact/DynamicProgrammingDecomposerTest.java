@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.algorithms.exact;
+
+import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
+import jdrasil.graph.TreeDecomposition;
+import jdrasil.utilities.JdrasilProperties;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the dynamic programs: the layer-wise simple dynamic program has to compute valid decompositions of the
+ * same width as the recursive one, sequentially and in parallel.
+ *
+ * @author Max Bannach
+ */
+public class DynamicProgrammingDecomposerTest {
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    /* number of random graphs per test */
+    private final int GRAPHS = 40;
+
+    /* maximal number of vertices of the random graphs (such that the layers consist of multiple blocks) */
+    private final int MAX_N = 15;
+
+    private Graph<Integer> randomGraph(Random rng) {
+        int n = 1 + rng.nextInt(MAX_N);
+        double p = 0.1 + 0.6 * rng.nextDouble();
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 1; v <= n; v++) G.addVertex(v);
+        for (int u = 1; u <= n; u++) for (int v = u+1; v <= n; v++) if (rng.nextDouble() < p) G.addEdge(u, v);
+        return G;
+    }
+
+    private void compareWithRecursiveDP() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < GRAPHS; test++) {
+            Graph<Integer> G = randomGraph(rng);
+            TreeDecomposition<Integer> simple = new DynamicProgrammingDecomposer<>(G, DynamicProgrammingDecomposer.Mode.simpleDP).call();
+            TreeDecomposition<Integer> recursive = new DynamicProgrammingDecomposer<>(G, DynamicProgrammingDecomposer.Mode.recursiveDP).call();
+            assertTrue(simple.isValid());
+            assertEquals(recursive.getWidth(), simple.getWidth());
+        }
+    }
+
+    @org.junit.Test
+    public void simpleDP() throws Exception {
+        compareWithRecursiveDP();
+    }
+
+    @org.junit.Test
+    public void parallelSimpleDP() throws Exception {
+        JdrasilProperties.setProperty("parallel", "");
+        try {
+            compareWithRecursiveDP();
+        } finally {
+            JdrasilProperties.removeProperty("parallel");
+        }
+    }
+
+    @org.junit.Test(expected = IllegalStateException.class)
+    public void simpleDPTooLarge() throws Exception {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 1; v <= 31; v++) G.addVertex(v);
+        new DynamicProgrammingDecomposer<>(G, DynamicProgrammingDecomposer.Mode.simpleDP).call();
+    }
+
+}
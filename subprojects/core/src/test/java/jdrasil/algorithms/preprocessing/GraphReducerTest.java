@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.algorithms.preprocessing;
+
+import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer;
+import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
+import jdrasil.graph.TreeDecomposition;
+import jdrasil.utilities.JdrasilProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the graph reducer: graphs of tree-width at most three have to be reduced completely (also if they are
+ * large), the glued decompositions have to be valid, and the reduction must not depend on the parallel mode.
+ *
+ * @author Max Bannach
+ */
+public class GraphReducerTest {
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    /* a random k-tree with n vertices, from which every edge is removed with the given probability */
+    private Graph<Integer> partialKTree(Random rng, int n, int k, double drop) {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        List<int[]> cliques = new ArrayList<>();
+        int[] first = new int[k];
+        for (int v = 1; v <= n; v++) G.addVertex(v);
+        for (int v = 1; v <= k; v++) first[v-1] = v;
+        cliques.add(first);
+        List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < k; i++) for (int j = i+1; j < k; j++) edges.add(new int[]{ first[i], first[j] });
+        for (int v = k+1; v <= n; v++) {
+            int[] clique = cliques.get(rng.nextInt(cliques.size()));
+            for (int u : clique) edges.add(new int[]{ u, v });
+            for (int i = 0; i < k; i++) { // the new k-cliques containing v
+                int[] next = clique.clone();
+                next[i] = v;
+                cliques.add(next);
+            }
+        }
+        for (int[] e : edges) if (rng.nextDouble() >= drop) G.addEdge(e[0], e[1]);
+        return G;
+    }
+
+    @org.junit.Test
+    public void largePartialThreeTrees() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 4; test++) {
+            Graph<Integer> G = partialKTree(rng, 5000, 3, 0.2*test);
+            GraphReducer<Integer> reducer = new GraphReducer<>(G);
+            assertEquals(0, reducer.getProcessedGraph().getNumVertices());
+            TreeDecomposition<Integer> td = reducer.getTreeDecomposition();
+            assertTrue(td.getWidth() <= 3);
+            assertTrue(td.isValid());
+        }
+    }
+
+    @org.junit.Test
+    public void gluedDecompositions() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 16; test++) {
+            Graph<Integer> G = partialKTree(rng, 300, 3 + test % 4, 0.3);
+            for (int i = 0; i < 30; i++) { // some random edges that increase the tree-width
+                int u = 1 + rng.nextInt(300), v = 1 + rng.nextInt(300);
+                if (u != v && !G.isAdjacent(u, v)) G.addEdge(u, v);
+            }
+            GraphReducer<Integer> reducer = new GraphReducer<>(G);
+            Graph<Integer> reduced = reducer.getProcessedGraph();
+            if (reduced.getNumVertices() > 0) {
+                reducer.addbackTreeDecomposition(new GreedyPermutationDecomposer<>(reduced).call());
+            }
+            assertTrue(reducer.getTreeDecomposition().isValid());
+        }
+    }
+
+    /* a random partial k-tree with some random edges that increase the tree-width */
+    private Graph<Integer> noisyPartialKTree(Random rng, int n, int k) {
+        Graph<Integer> G = partialKTree(rng, n, k, 0.3);
+        for (int i = 0; i < n/10; i++) {
+            int u = 1 + rng.nextInt(n), v = 1 + rng.nextInt(n);
+            if (u != v && !G.isAdjacent(u, v)) G.addEdge(u, v);
+        }
+        return G;
+    }
+
+    @org.junit.Test
+    public void parallelReduction() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 16; test++) {
+            Graph<Integer> G = noisyPartialKTree(rng, 300, 3 + test % 4);
+            GraphReducer<Integer> sequential = new GraphReducer<>(G);
+            Graph<Integer> sequentialGraph = sequential.getProcessedGraph();
+            JdrasilProperties.setProperty("parallel", "");
+            GraphReducer<Integer> parallel;
+            try {
+                parallel = new GraphReducer<>(G);
+                parallel.getProcessedGraph();
+            } finally {
+                JdrasilProperties.removeProperty("parallel");
+            }
+            Graph<Integer> parallelGraph = parallel.getProcessedGraph();
+
+            // the same reduced graph
+            assertEquals(sequentialGraph.getCopyOfVertices(), parallelGraph.getCopyOfVertices());
+            for (Integer v : sequentialGraph) {
+                assertEquals(sequentialGraph.getNeighborhood(v), parallelGraph.getNeighborhood(v));
+            }
+
+            // and the same stack of bags
+            assertEquals(sequential.getReductionBags(), parallel.getReductionBags());
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.algorithms.upperbounds;
+
+import jdrasil.graph.Graph;
+import jdrasil.graph.GraphFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the local search: the incremental evaluation of a move has to compute the same cost as the evaluation
+ * of the modified permutation from scratch.
+ *
+ * @author Max Bannach
+ */
+public class LocalSearchDecomposerTest {
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    /* number of random graphs per test */
+    private final int GRAPHS = 20;
+
+    /* number of random moves per graph */
+    private final int MOVES = 50;
+
+    private Graph<Integer> randomGraph(Random rng, int n, int m) {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 1; v <= n; v++) G.addVertex(v);
+        for (int i = 0; i < m; i++) {
+            int u = 1 + rng.nextInt(n), v = 1 + rng.nextInt(n);
+            if (u != v) G.addEdge(u, v);
+        }
+        return G;
+    }
+
+    @org.junit.Test
+    public void evalMove() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < GRAPHS; test++) {
+            int n = 2 + rng.nextInt(40);
+            Graph<Integer> G = randomGraph(rng, n, rng.nextInt(3*n));
+            List<Integer> perm = new ArrayList<>(G.getCopyOfVertices());
+            Collections.shuffle(perm, rng);
+
+            LocalSearchDecomposer<Integer> localSearch = new LocalSearchDecomposer<>(G, 1, 1, perm);
+            LocalSearchDecomposer<Integer>.MoveEvaluator evaluator = localSearch.new MoveEvaluator(GraphFactory.copy(G));
+            evaluator.start(perm);
+            for (int move = 0; move < MOVES + 3*n; move++) {
+                int p = rng.nextInt(n);
+                int j = rng.nextInt(n+1);
+                if (move < 3*n) { // move every vertex to both ends of the permutation, and to its own position
+                    p = move / 3;
+                    j = move % 3 == 0 ? 0 : move % 3 == 1 ? n-1 : p;
+                }
+                long expected = localSearch.evalPerm(localSearch.modifyPerm(perm, perm.get(p), p, j));
+                assertEquals(expected, evaluator.evalMove(p, j));
+            }
+            evaluator.stop();
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer;
+import jdrasil.graph.invariants.ColorRefinement;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the decomposition cache, which has to find relabelled graphs, must not confuse graphs with the same
+ * fingerprint, and has to evict the least recently used entries.
+ *
+ * @author Max Bannach
+ */
+public class DecompositionCacheTest {
+
+    /* number of vertices of the random graphs */
+    private final int N = 60;
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    /* temporary directories created by the test, deleted after it */
+    private final List<File> directories = new ArrayList<>();
+
+    private Graph<Integer> randomGraph(Random rng) {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 1; v <= N; v++) G.addVertex(v);
+        for (int i = 0; i < 3*N; i++) {
+            int u = 1 + rng.nextInt(N), v = 1 + rng.nextInt(N);
+            if (u != v) G.addEdge(u, v);
+        }
+        return G;
+    }
+
+    private Graph<Integer> relabel(Graph<Integer> G, Random rng) {
+        List<Integer> labels = new ArrayList<>();
+        for (int v = 1; v <= N; v++) labels.add(1000 + v);
+        Collections.shuffle(labels, rng);
+        Graph<Integer> H = GraphFactory.emptyGraph();
+        for (int v = N; v >= 1; v--) H.addVertex(labels.get(v-1));
+        for (int v : G) for (int w : G.getNeighborhood(v)) if (v < w) H.addEdge(labels.get(v-1), labels.get(w-1));
+        return H;
+    }
+
+    private Graph<Integer> cycles(int... lengths) {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        int offset = 1;
+        for (int length : lengths) {
+            for (int i = 0; i < length; i++) G.addVertex(offset + i);
+            for (int i = 0; i < length; i++) G.addEdge(offset + i, offset + (i+1) % length);
+            offset += length;
+        }
+        return G;
+    }
+
+    private File temporaryDirectory() throws Exception {
+        File directory = Files.createTempDirectory("jdrasil").toFile();
+        directories.add(directory);
+        return directory;
+    }
+
+    private void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        file.delete();
+    }
+
+    @org.junit.After
+    public void deleteTemporaryDirectories() {
+        for (File directory : directories) delete(directory);
+        directories.clear();
+    }
+
+    @org.junit.Test
+    public void relabelledGraphs() throws Exception {
+        Random rng = new Random(SEED);
+        File directory = temporaryDirectory();
+        DecompositionCache cache = new DecompositionCache(directory, Long.MAX_VALUE);
+        for (int test = 0; test < 8; test++) {
+            Graph<Integer> G = randomGraph(rng);
+            Graph<Integer> H = relabel(G, rng);
+            assertEquals(new ColorRefinement<>(G).getValue(), new ColorRefinement<>(H).getValue());
+            assertNull(cache.lookup(H));
+
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(G).call();
+            cache.put(G, td, td.getWidth());
+            DecompositionCache.Hit<Integer> hit = cache.lookup(H);
+            assertNotNull(hit);
+            assertTrue(hit.isOptimal());
+            assertEquals(td.getWidth(), hit.decomposition.getWidth());
+            assertSame(H, hit.decomposition.getGraph());
+            assertTrue(hit.decomposition.isValid());
+
+            // a larger lower bound is merged into the entry
+            cache.put(H, null, td.getWidth()+1);
+            assertEquals(td.getWidth()+1, cache.lookup(G).lowerbound);
+            assertEquals(td.getWidth(), cache.lookup(G).decomposition.getWidth());
+        }
+        assertEquals(8, cache.size());
+
+        // the entries are persistent
+        assertEquals(8, new DecompositionCache(directory, Long.MAX_VALUE).size());
+    }
+
+    @org.junit.Test
+    public void sameFingerprint() throws Exception {
+        DecompositionCache cache = new DecompositionCache(temporaryDirectory(), Long.MAX_VALUE);
+        Graph<Integer> C6 = cycles(6);
+        Graph<Integer> C3C3 = cycles(3, 3);
+        assertEquals(new ColorRefinement<>(C6).getValue(), new ColorRefinement<>(C3C3).getValue());
+        TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(C6).call();
+        cache.put(C6, td, 2);
+        assertNull(cache.lookup(C3C3));
+        assertNotNull(cache.lookup(C6));
+    }
+
+    @org.junit.Test
+    public void leastRecentlyUsed() throws Exception {
+        Random rng = new Random(SEED);
+        Graph<Integer> A = randomGraph(rng), B = randomGraph(rng), C = randomGraph(rng);
+
+        // measure the size of the entries
+        File directory = temporaryDirectory();
+        DecompositionCache unbounded = new DecompositionCache(directory, Long.MAX_VALUE);
+        long size = 0;
+        for (Graph<Integer> G : new Graph[]{A, B, C}) {
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(G).call();
+            unbounded.put(G, td, 0);
+        }
+        for (File file : directory.listFiles()) size += file.length();
+
+        // there is space for all but B, which is the least recently used one
+        DecompositionCache cache = new DecompositionCache(temporaryDirectory(), size-1);
+        for (Graph<Integer> G : new Graph[]{A, B}) cache.put(G, unbounded.lookup(G).decomposition, 0);
+        assertNotNull(cache.lookup(A));
+        cache.put(C, unbounded.lookup(C).decomposition, 0);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.lookup(A));
+        assertNull(cache.lookup(B));
+        assertNotNull(cache.lookup(C));
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the byte level GraphReader. Pseudo random .gr files are parsed from a mapped file and from a channel
+ * and compared with the result of the line based parser.
+ *
+ * @author Max Bannach
+ */
+public class GraphReaderTest {
+
+    /* number of vertices of the random graphs */
+    private final int N = 300;
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    private void assertSameGraph(Graph<Integer> expected, Graph<Integer> actual) {
+        assertEquals(expected.getCopyOfVertices(), actual.getCopyOfVertices());
+        assertEquals(expected.getNumberOfEdges(), actual.getNumberOfEdges());
+        for (int v : expected) assertEquals(expected.getNeighborhood(v), actual.getNeighborhood(v));
+        assertNull(actual.checkFillValues());
+    }
+
+    @org.junit.Test
+    public void randomGrFiles() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 8; test++) {
+            StringBuilder sb = new StringBuilder("c random graph\n");
+            int m = rng.nextInt(4*N);
+            sb.append("p tw ").append(N).append(" ").append(m).append("\n");
+            for (int i = 0; i < m; i++) {
+                int u = 1 + rng.nextInt(N);
+                int v = 1 + rng.nextInt(N);
+                if (u == v) v = u % N + 1;
+                sb.append(u).append(" ").append(v).append("\n");
+                if (rng.nextInt(16) == 0) sb.append("c comment\n");
+            }
+            String content = sb.toString();
+            Graph<Integer> expected = GraphFactory.graphFromBufferedReaderGR(new BufferedReader(new StringReader(content)));
+
+            // from a channel
+            byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+            assertSameGraph(expected, GraphReader.read(Channels.newChannel(new ByteArrayInputStream(bytes))));
+
+            // from a mapped file
+            File file = File.createTempFile("jdrasil", ".gr");
+            file.deleteOnExit();
+            try (FileOutputStream out = new FileOutputStream(file)) { out.write(bytes); }
+            assertSameGraph(expected, GraphFactory.graphFromGr(file));
+            file.delete();
+        }
+    }
+
+    @org.junit.Test
+    public void dgfLines() throws Exception {
+        String content = "c test\r\nn 1 foo\np edge 6 3\r\n1 2\r\n\n  e 2 3 extra\nd 4 5\n3\t4 7\nx 1 2\nb 3\nl 4\nv 5";
+        Graph<Integer> G = GraphReader.read(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(6, G.getNumVertices());
+        assertEquals(3, G.getNumberOfEdges());
+        assertTrue(G.isAdjacent(1, 2));
+        assertTrue(G.isAdjacent(2, 3));
+        assertTrue(G.isAdjacent(3, 4));
+        assertEquals(0, G.getNeighborhood(6).size());
+    }
+
+    @org.junit.Test
+    public void problemLineWithoutEdges() throws Exception {
+        String content = "p tw 5\n1 2\n2 3\n";
+        Graph<Integer> G = GraphReader.read(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(5, G.getNumVertices());
+        assertEquals(2, G.getNumberOfEdges());
+
+        // the number of edges is only a hint, a wrong one neither allocates that much space nor limits the edges
+        content = "p tw 4 2000000000\n1 2\n2 3\n3 4\n";
+        G = GraphReader.read(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(4, G.getNumVertices());
+        assertEquals(3, G.getNumberOfEdges());
+    }
+
+    @org.junit.Test
+    public void bufferedReaderProblemLine() throws Exception {
+        Graph<Integer> G = GraphFactory.graphFromBufferedReaderGR(new BufferedReader(new StringReader("p tw 5\n1 2\n2 3\n")));
+        assertEquals(5, G.getNumVertices());
+        assertEquals(2, G.getNumberOfEdges());
+        G = GraphFactory.graphFromBufferedReaderGR(new BufferedReader(new StringReader("p tw 4 2000000000\n1 2\n2 3\n3 4\n")));
+        assertEquals(4, G.getNumVertices());
+        assertEquals(3, G.getNumberOfEdges());
+    }
+
+    @org.junit.Test
+    public void concatenatedGraphs() throws Exception {
+        String content = "c first\np tw 3 2\n1 2\n2 3\np tw 2 0\n\nc third\np tw 4 1\n4 1\nc trailing comment\n";
+        List<Graph<Integer>> graphs = new ArrayList<>();
+        int count = GraphReader.readAll(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII))), graphs::add);
+        assertEquals(3, count);
+        assertEquals(3, graphs.size());
+        assertEquals(3, graphs.get(0).getNumVertices());
+        assertEquals(2, graphs.get(0).getNumberOfEdges());
+        assertEquals(2, graphs.get(1).getNumVertices());
+        assertEquals(0, graphs.get(1).getNumberOfEdges());
+        assertEquals(4, graphs.get(2).getNumVertices());
+        assertTrue(graphs.get(2).isAdjacent(1, 4));
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the streaming output of tree decompositions, which has to produce the same text as the String based one,
+ * and for the binary format of graphs and tree decompositions.
+ *
+ * @author Max Bannach
+ */
+public class GraphWriterTest {
+
+    /* number of vertices of the random graphs */
+    private final int N = 200;
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    private <T extends Comparable<T>> void assertSameOutput(TreeDecomposition<T> td) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphWriter.writeTreeDecomposition(td, out);
+        assertEquals(GraphWriter.treedecompositionToString(td) + "\n", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @org.junit.Test
+    public void streamedTreeDecomposition() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 8; test++) {
+            Graph<Integer> G = GraphFactory.emptyGraph();
+            for (int v = 1; v <= N; v++) G.addVertex(v);
+            int m = rng.nextInt(4*N);
+            for (int i = 0; i < m; i++) {
+                int u = 1 + rng.nextInt(N);
+                int v = 1 + rng.nextInt(N);
+                if (u != v) G.addEdge(u, v);
+            }
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(G).call();
+            td.connectComponents();
+            assertSameOutput(td);
+        }
+    }
+
+    @org.junit.Test
+    public void nonIntegerVertices() throws Exception {
+        Graph<String> G = GraphFactory.emptyGraph();
+        G.addVertex("a");
+        G.addVertex("b");
+        G.addVertex("c");
+        G.addEdge("a", "b");
+        G.addEdge("b", "c");
+        TreeDecomposition<String> td = new TreeDecomposition<>(G);
+        Set<String> left = new HashSet<>(), right = new HashSet<>();
+        left.add("a"); left.add("b");
+        right.add("b"); right.add("c");
+        td.addTreeEdge(td.createBag(left), td.createBag(right));
+        assertSameOutput(td);
+    }
+
+    @org.junit.Test
+    public void binaryRoundTrip() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 8; test++) {
+
+            // sparse and partially negative labels, as after a reduction of the graph
+            Graph<Integer> G = GraphFactory.emptyGraph();
+            for (int v = 1; v <= N; v++) G.addVertex(37*v - 1000);
+            int m = rng.nextInt(4*N);
+            for (int i = 0; i < m; i++) {
+                int u = 37*(1 + rng.nextInt(N)) - 1000;
+                int v = 37*(1 + rng.nextInt(N)) - 1000;
+                if (u != v) G.addEdge(u, v);
+            }
+            for (int i = 0; i < N/10; i++) G.removeVertex(37*(1 + rng.nextInt(N)) - 1000);
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(G).call();
+
+            File graphFile = File.createTempFile("jdrasil", ".grb");
+            File tdFile = File.createTempFile("jdrasil", ".tdb");
+            graphFile.deleteOnExit();
+            tdFile.deleteOnExit();
+            try (FileOutputStream out = new FileOutputStream(graphFile)) {
+                GraphWriter.writeBinaryGraph(G, out);
+            }
+            try (FileOutputStream out = new FileOutputStream(tdFile)) {
+                GraphWriter.writeBinaryTreeDecomposition(td, out);
+            }
+
+            // the graph has to be the same
+            Graph<Integer> H = GraphFactory.graphFromBinary(graphFile);
+            assertEquals(G.getCopyOfVertices(), H.getCopyOfVertices());
+            assertEquals(G.getNumberOfEdges(), H.getNumberOfEdges());
+            for (Integer v : G) assertEquals(G.getNeighborhood(v), H.getNeighborhood(v));
+
+            // the decomposition has the same bags in the same order and is valid for the loaded graph
+            TreeDecomposition<Integer> loaded = GraphFactory.treeDecompositionFromBinary(tdFile, H);
+            assertEquals(td.getWidth(), loaded.getWidth());
+            assertEquals(td.getNumberOfBags(), loaded.getNumberOfBags());
+            List<Set<Integer>> bags = new ArrayList<>();
+            for (Bag<Integer> bag : td.getTree()) bags.add(bag.vertices);
+            List<Set<Integer>> loadedBags = new ArrayList<>();
+            for (Bag<Integer> bag : loaded.getTree()) loadedBags.add(bag.vertices);
+            assertEquals(bags, loadedBags);
+            assertEquals(td.getTree().getNumberOfEdges(), loaded.getTree().getNumberOfEdges());
+            assertTrue(loaded.isValid());
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the IntGraph core and the Graph facade build upon it. Pseudo random sequences of edge insertions and
+ * deletions are performed on the graph and on a simple reference implementation, afterwards adjacency and the
+ * edge statistics of the facade are compared.
+ *
+ * @author Max Bannach
+ */
+public class IntGraphTest {
+
+    /* number of vertices of the random graphs */
+    private final int N = 64;
+
+    /* number of random operations per test */
+    private final int TEST_SIZE = 4096;
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    @org.junit.Test
+    public void csrConstruction() throws Exception {
+        int[] tails = {0, 1, 2, 0, 1};
+        int[] heads = {1, 2, 0, 1, 3};
+        IntGraph G = IntGraph.fromArcs(4, tails, heads, tails.length, true);
+        assertEquals(4, G.getNumVertices());
+        assertEquals(8, G.getNumArcs());
+        assertArrayEquals(new int[]{1, 2}, G.getNeighbors(0));
+        assertArrayEquals(new int[]{0, 2, 3}, G.getNeighbors(1));
+        assertTrue(G.isAdjacent(3, 1));
+        assertFalse(G.isAdjacent(3, 0));
+        assertEquals(2, G.countCommonNeighbors(0, 1) + G.countCommonNeighbors(2, 3));
+    }
+
+    @org.junit.Test
+    public void copiesAreIndependent() throws Exception {
+        int[] tails = {0, 1, 2};
+        int[] heads = {1, 2, 3};
+        IntGraph G = IntGraph.fromArcs(4, tails, heads, tails.length, true);
+        IntGraph H = new IntGraph(G);
+        H.addArc(0, 3);
+        H.removeArc(1, 2);
+        assertFalse(G.isAdjacent(0, 3));
+        assertTrue(G.isAdjacent(1, 2));
+        assertTrue(H.isAdjacent(0, 3));
+        assertFalse(H.isAdjacent(1, 2));
+        H.compact();
+        assertTrue(H.isAdjacent(0, 3));
+        assertArrayEquals(new int[]{1}, G.getNeighbors(0));
+        assertArrayEquals(new int[]{1, 3}, H.getNeighbors(0));
+    }
+
+    @org.junit.Test
+    public void randomEdgeSequence() throws Exception {
+        Random rng = new Random(SEED);
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        boolean[][] reference = new boolean[N][N];
+        for (int v = 0; v < N; v++) G.addVertex(v);
+        for (int i = 0; i < TEST_SIZE; i++) {
+            int u = rng.nextInt(N);
+            int v = rng.nextInt(N);
+            if (u == v) continue;
+            if (rng.nextBoolean()) {
+                G.addEdge(u, v);
+                reference[u][v] = reference[v][u] = true;
+            } else if (reference[u][v]) {
+                G.removeEdge(u, v);
+                reference[u][v] = reference[v][u] = false;
+            }
+        }
+
+        // compare adjacency
+        int m = 0;
+        for (int u = 0; u < N; u++) {
+            Set<Integer> neighbors = new HashSet<>();
+            for (int v = 0; v < N; v++) {
+                assertEquals(reference[u][v], G.isAdjacent(u, v));
+                if (reference[u][v]) { neighbors.add(v); m++; }
+            }
+            assertEquals(neighbors, G.getNeighborhood(u));
+        }
+        assertEquals(m/2, G.getNumberOfEdges());
+
+        // the edge statistics have to be consistent
+        assertNull(G.checkFillValues());
+    }
+
+    @org.junit.Test
+    public void eliminateAndDeEliminate() throws Exception {
+        Random rng = new Random(SEED);
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 0; v < N; v++) G.addVertex(v);
+        for (int i = 0; i < 2*N; i++) {
+            int u = rng.nextInt(N);
+            int v = rng.nextInt(N);
+            if (u != v) G.addEdge(u, v);
+        }
+        Graph<Integer> original = GraphFactory.copy(G);
+
+        // eliminate some vertices and check that the copy is not affected
+        Graph<Integer>.EliminationInformation info = G.eliminateVertex(0);
+        assertNull(G.getNeighborhood(0));
+        assertEquals(N-1, G.getNumVertices());
+        assertNull(G.checkFillValues());
+        assertEquals(N, original.getNumVertices());
+
+        // undo the elimination
+        G.deEliminateVertex(info);
+        assertNull(G.checkFillValues());
+        for (int u = 0; u < N; u++) {
+            assertEquals(original.getNeighborhood(u), G.getNeighborhood(u));
+        }
+    }
+
+    @org.junit.Test
+    public void eliminationTrail() throws Exception {
+        Random rng = new Random(SEED);
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 0; v < N; v++) G.addVertex(v);
+        for (int i = 0; i < 2*N; i++) {
+            int u = rng.nextInt(N);
+            int v = rng.nextInt(N);
+            if (u != v) G.addEdge(u, v);
+        }
+        Graph<Integer> original = GraphFactory.copy(G);
+
+        // eliminate the vertices in order, the degrees have to match the classical elimination
+        Graph<Integer> H = GraphFactory.copy(G);
+        int position = G.getTrailPosition();
+        for (int v = 0; v < N/2; v++) {
+            assertEquals(H.getNeighborhood(v).size(), G.eliminateVertexOnTrail(v));
+            H.eliminateVertex(v);
+            assertNull(G.checkFillValues());
+        }
+        assertEquals(H.getNumberOfEdges(), G.getNumberOfEdges());
+
+        // undo half of the eliminations and then everything
+        int middle = G.getTrailPosition();
+        int w = N/2;
+        G.eliminateVertexOnTrail(w);
+        G.undoTrail(middle);
+        assertEquals(H.getNeighborhood(w), G.getNeighborhood(w));
+        G.undoTrail(position);
+        assertEquals(0, G.getTrailPosition());
+        assertNull(G.checkFillValues());
+        assertEquals(original.getNumberOfEdges(), G.getNumberOfEdges());
+        for (int u = 0; u < N; u++) {
+            assertEquals(original.getNeighborhood(u), G.getNeighborhood(u));
+        }
+    }
+
+    @org.junit.Test
+    public void priorityIndex() throws Exception {
+        Random rng = new Random(SEED);
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 0; v < N; v++) G.addVertex(v);
+        for (int i = 0; i < 2*N; i++) {
+            int u = rng.nextInt(N);
+            int v = rng.nextInt(N);
+            if (u != v) G.addEdge(u, v);
+        }
+        G.setPriorityIndex(true);
+
+        // mix eliminations, contractions and trail operations, the index has to match a scan of the graph
+        while (G.getNumVertices() > 1) {
+            assertPriorityIndex(G);
+            int v = G.getMinDegreeVertex();
+            int w = G.getMinFillInVertex();
+            switch (rng.nextInt(3)) {
+                case 0:
+                    G.eliminateVertex(w, true);
+                    G.setLogEdgesInNeighbourhood(true);
+                    break;
+                case 1:
+                    if (G.getNeighborhood(v).size() > 0) G.contract(v, G.getNeighbourhoodAsList(v).get(0));
+                    else G.removeVertex(v);
+                    break;
+                default:
+                    int position = G.getTrailPosition();
+                    G.eliminateVertexOnTrail(v);
+                    if (G.getNumVertices() > 0) G.eliminateVertexOnTrail(G.getMinFillInVertex());
+                    assertPriorityIndex(G);
+                    G.undoTrail(position);
+                    assertPriorityIndex(G);
+                    G.eliminateVertexOnTrail(w);
+            }
+            assertNull(G.checkFillValues());
+        }
+    }
+
+    /* compares the minima of the priority index with a scan over the graph */
+    private void assertPriorityIndex(Graph<Integer> G) {
+        int minDegree = Integer.MAX_VALUE, minFill = Integer.MAX_VALUE;
+        for (int v : G) {
+            minDegree = Math.min(minDegree, G.getNeighborhood(v).size());
+            minFill = Math.min(minFill, G.getFillInValue(v));
+        }
+        if (G.getNumVertices() == 0) {
+            assertNull(G.getMinDegreeVertex());
+            return;
+        }
+        assertEquals(minDegree, G.getNeighborhood(G.getMinDegreeVertex()).size());
+        assertEquals(minFill, G.getFillInValue(G.getMinFillInVertex()));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.graph;
+
+import jdrasil.algorithms.upperbounds.GreedyPermutationDecomposer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Stack;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the validation of tree decompositions, which is compared against a direct check of the definition.
+ *
+ * @author Max Bannach
+ */
+public class TreeDecompositionTest {
+
+    /* number of vertices of the random graphs */
+    private final int N = 100;
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    private Graph<Integer> randomGraph(Random rng) {
+        Graph<Integer> G = GraphFactory.emptyGraph();
+        for (int v = 1; v <= N; v++) G.addVertex(v);
+        int m = rng.nextInt(3*N);
+        for (int i = 0; i < m; i++) {
+            int u = 1 + rng.nextInt(N);
+            int v = 1 + rng.nextInt(N);
+            if (u != v) G.addEdge(u, v);
+        }
+        return G;
+    }
+
+    /* checks the definition of a tree decomposition directly */
+    private boolean isValidByDefinition(TreeDecomposition<Integer> td) {
+        Graph<Bag<Integer>> tree = td.getTree();
+        if (tree.getNumberOfEdges() + tree.getConnectedComponents().size() != tree.getNumVertices()) return false;
+        for (Integer v : td.getGraph()) {
+            Set<Bag<Integer>> containing = new HashSet<>();
+            for (Bag<Integer> b : tree) if (b.contains(v)) containing.add(b);
+            if (containing.isEmpty()) return false;
+            Set<Bag<Integer>> visited = new HashSet<>();
+            Stack<Bag<Integer>> S = new Stack<>();
+            S.push(containing.iterator().next());
+            visited.add(S.peek());
+            while (!S.isEmpty()) {
+                for (Bag<Integer> w : tree.getNeighborhood(S.pop())) {
+                    if (containing.contains(w) && visited.add(w)) S.push(w);
+                }
+            }
+            if (visited.size() != containing.size()) return false;
+            for (Integer w : td.getGraph().getNeighborhood(v)) {
+                boolean covered = false;
+                for (Bag<Integer> b : containing) covered |= b.contains(w);
+                if (!covered) return false;
+            }
+        }
+        return true;
+    }
+
+    @org.junit.Test
+    public void validDecompositions() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 16; test++) {
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(randomGraph(rng)).call();
+            if (test % 2 == 0) td.connectComponents();
+            assertTrue(td.isValid(false));
+            assertTrue(td.isValid(true));
+        }
+    }
+
+    @org.junit.Test
+    public void corruptedDecompositions() throws Exception {
+        Random rng = new Random(SEED);
+        for (int test = 0; test < 64; test++) {
+            TreeDecomposition<Integer> td = new GreedyPermutationDecomposer<>(randomGraph(rng)).call();
+            td.connectComponents();
+            List<Bag<Integer>> bags = new ArrayList<>(td.getBags());
+            Bag<Integer> bag = bags.get(rng.nextInt(bags.size()));
+            switch (test % 3) {
+                case 0: // remove a vertex from a bag
+                    List<Integer> vertices = new ArrayList<>(bag.vertices);
+                    bag.vertices.remove(vertices.get(rng.nextInt(vertices.size())));
+                    break;
+                case 1: // remove a tree edge, vertices may get disconnected
+                    if (!td.getNeighborhood(bag).isEmpty()) td.getTree().removeEdge(bag, td.getNeighborhood(bag).iterator().next());
+                    break;
+                case 2: // add a tree edge, this closes a cycle
+                    Bag<Integer> other = bags.get(rng.nextInt(bags.size()));
+                    if (other != bag) td.addTreeEdge(bag, other);
+                    break;
+            }
+            boolean expected = isValidByDefinition(td);
+            assertEquals(expected, td.isValid(false));
+            assertEquals(expected, td.isValid(true));
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the ConcurrentBitSetTrie that compares its queries with manually computed sub- and supersets of pseudo random
+ * sets, and that inserts the same sets from multiple threads.
+ *
+ * @author Max Bannach
+ */
+public class ConcurrentBitSetTrieTest {
+
+    /* size of bitsets inserted to the trie (small, such that there are many sub- and supersets) */
+    private final int BITSET_SIZE = 16;
+
+    /* how many bitsets are inserted into the trie per test? */
+    private final int TEST_SIZE = 1024;
+
+    /* number of stripes of the tested trie */
+    private final int STRIPES = 5;
+
+    /* Seed for the random number generator used to create bitsets */
+    private final long SEED = 123456789;
+
+    /**
+     * Creates pseudo random sets of different density, including the empty set.
+     */
+    private List<BitSet> randomSets() {
+        Set<BitSet> sets = new HashSet<>();
+        Random rng = new Random(SEED);
+        sets.add(new BitSet());
+        for (int i = 0; i < TEST_SIZE; i++) {
+            BitSet set = new BitSet();
+            double p = rng.nextDouble();
+            for (int j = 0; j < BITSET_SIZE; j++) set.set(j, rng.nextDouble() < p);
+            sets.add(set);
+        }
+        return new ArrayList<>(sets);
+    }
+
+    private static boolean isSubset(BitSet a, BitSet b) {
+        BitSet tmp = (BitSet) a.clone();
+        tmp.andNot(b);
+        return tmp.isEmpty();
+    }
+
+    @org.junit.Test
+    public void insertContains() throws Exception {
+        ConcurrentBitSetTrie T = new ConcurrentBitSetTrie(STRIPES);
+        for (BitSet set : randomSets()) {
+            assertFalse(T.contains(set));
+            assertTrue(T.insert(set));
+            assertTrue(T.contains(set));
+            assertFalse(T.insert(set));
+        }
+        T.clear();
+        for (BitSet set : randomSets()) assertFalse(T.contains(set));
+    }
+
+    @org.junit.Test
+    public void subAndSupersets() throws Exception {
+        ConcurrentBitSetTrie T = new ConcurrentBitSetTrie(STRIPES);
+        List<BitSet> sets = randomSets();
+        List<BitSet> inserted = sets.subList(0, sets.size()/2);
+        for (BitSet set : inserted) T.insert(set);
+
+        for (BitSet set : sets) {
+            Set<BitSet> subsets = new HashSet<>();
+            int supersets = 0;
+            for (BitSet other : inserted) {
+                if (isSubset(other, set)) subsets.add(other);
+                if (isSubset(set, other)) supersets++;
+            }
+            assertEquals(subsets, new HashSet<>(T.getSubSets(set)));
+            assertEquals(supersets > 0, T.containsSuperSet(set));
+
+            // the predicate is tested on every superset, if it never holds
+            AtomicInteger tested = new AtomicInteger();
+            assertFalse(T.anySuperSet(set, superset -> {
+                assertTrue(isSubset(set, superset));
+                tested.incrementAndGet();
+                return false;
+            }));
+            assertEquals(supersets, tested.get());
+        }
+    }
+
+    @org.junit.Test
+    public void concurrentInsert() throws Exception {
+        ConcurrentBitSetTrie T = new ConcurrentBitSetTrie(STRIPES);
+        List<BitSet> sets = randomSets();
+        AtomicInteger successful = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                for (BitSet set : sets) if (T.insert(set)) successful.incrementAndGet();
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        // every set is inserted by exactly one thread
+        assertEquals(sets.size(), successful.get());
+        for (BitSet set : sets) assertTrue(T.contains(set));
+    }
+}
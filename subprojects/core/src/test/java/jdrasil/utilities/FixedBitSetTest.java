@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the FixedBitSet that compares the results of pseudo random set operations with java.util.BitSet.
+ *
+ * @author Max Bannach
+ */
+public class FixedBitSetTest {
+
+    /* size of the universe, not a multiple of the word size */
+    private final int UNIVERSE_SIZE = 150;
+
+    /* how many pairs of sets are tested */
+    private final int TEST_SIZE = 1024;
+
+    /* Seed for the random number generator used to create bitsets */
+    private final long SEED = 123456789;
+
+    private BitSet randomSet(Random rng) {
+        BitSet set = new BitSet();
+        int density = 1 + rng.nextInt(8);
+        for (int i = 0; i < UNIVERSE_SIZE; i++) if (rng.nextInt(density) == 0) set.set(i);
+        return set;
+    }
+
+    @org.junit.Test
+    public void binaryOperations() throws Exception {
+        Random rng = new Random(SEED);
+        for (int i = 0; i < TEST_SIZE; i++) {
+            BitSet a = randomSet(rng), b = randomSet(rng);
+            FixedBitSet x = FixedBitSet.valueOf(a, UNIVERSE_SIZE), y = FixedBitSet.valueOf(b, UNIVERSE_SIZE);
+            assertEquals(a, x.toBitSet());
+
+            BitSet union = (BitSet) a.clone(); union.or(b);
+            BitSet intersection = (BitSet) a.clone(); intersection.and(b);
+            BitSet difference = (BitSet) a.clone(); difference.andNot(b);
+            assertEquals(union.cardinality(), FixedBitSet.unionCardinality(x, y));
+            assertEquals(intersection.cardinality(), FixedBitSet.intersectionCardinality(x, y));
+            assertEquals(difference.cardinality(), FixedBitSet.differenceCardinality(x, y));
+            assertEquals(a.intersects(b), x.intersects(y));
+            assertEquals(difference.isEmpty(), x.isSubsetOf(y));
+
+            FixedBitSet z = x.clone(); z.or(y);
+            assertEquals(union, z.toBitSet());
+            z.copyFrom(x); z.and(y);
+            assertEquals(intersection, z.toBitSet());
+            z.copyFrom(x); z.andNot(y);
+            assertEquals(difference, z.toBitSet());
+            assertEquals(FixedBitSet.valueOf(difference, UNIVERSE_SIZE), z);
+            assertEquals(FixedBitSet.valueOf(difference, UNIVERSE_SIZE).hashCode(), z.hashCode());
+        }
+    }
+
+    @org.junit.Test
+    public void iterationAndComplement() throws Exception {
+        Random rng = new Random(SEED);
+        for (int i = 0; i < TEST_SIZE; i++) {
+            BitSet a = randomSet(rng);
+            FixedBitSet x = FixedBitSet.valueOf(a, UNIVERSE_SIZE);
+            assertEquals(a.cardinality(), x.cardinality());
+            assertEquals(a.length(), x.length());
+            for (int j = 0; j <= UNIVERSE_SIZE; j++) {
+                assertEquals(a.nextSetBit(j), x.nextSetBit(j));
+                assertEquals(a.previousSetBit(j), x.previousSetBit(j));
+            }
+
+            BitSet complement = (BitSet) a.clone();
+            complement.flip(0, UNIVERSE_SIZE);
+            x.complement();
+            assertEquals(complement, x.toBitSet());
+        }
+        FixedBitSet all = new FixedBitSet(UNIVERSE_SIZE);
+        all.setAll();
+        assertEquals(UNIVERSE_SIZE, all.cardinality());
+        all.clearAll();
+        assertTrue(all.isEmpty());
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the OffHeapConfigurationStore that compares it with a hash map on pseudo random configurations, both with
+ * direct buffers and with buffers that are completely mapped to disk.
+ *
+ * @author Max Bannach
+ */
+public class OffHeapConfigurationStoreTest {
+
+    /* number of words of the stored configurations */
+    private final int WORDS = 3;
+
+    /* how many configurations are stored per test? */
+    private final int TEST_SIZE = 20000;
+
+    /* Seed for the random number generator used to create configurations */
+    private final long SEED = 123456789;
+
+    /**
+     * Stores pseudo random configurations (with many collisions in the first word) in the given store and compares
+     * the results of all queries with a hash map.
+     */
+    private void compareWithHashMap(ConfigurationStore store) {
+        Map<List<Long>, Integer> map = new HashMap<>();
+        Random rng = new Random(SEED);
+        for (int i = 0; i < TEST_SIZE; i++) {
+            long[] key = new long[WORDS];
+            key[0] = rng.nextInt(16);
+            for (int j = 1; j < WORDS; j++) key[j] = rng.nextInt(64) == 0 ? rng.nextLong() : rng.nextInt(32);
+            List<Long> list = Arrays.asList(key[0], key[1], key[2]);
+            assertEquals(map.getOrDefault(list, -1).intValue(), store.get(key, -1));
+            int value = rng.nextInt(1000);
+            store.put(key, value);
+            key[0] = -1; // the store must not keep a reference to the key
+            map.put(list, value);
+            assertEquals(map.size(), store.size());
+        }
+        for (List<Long> list : map.keySet()) {
+            long[] key = new long[] { list.get(0), list.get(1), list.get(2) };
+            assertEquals(map.get(list).intValue(), store.get(key, -1));
+        }
+        store.clear();
+        assertEquals(0, store.size());
+        for (List<Long> list : map.keySet()) {
+            long[] key = new long[] { list.get(0), list.get(1), list.get(2) };
+            assertEquals(-1, store.get(key, -1));
+        }
+    }
+
+    @org.junit.Test
+    public void testDirect() {
+        compareWithHashMap(new OffHeapConfigurationStore(WORDS, 64 * 1024 * 1024));
+    }
+
+    @org.junit.Test
+    public void testMapped() {
+        compareWithHashMap(new OffHeapConfigurationStore(WORDS, 0));
+    }
+
+    @org.junit.Test
+    public void testHeap() {
+        compareWithHashMap(new HeapConfigurationStore(WORDS));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-present, Max Bannach, Sebastian Berndt, Thorsten Ehlers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package jdrasil.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that seeded runs of the RandomNumberGenerator are reproducible, also if dice are split to other threads.
+ *
+ * @author Max Bannach
+ */
+public class RandomNumberGeneratorTest {
+
+    /* Seed for the random number generator */
+    private final long SEED = 123456789;
+
+    /* how many numbers are drawn per sequence */
+    private final int SEQUENCE_LENGTH = 256;
+
+    /* how many tasks draw in parallel */
+    private final int TASKS = 8;
+
+    private long[] sequence() {
+        long[] sequence = new long[SEQUENCE_LENGTH];
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) sequence[i] = RandomNumberGenerator.nextLong();
+        return sequence;
+    }
+
+    /* seed the generator, split a dice for every task, and let the tasks draw in parallel with their dice */
+    private List<long[]> parallelSequences() throws Exception {
+        RandomNumberGenerator.seed(SEED);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < TASKS; t++) {
+            RandomNumberGenerator.Dice dice = RandomNumberGenerator.split();
+            futures.add(pool.submit(() -> {
+                RandomNumberGenerator.Dice previous = RandomNumberGenerator.setDice(dice);
+                try {
+                    return sequence();
+                } finally {
+                    RandomNumberGenerator.setDice(previous);
+                }
+            }));
+        }
+        List<long[]> sequences = new ArrayList<>();
+        for (Future<long[]> future : futures) sequences.add(future.get());
+        sequences.add(sequence()); // the sequence of the seeding thread continues after the splits
+        pool.shutdown();
+        return sequences;
+    }
+
+    @org.junit.Test
+    public void seededSequence() throws Exception {
+        RandomNumberGenerator.seed(SEED);
+        long[] first = sequence();
+        RandomNumberGenerator.seed(SEED);
+        assertArrayEquals(first, sequence());
+        RandomNumberGenerator.seed(SEED+1);
+        assertFalse(Arrays.equals(first, sequence()));
+    }
+
+    @org.junit.Test
+    public void diceFromSeed() throws Exception {
+        RandomNumberGenerator.seed(SEED);
+        long[] seeded = sequence();
+        RandomNumberGenerator.seed(SEED+1);
+        long[] other = sequence();
+
+        // a dice from the seed draws the seeded sequence, and the sequence of the thread continues afterwards
+        RandomNumberGenerator.seed(SEED+1);
+        RandomNumberGenerator.Dice previous = RandomNumberGenerator.setDice(RandomNumberGenerator.fromSeed(SEED));
+        assertArrayEquals(seeded, sequence());
+        RandomNumberGenerator.setDice(previous);
+        assertArrayEquals(other, sequence());
+    }
+
+    @org.junit.Test
+    public void splitSequences() throws Exception {
+        List<long[]> first = parallelSequences();
+        List<long[]> second = parallelSequences();
+        for (int t = 0; t < first.size(); t++) {
+            assertArrayEquals(first.get(t), second.get(t));
+            for (int s = 0; s < t; s++) assertFalse(Arrays.equals(first.get(s), first.get(t)));
+        }
+    }
+
+    @org.junit.Test
+    public void diceAsRandom() throws Exception {
+        RandomNumberGenerator.seed(SEED);
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int bound = 1 + i;
+            int x = RandomNumberGenerator.getDice().nextInt(bound);
+            assertTrue(0 <= x && x < bound);
+            float f = RandomNumberGenerator.nextFloat();
+            assertTrue(0 <= f && f < 1);
+        }
+    }
+
+}